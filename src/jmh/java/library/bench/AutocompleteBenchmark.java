@@ -0,0 +1,69 @@
+package library.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import library.search.AutocompleteIndex;
+import library.search.IndexedStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Podpowiedzi {@link AutocompleteIndex} dla katalogu z {@link CatalogFixture}
+ * (tytuły "Książka N", autorzy "Autor N").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AutocompleteBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    private CatalogFixture fixture;
+    private AutocompleteIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CatalogFixture.create(size, "memory");
+        index = IndexedStorage.open(fixture.storage).index();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    /** Krótki prefiks - wiele pasujących tytułów, zwracane jest pierwszych 10 */
+    @Benchmark
+    public List<AutocompleteIndex.ItemRef> shortPrefix() {
+        return index.completeItems("książka " + ThreadLocalRandom.current().nextInt(10), 10);
+    }
+
+    /** Prefiks autora - brak dopasowań po tytule, podpowiedzi z drzewa autorów */
+    @Benchmark
+    public List<AutocompleteIndex.ItemRef> authorPrefix() {
+        return index.completeItems("autor " + ThreadLocalRandom.current().nextInt(size / 20), 10);
+    }
+
+    /** Cały tytuł - dokładnie jedno dopasowanie */
+    @Benchmark
+    public List<AutocompleteIndex.ItemRef> exactTitle() {
+        return index.completeItems("książka " + ThreadLocalRandom.current().nextInt(size), 10);
+    }
+}
@@ -0,0 +1,170 @@
+package library.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+import library.db.DatabaseManager;
+import library.db.SqliteStorage;
+import library.model.Book;
+import library.model.Item;
+import library.model.Magazine;
+import library.repository.Storage;
+import library.repository.log.LogStorage;
+import library.repository.memory.InMemoryStorage;
+
+/**
+ * Baza SQLite w pliku tymczasowym (lub magazyn w pamięci), wypełniona katalogiem o zadanej wielkości.
+ * Używana jako środowisko testów wydajności; dane są generowane deterministycznie (stałe ziarno).
+ */
+public final class CatalogFixture implements AutoCloseable {
+
+    static final String[] GENRES = {"Fantastyka", "Kryminał", "Poezja", "Reportaż", "Historia", "Nauka"};
+    private static final int INSERT_BATCH = 10_000;
+
+    /** Plik bazy danych, katalog dziennika magazynu log lub null dla magazynu w pamięci */
+    public final Path dbFile;
+
+    /** UUID wszystkich pozycji w kolejności wstawiania */
+    public final UUID[] uuids;
+
+    /** Magazyn danych z wypełnionym katalogiem */
+    public final Storage storage;
+
+    private CatalogFixture(Path dbFile, UUID[] uuids, Storage storage) {
+        this.dbFile = dbFile;
+        this.uuids = uuids;
+        this.storage = storage;
+    }
+
+    /**
+     * Tworzy pustą bazę w pliku tymczasowym i ustawia ją jako bieżące połączenie {@link DatabaseManager}.
+     *
+     * @return środowisko z pustym katalogiem
+     * @throws IOException jeśli nie udało się utworzyć pliku
+     */
+    public static CatalogFixture empty() throws IOException {
+        return create(0);
+    }
+
+    /**
+     * Tworzy bazę w pliku tymczasowym z {@code size} pozycjami (90% książek, 10% magazynów)
+     * i ustawia ją jako bieżące połączenie {@link DatabaseManager}.
+     *
+     * @param size liczba pozycji
+     * @return środowisko z wypełnionym katalogiem
+     * @throws IOException jeśli nie udało się utworzyć pliku lub zapisać danych
+     */
+    public static CatalogFixture create(int size) throws IOException {
+        Path file = Files.createTempFile("vizja-bench-", ".db");
+        DatabaseManager.close();
+        DatabaseManager.connect("jdbc:sqlite:" + file.toAbsolutePath());
+
+        Random random = new Random(42);
+        UUID[] uuids = new UUID[size];
+        Connection conn = DatabaseManager.getConn();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO items (uuid,type,title,year,author,genre,issueNumber,available,loanedTo) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < size; i++) {
+                UUID uuid = new UUID(random.nextLong(), random.nextLong());
+                uuids[i] = uuid;
+                boolean book = i % 10 != 0;
+                ps.setString(1, uuid.toString());
+                ps.setString(2, book ? "book" : "magazine");
+                ps.setString(3, (book ? "Książka " : "Magazyn ") + i);
+                ps.setInt(4, 1900 + random.nextInt(125));
+                if (book) {
+                    ps.setString(5, "Autor " + random.nextInt(Math.max(1, size / 20)));
+                    ps.setString(6, GENRES[random.nextInt(GENRES.length)]);
+                    ps.setNull(7, Types.INTEGER);
+                } else {
+                    ps.setNull(5, Types.VARCHAR);
+                    ps.setNull(6, Types.VARCHAR);
+                    ps.setInt(7, 1 + random.nextInt(12));
+                }
+                ps.setBoolean(8, true);
+                ps.setNull(9, Types.VARCHAR);
+                ps.addBatch();
+                if ((i + 1) % INSERT_BATCH == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new IOException("Nie udało się wypełnić bazy testowej: " + e.getMessage(), e);
+        }
+        return new CatalogFixture(file, uuids, new SqliteStorage());
+    }
+
+    /**
+     * Tworzy środowisko z {@code size} pozycjami w wybranym magazynie danych.
+     * Dla obu magazynów powstają te same pozycje.
+     *
+     * @param size liczba pozycji
+     * @param backend "sqlite", "memory" lub "log" (dziennik zdarzeń w katalogu tymczasowym, z fsync)
+     * @return środowisko z wypełnionym katalogiem
+     * @throws IOException jeśli nie udało się utworzyć bazy
+     */
+    public static CatalogFixture create(int size, String backend) throws IOException {
+        Path dir = null;
+        Storage storage;
+        if ("memory".equals(backend)) {
+            storage = new InMemoryStorage();
+        } else if ("log".equals(backend)) {
+            dir = Files.createTempDirectory("vizja-bench-log-");
+            storage = new LogStorage(dir, true, 0, Long.MAX_VALUE);
+        } else {
+            return create(size);
+        }
+        Random random = new Random(42);
+        UUID[] uuids = new UUID[size];
+        List<Item> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < size; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            uuids[i] = uuid;
+            int year = 1900 + random.nextInt(125);
+            if (i % 10 != 0) {
+                String author = "Autor " + random.nextInt(Math.max(1, size / 20));
+                String genre = GENRES[random.nextInt(GENRES.length)];
+                batch.add(new Book(uuid, "Książka " + i, year, author, genre, true, null));
+            } else {
+                batch.add(new Magazine(uuid, "Magazyn " + i, year, 1 + random.nextInt(12), true, null));
+            }
+            if (batch.size() == INSERT_BATCH) {
+                storage.items().saveAll(batch);
+                batch.clear();
+            }
+        }
+        storage.items().saveAll(batch);
+        return new CatalogFixture(dir, uuids, storage);
+    }
+
+    /**
+     * Zamyka połączenie i usuwa plik bazy wraz z plikami {@code -wal} i {@code -shm} SQLite.
+     */
+    @Override
+    public void close() throws IOException {
+        if (dbFile == null) return;
+        if (storage instanceof LogStorage) {
+            ((LogStorage) storage).close();
+            try (Stream<Path> files = Files.list(dbFile)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+            }
+        } else {
+            DatabaseManager.close();
+            Files.deleteIfExists(dbFile.resolveSibling(dbFile.getFileName() + "-wal"));
+            Files.deleteIfExists(dbFile.resolveSibling(dbFile.getFileName() + "-shm"));
+        }
+        Files.deleteIfExists(dbFile);
+    }
+}
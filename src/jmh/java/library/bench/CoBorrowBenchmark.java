@@ -0,0 +1,90 @@
+package library.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import library.search.CoBorrowModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Model rekomendacji {@link CoBorrowModel} dla syntetycznej historii wypożyczeń
+ * (popularność pozycji malejąca jak w rozkładzie Zipfa).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CoBorrowBenchmark {
+
+    @Param({"10000", "100000"})
+    int users;
+
+    @Param({"100000"})
+    int items;
+
+    private UUID[] uuids;
+    private CoBorrowModel model;
+    private Map<String, List<UUID>> loans;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        uuids = new UUID[items];
+        for (int i = 0; i < items; i++) {
+            uuids[i] = new UUID(0, i);
+        }
+        loans = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            List<UUID> basket = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                basket.add(uuids[popular(random)]);
+            }
+            loans.put("user" + u, basket);
+        }
+        model = new CoBorrowModel(20, 50);
+        model.rebuild(loans);
+    }
+
+    /** Indeks pozycji - pierwsze pozycje wypożyczane znacznie częściej niż ostatnie */
+    private int popular(Random random) {
+        return (int) Math.min(items - 1, Math.exp(random.nextDouble() * Math.log(items)) - 1);
+    }
+
+    /** Lista sąsiadów jednej pozycji - odczyt w panelu użytkownika */
+    @Benchmark
+    public List<CoBorrowModel.Neighbor> neighbors() {
+        return model.neighbors(uuids[ThreadLocalRandom.current().nextInt(items)]);
+    }
+
+    /** Zarejestrowanie wypożyczenia - aktualizacja przyrostowa */
+    @Benchmark
+    public void recordLoan() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        model.recordLoan("user" + random.nextInt(users), uuids[random.nextInt(items)]);
+    }
+
+    /** Pełna przebudowa modelu (równoległa) */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int rebuild() {
+        return model.rebuild(Map.of());
+    }
+}
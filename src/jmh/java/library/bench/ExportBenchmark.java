@@ -0,0 +1,68 @@
+package library.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import library.util.SerializationUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Testy wydajności eksportu katalogu przez {@link SerializationUtil}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExportBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    private CatalogFixture fixture;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CatalogFixture.create(size);
+        output = Files.createTempFile("vizja-bench-export-", ".out");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public int exportToBin() throws IOException {
+        try (OutputStream out = Files.newOutputStream(output)) {
+            return SerializationUtil.exportToBin(fixture.storage, out);
+        }
+    }
+
+    @Benchmark
+    public int exportToTxt() throws IOException {
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8)) {
+            return SerializationUtil.exportToTxt(fixture.storage, out);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package library.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import library.model.Item;
+import library.search.TrigramIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wyszukiwanie odporne na literówki ({@link TrigramIndex}) w katalogu z {@link CatalogFixture}:
+ * zapytania bez polskich znaków i z jedną zmienioną cyfrą tytułu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FuzzySearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    private CatalogFixture fixture;
+    private TrigramIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CatalogFixture.create(size, "memory");
+        index = new TrigramIndex();
+        for (Item item : fixture.storage.items().getAll()) {
+            index.putItem(item);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<TrigramIndex.Hit> misspelledTitle() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] title = ("ksiazka " + random.nextInt(size)).toCharArray();
+        title[8 + random.nextInt(title.length - 8)] = (char) ('0' + random.nextInt(10));
+        return index.search(new String(title), 10);
+    }
+}
@@ -0,0 +1,76 @@
+package library.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import library.util.SerializationUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Testy wydajności importu CSV przez {@link SerializationUtil#importFromTxt(library.repository.Storage, BufferedReader, int)}.
+ * Plik wejściowy jest przygotowywany raz, a każda iteracja importuje go do nowej, pustej bazy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ImportBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"1000"})
+    int batchSize;
+
+    private Path csv;
+    private CatalogFixture target;
+
+    @Setup(Level.Trial)
+    public void prepareInput() throws IOException {
+        csv = Files.createTempFile("vizja-bench-import-", ".csv");
+        try (CatalogFixture source = CatalogFixture.create(size);
+             Writer out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            SerializationUtil.exportToTxt(source.storage, out);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareDatabase() throws IOException {
+        target = CatalogFixture.empty();
+    }
+
+    @TearDown(Level.Iteration)
+    public void dropDatabase() throws IOException {
+        target.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteInput() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public int[] importFromTxt() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            return SerializationUtil.importFromTxt(target.storage, reader, batchSize);
+        }
+    }
+}
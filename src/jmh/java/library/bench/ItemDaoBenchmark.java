@@ -0,0 +1,83 @@
+package library.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import library.db.ItemDao;
+import library.model.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Testy wydajności operacji {@link ItemDao} dla katalogów różnej wielkości.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ItemDaoBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    private CatalogFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CatalogFixture.create(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    private UUID randomUuid() {
+        return fixture.uuids[ThreadLocalRandom.current().nextInt(fixture.uuids.length)];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public List<Item> getAll() {
+        return ItemDao.getAll();
+    }
+
+    @Benchmark
+    public Optional<Item> getByUuid() {
+        return ItemDao.getByUuid(randomUuid());
+    }
+
+    @Benchmark
+    public List<Item> getPage() {
+        long offset = ThreadLocalRandom.current().nextLong(Math.max(1, size - 20));
+        return ItemDao.getPage(offset, 20);
+    }
+
+    /**
+     * Wypożyczenie i zwrot tej samej pozycji - stan katalogu po każdym wywołaniu pozostaje bez zmian.
+     */
+    @Benchmark
+    public boolean borrowAndReturn() {
+        String uuid = randomUuid().toString();
+        return ItemDao.borrowItem(uuid, "bench") & ItemDao.returnItem(uuid);
+    }
+}
@@ -0,0 +1,48 @@
+package library.bench;
+
+import java.util.concurrent.TimeUnit;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Narzut instrumentacji metod DAO: pomiar czasu i zapis do {@link OperationStats}.
+ * Wariant {@code baseline} to sam odczyt zegara, który i tak jest potrzebny do pomiaru.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsBenchmark {
+
+    private final OperationStats stats = MetricsRegistry.operation("Benchmark", "record");
+
+    @Benchmark
+    public long baseline() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void record() {
+        long start = System.nanoTime();
+        stats.record(start);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        long start = System.nanoTime();
+        stats.record(start);
+    }
+}
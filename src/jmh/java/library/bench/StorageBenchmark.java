@@ -0,0 +1,112 @@
+package library.bench;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import library.model.Item;
+import library.repository.ItemQuery;
+import library.repository.ItemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Porównanie magazynów danych ({@code library.storage}) na tym samym katalogu:
+ * operacje stanowiska wykonywane przez {@link ItemRepository}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+
+    @Param({"sqlite", "memory", "log"})
+    String backend;
+
+    @Param({"10000", "100000"})
+    int size;
+
+    private CatalogFixture fixture;
+    private ItemRepository items;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CatalogFixture.create(size, backend);
+        items = fixture.storage.items();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    private UUID randomUuid() {
+        return fixture.uuids[ThreadLocalRandom.current().nextInt(fixture.uuids.length)];
+    }
+
+    @Benchmark
+    public Optional<Item> getByUuid() {
+        return items.getByUuid(randomUuid());
+    }
+
+    @Benchmark
+    public List<Item> getPage() {
+        long offset = ThreadLocalRandom.current().nextLong(Math.max(1, size - 20));
+        return items.getPage(offset, 20);
+    }
+
+    @Benchmark
+    public List<Item> search() {
+        return items.search("Autor " + ThreadLocalRandom.current().nextInt(Math.max(1, size / 20)), 20);
+    }
+
+    /**
+     * 20 najnowszych dostępnych książek z losowego gatunku (indeks złożony w SQLite).
+     */
+    @Benchmark
+    public List<Item> newestAvailableInGenre() {
+        String genre = CatalogFixture.GENRES[ThreadLocalRandom.current().nextInt(CatalogFixture.GENRES.length)];
+        return items.query(new ItemQuery()
+                .type(ItemQuery.Type.BOOK)
+                .genre(genre)
+                .available(true)
+                .orderBy(ItemQuery.Sort.YEAR, true)
+                .limit(20));
+    }
+
+    /**
+     * Wypożyczenie i zwrot tej samej pozycji - stan katalogu po każdym wywołaniu pozostaje bez zmian.
+     */
+    @Benchmark
+    public boolean borrowAndReturn() {
+        String uuid = randomUuid().toString();
+        return items.borrowItem(uuid, "bench") & items.returnItem(uuid);
+    }
+
+    /**
+     * Wypożyczenie i zwrot 10 kolejnych pozycji operacjami grupowymi (koszyk) - do porównania
+     * z {@link #borrowAndReturn()}.
+     */
+    @Benchmark
+    public boolean checkoutAndReturn10() {
+        int from = ThreadLocalRandom.current().nextInt(fixture.uuids.length - 10);
+        List<UUID> cart = Arrays.asList(fixture.uuids).subList(from, from + 10);
+        return items.borrowAll(cart, "bench").success & items.returnAll(cart, null).success;
+    }
+}
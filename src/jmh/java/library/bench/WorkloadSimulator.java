@@ -0,0 +1,372 @@
+package library.bench;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import library.db.DatabaseManager;
+import library.db.ItemDao;
+import library.db.SqliteStorage;
+import library.db.UserDao;
+import library.metrics.LatencyHistogram;
+import library.model.Item;
+import library.service.LibraryService;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Symulator obciążenia odtwarzający dzień pracy biblioteki.
+ * <p>
+ * N czytelników i M bibliotekarzy wykonuje równolegle operacje (przeglądanie, wyszukiwanie,
+ * wypożyczenia, zwroty, logowanie) na {@link ItemDao} i {@link LibraryService} według zadanej
+ * proporcji i z losowym czasem namysłu. Dla każdej operacji zapisywane są percentyle czasu
+ * (p50/p99/p999) oraz przepustowość. Po zakończeniu sprawdzane są niezmienniki, m.in. że żadna
+ * pozycja nie została wypożyczona dwóm osobom jednocześnie.
+ * </p>
+ * <p>
+ * Każdy symulowany użytkownik działa w osobnym wątku wirtualnym, jeśli JVM je udostępnia
+ * (Java 21+); na Java 17 używana jest pula wątków platformowych. Każdy z nich pracuje na własnym
+ * połączeniu z puli ({@link DatabaseManager#leaseConnection()}), tak jak stanowiska w aplikacji,
+ * a nie na jednym połączeniu współdzielonym przez wszystkie wątki.
+ * </p>
+ */
+@Command(name = "simulate", mixinStandardHelpOptions = true,
+        description = "Symulacja równoległego obciążenia biblioteki z pomiarem percentyli czasu.")
+public class WorkloadSimulator implements Callable<Integer> {
+
+    /** Rodzaje operacji wykonywanych przez symulowanych użytkowników */
+    enum Op { BROWSE, SEARCH, BORROW, RETURN, LOGIN, DESK_BORROW, STATS }
+
+    private static final String PASSWORD = "sim";
+
+    @Option(names = "--patrons", description = "Liczba czytelników (domyślnie: ${DEFAULT-VALUE})", defaultValue = "50")
+    int patrons;
+
+    @Option(names = "--librarians", description = "Liczba bibliotekarzy (domyślnie: ${DEFAULT-VALUE})", defaultValue = "2")
+    int librarians;
+
+    @Option(names = "--duration", description = "Czas trwania w sekundach (domyślnie: ${DEFAULT-VALUE})", defaultValue = "30")
+    int durationSec;
+
+    @Option(names = "--think-ms", description = "Średni czas namysłu między operacjami w ms (domyślnie: ${DEFAULT-VALUE})",
+            defaultValue = "50")
+    double thinkMs;
+
+    @Option(names = "--mix", description = "Proporcje operacji czytelnika (domyślnie: ${DEFAULT-VALUE})",
+            defaultValue = "browse=40,search=25,borrow=15,return=15,login=5")
+    String patronMix;
+
+    @Option(names = "--librarian-mix", description = "Proporcje operacji bibliotekarza (domyślnie: ${DEFAULT-VALUE})",
+            defaultValue = "browse=30,search=30,desk_borrow=30,stats=10")
+    String librarianMix;
+
+    @Option(names = "--catalog", description = "Wielkość katalogu w bazie tymczasowej (domyślnie: ${DEFAULT-VALUE})",
+            defaultValue = "10000")
+    int catalogSize;
+
+    @Option(names = "--db", description = "Istniejący plik bazy zamiast bazy tymczasowej")
+    String dbPath;
+
+    @Option(names = "--seed", description = "Ziarno generatora losowego (domyślnie: ${DEFAULT-VALUE})", defaultValue = "42")
+    long seed;
+
+    private final Map<Op, LatencyHistogram> latencies = new EnumMap<>(Op.class);
+    private final Map<Op, LongAdder> misses = new EnumMap<>(Op.class);
+    private final Map<String, Set<UUID>> holdings = new ConcurrentHashMap<>();
+    private final LongAdder borrowsOk = new LongAdder();
+    private final LongAdder returnsOk = new LongAdder();
+
+    private SqliteStorage storage;
+    private UUID[] uuids;
+    private List<String> titles;
+    private List<String> patronNames;
+    private long deadline;
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new WorkloadSimulator()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        for (Op op : Op.values()) {
+            latencies.put(op, new LatencyHistogram());
+            misses.put(op, new LongAdder());
+        }
+        Map<Op, Integer> pMix = parseMix(patronMix);
+        Map<Op, Integer> lMix = parseMix(librarianMix);
+        if (pMix.containsKey(Op.DESK_BORROW)) {
+            throw new IllegalArgumentException("Operacja desk_borrow jest dostępna tylko dla bibliotekarzy");
+        }
+        for (Op op : new Op[] {Op.BORROW, Op.RETURN, Op.LOGIN}) {
+            if (lMix.containsKey(op)) {
+                throw new IllegalArgumentException("Operacja " + op + " jest dostępna tylko dla czytelników");
+            }
+        }
+
+        CatalogFixture fixture = null;
+        if (dbPath == null) {
+            fixture = CatalogFixture.create(catalogSize);
+            uuids = fixture.uuids;
+        } else {
+            DatabaseManager.connect("jdbc:sqlite:" + dbPath);
+            uuids = ItemDao.getAll().stream().map(Item::getUuid).toArray(UUID[]::new);
+        }
+        storage = new SqliteStorage();
+        try {
+            if (uuids.length == 0) {
+                System.err.println("Katalog jest pusty - brak danych do symulacji.");
+                return 2;
+            }
+            prepareData();
+            long loanedBefore = ItemDao.countLoaned();
+
+            ExecutorService executor = newExecutor();
+            long start = System.nanoTime();
+            deadline = start + TimeUnit.SECONDS.toNanos(durationSec);
+            for (int i = 0; i < patronNames.size(); i++) {
+                String name = patronNames.get(i);
+                Random rnd = new Random(seed + i);
+                executor.submit(() -> run(rnd, pMix, name));
+            }
+            for (int i = 0; i < librarians; i++) {
+                Random rnd = new Random(seed - i - 1);
+                executor.submit(() -> run(rnd, lMix, null));
+            }
+            executor.shutdown();
+            executor.awaitTermination(durationSec + 120L, TimeUnit.SECONDS);
+            double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            printReport(elapsed);
+            List<String> violations = verifyInvariants(loanedBefore);
+            if (violations.isEmpty()) {
+                System.out.println("Niezmienniki: OK");
+                return 0;
+            }
+            System.out.println("Naruszenia niezmienników (" + violations.size() + "):");
+            violations.stream().limit(20).forEach(v -> System.out.println("  " + v));
+            return 1;
+        } finally {
+            if (fixture != null) fixture.close();
+        }
+    }
+
+    /**
+     * Tworzy konta czytelników (jeśli nie istnieją) i wczytuje ich bieżące wypożyczenia.
+     */
+    private void prepareData() {
+        patronNames = new ArrayList<>();
+        DatabaseManager.beginTransaction();
+        for (int i = 0; i < patrons; i++) {
+            String name = "sim-patron-" + i;
+            if (UserDao.getByUsername(name).isEmpty()) {
+                UserDao.addUser(name, "Czytelnik " + i, PASSWORD);
+            }
+            patronNames.add(name);
+        }
+        DatabaseManager.commitTransaction();
+        for (String name : patronNames) {
+            Set<UUID> held = ConcurrentHashMap.newKeySet();
+            for (Item item : ItemDao.getUserLoans(name)) held.add(item.getUuid());
+            holdings.put(name, held);
+        }
+        titles = new ArrayList<>();
+        for (Item item : ItemDao.getPage(0, 10_000)) titles.add(item.getTitle());
+    }
+
+    /**
+     * Pętla pojedynczego symulowanego użytkownika.
+     *
+     * @param rnd generator losowy wątku
+     * @param mix proporcje operacji
+     * @param patron login czytelnika lub null dla bibliotekarza
+     */
+    private void run(Random rnd, Map<Op, Integer> mix, String patron) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        LibraryService service = new LibraryService(storage);
+        Connection conn = DatabaseManager.leaseConnection();
+        DatabaseManager.bindConnection(conn);
+        try {
+            while (System.nanoTime() < deadline) {
+                Op op = pick(rnd, mix, totalWeight);
+                long t0 = System.nanoTime();
+                boolean ok = execute(op, rnd, patron, service);
+                latencies.get(op).record(System.nanoTime() - t0);
+                if (!ok) misses.get(op).increment();
+                think(rnd);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Błąd symulowanego użytkownika " + (patron == null ? "(bibliotekarz)" : patron)
+                    + ": " + e);
+        } finally {
+            DatabaseManager.unbindConnection();
+            DatabaseManager.releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Wykonuje jedną operację.
+     *
+     * @return true jeśli operacja zakończyła się sukcesem
+     */
+    private boolean execute(Op op, Random rnd, String patron, LibraryService service) {
+        switch (op) {
+            case BROWSE:
+                return !ItemDao.getPage(rnd.nextInt(Math.max(1, uuids.length - 20)), 20).isEmpty();
+            case SEARCH:
+                return !ItemDao.search(searchTerm(rnd), 20).isEmpty();
+            case BORROW:
+                return borrow(uuids[rnd.nextInt(uuids.length)], patron);
+            case RETURN: {
+                Set<UUID> held = holdings.get(patron);
+                Iterator<UUID> it = held.iterator();
+                if (!it.hasNext()) return false;
+                UUID uuid = it.next();
+                if (ItemDao.returnItemByUser(uuid.toString(), patron)) {
+                    held.remove(uuid);
+                    returnsOk.increment();
+                    return true;
+                }
+                return false;
+            }
+            case LOGIN:
+                return service.login(patron, PASSWORD, "user");
+            case DESK_BORROW:
+                return borrow(uuids[rnd.nextInt(uuids.length)], patronNames.get(rnd.nextInt(patronNames.size())));
+            case STATS:
+                return ItemDao.count() >= ItemDao.countLoaned();
+            default:
+                return false;
+        }
+    }
+
+    private boolean borrow(UUID uuid, String patron) {
+        if (ItemDao.borrowItem(uuid.toString(), patron)) {
+            holdings.get(patron).add(uuid);
+            borrowsOk.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private String searchTerm(Random rnd) {
+        String title = titles.get(rnd.nextInt(titles.size()));
+        int len = Math.min(4, title.length());
+        int from = rnd.nextInt(title.length() - len + 1);
+        return title.substring(from, from + len);
+    }
+
+    private void think(Random rnd) {
+        if (thinkMs <= 0) return;
+        long ms = (long) (-thinkMs * Math.log(1 - rnd.nextDouble()));
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sprawdza spójność stanu bazy z historią udanych operacji.
+     *
+     * @param loanedBefore liczba wypożyczonych pozycji przed symulacją
+     * @return lista opisów naruszeń (pusta, jeśli wszystko się zgadza)
+     */
+    private List<String> verifyInvariants(long loanedBefore) {
+        List<String> violations = new ArrayList<>();
+        Map<UUID, String> owner = new HashMap<>();
+        for (String patron : patronNames) {
+            Set<UUID> inDb = new HashSet<>();
+            for (Item item : ItemDao.getUserLoans(patron)) inDb.add(item.getUuid());
+            Set<UUID> expected = holdings.get(patron);
+            for (UUID uuid : expected) {
+                String previous = owner.put(uuid, patron);
+                if (previous != null) {
+                    violations.add("Pozycja " + uuid + " wypożyczona jednocześnie przez " + previous + " i " + patron);
+                }
+                if (!inDb.contains(uuid)) {
+                    violations.add("Pozycja " + uuid + " powinna być wypożyczona przez " + patron + ", a w bazie nie jest");
+                }
+            }
+            for (UUID uuid : inDb) {
+                if (!expected.contains(uuid)) {
+                    violations.add("Pozycja " + uuid + " jest w bazie wypożyczona przez " + patron + " bez udanej operacji");
+                }
+            }
+        }
+        long loanedAfter = ItemDao.countLoaned();
+        long expectedDelta = borrowsOk.sum() - returnsOk.sum();
+        if (loanedAfter - loanedBefore != expectedDelta) {
+            violations.add(String.format("Liczba wypożyczeń zmieniła się o %d, oczekiwano %d",
+                    loanedAfter - loanedBefore, expectedDelta));
+        }
+        return violations;
+    }
+
+    private void printReport(double elapsedSec) {
+        System.out.printf(Locale.ROOT, "%nCzas: %.1f s, czytelnicy: %d, bibliotekarze: %d, katalog: %d%n",
+                elapsedSec, patrons, librarians, uuids.length);
+        System.out.printf("%-12s | %9s | %9s | %9s | %9s | %9s | %9s | %9s%n",
+                "Operacja", "Liczba", "op/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "nieudane");
+        System.out.println("-".repeat(100));
+        for (Op op : Op.values()) {
+            LatencyHistogram h = latencies.get(op);
+            if (h.count() == 0) continue;
+            System.out.printf(Locale.ROOT, "%-12s | %9d | %9.1f | %9.3f | %9.3f | %9.3f | %9.3f | %9d%n",
+                    op.name().toLowerCase(Locale.ROOT), h.count(), h.count() / elapsedSec,
+                    h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.percentile(99.9) / 1e6,
+                    h.max() / 1e6, misses.get(op).sum());
+        }
+    }
+
+    private static Op pick(Random rnd, Map<Op, Integer> mix, int totalWeight) {
+        int r = rnd.nextInt(totalWeight);
+        for (Map.Entry<Op, Integer> e : mix.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) return e.getKey();
+        }
+        throw new IllegalStateException("Pusta proporcja operacji");
+    }
+
+    /**
+     * Parsuje proporcje operacji w formacie "browse=40,search=20,...".
+     */
+    private static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Nieprawidłowa proporcja: " + part);
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) mix.put(Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("Pusta proporcja operacji: " + spec);
+        return mix;
+    }
+
+    /**
+     * Tworzy wykonawcę z wątkiem wirtualnym na zadanie, jeśli JVM to umożliwia,
+     * w przeciwnym razie pulę wątków platformowych.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package library.db;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import library.bench.CatalogFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Koszt mapowania wierszy tabeli items na obiekty modelu ({@link ItemDao#mapRow}).
+ * Porównuje odczyt tych samych wierszy bez tworzenia obiektów i z mapowaniem;
+ * różnica to koszt samego mapowania. Klasa jest w pakiecie {@code library.db},
+ * aby mieć dostęp do metody pakietowej.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowMappingBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    /** Liczba wierszy odczytywanych w jednym wywołaniu */
+    @Param({"1000"})
+    int rows;
+
+    private CatalogFixture fixture;
+    private PreparedStatement ps;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        fixture = CatalogFixture.create(size);
+        ps = DatabaseManager.getConn().prepareStatement("SELECT * FROM items LIMIT ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        ps.close();
+        fixture.close();
+    }
+
+    @Benchmark
+    public void scanRaw(Blackhole bh) throws SQLException {
+        ps.setInt(1, rows);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getString("uuid"));
+                bh.consume(rs.getString("title"));
+                bh.consume(rs.getString("author"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void scanMapped(Blackhole bh) throws SQLException {
+        ps.setInt(1, rows);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(ItemDao.mapRow(rs));
+            }
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package library;
 
 import java.util.Scanner;
+import library.cli.BatchCommand;
 import library.cli.LibrarianCommand;
 import library.cli.UserCommand;
-import library.db.DatabaseManager;
-import library.db.LibrarianDao;
-import library.db.UserDao;
-import library.model.Librarian;
-import library.model.User;
+import library.config.LibraryConfig;
+import library.metrics.MetricsHttpServer;
+import library.repository.Storage;
+import library.search.IndexedStorage;
+import library.service.LibraryService;
+import library.session.Session;
 import library.util.ScreenUtil;
 
 /**
@@ -27,13 +29,27 @@ public class LibraryApp {
 
     /**
      * Metoda startowa aplikacji.
-     * Łączy się z bazą danych, następnie wyświetla ekran logowania.
-     * Po pomyślnym zalogowaniu uruchamia odpowiedni panel użytkownika.
+     * Wypisuje na stderr obowiązującą konfigurację ({@link LibraryConfig}),
+     * otwiera magazyn danych wskazany przez {@code library.storage} ({@link Storage#fromConfig()}),
+     * następnie wyświetla ekran logowania.
+     * Po pomyślnym zalogowaniu otwiera sesję ({@link LibraryService#openSession(String, String)})
+     * i uruchamia panel odpowiedni dla jej roli; wylogowanie zamyka sesję.
+     * Jeśli podano argumenty, aplikacja działa w trybie wsadowym ({@link BatchCommand})
+     * i kończy pracę po wykonaniu polecenia. Jeśli ustawiono {@code library.metricsPort},
+     * w tle uruchamiany jest serwer metryk ({@link MetricsHttpServer}). W trybie interaktywnym
+     * magazyn jest opakowywany indeksem podpowiedzi ({@link IndexedStorage}).
      *
-     * @param args argumenty linii poleceń (nieużywane)
+     * @param args argumenty linii poleceń (podkomenda trybu wsadowego lub brak)
      */
     public static void main(String[] args) {
-        DatabaseManager.connect();
+        LibraryConfig.logEffectiveSettings(System.err);
+        Storage storage = Storage.fromConfig();
+        MetricsHttpServer.startIfConfigured(storage);
+        if (args.length > 0) {
+            System.exit(BatchCommand.execute(storage, args));
+        }
+        storage = IndexedStorage.open(storage);
+        LibraryService service = new LibraryService(storage);
         Scanner scanner = new Scanner(System.in);
 
         while (true) {
@@ -48,8 +64,7 @@ public class LibraryApp {
                 "#                                            #\n" +
                 "##############################################\n"
             );
-            String role = null;
-            String username = null;
+            Session session;
 
             // Pętla logowania: dopóki dane nie są poprawne, prosi o ponowne wprowadzenie
             while (true) {
@@ -58,27 +73,10 @@ public class LibraryApp {
                 System.out.print("Podaj hasło: ");
                 String p = scanner.nextLine().trim();
 
-                Librarian librarian = LibrarianDao.getAllLibrarians().stream()
-                        .filter(l -> l.getUsername().equals(u) && l.getPassword().equals(p))
-                        .findFirst()
-                        .orElse(null);
-                if (librarian != null) {
-                    role = "librarian";
-                    username = u;
-                    ScreenUtil.clearScreen();
-                    System.out.println("Zalogowano jako " + username + " (librarian)");
-                    break;
-                }
-
-                User user = UserDao.getAllUsers().stream()
-                        .filter(us -> us.getUsername().equals(u) && us.getPassword().equals(p))
-                        .findFirst()
-                        .orElse(null);
-                if (user != null) {
-                    role = "user";
-                    username = u;
+                session = service.openSession(u, p).orElse(null);
+                if (session != null) {
                     ScreenUtil.clearScreen();
-                    System.out.println("Zalogowano jako " + username + " (user)");
+                    System.out.println("Zalogowano jako " + session);
                     break;
                 }
 
@@ -86,14 +84,12 @@ public class LibraryApp {
             }
 
             // Po zalogowaniu uruchamia odpowiedni panel
-            if ("librarian".equals(role)) {
-                new LibrarianCommand(username).run();
-            } else if ("user".equals(role)) {
-                new UserCommand(username).run();
+            if (session.isLibrarian()) {
+                new LibrarianCommand(session, storage).run();
             } else {
-                System.out.println("Nieznana rola! Kończę pracę.");
-                break;
+                new UserCommand(session, storage).run();
             }
+            service.closeSession(session.getToken());
 
             System.out.println("\nWylogowano. Powrót do ekranu logowania.");
         }
@@ -0,0 +1,692 @@
+package library.cli;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import library.config.LibraryConfig;
+import library.db.BackupManager;
+import library.db.SqliteStorage;
+import library.model.Item;
+import library.repository.ItemQuery;
+import library.repository.LoanResult;
+import library.repository.Storage;
+import library.search.DuplicateDetector;
+import library.service.LibraryService;
+import library.service.ScriptExecutor;
+import library.util.DataGenerator;
+import library.util.SerializationUtil;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.ArgSpec;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Model.OptionSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+/**
+ * Nieinteraktywny interfejs wiersza poleceń do operacji wsadowych.
+ * <p>
+ * Uruchamiany, gdy aplikacja otrzyma argumenty, np.
+ * {@code java -jar vizja-app.jar import --format csv ksiazki.csv}.
+ * Operacje masowe przyjmują plik lub standardowe wejście ("-"), wykonują zapis
+ * w transakcjach po {@code --batch} wierszy i wypisują na stderr czas oraz przepustowość.
+ * </p>
+ */
+@Command(name = "vizja-app", mixinStandardHelpOptions = true, version = "Vizja Library 1.0",
+        description = "Operacje wsadowe systemu bibliotecznego Vizja Library.",
+        subcommands = {
+            BatchCommand.ImportCmd.class,
+            BatchCommand.ExportCmd.class,
+            BatchCommand.BorrowCmd.class,
+            BatchCommand.ReturnCmd.class,
+            BatchCommand.CheckoutCmd.class,
+            BatchCommand.AddUserCmd.class,
+            BatchCommand.StatsCmd.class,
+            BatchCommand.SearchCmd.class,
+            BatchCommand.ScriptCmd.class,
+            BatchCommand.GenerateCmd.class,
+            BatchCommand.BackupCmd.class
+        })
+public class BatchCommand implements Runnable {
+
+    @Spec
+    CommandSpec spec;
+
+    /** Magazyn danych, na którym działają podkomendy */
+    final Storage storage;
+
+    BatchCommand(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Uruchamia interfejs wsadowy z podanymi argumentami.
+     *
+     * @param storage magazyn danych
+     * @param args argumenty linii poleceń
+     * @return kod wyjścia (0 = sukces)
+     */
+    public static int execute(Storage storage, String[] args) {
+        return new CommandLine(new BatchCommand(storage))
+                .setDefaultValueProvider(BatchCommand::configDefault)
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .execute(args);
+    }
+
+    /**
+     * Domyślne wartości opcji rozmiaru paczek i kroków, pobierane z konfiguracji ({@link LibraryConfig}).
+     *
+     * @param arg opcja lub parametr podkomendy
+     * @return wartość domyślna lub null, jeśli opcja nie ma odpowiednika w konfiguracji
+     */
+    static String configDefault(ArgSpec arg) {
+        if (!arg.isOption()) return null;
+        String key = switch (arg.command().name() + " " + ((OptionSpec) arg).longestName()) {
+            case "import --batch", "add-user --batch" -> LibraryConfig.IMPORT_BATCH_SIZE;
+            case "borrow --batch", "return --batch" -> LibraryConfig.LOAN_BATCH_SIZE;
+            case "script --batch" -> LibraryConfig.SCRIPT_BATCH_SIZE;
+            case "backup --pages" -> LibraryConfig.BACKUP_PAGES_PER_STEP;
+            case "backup --sleep-ms" -> LibraryConfig.BACKUP_SLEEP_MS;
+            default -> null;
+        };
+        return key == null ? null : LibraryConfig.get(key);
+    }
+
+    /**
+     * Wywołanie bez podkomendy wypisuje pomoc.
+     */
+    @Override
+    public void run() {
+        spec.commandLine().usage(System.out);
+    }
+
+    /**
+     * Wypisuje na stderr podsumowanie czasu i przepustowości operacji.
+     *
+     * @param operation nazwa operacji
+     * @param rows liczba przetworzonych wierszy
+     * @param startNanos czas rozpoczęcia (System.nanoTime())
+     */
+    static void report(String operation, long rows, long startNanos) {
+        double secs = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        double rate = secs > 0 ? rows / secs : rows;
+        System.err.printf(Locale.ROOT, "%s: %d wierszy w %.3f s (%.0f wierszy/s)%n", operation, rows, secs, rate);
+    }
+
+    /**
+     * Obsługa pojedynczego wiersza pliku wsadowego.
+     */
+    interface LineHandler {
+        /**
+         * @param fields pola wiersza rozdzielone znakiem ';'
+         * @return true jeśli operacja się powiodła
+         */
+        boolean handle(String[] fields);
+    }
+
+    /**
+     * Przetwarza kolejne wiersze wejścia w transakcjach po {@code batchSize} wierszy.
+     * Puste wiersze i wiersze zaczynające się od '#' są pomijane.
+     *
+     * @param storage magazyn danych, w którym otwierane są transakcje
+     * @param reader źródło wierszy
+     * @param batchSize liczba wierszy w jednej transakcji
+     * @param handler obsługa pojedynczego wiersza
+     * @return tablica {udane, nieudane}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    static long[] processLines(Storage storage, BufferedReader reader, int batchSize, LineHandler handler)
+            throws IOException {
+        long ok = 0, failed = 0;
+        int inBatch = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                if (inBatch == 0) storage.beginTransaction();
+                if (handler.handle(line.split(";"))) {
+                    ok++;
+                } else {
+                    failed++;
+                    System.err.println("Niepowodzenie: " + line);
+                }
+                if (++inBatch >= batchSize) {
+                    storage.commitTransaction();
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) storage.commitTransaction();
+        } catch (IOException | RuntimeException e) {
+            if (inBatch > 0) storage.rollbackTransaction();
+            throw e;
+        }
+        return new long[] {ok, failed};
+    }
+
+    /**
+     * Import książek z pliku CSV lub binarnego.
+     */
+    @Command(name = "import", mixinStandardHelpOptions = true,
+            description = "Importuje książki z pliku (CSV lub binarnego) albo ze standardowego wejścia.")
+    static class ImportCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--format", description = "Format danych: csv lub bin (domyślnie: ${DEFAULT-VALUE})",
+                defaultValue = "csv")
+        String format;
+
+        @Option(names = "--batch", description = "Liczba wierszy w transakcji (domyślnie: ${DEFAULT-VALUE})")
+        int batch;
+
+        @Option(names = "--dedupe", description = "Prawie-duplikaty w CSV: ${COMPLETION-CANDIDATES} "
+                + "(domyślnie: library.import.dedupe)")
+        DuplicateDetector.Policy dedupe;
+
+        @Parameters(index = "0", arity = "0..1", paramLabel = "PLIK", defaultValue = "-",
+                description = "Plik wejściowy lub '-' dla standardowego wejścia")
+        String file;
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            int[] result;
+            int duplicates = 0;
+            if ("bin".equalsIgnoreCase(format)) {
+                InputStream in = file.equals("-") ? System.in : new FileInputStream(file);
+                try {
+                    result = SerializationUtil.importFromBin(parent.storage, in, batch);
+                } finally {
+                    if (in != System.in) in.close();
+                }
+            } else if ("csv".equalsIgnoreCase(format)) {
+                try (BufferedReader reader = SerializationUtil.openReader(file)) {
+                    result = SerializationUtil.importFromTxt(parent.storage, reader, batch, 0, null,
+                            dedupe != null ? dedupe : DuplicateDetector.Policy.fromConfig());
+                }
+                duplicates = result[2];
+            } else {
+                System.err.println("Nieznany format: " + format);
+                return 2;
+            }
+            System.err.printf("Zaimportowano %d nowych książek (pominięto %d istniejących, prawie-duplikaty: %d)%n",
+                    result[0], result[1], duplicates);
+            report("import", result[0] + result[1], start);
+            return 0;
+        }
+    }
+
+    /**
+     * Eksport książek do pliku CSV lub binarnego.
+     */
+    @Command(name = "export", mixinStandardHelpOptions = true,
+            description = "Eksportuje książki do pliku (CSV lub binarnego) albo na standardowe wyjście.")
+    static class ExportCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--format", description = "Format danych: csv lub bin (domyślnie: ${DEFAULT-VALUE})",
+                defaultValue = "csv")
+        String format;
+
+        @Parameters(index = "0", arity = "0..1", paramLabel = "PLIK", defaultValue = "-",
+                description = "Plik wyjściowy lub '-' dla standardowego wyjścia")
+        String file;
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            OutputStream out = file.equals("-") ? System.out : new FileOutputStream(file);
+            int count;
+            try {
+                if ("bin".equalsIgnoreCase(format)) {
+                    count = SerializationUtil.exportToBin(parent.storage, out);
+                } else if ("csv".equalsIgnoreCase(format)) {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    count = SerializationUtil.exportToTxt(parent.storage, writer);
+                    writer.flush();
+                } else {
+                    System.err.println("Nieznany format: " + format);
+                    return 2;
+                }
+            } finally {
+                if (out != System.out) out.close();
+            }
+            report("export", count, start);
+            return 0;
+        }
+    }
+
+    /**
+     * Wypożyczenie pozycji - pojedyncze lub masowe.
+     */
+    @Command(name = "borrow", mixinStandardHelpOptions = true,
+            description = "Wypożycza pozycję (UUID UŻYTKOWNIK) lub pozycje z pliku, wiersze 'uuid;użytkownik'.")
+    static class BorrowCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--file", paramLabel = "PLIK", description = "Plik z wierszami 'uuid;użytkownik' ('-' = stdin)")
+        String file;
+
+        @Option(names = "--batch", description = "Liczba operacji w transakcji (domyślnie: ${DEFAULT-VALUE})")
+        int batch;
+
+        @Parameters(arity = "0..2", paramLabel = "UUID UŻYTKOWNIK")
+        List<String> args = new ArrayList<>();
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            if (args.size() == 2) {
+                boolean ok = parent.storage.items().borrowItem(args.get(0), args.get(1));
+                System.err.println(ok ? "Wypożyczono." : "Nie udało się wypożyczyć.");
+                report("borrow", 1, start);
+                return ok ? 0 : 1;
+            }
+            if (!args.isEmpty()) {
+                System.err.println("Podaj UUID i użytkownika albo użyj --file.");
+                return 2;
+            }
+            long[] result;
+            try (BufferedReader reader = SerializationUtil.openReader(file)) {
+                result = processLines(parent.storage, reader, batch,
+                        f -> f.length >= 2 && parent.storage.items().borrowItem(f[0].trim(), f[1].trim()));
+            }
+            System.err.printf("Wypożyczono: %d, niepowodzenia: %d%n", result[0], result[1]);
+            report("borrow", result[0] + result[1], start);
+            return result[1] == 0 ? 0 : 1;
+        }
+    }
+
+    /**
+     * Zwrot pozycji - pojedynczy lub masowy.
+     */
+    @Command(name = "return", mixinStandardHelpOptions = true,
+            description = "Przyjmuje zwrot pozycji o podanych UUID lub z pliku (jeden UUID w wierszu).")
+    static class ReturnCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--file", paramLabel = "PLIK", description = "Plik z UUID pozycji ('-' = stdin)")
+        String file;
+
+        @Option(names = "--batch", description = "Liczba operacji w transakcji (domyślnie: ${DEFAULT-VALUE})")
+        int batch;
+
+        @Option(names = "--atomic", description = "Przyjmuje zwrot wszystkich podanych UUID albo żadnego")
+        boolean atomic;
+
+        @Parameters(arity = "0..*", paramLabel = "UUID")
+        List<String> uuids = new ArrayList<>();
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            long ok = 0, failed = 0;
+            if (atomic) {
+                List<UUID> ids;
+                try {
+                    ids = LibraryService.parseUuids(String.join(" ", uuids));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Niepoprawny UUID: " + e.getMessage());
+                    return 2;
+                }
+                LoanResult result = new LibraryService(parent.storage).returnAll(ids, null);
+                printLoanResult(result, "Zwrócono " + ids.size() + " pozycji.", "Nie przyjęto zwrotu żadnej pozycji");
+                report("return", ids.size(), start);
+                return result.success ? 0 : 1;
+            }
+            if (!uuids.isEmpty()) {
+                Storage storage = parent.storage;
+                storage.beginTransaction();
+                try {
+                    for (String uuid : uuids) {
+                        if (storage.items().returnItem(uuid)) ok++; else failed++;
+                    }
+                    storage.commitTransaction();
+                } catch (RuntimeException e) {
+                    storage.rollbackTransaction();
+                    throw e;
+                }
+            } else {
+                try (BufferedReader reader = SerializationUtil.openReader(file)) {
+                    long[] result = processLines(parent.storage, reader, batch,
+                            f -> parent.storage.items().returnItem(f[0].trim()));
+                    ok = result[0];
+                    failed = result[1];
+                }
+            }
+            System.err.printf("Zwrócono: %d, niepowodzenia: %d%n", ok, failed);
+            report("return", ok + failed, start);
+            return failed == 0 ? 0 : 1;
+        }
+    }
+
+    /**
+     * Wypożyczenie wielu pozycji jednemu użytkownikowi w jednej operacji (wszystkie albo żadna).
+     */
+    @Command(name = "checkout", mixinStandardHelpOptions = true,
+            description = "Wypożycza użytkownikowi wszystkie podane pozycje albo żadnej (UŻYTKOWNIK UUID...).")
+    static class CheckoutCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Parameters(index = "0", paramLabel = "UŻYTKOWNIK")
+        String username;
+
+        @Parameters(index = "1..*", arity = "1..*", paramLabel = "UUID")
+        List<String> uuids = new ArrayList<>();
+
+        @Override
+        public Integer call() {
+            long start = System.nanoTime();
+            List<UUID> ids;
+            try {
+                ids = LibraryService.parseUuids(String.join(" ", uuids));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Niepoprawny UUID: " + e.getMessage());
+                return 2;
+            }
+            LoanResult result = new LibraryService(parent.storage).checkout(username, ids);
+            printLoanResult(result, "Wypożyczono " + ids.size() + " pozycji.", "Nie wypożyczono żadnej pozycji");
+            report("checkout", ids.size(), start);
+            return result.success ? 0 : 1;
+        }
+    }
+
+    /**
+     * Wypisuje wynik operacji grupowej (wszystkie albo żadna) wraz z odrzuconymi pozycjami.
+     */
+    static void printLoanResult(LoanResult result, String success, String failure) {
+        if (result.success) {
+            System.err.println(success);
+        } else if (result.error != null) {
+            System.err.println(failure + " – błąd bazy danych: " + result.error);
+        } else {
+            System.err.println(failure + " – odrzucone pozycje:");
+            result.rejected.forEach(uuid -> System.err.println("  " + uuid));
+        }
+    }
+
+    /**
+     * Dodawanie użytkowników - pojedyncze lub masowe.
+     */
+    @Command(name = "add-user", mixinStandardHelpOptions = true,
+            description = "Dodaje użytkownika (LOGIN IMIĘ_NAZWISKO HASŁO) lub użytkowników z pliku 'login;imię i nazwisko;hasło'.")
+    static class AddUserCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--file", paramLabel = "PLIK", description = "Plik z użytkownikami ('-' = stdin)")
+        String file;
+
+        @Option(names = "--batch", description = "Liczba wierszy w transakcji (domyślnie: ${DEFAULT-VALUE})")
+        int batch;
+
+        @Parameters(arity = "0..3", paramLabel = "LOGIN IMIĘ_NAZWISKO HASŁO")
+        List<String> args = new ArrayList<>();
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            if (args.size() == 3) {
+                boolean ok = addUser(args.get(0), args.get(1), args.get(2));
+                System.err.println(ok ? "Dodano użytkownika." : "Użytkownik już istnieje.");
+                report("add-user", 1, start);
+                return ok ? 0 : 1;
+            }
+            if (!args.isEmpty()) {
+                System.err.println("Podaj LOGIN, IMIĘ_NAZWISKO i HASŁO albo użyj --file.");
+                return 2;
+            }
+            int[] result;
+            try (BufferedReader reader = SerializationUtil.openReader(file)) {
+                result = SerializationUtil.importUsersFromTxt(parent.storage, reader, batch, false, null);
+            }
+            System.err.printf("Dodano: %d, pominięto: %d%n", result[0], result[1]);
+            report("add-user", result[0] + result[1], start);
+            return 0;
+        }
+
+        private boolean addUser(String username, String fullname, String password) {
+            Storage storage = parent.storage;
+            if (storage.users().getByUsername(username).isPresent()
+                    || storage.librarians().getByUsername(username).isPresent()) {
+                return false;
+            }
+            storage.users().addUser(username, fullname, password);
+            return true;
+        }
+    }
+
+    /**
+     * Statystyki katalogu i kont.
+     */
+    @Command(name = "stats", mixinStandardHelpOptions = true, description = "Wypisuje statystyki biblioteki.")
+    static class StatsCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Override
+        public Integer call() {
+            long start = System.nanoTime();
+            Storage storage = parent.storage;
+            long items = storage.items().count();
+            long loaned = storage.items().countLoaned();
+            System.out.printf("Pozycje:        %d%n", items);
+            System.out.printf("Wypożyczone:    %d%n", loaned);
+            System.out.printf("Dostępne:       %d%n", items - loaned);
+            System.out.printf("Użytkownicy:    %d%n", storage.users().countByRole("user"));
+            System.out.printf("Bibliotekarze:  %d%n", storage.users().countByRole("librarian"));
+            report("stats", 1, start);
+            return 0;
+        }
+    }
+
+    /**
+     * Wyszukiwanie pozycji po tytule lub autorze, z filtrami i sortowaniem ({@link ItemQuery}).
+     */
+    @Command(name = "search", mixinStandardHelpOptions = true,
+            description = "Wyszukuje pozycje, których tytuł lub autor zawiera podany tekst i które spełniają filtry.")
+    static class SearchCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--limit", description = "Maksymalna liczba wyników (domyślnie: ${DEFAULT-VALUE})",
+                defaultValue = "20")
+        int limit;
+
+        @Option(names = "--offset", description = "Liczba pomijanych pierwszych wyników")
+        long offset;
+
+        @Option(names = "--type", description = "Typ pozycji: ${COMPLETION-CANDIDATES}")
+        ItemQuery.Type type;
+
+        @Option(names = "--genre", description = "Gatunek (dokładnie)")
+        String genre;
+
+        @Option(names = "--author", description = "Autor (dokładnie)")
+        String author;
+
+        @Option(names = "--available", arity = "0..1", fallbackValue = "true",
+                description = "Tylko dostępne (true) lub tylko wypożyczone (false)")
+        Boolean available;
+
+        @Option(names = "--year-from", description = "Najmniejszy rok wydania")
+        Integer yearFrom;
+
+        @Option(names = "--year-to", description = "Największy rok wydania")
+        Integer yearTo;
+
+        @Option(names = "--sort", description = "Kolejność: ${COMPLETION-CANDIDATES} (domyślnie: ${DEFAULT-VALUE})",
+                defaultValue = "INSERTION")
+        ItemQuery.Sort sort;
+
+        @Option(names = "--desc", description = "Sortuj malejąco")
+        boolean descending;
+
+        @Parameters(index = "0", arity = "0..1", paramLabel = "TEKST")
+        String text;
+
+        @Override
+        public Integer call() {
+            long start = System.nanoTime();
+            ItemQuery query = new ItemQuery()
+                    .containing(text)
+                    .type(type)
+                    .genre(genre)
+                    .author(author)
+                    .available(available)
+                    .years(yearFrom, yearTo)
+                    .orderBy(sort, descending)
+                    .limit(limit)
+                    .offset(offset);
+            List<Item> items = parent.storage.items().query(query);
+            new LibraryService(parent.storage).printItems(items);
+            report("search", items.size(), start);
+            return 0;
+        }
+    }
+
+    /**
+     * Wykonanie skryptu operacji stanowiska (wypożyczenia i zwroty).
+     */
+    @Command(name = "script", mixinStandardHelpOptions = true,
+            description = "Wykonuje skrypt operacji 'borrow <uuid> <użytkownik>' / 'return <uuid>' w grupowanych transakcjach.")
+    static class ScriptCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--batch", description = "Liczba operacji w transakcji (domyślnie: ${DEFAULT-VALUE})")
+        int batch;
+
+        @Option(names = "--report", paramLabel = "PLIK", description = "Plik CSV z wynikiem każdej operacji")
+        String report;
+
+        @Parameters(index = "0", arity = "0..1", paramLabel = "PLIK", defaultValue = "-",
+                description = "Plik ze skryptem lub '-' dla standardowego wejścia")
+        String file;
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            List<ScriptExecutor.Result> results;
+            try (BufferedReader reader = SerializationUtil.openReader(file)) {
+                results = new ScriptExecutor(parent.storage, batch).execute(reader);
+            }
+            ScriptExecutor.printSummary(results, System.nanoTime() - start, System.err);
+            if (report != null) {
+                try (PrintWriter pw = new PrintWriter(report, StandardCharsets.UTF_8)) {
+                    ScriptExecutor.writeReport(results, pw);
+                }
+            }
+            return results.stream().allMatch(r -> r.success) ? 0 : 1;
+        }
+    }
+
+    /**
+     * Generowanie syntetycznych danych testowych (deterministycznie dla danego ziarna).
+     */
+    @Command(name = "generate", mixinStandardHelpOptions = true,
+            description = "Generuje syntetyczny katalog i użytkowników do bazy lub plików CSV/binarnych.")
+    static class GenerateCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--items", description = "Liczba pozycji (domyślnie: ${DEFAULT-VALUE})", defaultValue = "100000")
+        int items;
+
+        @Option(names = "--users", description = "Liczba użytkowników (domyślnie: ${DEFAULT-VALUE})", defaultValue = "1000")
+        int users;
+
+        @Option(names = "--magazines", description = "Udział magazynów 0-1 (domyślnie: ${DEFAULT-VALUE})", defaultValue = "0.1")
+        double magazines;
+
+        @Option(names = "--loaned", description = "Udział wypożyczonych pozycji 0-1 (domyślnie: ${DEFAULT-VALUE})",
+                defaultValue = "0.2")
+        double loaned;
+
+        @Option(names = "--seed", description = "Ziarno generatora (domyślnie: ${DEFAULT-VALUE})", defaultValue = "42")
+        long seed;
+
+        @Option(names = "--to", description = "Cel: db, csv, bin lub all (domyślnie: ${DEFAULT-VALUE})", defaultValue = "db")
+        String target;
+
+        @Option(names = "--out", paramLabel = "KATALOG", description = "Katalog dla plików (domyślnie: ${DEFAULT-VALUE})",
+                defaultValue = "generated")
+        String out;
+
+        @Option(names = "--threads", description = "Liczba wątków generujących (domyślnie: liczba procesorów)")
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        @Override
+        public Integer call() throws Exception {
+            long start = System.nanoTime();
+            DataGenerator generator = new DataGenerator(seed, items, users, magazines, loaned, threads);
+            long count;
+            switch (target.toLowerCase(Locale.ROOT)) {
+                case "db" -> count = generator.writeToDatabase(parent.storage);
+                case "csv" -> count = generator.writeFiles(Paths.get(out), true, false);
+                case "bin" -> count = generator.writeFiles(Paths.get(out), false, true);
+                case "all" -> count = generator.writeFiles(Paths.get(out), true, true);
+                default -> {
+                    System.err.println("Nieznany cel: " + target);
+                    return 2;
+                }
+            }
+            report("generate", count, start);
+            return 0;
+        }
+    }
+
+    /**
+     * Kopia zapasowa działającej bazy (bez zatrzymywania stanowisk).
+     */
+    @Command(name = "backup", mixinStandardHelpOptions = true,
+            description = "Tworzy kopię zapasową działającej bazy danych (porcjami, bez blokowania stanowisk).")
+    static class BackupCmd implements Callable<Integer> {
+        @ParentCommand
+        BatchCommand parent;
+
+        @Option(names = "--gzip", description = "Kompresuje kopię (domyślnie, gdy plik kończy się na .gz)")
+        boolean gzip;
+
+        @Option(names = "--pages", description = "Liczba stron kopiowanych w jednym kroku (domyślnie: ${DEFAULT-VALUE})")
+        int pages;
+
+        @Option(names = "--sleep-ms", description = "Przerwa między krokami w ms (domyślnie: ${DEFAULT-VALUE})")
+        int sleepMillis;
+
+        @Parameters(index = "0", paramLabel = "PLIK", description = "Plik kopii zapasowej")
+        String file;
+
+        @Override
+        public Integer call() throws Exception {
+            if (!(parent.storage instanceof SqliteStorage)) {
+                System.err.println("Kopia zapasowa jest dostępna tylko dla magazynu SQLite (library.storage=sqlite).");
+                return 2;
+            }
+            boolean compress = gzip || file.endsWith(".gz");
+            BackupManager.Result result = BackupManager.backup(Paths.get(file), compress, pages, sleepMillis, null);
+            System.err.println("backup: " + result);
+            return 0;
+        }
+    }
+}
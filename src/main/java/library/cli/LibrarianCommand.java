@@ -1,7 +1,11 @@
 package library.cli;
 
 import java.util.Scanner;
+import library.jobs.Job;
+import library.jobs.JobManager;
+import library.repository.Storage;
 import library.service.LibraryService;
+import library.session.Session;
 
 /**
  * Klasa reprezentująca panel poleceń dla bibliotekarza w systemie bibliotecznym.
@@ -9,15 +13,20 @@ import library.service.LibraryService;
  * oraz import/eksport danych.
  */
 public class LibrarianCommand {
+    private final Session session;
     private final String username;
+    private final Storage storage;
 
     /**
      * Konstruktor klasy LibrarianCommand.
      * 
-     * @param username Nazwa użytkownika bibliotekarza wykonującego polecenia.
+     * @param session Sesja bibliotekarza wykonującego polecenia.
+     * @param storage Magazyn danych.
      */
-    public LibrarianCommand(String username) {
-        this.username = username;
+    public LibrarianCommand(Session session, Storage storage) {
+        this.session = session;
+        this.username = session.getUsername();
+        this.storage = storage;
     }
 
     /**
@@ -25,9 +34,10 @@ public class LibrarianCommand {
      * który umożliwia wybór różnych opcji zarządzania biblioteką.
      */
     public void run() {
-        LibraryService service = new LibraryService();
+        LibraryService service = new LibraryService(storage);
         Scanner scanner = new Scanner(System.in);
         while (true) {
+            printFinishedJobs();
             System.out.println("\n== PANEL BIBLIOTEKARZA ==");
             System.out.println("1. Zarządzanie zasobami biblioteki");
             System.out.println("2. Zarządzanie użytkownikami");
@@ -76,6 +86,10 @@ public class LibrarianCommand {
             System.out.println("3. Wypożycz książkę");
             System.out.println("4. Przyjmij zwrot");
             System.out.println("5. Usuń książkę");
+            System.out.println("6. Wykonaj skrypt wypożyczeń/zwrotów z pliku");
+            System.out.println("7. Wypożycz kilka pozycji (koszyk)");
+            System.out.println("8. Przyjmij zwrot kilku pozycji");
+            System.out.println("9. Szukaj pozycji (tytuł lub autor)");
             System.out.println("0. Powrót");
             System.out.print("Wybierz opcję: ");
             String option = scanner.nextLine();
@@ -101,6 +115,21 @@ public class LibrarianCommand {
                     library.util.ScreenUtil.clearScreen();
                     service.removeItemInteractive();
                     break;
+                case "6":
+                    library.util.ScreenUtil.clearScreen();
+                    service.runScriptInteractive();
+                    break;
+                case "7":
+                    library.util.ScreenUtil.clearScreen();
+                    service.checkoutCartInteractive(session);
+                    break;
+                case "8":
+                    service.returnManyInteractive(session);
+                    break;
+                case "9":
+                    library.util.ScreenUtil.clearScreen();
+                    service.searchInteractive(session);
+                    break;
                 case "0": return;
                 default: System.out.println("Nieznana opcja!");
             }
@@ -157,7 +186,7 @@ public class LibrarianCommand {
                 case "2": service.editLibrarianInteractive(); break;
                 case "3": service.removeLibrarianInteractive(); break;
                 case "4":
-                    service.printLibrarianTable(library.db.LibrarianDao.getAllLibrarians());
+                    service.printLibrarianTable(storage.librarians().getAllLibrarians());
                     System.out.print("Wciśnij Enter by wrócić...");
                     scanner.nextLine();
                     break;
@@ -175,11 +204,14 @@ public class LibrarianCommand {
      */
     private void importExportMenu(LibraryService service, Scanner scanner) {
         while (true) {
-            library.util.ScreenUtil.clearScreen();
+            printFinishedJobs();
             System.out.println("\n-- Import/Eksport --");
             System.out.println("1. Import/eksport książek (ze statusami)");
             System.out.println("2. Import/Eksport użytkowników");
             System.out.println("3. Eksport wypożyczonych książek wraz z użytkownikami");
+            System.out.println("4. Zadania w tle");
+            System.out.println("5. Kopia zapasowa bazy");
+            System.out.println("6. Przebuduj rekomendacje „wypożyczyli też”");
             System.out.println("0. Powrót");
             System.out.print("Wybierz opcję: ");
             String option = scanner.nextLine();
@@ -210,9 +242,76 @@ public class LibrarianCommand {
                 case "3":
                     service.exportLoansInteractive();
                     break;
+                case "4":
+                    jobsMenu(service, scanner);
+                    break;
+                case "5":
+                    service.backupInteractive();
+                    break;
+                case "6":
+                    service.rebuildRecommendationsInteractive();
+                    break;
                 case "0": return;
                 default: System.out.println("Nieznana opcja!");
             }
         }
     }
+
+    /**
+     * Wyświetla i obsługuje listę zadań w tle (postęp, anulowanie, wznawianie).
+     * Lista odświeża się po każdym naciśnięciu Enter, a zadania działają dalej po wyjściu z menu.
+     *
+     * @param service Serwis biblioteczny obsługujący logikę biznesową.
+     * @param scanner Scanner do pobierania danych od użytkownika.
+     */
+    private void jobsMenu(LibraryService service, Scanner scanner) {
+        JobManager jobs = JobManager.getInstance();
+        while (true) {
+            System.out.println("\n-- Zadania w tle --");
+            service.printJobs();
+            System.out.println("\nEnter - odśwież, a <nr> - anuluj, w <nr> - wznów, u - usuń zakończone, 0 - powrót");
+            System.out.print("Wybierz opcję: ");
+            String[] parts = scanner.nextLine().trim().split("\\s+");
+            String cmd = parts[0];
+            int id = -1;
+            if (parts.length > 1) {
+                try {
+                    id = Integer.parseInt(parts[1]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Niepoprawny numer zadania!");
+                    continue;
+                }
+            }
+            switch (cmd) {
+                case "":
+                    break;
+                case "a":
+                    System.out.println(jobs.cancel(id) ? "Zgłoszono anulowanie zadania #" + id : "Nie można anulować zadania #" + id);
+                    break;
+                case "w":
+                    System.out.println(jobs.resume(id) ? "Wznowiono zadanie #" + id : "Nie można wznowić zadania #" + id);
+                    break;
+                case "u":
+                    jobs.clearDone();
+                    break;
+                case "0":
+                    return;
+                default:
+                    System.out.println("Nieznana opcja!");
+            }
+        }
+    }
+
+    /**
+     * Wypisuje powiadomienia o zadaniach w tle zakończonych od ostatniego wyświetlenia menu.
+     */
+    private void printFinishedJobs() {
+        for (Job job : JobManager.getInstance().drainFinished()) {
+            System.out.println("[zadanie #" + job.getId() + " " + job.getState().getLabel() + "] "
+                    + job.getName() + (job.getMessage().isEmpty() ? "" : " - " + job.getMessage()));
+            for (String line : job.getDetails()) {
+                System.out.println("    " + line);
+            }
+        }
+    }
 }
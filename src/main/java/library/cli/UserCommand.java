@@ -1,22 +1,29 @@
 package library.cli;
 
 import java.util.Scanner;
+import library.repository.Storage;
 import library.service.LibraryService;
+import library.session.Session;
 
 /**
  * Klasa reprezentująca panel poleceń dla zwykłego użytkownika systemu bibliotecznego.
  * Umożliwia przeglądanie zasobów, wypożyczanie i zwracanie książek oraz przeglądanie własnych wypożyczeń.
  */
 public class UserCommand {
+    private final Session session;
     private final String username;
+    private final Storage storage;
 
     /**
      * Konstruktor klasy UserCommand.
      * 
-     * @param username Nazwa użytkownika wykonującego polecenia.
+     * @param session Sesja użytkownika wykonującego polecenia.
+     * @param storage Magazyn danych.
      */
-    public UserCommand(String username) {
-        this.username = username;
+    public UserCommand(Session session, Storage storage) {
+        this.session = session;
+        this.username = session.getUsername();
+        this.storage = storage;
     }
 
     /**
@@ -24,7 +31,7 @@ public class UserCommand {
      * związanych z korzystaniem z zasobów biblioteki.
      */
     public void run() {
-        LibraryService service = new LibraryService();
+        LibraryService service = new LibraryService(storage);
         Scanner scanner = new Scanner(System.in);
         while (true) {
             System.out.println("\n== PANEL UŻYTKOWNIKA ==");
@@ -33,6 +40,10 @@ public class UserCommand {
             System.out.println("3. Moje wypożyczenia");
             System.out.println("4. Zwrot mojej książki");
             System.out.println("5. Wyloguj");
+            System.out.println("6. Wypożycz kilka pozycji (koszyk)");
+            System.out.println("7. Zwrot kilku moich pozycji");
+            System.out.println("8. Szukaj pozycji (tytuł lub autor)");
+            System.out.println("9. Polecane (inni wypożyczali też...)");
             System.out.print("Wybierz opcję: ");
             String option = scanner.nextLine();
             switch (option) {
@@ -43,13 +54,25 @@ public class UserCommand {
                     service.borrowItemInteractive(username, false);
                     break;
                 case "3":
-                    service.listUserLoans(username);
+                    service.listUserLoans(session);
                     break;
                 case "4":
                     service.returnUserLoanInteractive(username);
                     break;
                 case "5":
                     return;
+                case "6":
+                    service.checkoutCartInteractive(session);
+                    break;
+                case "7":
+                    service.returnManyInteractive(session);
+                    break;
+                case "8":
+                    service.searchInteractive(session);
+                    break;
+                case "9":
+                    service.recommendationsInteractive(username);
+                    break;
                 default:
                     System.out.println("Nieznana opcja");
             }
@@ -0,0 +1,331 @@
+package library.config;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Konfiguracja aplikacji: magazyn danych, ścieżka bazy, parametry SQLite (PRAGMA), rozmiary pul wątków,
+ * paczek i stron.
+ * <p>
+ * Wartości ustalane są warstwowo (każda kolejna warstwa nadpisuje poprzednią):
+ * </p>
+ * <ol>
+ *     <li>wartości domyślne,</li>
+ *     <li>plik właściwości - {@code library.properties} w katalogu roboczym lub plik wskazany
+ *         właściwością systemową {@code library.config} / zmienną środowiskową {@code LIBRARY_CONFIG},</li>
+ *     <li>zmienne środowiskowe - nazwa klucza wielkimi literami, z '_' zamiast kropek i granic słów
+ *         (np. {@code library.db.cacheSize} &rarr; {@code LIBRARY_DB_CACHE_SIZE}),</li>
+ *     <li>właściwości systemowe ({@code -Dlibrary.db.cacheSize=...}),</li>
+ *     <li>ustawienia programowe ({@link #set(String, String)}, np. w testach wydajności).</li>
+ * </ol>
+ */
+public final class LibraryConfig {
+
+    /** Magazyn danych: sqlite, memory lub log */
+    public static final String STORAGE = "library.storage";
+    /** Ścieżka pliku bazy; {@code :memory:} - baza w pamięci, wartość zaczynająca się od {@code jdbc:} - pełny adres */
+    public static final String DB_PATH = "library.db.path";
+    /** PRAGMA cache_size (liczba stron lub, gdy ujemna, rozmiar w KiB) */
+    public static final String DB_CACHE_SIZE = "library.db.cacheSize";
+    /** PRAGMA mmap_size w bajtach (0 - wyłączone) */
+    public static final String DB_MMAP_SIZE = "library.db.mmapSize";
+    /** PRAGMA synchronous: OFF, NORMAL, FULL lub EXTRA */
+    public static final String DB_SYNCHRONOUS = "library.db.synchronous";
+    /** PRAGMA temp_store: DEFAULT, FILE lub MEMORY */
+    public static final String DB_TEMP_STORE = "library.db.tempStore";
+    /** PRAGMA journal_mode: DELETE, TRUNCATE, PERSIST, MEMORY, WAL lub OFF */
+    public static final String DB_JOURNAL_MODE = "library.db.journalMode";
+    /** Czas oczekiwania na zwolnienie blokady bazy w milisekundach (PRAGMA busy_timeout) */
+    public static final String DB_BUSY_TIMEOUT_MS = "library.db.busyTimeoutMs";
+    /** Katalog dziennika zdarzeń i migawek magazynu {@code log} */
+    public static final String LOG_DIR = "library.log.dir";
+    /** Utrwalanie dziennika: FSYNC (zapis i fsync przed potwierdzeniem) lub WRITE (tylko zapis do systemu plików) */
+    public static final String LOG_SYNC = "library.log.sync";
+    /** Dodatkowe oczekiwanie na kolejne zdarzenia przed wspólnym fsync, w mikrosekundach (0 - bez czekania) */
+    public static final String LOG_COMMIT_DELAY_MICROS = "library.log.commitDelayMicros";
+    /** Liczba zdarzeń w dzienniku, po której wykonywana jest nowa migawka stanu */
+    public static final String LOG_SNAPSHOT_EVERY = "library.log.snapshotEvery";
+    /** Liczba wątków wykonujących zadania w tle */
+    public static final String JOBS_THREADS = "library.jobs.threads";
+    /** Maksymalna liczba zadań oczekujących w kolejce */
+    public static final String JOBS_QUEUE = "library.jobs.queue";
+    /** Liczba wierszy importu w jednej transakcji */
+    public static final String IMPORT_BATCH_SIZE = "library.import.batchSize";
+    /** Postępowanie z prawie-duplikatami przy imporcie CSV: OFF, FLAG (zgłoś) lub MERGE (nie importuj) */
+    public static final String IMPORT_DEDUPE = "library.import.dedupe";
+    /** Liczba wierszy eksportu, co którą raportowany jest postęp */
+    public static final String EXPORT_CHUNK_ROWS = "library.export.chunkRows";
+    /** Liczba wypożyczeń/zwrotów wsadowych w jednej transakcji */
+    public static final String LOAN_BATCH_SIZE = "library.loan.batchSize";
+    /** Liczba operacji skryptu stanowiska w jednej transakcji */
+    public static final String SCRIPT_BATCH_SIZE = "library.script.batchSize";
+    /** Liczba stron bazy kopiowanych w jednym kroku kopii zapasowej */
+    public static final String BACKUP_PAGES_PER_STEP = "library.backup.pagesPerStep";
+    /** Przerwa między krokami kopii zapasowej w milisekundach */
+    public static final String BACKUP_SLEEP_MS = "library.backup.sleepMs";
+    /** Liczba sąsiadów (współwypożyczanych pozycji) pamiętanych dla każdej pozycji */
+    public static final String RECOMMEND_NEIGHBORS = "library.recommend.neighbors";
+    /** Liczba ostatnich wypożyczeń użytkownika branych pod uwagę przy rekomendacjach */
+    public static final String RECOMMEND_HISTORY = "library.recommend.history";
+    /** Maksymalny czas życia sesji (tokenu logowania) w minutach */
+    public static final String SESSION_TTL_MINUTES = "library.session.ttlMinutes";
+    /** Czas bez użycia, po którym sesja wygasa, w minutach */
+    public static final String SESSION_IDLE_MINUTES = "library.session.idleMinutes";
+    /** Odczyty na sekundę dla jednego konta czytelnika (0 - bez limitu) */
+    public static final String ADMISSION_READ_RATE = "library.admission.readRate";
+    /** Wyszukiwania na sekundę dla jednego konta czytelnika (0 - bez limitu) */
+    public static final String ADMISSION_SEARCH_RATE = "library.admission.searchRate";
+    /** Zapisy (wypożyczenia, zwroty) na sekundę dla jednego konta czytelnika (0 - bez limitu) */
+    public static final String ADMISSION_WRITE_RATE = "library.admission.writeRate";
+    /** Na ile sekund limitu wystarcza chwilowy zapas żądań konta */
+    public static final String ADMISSION_BURST_SECONDS = "library.admission.burstSeconds";
+    /** Najwięcej równoległych zapisów wszystkich czytelników razem (0 - bez limitu) */
+    public static final String ADMISSION_MAX_PATRON_WRITES = "library.admission.maxPatronWrites";
+    /** Liczba wierszy na stronie tabel w konsoli */
+    public static final String UI_PAGE_SIZE = "library.ui.pageSize";
+    /** Próg dziennika wolnych zapytań w milisekundach (ujemny - wyłączony) */
+    public static final String SLOW_QUERY_MS = "library.slowQueryMs";
+    /** Plik dziennika wolnych zapytań ({@code -} - stderr) */
+    public static final String SLOW_QUERY_LOG = "library.slowQueryLog";
+    /** Port serwera metryk HTTP (pusty - wyłączony) */
+    public static final String METRICS_PORT = "library.metricsPort";
+    /** Adres, na którym nasłuchuje serwer metryk (pusty - tylko lokalnie, 127.0.0.1) */
+    public static final String METRICS_HOST = "library.metricsHost";
+
+    /** Domyślny plik konfiguracji w katalogu roboczym */
+    public static final String DEFAULT_FILE = "library.properties";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put(STORAGE, "sqlite");
+        DEFAULTS.put(DB_PATH, "library.db");
+        DEFAULTS.put(DB_CACHE_SIZE, "-2000");
+        DEFAULTS.put(DB_MMAP_SIZE, "0");
+        DEFAULTS.put(DB_SYNCHRONOUS, "FULL");
+        DEFAULTS.put(DB_TEMP_STORE, "DEFAULT");
+        DEFAULTS.put(DB_JOURNAL_MODE, "DELETE");
+        DEFAULTS.put(DB_BUSY_TIMEOUT_MS, "3000");
+        DEFAULTS.put(LOG_DIR, "library-log");
+        DEFAULTS.put(LOG_SYNC, "FSYNC");
+        DEFAULTS.put(LOG_COMMIT_DELAY_MICROS, "0");
+        DEFAULTS.put(LOG_SNAPSHOT_EVERY, "100000");
+        DEFAULTS.put(JOBS_THREADS, "2");
+        DEFAULTS.put(JOBS_QUEUE, "16");
+        DEFAULTS.put(IMPORT_BATCH_SIZE, "1000");
+        DEFAULTS.put(IMPORT_DEDUPE, "FLAG");
+        DEFAULTS.put(EXPORT_CHUNK_ROWS, "1000");
+        DEFAULTS.put(LOAN_BATCH_SIZE, "1000");
+        DEFAULTS.put(SCRIPT_BATCH_SIZE, "500");
+        DEFAULTS.put(BACKUP_PAGES_PER_STEP, "256");
+        DEFAULTS.put(BACKUP_SLEEP_MS, "10");
+        DEFAULTS.put(RECOMMEND_NEIGHBORS, "20");
+        DEFAULTS.put(RECOMMEND_HISTORY, "50");
+        DEFAULTS.put(SESSION_TTL_MINUTES, "480");
+        DEFAULTS.put(SESSION_IDLE_MINUTES, "30");
+        DEFAULTS.put(ADMISSION_READ_RATE, "20");
+        DEFAULTS.put(ADMISSION_SEARCH_RATE, "5");
+        DEFAULTS.put(ADMISSION_WRITE_RATE, "2");
+        DEFAULTS.put(ADMISSION_BURST_SECONDS, "5");
+        DEFAULTS.put(ADMISSION_MAX_PATRON_WRITES, "2");
+        DEFAULTS.put(UI_PAGE_SIZE, "20");
+        DEFAULTS.put(SLOW_QUERY_MS, "100");
+        DEFAULTS.put(SLOW_QUERY_LOG, "slow-queries.log");
+        DEFAULTS.put(METRICS_PORT, "");
+        DEFAULTS.put(METRICS_HOST, "");
+    }
+
+    /** Bieżące wartości i ich źródła (podmieniane w całości przy przeładowaniu) */
+    private static volatile Map<String, String> values;
+    private static volatile Map<String, String> sources;
+    private static volatile String file;
+    private static final Map<String, String> overrides = new LinkedHashMap<>();
+
+    static {
+        reload();
+    }
+
+    private LibraryConfig() {
+    }
+
+    /**
+     * Ponownie wczytuje konfigurację ze wszystkich źródeł.
+     */
+    public static synchronized void reload() {
+        Map<String, String> v = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> s = new LinkedHashMap<>();
+        DEFAULTS.keySet().forEach(k -> s.put(k, "domyślna"));
+
+        String configured = System.getProperty("library.config", System.getenv("LIBRARY_CONFIG"));
+        Path path = Paths.get(configured != null && !configured.isBlank() ? configured : DEFAULT_FILE);
+        file = null;
+        if (Files.isRegularFile(path)) {
+            Properties props = new Properties();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                props.load(reader);
+                file = path.toString();
+                for (String key : props.stringPropertyNames()) {
+                    v.put(key, props.getProperty(key).trim());
+                    s.put(key, "plik " + path);
+                }
+            } catch (IOException e) {
+                System.err.println("Błąd wczytywania konfiguracji " + path + ": " + e.getMessage());
+            }
+        } else if (configured != null && !configured.isBlank()) {
+            System.err.println("Nie znaleziono pliku konfiguracji: " + path);
+        }
+
+        for (String key : new ArrayList<>(v.keySet())) {
+            String env = System.getenv(envName(key));
+            if (env != null) {
+                v.put(key, env.trim());
+                s.put(key, "zmienna " + envName(key));
+            }
+            String sys = System.getProperty(key);
+            if (sys != null) {
+                v.put(key, sys.trim());
+                s.put(key, "właściwość systemowa");
+            }
+        }
+        overrides.forEach((key, value) -> {
+            v.put(key, value);
+            s.put(key, "ustawienie programowe");
+        });
+        values = v;
+        sources = s;
+    }
+
+    /**
+     * Ustawia wartość programowo (nadpisuje wszystkie inne źródła).
+     * Zmiana dotyczy kolejnych odczytów, np. kolejnego połączenia z bazą.
+     *
+     * @param key klucz konfiguracji
+     * @param value wartość lub null, aby usunąć ustawienie programowe
+     */
+    public static synchronized void set(String key, String value) {
+        if (value == null) {
+            overrides.remove(key);
+        } else {
+            overrides.put(key, value);
+        }
+        reload();
+    }
+
+    /**
+     * @param key klucz konfiguracji
+     * @return wartość (pusty napis, jeśli klucz nie ma wartości)
+     */
+    public static String get(String key) {
+        String value = values.get(key);
+        return value != null ? value : "";
+    }
+
+    /**
+     * @param key klucz konfiguracji
+     * @return wartość całkowita; przy niepoprawnej wartości - wartość domyślna
+     */
+    public static int getInt(String key) {
+        return (int) getLong(key);
+    }
+
+    /**
+     * @param key klucz konfiguracji
+     * @return wartość całkowita; przy niepoprawnej wartości - wartość domyślna
+     */
+    public static long getLong(String key) {
+        String value = get(key);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            String fallback = DEFAULTS.getOrDefault(key, "0");
+            System.err.println("Niepoprawna wartość " + key + "=" + value + ", używam " + fallback);
+            return fallback.isEmpty() ? 0 : Long.parseLong(fallback);
+        }
+    }
+
+    /**
+     * Zwraca wartość będącą jednym z dozwolonych słów kluczowych (bez rozróżniania wielkości liter).
+     *
+     * @param key klucz konfiguracji
+     * @param allowed dozwolone wartości
+     * @return wartość wielkimi literami; przy niepoprawnej wartości - wartość domyślna
+     */
+    public static String getKeyword(String key, String... allowed) {
+        String value = get(key).toUpperCase(Locale.ROOT);
+        for (String a : allowed) {
+            if (a.equals(value)) return value;
+        }
+        System.err.println("Niepoprawna wartość " + key + "=" + value + ", używam " + DEFAULTS.get(key));
+        return DEFAULTS.get(key);
+    }
+
+    /**
+     * Zwraca adres JDBC bazy na podstawie {@link #DB_PATH}.
+     * Baza {@code :memory:} otwierana jest jako współdzielona baza w pamięci,
+     * aby dodatkowe połączenia (zadania w tle, kopie) widziały te same dane.
+     *
+     * @return adres JDBC
+     */
+    public static String jdbcUrl() {
+        String path = get(DB_PATH);
+        if (path.startsWith("jdbc:")) return path;
+        if (path.equals(":memory:")) return "jdbc:sqlite:file:library?mode=memory&cache=shared";
+        return "jdbc:sqlite:" + path;
+    }
+
+    /**
+     * @return plik konfiguracji, z którego wczytano ustawienia, lub null
+     */
+    public static String getFile() {
+        return file;
+    }
+
+    /**
+     * Zwraca opis obowiązujących ustawień (klucz, wartość, źródło) w kolejności kluczy.
+     *
+     * @return wiersze opisu
+     */
+    public static List<String> describe() {
+        Map<String, String> v = values;
+        Map<String, String> s = sources;
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, String> e : v.entrySet()) {
+            lines.add(e.getKey() + " = " + e.getValue() + " [" + s.get(e.getKey()) + "]");
+        }
+        return lines;
+    }
+
+    /**
+     * Wypisuje obowiązujące ustawienia.
+     *
+     * @param out strumień docelowy
+     */
+    public static void logEffectiveSettings(PrintStream out) {
+        out.println("Konfiguracja" + (file != null ? " (" + file + ")" : "") + ":");
+        for (String line : describe()) {
+            out.println("  " + line);
+        }
+    }
+
+    /**
+     * Zwraca nazwę zmiennej środowiskowej odpowiadającej kluczowi,
+     * np. {@code library.db.cacheSize} &rarr; {@code LIBRARY_DB_CACHE_SIZE}.
+     *
+     * @param key klucz konfiguracji
+     * @return nazwa zmiennej środowiskowej
+     */
+    static String envName(String key) {
+        return key.replaceAll("([a-z0-9])([A-Z])", "$1_$2").replace('.', '_').toUpperCase(Locale.ROOT);
+    }
+}
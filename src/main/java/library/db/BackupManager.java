@@ -0,0 +1,183 @@
+package library.db;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+import library.config.LibraryConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+/**
+ * Kopia zapasowa działającej bazy danych (bez zatrzymywania aplikacji).
+ * <p>
+ * Domyślnie używane jest API kopii online SQLite (przez sterownik sqlite-jdbc): strony bazy
+ * kopiowane są porcjami po {@code pagesPerStep} (jeden {@code sqlite3_backup_step}), a po każdej
+ * porcji kopia usypia na {@code sleepMillis} w odbiorcy postępu, wywoływanym przez sterownik między
+ * krokami - blokada odczytu bazy jest wtedy zwolniona, więc stanowisko może czytać i zapisywać.
+ * (Argument przerwy samej metody sterownika dotyczy tylko ponowień po SQLITE_BUSY/LOCKED.) Jeśli połączenie
+ * nie pochodzi ze sterownika sqlite-jdbc, kopia wykonywana jest poleceniem {@code VACUUM INTO},
+ * które trzyma blokadę odczytu przez cały czas kopiowania.
+ * Kopia wykonywana jest na osobnym połączeniu, a opcjonalna kompresja gzip odbywa się
+ * strumieniowo już po zwolnieniu blokad.
+ * </p>
+ * <p>
+ * Kopia powstaje w pliku tymczasowym w katalogu docelowym i dopiero po powodzeniu zastępuje
+ * plik docelowy (atomowa zmiana nazwy), więc przerwana kopia nie niszczy poprzedniej.
+ * </p>
+ */
+public class BackupManager {
+
+    /**
+     * Wynik wykonania kopii.
+     */
+    public static class Result {
+        /** Metoda kopii: "backup-api" lub "vacuum-into" */
+        public final String method;
+        /** Rozmiar pliku wynikowego w bajtach */
+        public final long bytes;
+        /** Łączny czas kopii (z kompresją) w nanosekundach */
+        public final long totalNanos;
+        /** Łączny czas trzymania blokad bazy w nanosekundach (dla API kopii - zmierzony czas kroków) */
+        public final long lockNanos;
+        /** Najdłuższy pojedynczy czas trzymania blokady w nanosekundach */
+        public final long maxLockNanos;
+        /** Liczba kroków kopiowania */
+        public final int steps;
+
+        Result(String method, long bytes, long totalNanos, long lockNanos, long maxLockNanos, int steps) {
+            this.method = method;
+            this.bytes = bytes;
+            this.totalNanos = totalNanos;
+            this.lockNanos = lockNanos;
+            this.maxLockNanos = maxLockNanos;
+            this.steps = steps;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s: %.1f MB w %.2f s, blokady łącznie %.1f ms (najdłuższa %.1f ms, kroków %d)",
+                    method, bytes / 1048576.0, totalNanos / 1e9, lockNanos / 1e6, maxLockNanos / 1e6, steps);
+        }
+    }
+
+    /**
+     * Wykonuje kopię zapasową bazy do pliku.
+     *
+     * @param target plik docelowy (zostanie zastąpiony dopiero po udanej kopii)
+     * @param gzip czy skompresować kopię (gzip)
+     * @param pagesPerStep liczba stron kopiowanych w jednym kroku
+     * @param sleepMillis przerwa między krokami w milisekundach
+     * @param progress odbiorca postępu (procent 0-100) lub null
+     * @return wynik kopii
+     * @throws IOException jeśli nie udało się zapisać pliku
+     * @throws SQLException jeśli kopia bazy się nie powiodła
+     */
+    public static Result backup(Path target, boolean gzip, int pagesPerStep, int sleepMillis, LongConsumer progress)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        Path absolute = target.toAbsolutePath();
+        Path raw = Files.createTempFile(absolute.getParent(), "backup-", ".db");
+        Path packed = null;
+        try {
+            long[] lock;
+            String method;
+            try (Connection conn = DatabaseManager.openConnection()) {
+                if (conn.isWrapperFor(SQLiteConnection.class)) {
+                    lock = onlineBackup(conn.unwrap(SQLiteConnection.class), raw, pagesPerStep, sleepMillis, progress);
+                    method = "backup-api";
+                } else {
+                    lock = vacuumInto(conn, raw);
+                    method = "vacuum-into";
+                }
+            }
+            Path result = raw;
+            if (gzip) {
+                packed = Files.createTempFile(absolute.getParent(), "backup-", ".gz");
+                compress(raw, packed);
+                result = packed;
+            }
+            long bytes = Files.size(result);
+            Files.move(result, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (progress != null) progress.accept(100);
+            return new Result(method, bytes, System.nanoTime() - start, lock[0], lock[1], (int) lock[2]);
+        } finally {
+            Files.deleteIfExists(raw);
+            if (packed != null) Files.deleteIfExists(packed);
+        }
+    }
+
+    /**
+     * Kopia API online SQLite ({@link DB#backup(String, String, DB.ProgressObserver, int, int, int)}).
+     * Liczba ponowień po SQLITE_BUSY/LOCKED wynika z {@link LibraryConfig#DB_BUSY_TIMEOUT_MS}.
+     *
+     * @return {łączny czas blokad, najdłuższa blokada, liczba kroków}
+     */
+    private static long[] onlineBackup(SQLiteConnection conn, Path target, int pagesPerStep, int sleepMillis,
+                                       LongConsumer progress) throws SQLException {
+        int retrySleep = Math.max(1, sleepMillis);
+        int retries = (int) Math.max(1, LibraryConfig.getLong(LibraryConfig.DB_BUSY_TIMEOUT_MS) / retrySleep);
+        // koniec poprzedniego wywołania odbiorcy (po przerwie), suma, maksimum, liczba kroków
+        long[] state = {System.nanoTime(), 0, 0, 0};
+        DB.ProgressObserver observer = (remaining, pageCount) -> {
+            // czas od wyjścia z poprzedniego wywołania to czas kroku (z blokadą), bez przerwy
+            long held = System.nanoTime() - state[0];
+            state[1] += held;
+            state[2] = Math.max(state[2], held);
+            state[3]++;
+            if (progress != null && pageCount > 0) {
+                progress.accept(100L * (pageCount - remaining) / pageCount);
+            }
+            if (remaining > 0 && sleepMillis > 0 && !Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            state[0] = System.nanoTime();
+        };
+        state[0] = System.nanoTime();
+        int rc = conn.getDatabase().backup("main", target.toString(), observer, retrySleep, retries, pagesPerStep);
+        if (rc != 0 && rc != 101) { // SQLITE_OK, SQLITE_DONE
+            throw new SQLException("Kopia zapasowa zakończona kodem " + rc);
+        }
+        return new long[] {state[1], state[2], state[3]};
+    }
+
+    /**
+     * Kopia poleceniem {@code VACUUM INTO} (jedna transakcja odczytu przez cały czas kopiowania).
+     *
+     * @return {czas blokady, czas blokady, 1}
+     */
+    private static long[] vacuumInto(Connection conn, Path target) throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement ps = conn.prepareStatement("VACUUM INTO ?")) {
+            ps.setString(1, target.toString());
+            ps.executeUpdate();
+        }
+        long held = System.nanoTime() - start;
+        return new long[] {held, held, 1};
+    }
+
+    /**
+     * Kompresuje plik strumieniowo do formatu gzip.
+     */
+    private static void compress(Path source, Path target) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16),
+                     1 << 16)) {
+            in.transferTo(out);
+        }
+    }
+}
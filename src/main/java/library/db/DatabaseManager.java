@@ -1,24 +1,55 @@
 package library.db;
 
 import java.sql.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import library.config.LibraryConfig;
 
 /**
  * Klasa zarządzająca połączeniem z bazą danych SQLite,
  * tworzeniem schematu bazy oraz inicjalizacją domyślnego użytkownika admin.
  */
 public class DatabaseManager {
+    /** Domyślny adres bazy danych (gdy konfiguracja nie wskazuje innej ścieżki) */
+    public static final String DEFAULT_URL = "jdbc:sqlite:library.db";
+
     private static Connection conn = null;
+    private static String currentUrl = DEFAULT_URL;
+
+    /** Połączenie przypisane do bieżącego wątku (np. zadania w tle), nadpisujące współdzielone */
+    private static final ThreadLocal<Connection> boundConn = new ThreadLocal<>();
+
+    /** Wolne połączenia dla krótkich operacji wielu wątków ({@link #leaseConnection()}) */
+    private static final ConcurrentLinkedQueue<Connection> idleConns = new ConcurrentLinkedQueue<>();
+    /** Otwarte połączenia puli (wolne i wypożyczone) */
+    private static final AtomicInteger pooledConns = new AtomicInteger();
+    /** Połączenia puli wypożyczone w tej chwili */
+    private static final AtomicInteger leasedConns = new AtomicInteger();
 
     /**
-     * Nawiązuje połączenie z bazą danych SQLite.
+     * Nawiązuje połączenie z bazą danych SQLite wskazaną w konfiguracji
+     * ({@link LibraryConfig#DB_PATH}).
      * Jeśli połączenie jest już otwarte, metoda nie wykonuje żadnej operacji.
      * Inicjalizuje schemat bazy oraz zapewnia istnienie użytkownika admin.
      */
     public static void connect() {
+        connect(LibraryConfig.jdbcUrl());
+    }
+
+    /**
+     * Nawiązuje połączenie z bazą danych SQLite o podanym adresie JDBC
+     * (np. plik tymczasowy w testach wydajności).
+     * Jeśli połączenie jest już otwarte, metoda nie wykonuje żadnej operacji.
+     * Gdy włączony jest {@link SlowQueryLog}, połączenie jest opakowywane warstwą
+     * mierzącą czas zapytań i odczytu wyników.
+     *
+     * @param url adres JDBC bazy danych, np. "jdbc:sqlite:/tmp/test.db"
+     */
+    public static void connect(String url) {
         if (conn != null) return;
         try {
-            Class.forName("org.sqlite.JDBC");
-            conn = DriverManager.getConnection("jdbc:sqlite:library.db");
+            conn = open(url);
+            currentUrl = url;
             initSchema();
             ensureAdminUser();
         } catch (Exception e) {
@@ -26,9 +57,153 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Otwiera nowe połączenie sterownika, ustawia parametry PRAGMA z konfiguracji
+     * i opakowuje je pomiarem czasu, jeśli włączony jest {@link SlowQueryLog}.
+     *
+     * @param url adres JDBC bazy danych
+     * @return nowe połączenie
+     * @throws Exception jeśli nie udało się załadować sterownika lub połączyć z bazą
+     */
+    private static Connection open(String url) throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        Connection raw = DriverManager.getConnection(url);
+        try {
+            applyPragmas(raw);
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        return SlowQueryLog.isEnabled() ? InstrumentedJdbc.wrap(raw) : raw;
+    }
+
+    /**
+     * Ustawia na połączeniu parametry SQLite z konfiguracji
+     * (busy_timeout, journal_mode, synchronous, cache_size, mmap_size, temp_store).
+     *
+     * @param c połączenie
+     * @throws SQLException jeśli baza odrzuci ustawienie
+     */
+    private static void applyPragmas(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + LibraryConfig.getLong(LibraryConfig.DB_BUSY_TIMEOUT_MS));
+            st.execute("PRAGMA journal_mode = " + LibraryConfig.getKeyword(LibraryConfig.DB_JOURNAL_MODE,
+                    "DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF"));
+            st.execute("PRAGMA synchronous = " + LibraryConfig.getKeyword(LibraryConfig.DB_SYNCHRONOUS,
+                    "OFF", "NORMAL", "FULL", "EXTRA"));
+            st.execute("PRAGMA cache_size = " + LibraryConfig.getLong(LibraryConfig.DB_CACHE_SIZE));
+            st.execute("PRAGMA mmap_size = " + LibraryConfig.getLong(LibraryConfig.DB_MMAP_SIZE));
+            st.execute("PRAGMA temp_store = " + LibraryConfig.getKeyword(LibraryConfig.DB_TEMP_STORE,
+                    "DEFAULT", "FILE", "MEMORY"));
+        }
+    }
+
+    /**
+     * Otwiera dodatkowe, niezależne połączenie z tą samą bazą co połączenie współdzielone.
+     * Służy do pracy w tle: transakcje na takim połączeniu nie obejmują operacji
+     * wykonywanych w tym czasie przez użytkownika na połączeniu współdzielonym.
+     * Wywołujący odpowiada za zamknięcie połączenia.
+     *
+     * @return nowe połączenie
+     */
+    public static Connection openConnection() {
+        connect();
+        try {
+            return open(currentUrl);
+        } catch (Exception e) {
+            throw new RuntimeException("Błąd połączenia z bazą: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wypożycza osobne połączenie z tą samą bazą: wolne z puli albo nowe ({@link #openConnection()}).
+     * Służy krótkim operacjom wykonywanym równolegle przez wiele wątków (np. zapisom czytelników),
+     * aby ich transakcje nie mieszały się na połączeniu współdzielonym. Pula rośnie najwyżej
+     * do największej liczby równoczesnych wypożyczeń.
+     *
+     * @return połączenie do oddania przez {@link #releaseConnection(Connection)}
+     */
+    public static Connection leaseConnection() {
+        Connection c = idleConns.poll();
+        if (c == null) {
+            c = openConnection();
+            pooledConns.incrementAndGet();
+        }
+        leasedConns.incrementAndGet();
+        return c;
+    }
+
+    /**
+     * Oddaje połączenie wypożyczone przez {@link #leaseConnection()}. Niezakończona transakcja
+     * jest wycofywana; połączenie, którego nie da się przywrócić do automatycznego zatwierdzania,
+     * jest zamykane.
+     *
+     * @param connection połączenie
+     */
+    public static void releaseConnection(Connection connection) {
+        leasedConns.decrementAndGet();
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idleConns.add(connection);
+        } catch (SQLException e) {
+            System.err.println("Błąd zwalniania połączenia: " + e.getMessage());
+            pooledConns.decrementAndGet();
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Przypisuje połączenie do bieżącego wątku. Do wywołania {@link #unbindConnection()}
+     * wszystkie operacje DAO i transakcje w tym wątku korzystają z tego połączenia.
+     *
+     * @param connection połączenie (np. z {@link #openConnection()})
+     */
+    public static void bindConnection(Connection connection) {
+        boundConn.set(connection);
+    }
+
+    /**
+     * Usuwa przypisanie połączenia do bieżącego wątku (wątek wraca do połączenia współdzielonego).
+     */
+    public static void unbindConnection() {
+        boundConn.remove();
+    }
+
+    /**
+     * Zamyka połączenie z bazą danych i wolne połączenia puli. Kolejne wywołanie {@link #connect()}
+     * lub {@link #getConn()} otworzy nowe połączenie.
+     */
+    public static void close() {
+        for (Connection c = idleConns.poll(); c != null; c = idleConns.poll()) {
+            pooledConns.decrementAndGet();
+            closeQuietly(c);
+        }
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Błąd zamykania połączenia: " + e.getMessage());
+        }
+        conn = null;
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException e) {
+            System.err.println("Błąd zamykania połączenia: " + e.getMessage());
+        }
+    }
+
     /**
      * Tworzy tabele w bazie danych, jeśli nie istnieją.
      * Tabele to: items (zasoby biblioteki) oraz users (użytkownicy i bibliotekarze).
+     * Bazom utworzonym przed wprowadzeniem wersji rekordów dodaje kolumnę {@code version}.
+     * Indeksy złożone na items obsługują zapytania {@link ItemDao#query}: filtry równościowe
+     * (gatunek lub typ, dostępność) na początku, kolumna sortowania i uuid na końcu.
      * 
      * @throws SQLException jeśli wystąpi błąd SQL podczas tworzenia tabel
      */
@@ -44,7 +219,8 @@ public class DatabaseManager {
                 "genre TEXT, " +      
                 "issueNumber INT, " + 
                 "available BOOLEAN, " +
-                "loanedTo TEXT" +
+                "loanedTo TEXT, " +
+                "version INTEGER NOT NULL DEFAULT 0" +
                 ");");
 
         st.executeUpdate("CREATE TABLE IF NOT EXISTS users (" +
@@ -52,8 +228,37 @@ public class DatabaseManager {
                 "fullname TEXT, " +
                 "password TEXT, " +
                 "role TEXT, " +      
-                "salary INT " +      
+                "salary INT, " +
+                "version INTEGER NOT NULL DEFAULT 0" +
                 ");");
+
+        addColumnIfMissing(st, "items", "version", "INTEGER NOT NULL DEFAULT 0");
+        addColumnIfMissing(st, "users", "version", "INTEGER NOT NULL DEFAULT 0");
+
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS items_genre_available_year ON items (genre, available, year, uuid)");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS items_type_available_year ON items (type, available, year, uuid)");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS items_author_year ON items (author, year, uuid)");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS items_year ON items (year, uuid)");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS items_title ON items (title, uuid)");
+    }
+
+    /**
+     * Dodaje kolumnę do istniejącej tabeli, jeśli jej jeszcze nie ma (migracja starszych baz).
+     *
+     * @param st polecenie SQL na bieżącym połączeniu
+     * @param table nazwa tabeli
+     * @param column nazwa kolumny
+     * @param definition typ i ograniczenia kolumny
+     * @throws SQLException jeśli wystąpi błąd SQL
+     */
+    private static void addColumnIfMissing(Statement st, String table, String column, String definition)
+            throws SQLException {
+        try (ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return;
+            }
+        }
+        st.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
     }
 
     /**
@@ -82,14 +287,102 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Sprawdza, czy połączenie z bazą danych jest otwarte (bez nawiązywania nowego).
+     *
+     * @return true, jeśli połączenie jest otwarte
+     */
+    public static boolean isConnected() {
+        return conn != null;
+    }
+
+    /**
+     * @return liczba otwartych połączeń puli ({@link #leaseConnection()}), wolnych i wypożyczonych
+     */
+    public static int pooledConnections() {
+        return pooledConns.get();
+    }
+
+    /**
+     * @return liczba wolnych połączeń puli
+     */
+    public static int idleConnections() {
+        return idleConns.size();
+    }
+
+    /**
+     * @return liczba połączeń puli wypożyczonych w tej chwili
+     */
+    public static int leasedConnections() {
+        return leasedConns.get();
+    }
+
+    /**
+     * Sprawdza, czy na współdzielonym połączeniu trwa transakcja (bez zapytania do bazy).
+     *
+     * @return true, jeśli połączenie jest otwarte i wyłączono na nim automatyczne zatwierdzanie
+     */
+    public static boolean isInTransaction() {
+        Connection c = conn;
+        if (c == null) return false;
+        try {
+            return !c.getAutoCommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
     /**
      * Zwraca aktywne połączenie do bazy danych SQLite,
      * nawiązując połączenie, jeśli jeszcze nie istnieje.
+     * Jeśli do bieżącego wątku przypisano połączenie ({@link #bindConnection(Connection)}),
+     * zwracane jest to połączenie.
      * 
      * @return Obiekt Connection reprezentujący połączenie z bazą
      */
     public static Connection getConn() {
+        Connection bound = boundConn.get();
+        if (bound != null) return bound;
         connect();
         return conn;
     }
+
+    /**
+     * Rozpoczyna transakcję na współdzielonym połączeniu.
+     * Wszystkie kolejne operacje DAO do wywołania {@link #commitTransaction()}
+     * lub {@link #rollbackTransaction()} zostaną zatwierdzone jednym zapisem na dysk.
+     */
+    public static void beginTransaction() {
+        try {
+            getConn().setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd rozpoczęcia transakcji: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Zatwierdza bieżącą transakcję i przywraca tryb automatycznego zatwierdzania.
+     */
+    public static void commitTransaction() {
+        try {
+            Connection c = getConn();
+            c.commit();
+            c.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd zatwierdzania transakcji: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wycofuje bieżącą transakcję i przywraca tryb automatycznego zatwierdzania.
+     */
+    public static void rollbackTransaction() {
+        try {
+            Connection c = getConn();
+            c.rollback();
+            c.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Błąd wycofania transakcji: " + e.getMessage());
+        }
+    }
 }
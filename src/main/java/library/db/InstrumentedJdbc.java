@@ -0,0 +1,250 @@
+package library.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import library.metrics.Counter;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+
+/**
+ * Warstwa pośrednicząca JDBC mierząca czas zapytań.
+ * <p>
+ * Połączenie, zapytania i wyniki opakowywane są dynamicznymi pośrednikami ({@link Proxy}),
+ * które mierzą czas wykonania zapytania oraz czas iteracji po wynikach. Zapytanie jest rozliczane,
+ * gdy wyniki zostaną odczytane do końca lub zamknięte (albo gdy zapytanie zostanie zamknięte
+ * lub wykonane ponownie). Czasy trafiają do metryk {@code Jdbc.execute} i {@code Jdbc.fetch},
+ * a zapytania wolniejsze od progu - do {@link SlowQueryLog} razem z planem wykonania.
+ * </p>
+ */
+final class InstrumentedJdbc {
+
+    private static final OperationStats EXECUTE = MetricsRegistry.operation("Jdbc", "execute");
+    private static final OperationStats FETCH = MetricsRegistry.operation("Jdbc", "fetch");
+    private static final Counter SLOW_QUERIES = MetricsRegistry.counter("Jdbc", "slowQueries");
+
+    private InstrumentedJdbc() {
+    }
+
+    /**
+     * Opakowuje połączenie warstwą pomiarową.
+     *
+     * @param raw połączenie sterownika
+     * @return połączenie mierzące czas zapytań
+     */
+    static Connection wrap(Connection raw) {
+        return proxy(Connection.class, new ConnectionHandler(raw));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    /**
+     * Wywołuje metodę na obiekcie docelowym, przekazując dalej oryginalny wyjątek.
+     */
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Pobiera plan wykonania zapytania na surowym połączeniu (bez pomiaru).
+     */
+    private static List<String> explain(Connection raw, String sql, Map<Integer, Object> params) {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement ps = raw.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (Map.Entry<Integer, Object> e : params.entrySet()) {
+                ps.setObject(e.getKey(), e.getValue());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            }
+        } catch (SQLException e) {
+            plan.add("niedostępny: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    /**
+     * Pojedyncze wykonanie zapytania oczekujące na rozliczenie.
+     */
+    private static final class Execution {
+        final String sql;
+        final Map<Integer, Object> params;
+        final int batchSize;
+        final long executeNanos;
+        long fetchNanos;
+        long rows;
+        boolean done;
+
+        Execution(String sql, Map<Integer, Object> params, int batchSize, long executeNanos) {
+            this.sql = sql;
+            this.params = params;
+            this.batchSize = batchSize;
+            this.executeNanos = executeNanos;
+        }
+    }
+
+    /**
+     * Rozlicza wykonanie: zapisuje metryki i, jeśli trzeba, wpis w dzienniku wolnych zapytań.
+     */
+    private static void finish(Connection raw, Execution ex) {
+        if (ex == null || ex.done) return;
+        ex.done = true;
+        if (ex.rows > 0 || ex.fetchNanos > 0) {
+            FETCH.recordDuration(ex.fetchNanos, ex.rows);
+        }
+        if (SlowQueryLog.isSlow(ex.executeNanos + ex.fetchNanos)) {
+            SLOW_QUERIES.increment();
+            SlowQueryLog.log(ex.sql, ex.params, ex.batchSize, ex.executeNanos, ex.fetchNanos, ex.rows,
+                    explain(raw, ex.sql, ex.params));
+        }
+    }
+
+    /**
+     * Pośrednik połączenia - opakowuje tworzone zapytania.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection raw;
+
+        ConnectionHandler(Connection raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(raw, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(raw, (Statement) result, (String) args[0]));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(raw, (Statement) result, null));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    /**
+     * Pośrednik zapytania - zapamiętuje parametry i mierzy czas wykonania.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Connection raw;
+        private final Statement target;
+        private final String sql;
+        private final Map<Integer, Object> params = new TreeMap<>();
+        private int batchSize;
+        private String batchSql;
+        private Execution pending;
+
+        StatementHandler(Connection raw, Statement target, String sql) {
+            this.raw = raw;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                params.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                if (args != null && args.length == 1) batchSql = (String) args[0];
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.equals("close")) {
+                finish(raw, pending);
+                pending = null;
+            }
+            return call(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finish(raw, pending);
+            pending = null;
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String
+                    ? (String) args[0] : (sql != null ? sql : batchSql);
+            int batch = method.getName().equals("executeBatch") ? batchSize : 0;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (Throwable t) {
+                EXECUTE.error();
+                throw t;
+            } finally {
+                EXECUTE.record(start);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (batch > 0) batchSize = 0;
+            Map<Integer, Object> snapshot = params.isEmpty()
+                    ? Collections.emptyMap() : new TreeMap<>(params);
+            Execution ex = new Execution(statementSql == null ? "?" : statementSql, snapshot, batch, elapsed);
+            if (result instanceof ResultSet) {
+                pending = ex;
+                return proxy(ResultSet.class, new ResultSetHandler(raw, (ResultSet) result, ex));
+            }
+            finish(raw, ex);
+            return result;
+        }
+    }
+
+    /**
+     * Pośrednik wyników - mierzy czas iteracji i liczy wiersze.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final Connection raw;
+        private final ResultSet target;
+        private final Execution execution;
+
+        ResultSetHandler(Connection raw, ResultSet target, Execution execution) {
+            this.raw = raw;
+            this.target = target;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("next")) {
+                long start = System.nanoTime();
+                Object result = call(target, method, args);
+                execution.fetchNanos += System.nanoTime() - start;
+                if (Boolean.TRUE.equals(result)) {
+                    execution.rows++;
+                } else {
+                    finish(raw, execution);
+                }
+                return result;
+            }
+            if (name.equals("close")) {
+                finish(raw, execution);
+            }
+            return call(target, method, args);
+        }
+    }
+}
@@ -3,7 +3,17 @@ package library.db;
 import java.io.PrintWriter;
 import java.sql.*;
 import java.util.*;
+import library.jfr.BorrowEvent;
+import library.jfr.LibraryEvent;
+import library.jfr.ReturnEvent;
+import library.jfr.SearchEvent;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
 import library.model.*;
+import library.repository.ItemQuery;
+import library.repository.ItemRepository;
+import library.repository.LoanResult;
+import library.repository.UpdateResult;
 
 /**
  * Klasa DAO (Data Access Object) do zarządzania zasobami biblioteki (items).
@@ -11,6 +21,50 @@ import library.model.*;
  */
 public class ItemDao {
 
+    /**
+     * Zapytanie zapisujące pełny wiersz pozycji (z nadpisaniem istniejącego). Wersja nadpisanego
+     * wiersza jest zwiększana, więc równoległe {@link #update(Item)} wykryje zmianę.
+     * Nadpisanie to {@code ON CONFLICT DO UPDATE}, a nie {@code INSERT OR REPLACE}: wiersz zachowuje
+     * swój {@code rowid}, więc stronicowanie w kolejności wstawiania nie pomija ani nie powtarza
+     * pozycji zmienianych w trakcie przeglądania.
+     */
+    private static final String UPSERT_SQL =
+            "INSERT INTO items (uuid,type,title,year,author,genre,issueNumber,available,loanedTo,version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0) ON CONFLICT(uuid) DO UPDATE SET " +
+            "type=excluded.type, title=excluded.title, year=excluded.year, author=excluded.author, " +
+            "genre=excluded.genre, issueNumber=excluded.issueNumber, available=excluded.available, " +
+            "loanedTo=excluded.loanedTo, version=items.version + 1";
+
+    /** Maksymalna liczba UUID w jednym zapytaniu {@code uuid IN (...)} (limit parametrów SQLite) */
+    private static final int MAX_IN_PARAMS = 500;
+
+    /** Zapytanie zmieniające wiersz pozycji tylko wtedy, gdy jego wersja się nie zmieniła */
+    private static final String UPDATE_IF_VERSION_SQL =
+            "UPDATE items SET type=?, title=?, year=?, author=?, genre=?, issueNumber=?, available=?, loanedTo=?, " +
+            "version = version + 1 WHERE uuid=? AND version=?";
+
+    /** Statystyki wywołań metod (widoczne w JMX, domena {@value MetricsRegistry#JMX_DOMAIN}) */
+    private static final OperationStats SAVE = MetricsRegistry.operation("ItemDao", "save");
+    private static final OperationStats SAVE_ALL = MetricsRegistry.operation("ItemDao", "saveAll");
+    private static final OperationStats UPDATE = MetricsRegistry.operation("ItemDao", "update");
+    private static final OperationStats GET_ALL = MetricsRegistry.operation("ItemDao", "getAll");
+    private static final OperationStats COUNT = MetricsRegistry.operation("ItemDao", "count");
+    private static final OperationStats COUNT_LOANED = MetricsRegistry.operation("ItemDao", "countLoaned");
+    private static final OperationStats SEARCH = MetricsRegistry.operation("ItemDao", "search");
+    private static final OperationStats GET_PAGE = MetricsRegistry.operation("ItemDao", "getPage");
+    private static final OperationStats QUERY = MetricsRegistry.operation("ItemDao", "query");
+    private static final OperationStats GET_BY_UUID = MetricsRegistry.operation("ItemDao", "getByUuid");
+    private static final OperationStats DELETE = MetricsRegistry.operation("ItemDao", "delete");
+    private static final OperationStats BORROW = MetricsRegistry.operation("ItemDao", "borrowItem");
+    private static final OperationStats RETURN = MetricsRegistry.operation("ItemDao", "returnItem");
+    private static final OperationStats RETURN_BY_USER = MetricsRegistry.operation("ItemDao", "returnItemByUser");
+    private static final OperationStats BORROW_ALL = MetricsRegistry.operation("ItemDao", "borrowAll");
+    private static final OperationStats RETURN_ALL = MetricsRegistry.operation("ItemDao", "returnAll");
+    private static final OperationStats GET_USER_LOANS = MetricsRegistry.operation("ItemDao", "getUserLoans");
+    private static final OperationStats EXPORT_LOANS = MetricsRegistry.operation("ItemDao", "exportLoansToTxt");
+    private static final OperationStats BATCH_BORROW = MetricsRegistry.operation("ItemDao", "LoanBatch.borrow");
+    private static final OperationStats BATCH_RETURN = MetricsRegistry.operation("ItemDao", "LoanBatch.returnItem");
+
     /**
      * Zapisuje pozycję (książkę lub magazyn) w bazie danych.
      * Jeśli pozycja o danym UUID już istnieje, zostanie zastąpiona.
@@ -18,38 +72,133 @@ public class ItemDao {
      * @param item obiekt Item (Book lub Magazine) do zapisania
      */
     public static void save(Item item) {
-        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
-            "INSERT OR REPLACE INTO items (uuid,type,title,year,author,genre,issueNumber,available,loanedTo) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
-        )) {
-            ps.setString(1, item.getUuid().toString());
-            if (item instanceof Book) {
-                Book b = (Book) item;
-                ps.setString(2, "book");
-                ps.setString(3, b.getTitle());
-                ps.setInt(4, b.getYear());
-                ps.setString(5, b.getAuthor());
-                ps.setString(6, b.getGenre());
-                ps.setNull(7, java.sql.Types.INTEGER);
-                ps.setBoolean(8, b.isAvailable());
-                ps.setString(9, b.getLoanedTo());
-            } else if (item instanceof Magazine) {
-                Magazine m = (Magazine) item;
-                ps.setString(2, "magazine");
-                ps.setString(3, m.getTitle());
-                ps.setInt(4, m.getYear());
-                ps.setNull(5, java.sql.Types.VARCHAR);
-                ps.setNull(6, java.sql.Types.VARCHAR);
-                ps.setInt(7, m.getIssueNumber());
-                ps.setBoolean(8, m.isAvailable());
-                ps.setString(9, m.getLoanedTo());
-            }
+        long start = System.nanoTime();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(UPSERT_SQL)) {
+            bindItem(ps, item);
             ps.executeUpdate();
         } catch (SQLException e) {
+            SAVE.error();
+            System.err.println("Błąd zapisu pozycji: " + e.getMessage());
+        } finally {
+            SAVE.record(start);
+        }
+    }
+
+    /**
+     * Zapisuje wiele pozycji jednym przygotowanym zapytaniem wykonywanym wsadowo.
+     * Pozycje o istniejącym UUID zostaną zastąpione. Aby zapis był szybki,
+     * wywołujący powinien objąć go transakcją ({@link DatabaseManager#beginTransaction()}).
+     *
+     * @param items lista pozycji do zapisania
+     */
+    public static void saveAll(List<? extends Item> items) {
+        long start = System.nanoTime();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(UPSERT_SQL)) {
+            for (Item item : items) {
+                bindItem(ps, item);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            SAVE_ALL.error();
             System.err.println("Błąd zapisu pozycji: " + e.getMessage());
+        } finally {
+            SAVE_ALL.record(start, items.size());
         }
     }
 
+    /**
+     * Zmienia pozycję, jeśli od jej odczytu nikt jej nie zmodyfikował (porównanie wersji
+     * i zapis w jednym warunkowym UPDATE, bez blokowania odczytów).
+     * Oczekiwaną wersją jest {@link Item#getVersion()} przekazanej pozycji.
+     *
+     * @param item zmieniona pozycja z wersją z chwili odczytu
+     * @return UPDATED z pozycją w nowej wersji, CONFLICT z aktualnym stanem w bazie
+     *         NOT_FOUND, jeśli pozycja nie istnieje,
+     *         lub ERROR z opisem błędu bazy
+     */
+    public static UpdateResult<Item> update(Item item) {
+        long start = System.nanoTime();
+        long expected = item.getVersion();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(UPDATE_IF_VERSION_SQL)) {
+            bindColumns(ps, item, 1);
+            ps.setString(9, item.getUuid().toString());
+            ps.setLong(10, expected);
+            if (ps.executeUpdate() == 1) {
+                item.setVersion(expected + 1);
+                return UpdateResult.updated(item);
+            }
+        } catch (SQLException e) {
+            UPDATE.error();
+            System.err.println("Błąd zmiany pozycji: " + e.getMessage());
+            return UpdateResult.error(e.getMessage());
+        } finally {
+            UPDATE.record(start);
+        }
+        return getByUuid(item.getUuid())
+                .map(UpdateResult::conflict)
+                .orElseGet(UpdateResult::notFound);
+    }
+
+    /**
+     * Wzorzec LIKE dopasowujący tekst zawierający podany fragment dosłownie:
+     * znaki {@code %}, {@code _} i {@code \} są poprzedzane znakiem ucieczki {@code \}.
+     *
+     * @param text szukany fragment tekstu
+     * @return wzorzec do porównania {@code LIKE ? ESCAPE '\'}
+     */
+    private static String containsPattern(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('%');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+
+    /**
+     * Ustawia parametry zapytania zapisu na podstawie pozycji.
+     *
+     * @param ps przygotowane zapytanie {@link #UPSERT_SQL}
+     * @param item pozycja (Book lub Magazine)
+     * @throws SQLException jeśli nie udało się ustawić parametrów
+     */
+    private static void bindItem(PreparedStatement ps, Item item) throws SQLException {
+        ps.setString(1, item.getUuid().toString());
+        bindColumns(ps, item, 2);
+    }
+
+    /**
+     * Ustawia kolejne parametry zapytania na kolumny pozycji od type do loanedTo.
+     *
+     * @param ps przygotowane zapytanie
+     * @param item pozycja (Book lub Magazine)
+     * @param first numer parametru odpowiadającego kolumnie type
+     * @throws SQLException jeśli nie udało się ustawić parametrów
+     */
+    private static void bindColumns(PreparedStatement ps, Item item, int first) throws SQLException {
+        if (item instanceof Book) {
+            Book b = (Book) item;
+            ps.setString(first, "book");
+            ps.setString(first + 1, b.getTitle());
+            ps.setInt(first + 2, b.getYear());
+            ps.setString(first + 3, b.getAuthor());
+            ps.setString(first + 4, b.getGenre());
+            ps.setNull(first + 5, java.sql.Types.INTEGER);
+        } else if (item instanceof Magazine) {
+            Magazine m = (Magazine) item;
+            ps.setString(first, "magazine");
+            ps.setString(first + 1, m.getTitle());
+            ps.setInt(first + 2, m.getYear());
+            ps.setNull(first + 3, java.sql.Types.VARCHAR);
+            ps.setNull(first + 4, java.sql.Types.VARCHAR);
+            ps.setInt(first + 5, m.getIssueNumber());
+        }
+        ps.setBoolean(first + 6, item.isAvailable());
+        ps.setString(first + 7, item.getLoanedTo());
+    }
+
     /**
      * Dodaje nową książkę do bazy danych z podanymi parametrami.
      * Automatycznie generuje UUID.
@@ -70,32 +219,237 @@ public class ItemDao {
      * @return lista obiektów Item (Book lub Magazine)
      */
     public static List<Item> getAll() {
+        long start = System.nanoTime();
         List<Item> result = new ArrayList<>();
         try (Statement st = DatabaseManager.getConn().createStatement();
              ResultSet rs = st.executeQuery("SELECT * FROM items")) {
             while (rs.next()) {
-                String type = rs.getString("type");
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                String title = rs.getString("title");
-                int year = rs.getInt("year");
-                boolean available = rs.getBoolean("available");
-                String loanedTo = rs.getString("loanedTo");
-
-                if ("book".equals(type)) {
-                    String author = rs.getString("author");
-                    String genre = rs.getString("genre");
-                    result.add(new Book(uuid, title, year, author, genre, available, loanedTo));
-                } else if ("magazine".equals(type)) {
-                    int issueNumber = rs.getInt("issueNumber");
-                    result.add(new Magazine(uuid, title, year, issueNumber, available, loanedTo));
-                }
+                Item item = mapRow(rs);
+                if (item != null) result.add(item);
             }
         } catch (SQLException e) {
+            GET_ALL.error();
             System.err.println("Błąd pobierania pozycji: " + e.getMessage());
+        } finally {
+            GET_ALL.record(start, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Zwraca liczbę wszystkich pozycji w bazie danych.
+     *
+     * @return liczba pozycji
+     */
+    public static long count() {
+        long start = System.nanoTime();
+        try (Statement st = DatabaseManager.getConn().createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM items")) {
+            if (rs.next()) return rs.getLong(1);
+        } catch (SQLException e) {
+            COUNT.error();
+            System.err.println("Błąd liczenia pozycji: " + e.getMessage());
+        } finally {
+            COUNT.record(start);
+        }
+        return 0;
+    }
+
+    /**
+     * Zwraca liczbę aktualnie wypożyczonych pozycji.
+     *
+     * @return liczba wypożyczonych pozycji
+     */
+    public static long countLoaned() {
+        long start = System.nanoTime();
+        try (Statement st = DatabaseManager.getConn().createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM items WHERE available=0")) {
+            if (rs.next()) return rs.getLong(1);
+        } catch (SQLException e) {
+            COUNT_LOANED.error();
+            System.err.println("Błąd liczenia wypożyczeń: " + e.getMessage());
+        } finally {
+            COUNT_LOANED.record(start);
+        }
+        return 0;
+    }
+
+    /**
+     * Wyszukuje pozycje, których tytuł lub autor zawiera podany tekst (bez rozróżniania wielkości liter).
+     *
+     * @param text szukany fragment tekstu
+     * @param limit maksymalna liczba wyników
+     * @return lista znalezionych pozycji
+     */
+    public static List<Item> search(String text, int limit) {
+        long start = System.nanoTime();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        boolean ok = false;
+        List<Item> result = new ArrayList<>();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+                "SELECT * FROM items WHERE title LIKE ? ESCAPE '\\' OR author LIKE ? ESCAPE '\\' LIMIT ?"
+        )) {
+            String pattern = containsPattern(text);
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Item item = mapRow(rs);
+                    if (item != null) result.add(item);
+                }
+            }
+            ok = true;
+        } catch (SQLException e) {
+            SEARCH.error();
+            System.err.println("Błąd wyszukiwania pozycji: " + e.getMessage());
+        } finally {
+            SEARCH.record(start, result.size());
+            event.emit(text, result.size(), ok);
+        }
+        return result;
+    }
+
+    /**
+     * Pobiera jedną stronę pozycji w kolejności wstawiania do bazy.
+     *
+     * @param offset numer pierwszej pozycji (od 0)
+     * @param limit maksymalna liczba pozycji
+     * @return lista pozycji ze strony
+     */
+    public static List<Item> getPage(long offset, int limit) {
+        long start = System.nanoTime();
+        List<Item> result = new ArrayList<>();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+                "SELECT * FROM items ORDER BY rowid LIMIT ? OFFSET ?"
+        )) {
+            ps.setInt(1, limit);
+            ps.setLong(2, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Item item = mapRow(rs);
+                    if (item != null) result.add(item);
+                }
+            }
+        } catch (SQLException e) {
+            GET_PAGE.error();
+            System.err.println("Błąd pobierania strony pozycji: " + e.getMessage());
+        } finally {
+            GET_PAGE.record(start, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Wykonuje zapytanie o katalog. Filtry równościowe i kolejność odpowiadają indeksom złożonym
+     * tabeli items, więc np. "20 najnowszych dostępnych książek z gatunku"
+     * czyta tylko 20 wpisów indeksu zamiast sortować cały katalog.
+     *
+     * @param query zapytanie
+     * @return pozycje spełniające filtry, w kolejności zapytania
+     */
+    public static List<Item> query(ItemQuery query) {
+        long start = System.nanoTime();
+        List<Item> result = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(toSql(query, params))) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Item item = mapRow(rs);
+                    if (item != null) result.add(item);
+                }
+            }
+        } catch (SQLException e) {
+            QUERY.error();
+            System.err.println("Błąd zapytania o pozycje: " + e.getMessage());
+        } finally {
+            QUERY.record(start, result.size());
         }
         return result;
     }
 
+    /**
+     * Tłumaczy zapytanie na SQL. Stronicowanie po kluczu używa porównania wierszy
+     * {@code (kolumna, uuid) > (?, ?)}, które SQLite realizuje jako zakres indeksu.
+     *
+     * @param query zapytanie
+     * @param params lista, do której dopisywane są kolejne parametry
+     * @return treść zapytania SQL
+     */
+    static String toSql(ItemQuery query, List<Object> params) {
+        List<String> where = new ArrayList<>();
+        if (query.getType() != null) {
+            where.add("type = ?");
+            params.add(query.getType().column);
+        }
+        if (query.getGenre() != null) {
+            where.add("genre = ?");
+            params.add(query.getGenre());
+        }
+        if (query.getAuthor() != null) {
+            where.add("author = ?");
+            params.add(query.getAuthor());
+        }
+        if (query.getAvailable() != null) {
+            where.add("available = ?");
+            params.add(query.getAvailable() ? 1 : 0);
+        }
+        if (query.getYearFrom() != null) {
+            where.add("year >= ?");
+            params.add(query.getYearFrom());
+        }
+        if (query.getYearTo() != null) {
+            where.add("year <= ?");
+            params.add(query.getYearTo());
+        }
+        if (query.getText() != null) {
+            String pattern = containsPattern(query.getText());
+            where.add("(title LIKE ? ESCAPE '\\' OR author LIKE ? ESCAPE '\\')");
+            params.add(pattern);
+            params.add(pattern);
+        }
+        ItemQuery.Sort sort = query.getSort();
+        String dir = query.isDescending() ? " DESC" : "";
+        String cmp = query.isDescending() ? "<" : ">";
+        Item after = query.getAfter();
+        if (after != null) {
+            String uuid = after.getUuid().toString();
+            Object key = sort.key(after);
+            if (sort == ItemQuery.Sort.INSERTION) {
+                where.add("rowid " + cmp + " (SELECT rowid FROM items WHERE uuid = ?)");
+                params.add(uuid);
+            } else if (key == null) {
+                // NULL jest najmniejszy: rosnąco po nim są pozostałe NULL-e i wszystkie wartości,
+                // malejąco - już tylko pozostałe NULL-e
+                where.add(query.isDescending()
+                        ? "(" + sort.column + " IS NULL AND uuid < ?)"
+                        : "(" + sort.column + " IS NOT NULL OR uuid > ?)");
+                params.add(uuid);
+            } else {
+                String range = "(" + sort.column + ", uuid) " + cmp + " (?, ?)";
+                where.add(query.isDescending() && sort.nullable ? "(" + range + " OR " + sort.column + " IS NULL)" : range);
+                params.add(key);
+                params.add(uuid);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM items");
+        if (!where.isEmpty()) sql.append(" WHERE ").append(String.join(" AND ", where));
+        if (sort == ItemQuery.Sort.INSERTION) {
+            sql.append(" ORDER BY rowid").append(dir);
+        } else {
+            sql.append(" ORDER BY ").append(sort.column).append(dir).append(", uuid").append(dir);
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        params.add(query.getLimit());
+        params.add(query.getOffset());
+        return sql.toString();
+    }
+
     /**
      * Pobiera pozycję o podanym UUID.
      * 
@@ -103,29 +457,21 @@ public class ItemDao {
      * @return Optional zawierający obiekt Item jeśli znaleziono, pusty Optional w przeciwnym wypadku
      */
     public static Optional<Item> getByUuid(UUID uuid) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "SELECT * FROM items WHERE uuid=?"
         )) {
             ps.setString(1, uuid.toString());
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                String type = rs.getString("type");
-                String title = rs.getString("title");
-                int year = rs.getInt("year");
-                boolean available = rs.getBoolean("available");
-                String loanedTo = rs.getString("loanedTo");
-
-                if ("book".equals(type)) {
-                    String author = rs.getString("author");
-                    String genre = rs.getString("genre");
-                    return Optional.of(new Book(uuid, title, year, author, genre, available, loanedTo));
-                } else if ("magazine".equals(type)) {
-                    int issueNumber = rs.getInt("issueNumber");
-                    return Optional.of(new Magazine(uuid, title, year, issueNumber, available, loanedTo));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.ofNullable(mapRow(rs));
                 }
             }
         } catch (SQLException e) {
+            GET_BY_UUID.error();
             System.err.println("Błąd pobierania pozycji: " + e.getMessage());
+        } finally {
+            GET_BY_UUID.record(start);
         }
         return Optional.empty();
     }
@@ -136,39 +482,49 @@ public class ItemDao {
      * @param uuid UUID pozycji do usunięcia
      */
     public static void delete(UUID uuid) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "DELETE FROM items WHERE uuid=?"
         )) {
             ps.setString(1, uuid.toString());
             ps.executeUpdate();
         } catch (SQLException e) {
+            DELETE.error();
             System.err.println("Błąd usuwania pozycji: " + e.getMessage());
+        } finally {
+            DELETE.record(start);
         }
     }
 
     /**
      * Próbuje wypożyczyć pozycję dla użytkownika.
      * Jeśli pozycja jest dostępna, zostaje oznaczona jako wypożyczona.
+     * Sprawdzenie dostępności i zapis odbywają się w jednym warunkowym UPDATE,
+     * więc z dwóch równoczesnych wypożyczeń tej samej pozycji powiedzie się tylko jedno.
      * 
      * @param uuidStr UUID pozycji w formie tekstowej
      * @param username nazwa użytkownika wypożyczającego
      * @return true jeśli wypożyczenie się powiodło, false w przeciwnym razie
      */
     public static boolean borrowItem(String uuidStr, String username) {
-        try {
+        long start = System.nanoTime();
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        boolean success = false;
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+                "UPDATE items SET available=0, loanedTo=?, version=version+1 WHERE uuid=? AND available=1"
+        )) {
             UUID uuid = UUID.fromString(uuidStr);
-            Optional<Item> opt = getByUuid(uuid);
-            if (opt.isPresent()) {
-                Item item = opt.get();
-                if (item.isAvailable()) {
-                    item.setAvailable(false);
-                    item.setLoanedTo(username);
-                    save(item);
-                    return true;
-                }
-            }
+            ps.setString(1, username);
+            ps.setString(2, uuid.toString());
+            success = ps.executeUpdate() == 1;
+            return success;
         } catch (Exception e) {
+            BORROW.error();
             System.err.println("Błąd wypożyczania: " + e.getMessage());
+        } finally {
+            BORROW.record(start);
+            event.emit(uuidStr, username, success);
         }
         return false;
     }
@@ -180,20 +536,23 @@ public class ItemDao {
      * @return true jeśli zwrot się powiódł, false w przeciwnym razie
      */
     public static boolean returnItem(String uuidStr) {
-        try {
+        long start = System.nanoTime();
+        ReturnEvent event = new ReturnEvent();
+        event.begin();
+        boolean success = false;
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+                "UPDATE items SET available=1, loanedTo=NULL, version=version+1 WHERE uuid=? AND available=0"
+        )) {
             UUID uuid = UUID.fromString(uuidStr);
-            Optional<Item> opt = getByUuid(uuid);
-            if (opt.isPresent()) {
-                Item item = opt.get();
-                if (!item.isAvailable()) {
-                    item.setAvailable(true);
-                    item.setLoanedTo(null);
-                    save(item);
-                    return true;
-                }
-            }
+            ps.setString(1, uuid.toString());
+            success = ps.executeUpdate() == 1;
+            return success;
         } catch (Exception e) {
+            RETURN.error();
             System.err.println("Błąd zwrotu: " + e.getMessage());
+        } finally {
+            RETURN.record(start);
+            event.emit(uuidStr, null, success);
         }
         return false;
     }
@@ -206,24 +565,223 @@ public class ItemDao {
      * @return true jeśli zwrot się powiódł, false w przeciwnym razie
      */
     public static boolean returnItemByUser(String uuidStr, String username) {
-        try {
+        long start = System.nanoTime();
+        ReturnEvent event = new ReturnEvent();
+        event.begin();
+        boolean success = false;
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+                "UPDATE items SET available=1, loanedTo=NULL, version=version+1 WHERE uuid=? AND available=0 AND loanedTo=?"
+        )) {
             UUID uuid = UUID.fromString(uuidStr);
-            Optional<Item> opt = getByUuid(uuid);
-            if (opt.isPresent()) {
-                Item item = opt.get();
-                if (!item.isAvailable() && username.equals(item.getLoanedTo())) {
-                    item.setAvailable(true);
-                    item.setLoanedTo(null);
-                    save(item);
-                    return true;
-                }
-            }
+            ps.setString(1, uuid.toString());
+            ps.setString(2, username);
+            success = ps.executeUpdate() == 1;
+            return success;
         } catch (Exception e) {
+            RETURN_BY_USER.error();
             System.err.println("Błąd zwrotu: " + e.getMessage());
+        } finally {
+            RETURN_BY_USER.record(start);
+            event.emit(uuidStr, username, success);
         }
         return false;
     }
 
+    /**
+     * Wypożycza wszystkie podane pozycje albo żadnej. Wszystkie pozycje zmieniane są kilkoma
+     * warunkowymi UPDATE ... RETURNING (po {@value #MAX_IN_PARAMS} UUID) w jednej transakcji z jednym
+     * zapisem na dysk; jeśli zmieniono mniej wierszy niż pozycji, transakcja jest wycofywana, a odrzucone
+     * są dokładnie te pozycje, których UPDATE nie zmienił. Wywołana w transakcji wywołującego, wycofuje
+     * tylko własne zmiany (punkt zapisu, zwalniany zawsze po zakończeniu).
+     *
+     * @param uuids UUID pozycji
+     * @param username nazwa użytkownika wypożyczającego
+     * @return wynik operacji z listą pozycji, przez które ją odrzucono, albo {@link LoanResult#error(String)}
+     *         przy błędzie bazy
+     */
+    public static LoanResult borrowAll(List<UUID> uuids, String username) {
+        return changeAll(uuids, username, true, BORROW_ALL);
+    }
+
+    /**
+     * Przyjmuje zwrot wszystkich podanych pozycji albo żadnej (jak {@link #borrowAll(List, String)}).
+     *
+     * @param uuids UUID pozycji
+     * @param username wymagany wypożyczający lub null, jeśli dowolny
+     * @return wynik operacji z listą pozycji, przez które ją odrzucono, albo {@link LoanResult#error(String)}
+     *         przy błędzie bazy
+     */
+    public static LoanResult returnAll(List<UUID> uuids, String username) {
+        return changeAll(uuids, username, false, RETURN_ALL);
+    }
+
+    private static LoanResult changeAll(List<UUID> uuids, String username, boolean borrow, OperationStats stats) {
+        long start = System.nanoTime();
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(uuids.stream().map(UUID::toString).toList()));
+        if (ids.isEmpty()) return LoanResult.accepted();
+        List<LibraryEvent> events = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            LibraryEvent event = borrow ? new BorrowEvent() : new ReturnEvent();
+            event.begin();
+            events.add(event);
+        }
+        boolean success = false;
+        try {
+            Connection conn = DatabaseManager.getConn();
+            boolean own = conn.getAutoCommit();
+            Savepoint savepoint = null;
+            if (own) conn.setAutoCommit(false); else savepoint = conn.setSavepoint();
+            Set<String> unchanged = new LinkedHashSet<>(ids);
+            try {
+                for (int from = 0; from < ids.size(); from += MAX_IN_PARAMS) {
+                    List<String> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_PARAMS));
+                    try (PreparedStatement ps = conn.prepareStatement(changeAllSql(borrow, username != null, chunk.size()))) {
+                        int p = 1;
+                        if (borrow) ps.setString(p++, username);
+                        for (String id : chunk) ps.setString(p++, id);
+                        if (!borrow && username != null) ps.setString(p, username);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) unchanged.remove(rs.getString(1));
+                        }
+                    }
+                }
+                success = unchanged.isEmpty();
+                if (!success) {
+                    if (own) conn.rollback(); else conn.rollback(savepoint);
+                } else if (own) {
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                if (own) conn.rollback(); else conn.rollback(savepoint);
+                throw e;
+            } finally {
+                if (own) conn.setAutoCommit(true);
+                else conn.releaseSavepoint(savepoint);
+            }
+            if (success) return LoanResult.accepted();
+            List<UUID> rejected = new ArrayList<>(unchanged.size());
+            for (String id : unchanged) rejected.add(UUID.fromString(id));
+            return LoanResult.rejected(rejected);
+        } catch (SQLException e) {
+            stats.error();
+            System.err.println((borrow ? "Błąd wypożyczania: " : "Błąd zwrotu: ") + e.getMessage());
+            return LoanResult.error(e.getMessage());
+        } finally {
+            stats.record(start, ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                if (events.get(i) instanceof BorrowEvent b) b.emit(ids.get(i), username, success);
+                else ((ReturnEvent) events.get(i)).emit(ids.get(i), username, success);
+            }
+        }
+    }
+
+    /**
+     * Buduje warunkowy UPDATE dla {@code count} pozycji (lista {@code uuid IN (...)}) zwracający UUID zmienionych.
+     */
+    private static String changeAllSql(boolean borrow, boolean byUser, int count) {
+        StringBuilder sql = new StringBuilder(borrow
+                ? "UPDATE items SET available=0, loanedTo=?, version=version+1 WHERE available=1 AND uuid IN ("
+                : "UPDATE items SET available=1, loanedTo=NULL, version=version+1 WHERE available=0 AND uuid IN (");
+        for (int i = 0; i < count; i++) sql.append(i == 0 ? "?" : ",?");
+        sql.append(')');
+        if (!borrow && byUser) sql.append(" AND loanedTo=?");
+        return sql.append(" RETURNING uuid").toString();
+    }
+
+    /**
+     * Otwiera zestaw przygotowanych zapytań do masowego wykonywania wypożyczeń i zwrotów.
+     *
+     * @return nowy obiekt LoanBatch (należy go zamknąć po użyciu)
+     * @throws SQLException jeśli nie udało się przygotować zapytań
+     */
+    public static LoanBatch openLoanBatch() throws SQLException {
+        return new LoanBatch(DatabaseManager.getConn());
+    }
+
+    /**
+     * Zestaw przygotowanych zapytań do szybkiego wykonywania wielu wypożyczeń i zwrotów.
+     * Zapytania są przygotowywane raz i używane wielokrotnie, a każda operacja to pojedynczy
+     * warunkowy UPDATE zamiast odczytu i ponownego zapisu całego wiersza.
+     * Transakcjami zarządza wywołujący (np. przez {@link DatabaseManager#beginTransaction()}).
+     */
+    public static class LoanBatch implements ItemRepository.LoanBatch {
+        private final PreparedStatement borrowPs;
+        private final PreparedStatement returnPs;
+
+        LoanBatch(Connection conn) throws SQLException {
+            borrowPs = conn.prepareStatement(
+                    "UPDATE items SET available=0, loanedTo=?, version=version+1 WHERE uuid=? AND available=1");
+            returnPs = conn.prepareStatement(
+                    "UPDATE items SET available=1, loanedTo=NULL, version=version+1 WHERE uuid=? AND available=0");
+        }
+
+        /**
+         * Wypożycza pozycję, jeśli istnieje i jest dostępna.
+         *
+         * @param uuid UUID pozycji
+         * @param username nazwa użytkownika wypożyczającego
+         * @return true jeśli wypożyczenie się powiodło
+         * @throws SQLException jeśli wystąpi błąd bazy danych
+         */
+        @Override
+        public boolean borrow(UUID uuid, String username) throws SQLException {
+            long start = System.nanoTime();
+            BorrowEvent event = new BorrowEvent();
+            event.begin();
+            boolean success = false;
+            String id = uuid.toString();
+            try {
+                borrowPs.setString(1, username);
+                borrowPs.setString(2, id);
+                success = borrowPs.executeUpdate() == 1;
+                return success;
+            } catch (SQLException e) {
+                BATCH_BORROW.error();
+                throw e;
+            } finally {
+                BATCH_BORROW.record(start);
+                event.emit(id, username, success);
+            }
+        }
+
+        /**
+         * Przyjmuje zwrot pozycji, jeśli istnieje i jest wypożyczona.
+         *
+         * @param uuid UUID pozycji
+         * @return true jeśli zwrot się powiódł
+         * @throws SQLException jeśli wystąpi błąd bazy danych
+         */
+        @Override
+        public boolean returnItem(UUID uuid) throws SQLException {
+            long start = System.nanoTime();
+            ReturnEvent event = new ReturnEvent();
+            event.begin();
+            boolean success = false;
+            String id = uuid.toString();
+            try {
+                returnPs.setString(1, id);
+                success = returnPs.executeUpdate() == 1;
+                return success;
+            } catch (SQLException e) {
+                BATCH_RETURN.error();
+                throw e;
+            } finally {
+                BATCH_RETURN.record(start);
+                event.emit(id, null, success);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                borrowPs.close();
+                returnPs.close();
+            } catch (SQLException e) {
+                System.err.println("Błąd zamykania zapytań: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Pobiera listę wypożyczonych pozycji dla danego użytkownika.
      * 
@@ -231,35 +789,57 @@ public class ItemDao {
      * @return lista wypożyczonych obiektów Item
      */
     public static List<Item> getUserLoans(String username) {
+        long start = System.nanoTime();
         List<Item> result = new ArrayList<>();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "SELECT * FROM items WHERE loanedTo=?"
         )) {
             ps.setString(1, username);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                String type = rs.getString("type");
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                String title = rs.getString("title");
-                int year = rs.getInt("year");
-                boolean available = rs.getBoolean("available");
-                String loanedTo = rs.getString("loanedTo");
-
-                if ("book".equals(type)) {
-                    String author = rs.getString("author");
-                    String genre = rs.getString("genre");
-                    result.add(new Book(uuid, title, year, author, genre, available, loanedTo));
-                } else if ("magazine".equals(type)) {
-                    int issueNumber = rs.getInt("issueNumber");
-                    result.add(new Magazine(uuid, title, year, issueNumber, available, loanedTo));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Item item = mapRow(rs);
+                    if (item != null) result.add(item);
                 }
             }
         } catch (SQLException e) {
+            GET_USER_LOANS.error();
             System.err.println("Błąd pobierania wypożyczeń użytkownika: " + e.getMessage());
+        } finally {
+            GET_USER_LOANS.record(start, result.size());
         }
         return result;
     }
 
+    /**
+     * Tworzy obiekt pozycji (Book lub Magazine) na podstawie bieżącego wiersza wyniku zapytania.
+     *
+     * @param rs wynik zapytania ustawiony na wierszu tabeli items
+     * @return obiekt Item lub null, jeśli typ pozycji jest nieznany
+     * @throws SQLException jeśli wystąpi błąd odczytu kolumn
+     */
+    static Item mapRow(ResultSet rs) throws SQLException {
+        String type = rs.getString("type");
+        UUID uuid = UUID.fromString(rs.getString("uuid"));
+        String title = rs.getString("title");
+        int year = rs.getInt("year");
+        boolean available = rs.getBoolean("available");
+        String loanedTo = rs.getString("loanedTo");
+
+        Item item;
+        if ("book".equals(type)) {
+            String author = rs.getString("author");
+            String genre = rs.getString("genre");
+            item = new Book(uuid, title, year, author, genre, available, loanedTo);
+        } else if ("magazine".equals(type)) {
+            int issueNumber = rs.getInt("issueNumber");
+            item = new Magazine(uuid, title, year, issueNumber, available, loanedTo);
+        } else {
+            return null;
+        }
+        item.setVersion(rs.getLong("version"));
+        return item;
+    }
+
     /**
      * Eksportuje listę wypożyczonych pozycji do pliku tekstowego.
      * Format: UUID;tytuł;użytkownik wypożyczający
@@ -267,6 +847,7 @@ public class ItemDao {
      * @param path ścieżka do pliku wyjściowego
      */
     public static void exportLoansToTxt(String path) {
+        long start = System.nanoTime();
         try (PrintWriter out = new PrintWriter(path)) {
             List<Item> all = getAll();
             for (Item i : all) {
@@ -275,7 +856,10 @@ public class ItemDao {
                 }
             }
         } catch (Exception e) {
+            EXPORT_LOANS.error();
             System.err.println("Błąd eksportu wypożyczeń: " + e.getMessage());
+        } finally {
+            EXPORT_LOANS.record(start);
         }
     }
 }
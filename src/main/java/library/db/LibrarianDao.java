@@ -1,6 +1,9 @@
 package library.db;
 
 import library.model.Librarian;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.repository.UpdateResult;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,6 +16,15 @@ import java.util.Optional;
  */
 public class LibrarianDao {
 
+    /** Statystyki wywołań metod (widoczne w JMX, domena {@value MetricsRegistry#JMX_DOMAIN}) */
+    private static final OperationStats ADD_LIBRARIAN = MetricsRegistry.operation("LibrarianDao", "addLibrarian");
+    private static final OperationStats EDIT_LIBRARIAN = MetricsRegistry.operation("LibrarianDao", "editLibrarian");
+    private static final OperationStats EDIT_LIBRARIAN_VERSIONED =
+            MetricsRegistry.operation("LibrarianDao", "editLibrarianVersioned");
+    private static final OperationStats REMOVE_LIBRARIAN = MetricsRegistry.operation("LibrarianDao", "removeLibrarian");
+    private static final OperationStats GET_ALL_LIBRARIANS = MetricsRegistry.operation("LibrarianDao", "getAllLibrarians");
+    private static final OperationStats GET_BY_USERNAME = MetricsRegistry.operation("LibrarianDao", "getByUsername");
+
     /**
      * Dodaje nowego bibliotekarza do bazy danych.
      *
@@ -22,6 +34,7 @@ public class LibrarianDao {
      * @param salary wynagrodzenie bibliotekarza
      */
     public static void addLibrarian(String username, String fullname, String password, int salary) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "INSERT INTO users (username, fullname, password, role, salary) VALUES (?, ?, ?, 'librarian', ?)")) {
             ps.setString(1, username);
@@ -30,7 +43,10 @@ public class LibrarianDao {
             ps.setInt(4, salary);
             ps.executeUpdate();
         } catch (SQLException e) {
+            ADD_LIBRARIAN.error();
             System.err.println("Błąd dodawania bibliotekarza: " + e.getMessage());
+        } finally {
+            ADD_LIBRARIAN.record(start);
         }
     }
 
@@ -43,16 +59,62 @@ public class LibrarianDao {
      * @param salary nowe wynagrodzenie
      */
     public static void editLibrarian(String username, String fullname, String password, int salary) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
-                "UPDATE users SET fullname=?, password=?, salary=? WHERE username=? AND role='librarian'")) {
+                "UPDATE users SET fullname=?, password=?, salary=?, version=version+1 " +
+                "WHERE username=? AND role='librarian'")) {
             ps.setString(1, fullname);
             ps.setString(2, password);
             ps.setInt(3, salary);
             ps.setString(4, username);
             ps.executeUpdate();
         } catch (SQLException e) {
+            EDIT_LIBRARIAN.error();
+            System.err.println("Błąd edycji bibliotekarza: " + e.getMessage());
+        } finally {
+            EDIT_LIBRARIAN.record(start);
+        }
+    }
+
+    /**
+     * Edytuje dane bibliotekarza, jeśli od odczytu nikt ich nie zmienił
+     * (porównanie wersji i zapis w jednym warunkowym UPDATE).
+     *
+     * @param username unikalna nazwa użytkownika do edycji
+     * @param fullname nowa pełna nazwa
+     * @param password nowe hasło
+     * @param salary nowe wynagrodzenie
+     * @param expectedVersion wersja konta z chwili odczytu
+     * @return UPDATED z kontem w nowej wersji, CONFLICT z aktualnym stanem konta
+     *         NOT_FOUND, jeśli bibliotekarz nie istnieje,
+     *         lub ERROR z opisem błędu bazy
+     */
+    public static UpdateResult<Librarian> editLibrarian(String username, String fullname, String password,
+                                                        int salary, long expectedVersion) {
+        long start = System.nanoTime();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+                "UPDATE users SET fullname=?, password=?, salary=?, version=version+1 " +
+                "WHERE username=? AND role='librarian' AND version=?")) {
+            ps.setString(1, fullname);
+            ps.setString(2, password);
+            ps.setInt(3, salary);
+            ps.setString(4, username);
+            ps.setLong(5, expectedVersion);
+            if (ps.executeUpdate() == 1) {
+                Librarian librarian = new Librarian(fullname, username, password, salary);
+                librarian.setVersion(expectedVersion + 1);
+                return UpdateResult.updated(librarian);
+            }
+        } catch (SQLException e) {
+            EDIT_LIBRARIAN_VERSIONED.error();
             System.err.println("Błąd edycji bibliotekarza: " + e.getMessage());
+            return UpdateResult.error(e.getMessage());
+        } finally {
+            EDIT_LIBRARIAN_VERSIONED.record(start);
         }
+        return getByUsername(username)
+                .map(UpdateResult::conflict)
+                .orElseGet(UpdateResult::notFound);
     }
 
     /**
@@ -61,12 +123,16 @@ public class LibrarianDao {
      * @param username unikalna nazwa użytkownika do usunięcia
      */
     public static void removeLibrarian(String username) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "DELETE FROM users WHERE username=? AND role='librarian'")) {
             ps.setString(1, username);
             ps.executeUpdate();
         } catch (SQLException e) {
+            REMOVE_LIBRARIAN.error();
             System.err.println("Błąd usuwania bibliotekarza: " + e.getMessage());
+        } finally {
+            REMOVE_LIBRARIAN.record(start);
         }
     }
 
@@ -76,19 +142,18 @@ public class LibrarianDao {
      * @return lista obiektów Librarian
      */
     public static List<Librarian> getAllLibrarians() {
+        long start = System.nanoTime();
         List<Librarian> librarians = new ArrayList<>();
         try (Statement st = DatabaseManager.getConn().createStatement();
              ResultSet rs = st.executeQuery("SELECT * FROM users WHERE role='librarian'")) {
             while (rs.next()) {
-                librarians.add(new Librarian(
-                        rs.getString("fullname"),
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getInt("salary")
-                ));
+                librarians.add(mapRow(rs));
             }
         } catch (SQLException e) {
+            GET_ALL_LIBRARIANS.error();
             System.err.println("Błąd pobierania bibliotekarzy: " + e.getMessage());
+        } finally {
+            GET_ALL_LIBRARIANS.record(start, librarians.size());
         }
         return librarians;
     }
@@ -100,22 +165,39 @@ public class LibrarianDao {
      * @return Optional zawierający bibliotekarza, jeśli znaleziono; pusty Optional w przeciwnym wypadku
      */
     public static Optional<Librarian> getByUsername(String username) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "SELECT * FROM users WHERE username=? AND role='librarian'"
         )) {
             ps.setString(1, username);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                return Optional.of(new Librarian(
-                    rs.getString("fullname"),
-                    rs.getString("username"),
-                    rs.getString("password"),
-                    rs.getInt("salary")
-                ));
+                return Optional.of(mapRow(rs));
             }
         } catch (SQLException e) {
+            GET_BY_USERNAME.error();
             System.err.println("Błąd pobierania bibliotekarza: " + e.getMessage());
+        } finally {
+            GET_BY_USERNAME.record(start);
         }
         return Optional.empty();
     }
+
+    /**
+     * Tworzy bibliotekarza na podstawie bieżącego wiersza tabeli users.
+     *
+     * @param rs wynik zapytania ustawiony na wierszu bibliotekarza
+     * @return bibliotekarz z wersją rekordu
+     * @throws SQLException jeśli wystąpi błąd odczytu kolumn
+     */
+    private static Librarian mapRow(ResultSet rs) throws SQLException {
+        Librarian librarian = new Librarian(
+                rs.getString("fullname"),
+                rs.getString("username"),
+                rs.getString("password"),
+                rs.getInt("salary")
+        );
+        librarian.setVersion(rs.getLong("version"));
+        return librarian;
+    }
 }
@@ -0,0 +1,177 @@
+package library.db;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import library.config.LibraryConfig;
+
+/**
+ * Dziennik wolnych zapytań SQL.
+ * <p>
+ * Zapytanie trafia do dziennika, gdy łączny czas jego wykonania i odczytu wyników przekroczy próg
+ * (domyślnie {@value #DEFAULT_THRESHOLD_MS} ms). Wpis zawiera treść zapytania, wartości parametrów,
+ * liczbę odczytanych wierszy oraz plan wykonania ({@code EXPLAIN QUERY PLAN}). Parametry zapytań
+ * o tabelę kont ({@code users}: loginy, hasła) nie są wypisywane - wpis podaje tylko ich typ i długość.
+ * </p>
+ * <p>
+ * Próg można ustawić kluczem konfiguracji {@code library.slowQueryMs} (wartość ujemna całkowicie
+ * wyłącza instrumentację połączenia), a plik dziennika kluczem {@code library.slowQueryLog}
+ * (domyślnie {@value #DEFAULT_FILE} w katalogu roboczym, {@code -} - standardowe wyjście błędów,
+ * czyli konsola stanowiska), zob. {@link LibraryConfig}. Plik jest otwierany przy pierwszym wpisie.
+ * </p>
+ */
+public class SlowQueryLog {
+
+    /** Domyślny próg czasu zapytania w milisekundach */
+    public static final long DEFAULT_THRESHOLD_MS = 100;
+
+    /** Domyślny plik dziennika */
+    public static final String DEFAULT_FILE = "slow-queries.log";
+
+    /** Zapytania o tabelę kont - ich parametry nie trafiają do dziennika */
+    private static final Pattern ACCOUNTS_TABLE = Pattern.compile("\\busers\\b", Pattern.CASE_INSENSITIVE);
+
+    private static volatile long thresholdNanos;
+    /** Strumień dziennika; null - jeszcze nie otwarty */
+    private static volatile PrintStream out;
+
+    static {
+        setThresholdMillis(LibraryConfig.getLong(LibraryConfig.SLOW_QUERY_MS));
+    }
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Ustawia próg, powyżej którego zapytania trafiają do dziennika.
+     *
+     * @param millis próg w milisekundach (0 - wszystkie zapytania, wartość ujemna - wyłączony)
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = millis < 0 ? -1 : millis * 1_000_000L;
+    }
+
+    /**
+     * @return próg w milisekundach lub -1, jeśli dziennik jest wyłączony
+     */
+    public static long getThresholdMillis() {
+        return thresholdNanos < 0 ? -1 : thresholdNanos / 1_000_000L;
+    }
+
+    /**
+     * @return true, jeśli dziennik jest włączony
+     */
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /**
+     * Ustawia strumień, do którego zapisywane są wpisy dziennika.
+     *
+     * @param stream strumień docelowy
+     */
+    public static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    /**
+     * Zwraca strumień dziennika, przy pierwszym użyciu otwierając plik z konfiguracji.
+     */
+    private static synchronized PrintStream output() {
+        if (out == null) {
+            String file = LibraryConfig.get(LibraryConfig.SLOW_QUERY_LOG);
+            if (file == null || file.isBlank()) file = DEFAULT_FILE;
+            if (file.equals("-")) {
+                out = System.err;
+            } else {
+                try {
+                    out = new PrintStream(new FileOutputStream(file, true), true, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    System.err.println("Błąd otwierania dziennika wolnych zapytań: " + e.getMessage()
+                            + " - dziennik wyłączony");
+                    setThresholdMillis(-1);
+                    out = new PrintStream(OutputStream.nullOutputStream());
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Sprawdza, czy zapytanie o podanym czasie powinno trafić do dziennika.
+     *
+     * @param nanos łączny czas zapytania w nanosekundach
+     * @return true, jeśli czas przekracza próg
+     */
+    static boolean isSlow(long nanos) {
+        long t = thresholdNanos;
+        return t >= 0 && nanos >= t;
+    }
+
+    /**
+     * Zapisuje wpis o wolnym zapytaniu.
+     *
+     * @param sql treść zapytania
+     * @param params parametry (numer - wartość)
+     * @param batchSize liczba poleceń w paczce (0 dla pojedynczego wykonania)
+     * @param executeNanos czas wykonania zapytania
+     * @param fetchNanos czas odczytu wyników
+     * @param rows liczba odczytanych wierszy
+     * @param plan wiersze planu wykonania
+     */
+    static void log(String sql, Map<Integer, Object> params, int batchSize, long executeNanos, long fetchNanos,
+                    long rows, List<String> plan) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(String.format(Locale.ROOT, "[WOLNE ZAPYTANIE] %.1f ms (wykonanie %.1f ms, odczyt %.1f ms, wierszy %d",
+                (executeNanos + fetchNanos) / 1e6, executeNanos / 1e6, fetchNanos / 1e6, rows));
+        if (batchSize > 0) sb.append(", paczka ").append(batchSize);
+        sb.append("): ").append(sql.replaceAll("\\s+", " ").trim()).append('\n');
+        if (!params.isEmpty()) {
+            boolean redact = ACCOUNTS_TABLE.matcher(sql).find();
+            sb.append("  parametry:");
+            for (Map.Entry<Integer, Object> e : params.entrySet()) {
+                sb.append(' ').append(e.getKey()).append('=')
+                        .append(redact ? describeValue(e.getValue()) : formatValue(e.getValue()));
+            }
+            sb.append('\n');
+        }
+        for (String line : plan) {
+            sb.append("  plan: ").append(line).append('\n');
+        }
+        PrintStream target = output();
+        synchronized (target) {
+            target.print(sb);
+            target.flush();
+        }
+    }
+
+    /**
+     * Formatuje wartość parametru do dziennika (teksty w cudzysłowach, skracane).
+     */
+    private static String formatValue(Object value) {
+        if (value == null) return "NULL";
+        if (value instanceof byte[]) return "<" + ((byte[]) value).length + " bajtów>";
+        if (value instanceof CharSequence) {
+            String s = value.toString();
+            if (s.length() > 80) s = s.substring(0, 80) + "...";
+            return "'" + s + "'";
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Opisuje wartość parametru bez jej treści (typ i długość) - dla danych kont.
+     */
+    private static String describeValue(Object value) {
+        if (value == null) return "NULL";
+        if (value instanceof byte[]) return "<" + ((byte[]) value).length + " bajtów>";
+        if (value instanceof CharSequence) return "<tekst, " + ((CharSequence) value).length() + " zn.>";
+        return "<" + value.getClass().getSimpleName() + ">";
+    }
+}
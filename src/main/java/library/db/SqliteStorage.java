@@ -0,0 +1,262 @@
+package library.db;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import library.model.Human;
+import library.model.Item;
+import library.model.Librarian;
+import library.model.User;
+import library.repository.ItemQuery;
+import library.repository.ItemRepository;
+import library.repository.LibrarianRepository;
+import library.repository.LoanResult;
+import library.repository.Storage;
+import library.repository.UpdateResult;
+import library.repository.UserRepository;
+
+/**
+ * Magazyn danych w bazie SQLite. Repozytoria delegują do klas DAO
+ * ({@link ItemDao}, {@link UserDao}, {@link LibrarianDao}), a transakcje
+ * do {@link DatabaseManager} (połączenie współdzielone lub przypisane do wątku).
+ */
+public class SqliteStorage implements Storage {
+
+    private final ItemRepository items = new Items();
+    private final UserRepository users = new Users();
+    private final LibrarianRepository librarians = new Librarians();
+
+    /**
+     * Tworzy magazyn i nawiązuje połączenie z bazą wskazaną w konfiguracji.
+     */
+    public SqliteStorage() {
+        DatabaseManager.connect();
+    }
+
+    @Override
+    public ItemRepository items() {
+        return items;
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public LibrarianRepository librarians() {
+        return librarians;
+    }
+
+    @Override
+    public void beginTransaction() {
+        DatabaseManager.beginTransaction();
+    }
+
+    @Override
+    public void commitTransaction() {
+        DatabaseManager.commitTransaction();
+    }
+
+    @Override
+    public void rollbackTransaction() {
+        DatabaseManager.rollbackTransaction();
+    }
+
+    @Override
+    public String name() {
+        return "sqlite";
+    }
+
+    /** Repozytorium pozycji oparte na {@link ItemDao} */
+    private static final class Items implements ItemRepository {
+        @Override
+        public void save(Item item) {
+            ItemDao.save(item);
+        }
+
+        @Override
+        public void saveAll(List<? extends Item> list) {
+            ItemDao.saveAll(list);
+        }
+
+        @Override
+        public void addBook(String title, String author, int year, String genre) {
+            ItemDao.addBook(title, author, year, genre);
+        }
+
+        @Override
+        public List<Item> getAll() {
+            return ItemDao.getAll();
+        }
+
+        @Override
+        public long count() {
+            return ItemDao.count();
+        }
+
+        @Override
+        public long countLoaned() {
+            return ItemDao.countLoaned();
+        }
+
+        @Override
+        public List<Item> search(String text, int limit) {
+            return ItemDao.search(text, limit);
+        }
+
+        @Override
+        public List<Item> getPage(long offset, int limit) {
+            return ItemDao.getPage(offset, limit);
+        }
+
+        @Override
+        public List<Item> query(ItemQuery query) {
+            return ItemDao.query(query);
+        }
+
+        @Override
+        public Optional<Item> getByUuid(UUID uuid) {
+            return ItemDao.getByUuid(uuid);
+        }
+
+        @Override
+        public UpdateResult<Item> update(Item item) {
+            return ItemDao.update(item);
+        }
+
+        @Override
+        public void delete(UUID uuid) {
+            ItemDao.delete(uuid);
+        }
+
+        @Override
+        public boolean borrowItem(String uuidStr, String username) {
+            return ItemDao.borrowItem(uuidStr, username);
+        }
+
+        @Override
+        public boolean returnItem(String uuidStr) {
+            return ItemDao.returnItem(uuidStr);
+        }
+
+        @Override
+        public boolean returnItemByUser(String uuidStr, String username) {
+            return ItemDao.returnItemByUser(uuidStr, username);
+        }
+
+        @Override
+        public LoanResult borrowAll(List<UUID> uuids, String username) {
+            return ItemDao.borrowAll(uuids, username);
+        }
+
+        @Override
+        public LoanResult returnAll(List<UUID> uuids, String username) {
+            return ItemDao.returnAll(uuids, username);
+        }
+
+        @Override
+        public List<Item> getUserLoans(String username) {
+            return ItemDao.getUserLoans(username);
+        }
+
+        @Override
+        public LoanBatch openLoanBatch() throws SQLException {
+            return ItemDao.openLoanBatch();
+        }
+    }
+
+    /** Repozytorium użytkowników oparte na {@link UserDao} */
+    private static final class Users implements UserRepository {
+        @Override
+        public Optional<Human> findUser(String username, String role) {
+            return UserDao.findUser(username, role);
+        }
+
+        @Override
+        public Optional<User> getByUsername(String username) {
+            return UserDao.getByUsername(username);
+        }
+
+        @Override
+        public void saveUser(Human user, String role) {
+            UserDao.saveUser(user, role);
+        }
+
+        @Override
+        public void addUser(String username, String fullname, String password) {
+            UserDao.addUser(username, fullname, password);
+        }
+
+        @Override
+        public List<String> addUsers(List<User> list) {
+            return UserDao.addUsers(list);
+        }
+
+        @Override
+        public void editUser(String username, String fullname, String password) {
+            UserDao.editUser(username, fullname, password);
+        }
+
+        @Override
+        public UpdateResult<User> editUser(String username, String fullname, String password, long expectedVersion) {
+            return UserDao.editUser(username, fullname, password, expectedVersion);
+        }
+
+        @Override
+        public void removeUser(String username) {
+            UserDao.removeUser(username);
+        }
+
+        @Override
+        public List<User> getAllUsers() {
+            return UserDao.getAllUsers();
+        }
+
+        @Override
+        public void forEachUser(Predicate<User> consumer) {
+            UserDao.forEachUser(consumer);
+        }
+
+        @Override
+        public long countByRole(String role) {
+            return UserDao.countByRole(role);
+        }
+    }
+
+    /** Repozytorium bibliotekarzy oparte na {@link LibrarianDao} */
+    private static final class Librarians implements LibrarianRepository {
+        @Override
+        public void addLibrarian(String username, String fullname, String password, int salary) {
+            LibrarianDao.addLibrarian(username, fullname, password, salary);
+        }
+
+        @Override
+        public void editLibrarian(String username, String fullname, String password, int salary) {
+            LibrarianDao.editLibrarian(username, fullname, password, salary);
+        }
+
+        @Override
+        public UpdateResult<Librarian> editLibrarian(String username, String fullname, String password, int salary,
+                                                     long expectedVersion) {
+            return LibrarianDao.editLibrarian(username, fullname, password, salary, expectedVersion);
+        }
+
+        @Override
+        public void removeLibrarian(String username) {
+            LibrarianDao.removeLibrarian(username);
+        }
+
+        @Override
+        public List<Librarian> getAllLibrarians() {
+            return LibrarianDao.getAllLibrarians();
+        }
+
+        @Override
+        public Optional<Librarian> getByUsername(String username) {
+            return LibrarianDao.getByUsername(username);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package library.db;
 
 import library.model.*;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.repository.UpdateResult;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Klasa DAO (Data Access Object) do zarządzania użytkownikami i bibliotekarzami w bazie danych.
@@ -10,6 +14,20 @@ import java.util.*;
  */
 public class UserDao {
 
+    /** Statystyki wywołań metod (widoczne w JMX, domena {@value MetricsRegistry#JMX_DOMAIN}) */
+    private static final OperationStats FIND_USER = MetricsRegistry.operation("UserDao", "findUser");
+    private static final OperationStats GET_BY_USERNAME = MetricsRegistry.operation("UserDao", "getByUsername");
+    private static final OperationStats SAVE_USER = MetricsRegistry.operation("UserDao", "saveUser");
+    private static final OperationStats ADD_USER = MetricsRegistry.operation("UserDao", "addUser");
+    private static final OperationStats ADD_USERS = MetricsRegistry.operation("UserDao", "addUsers");
+    private static final OperationStats EDIT_USER = MetricsRegistry.operation("UserDao", "editUser");
+    private static final OperationStats EDIT_USER_VERSIONED = MetricsRegistry.operation("UserDao", "editUserVersioned");
+    private static final OperationStats REMOVE_USER = MetricsRegistry.operation("UserDao", "removeUser");
+    private static final OperationStats GET_ALL_USERS = MetricsRegistry.operation("UserDao", "getAllUsers");
+    private static final OperationStats FOR_EACH_USER = MetricsRegistry.operation("UserDao", "forEachUser");
+    private static final OperationStats COUNT_BY_ROLE = MetricsRegistry.operation("UserDao", "countByRole");
+    private static final OperationStats EXPORT_USERS = MetricsRegistry.operation("UserDao", "exportUsersToTxt");
+
     /**
      * Wyszukuje użytkownika o podanym username i roli (user lub librarian).
      *
@@ -19,6 +37,7 @@ public class UserDao {
      *         pusty Optional w przeciwnym wypadku
      */
     public static Optional<Human> findUser(String username, String role) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "SELECT * FROM users WHERE username=? AND role=?"
         )) {
@@ -28,15 +47,17 @@ public class UserDao {
             if (rs.next()) {
                 String fullname = rs.getString("fullname");
                 String password = rs.getString("password");
-                if ("librarian".equals(role)) {
-                    int salary = rs.getInt("salary");
-                    return Optional.of(new Librarian(fullname, username, password, salary));
-                } else {
-                    return Optional.of(new User(fullname, username, password));
-                }
+                Human human = "librarian".equals(role)
+                        ? new Librarian(fullname, username, password, rs.getInt("salary"))
+                        : new User(fullname, username, password);
+                human.setVersion(rs.getLong("version"));
+                return Optional.of(human);
             }
         } catch (SQLException e) {
+            FIND_USER.error();
             System.err.println("Błąd logowania: " + e.getMessage());
+        } finally {
+            FIND_USER.record(start);
         }
         return Optional.empty();
     }
@@ -48,6 +69,7 @@ public class UserDao {
      * @return Optional zawierający użytkownika lub pusty Optional jeśli nie znaleziono
      */
     public static Optional<User> getByUsername(String username) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
                 "SELECT * FROM users WHERE username=? AND role='user'"
         )) {
@@ -56,24 +78,33 @@ public class UserDao {
             if (rs.next()) {
                 String fullname = rs.getString("fullname");
                 String password = rs.getString("password");
-                return Optional.of(new User(fullname, username, password));
+                User user = new User(fullname, username, password);
+                user.setVersion(rs.getLong("version"));
+                return Optional.of(user);
             }
         } catch (SQLException e) {
+            GET_BY_USERNAME.error();
             System.err.println("Błąd pobierania użytkownika: " + e.getMessage());
+        } finally {
+            GET_BY_USERNAME.record(start);
         }
         return Optional.empty();
     }
 
     /**
      * Zapisuje użytkownika (User lub Librarian) w bazie danych.
-     * Dla bibliotekarza zapisuje również wynagrodzenie.
+     * Dla bibliotekarza zapisuje również wynagrodzenie. Wersja nadpisanego konta jest zwiększana,
+     * a jego wiersz zachowuje {@code rowid} (miejsce w kolejności wstawiania).
      *
      * @param user obiekt użytkownika do zapisania
      * @param role rola użytkownika ("user" lub "librarian")
      */
     public static void saveUser(Human user, String role) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
-            "INSERT OR REPLACE INTO users (username, fullname, password, role, salary) VALUES (?, ?, ?, ?, ?)"
+            "INSERT INTO users (username, fullname, password, role, salary, version) VALUES (?, ?, ?, ?, ?, 0) " +
+            "ON CONFLICT(username) DO UPDATE SET fullname=excluded.fullname, password=excluded.password, " +
+            "role=excluded.role, salary=excluded.salary, version=users.version + 1"
         )) {
             ps.setString(1, user.getUsername());
             ps.setString(2, user.getFullName());
@@ -86,7 +117,10 @@ public class UserDao {
             }
             ps.executeUpdate();
         } catch (SQLException e) {
+            SAVE_USER.error();
             System.err.println("Błąd zapisu użytkownika: " + e.getMessage());
+        } finally {
+            SAVE_USER.record(start);
         }
     }
 
@@ -98,6 +132,7 @@ public class UserDao {
      * @param password hasło użytkownika
      */
     public static void addUser(String username, String fullname, String password) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
             "INSERT INTO users (username, fullname, password, role) VALUES (?, ?, ?, 'user')"
         )) {
@@ -106,8 +141,45 @@ public class UserDao {
             ps.setString(3, password);
             ps.executeUpdate();
         } catch (SQLException e) {
+            ADD_USER.error();
             System.err.println("Błąd dodawania użytkownika: " + e.getMessage());
+        } finally {
+            ADD_USER.record(start);
+        }
+    }
+
+    /**
+     * Dodaje wielu użytkowników o roli "user" jednym zapytaniem wykonywanym wsadowo.
+     * Użytkownicy o istniejącym loginie są pomijani. Aby zapis był szybki,
+     * wywołujący powinien objąć go transakcją ({@link DatabaseManager#beginTransaction()}).
+     *
+     * @param users lista użytkowników
+     * @return loginy faktycznie dodanych użytkowników (wiersze, dla których wsad zwrócił
+     *         niezerową liczbę zmian), w kolejności listy
+     */
+    public static List<String> addUsers(List<User> users) {
+        long start = System.nanoTime();
+        List<String> added = new ArrayList<>();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+            "INSERT OR IGNORE INTO users (username, fullname, password, role) VALUES (?, ?, ?, 'user')"
+        )) {
+            for (User u : users) {
+                ps.setString(1, u.getUsername());
+                ps.setString(2, u.getFullName());
+                ps.setString(3, u.getPassword());
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) added.add(users.get(i).getUsername());
+            }
+        } catch (SQLException e) {
+            ADD_USERS.error();
+            System.err.println("Błąd dodawania użytkowników: " + e.getMessage());
+        } finally {
+            ADD_USERS.record(start, added.size());
         }
+        return added;
     }
 
     /**
@@ -118,31 +190,79 @@ public class UserDao {
      * @param password nowe hasło
      */
     public static void editUser(String username, String fullname, String password) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
-            "UPDATE users SET fullname=?, password=? WHERE username=? AND role='user'"
+            "UPDATE users SET fullname=?, password=?, version=version+1 WHERE username=? AND role='user'"
         )) {
             ps.setString(1, fullname);
             ps.setString(2, password);
             ps.setString(3, username);
             ps.executeUpdate();
         } catch (SQLException e) {
+            EDIT_USER.error();
             System.err.println("Błąd edycji użytkownika: " + e.getMessage());
+        } finally {
+            EDIT_USER.record(start);
         }
     }
 
+    /**
+     * Edytuje dane użytkownika o roli "user", jeśli od odczytu nikt go nie zmienił
+     * (porównanie wersji i zapis w jednym warunkowym UPDATE).
+     *
+     * @param username nazwa użytkownika do edycji
+     * @param fullname nowa pełna nazwa
+     * @param password nowe hasło
+     * @param expectedVersion wersja konta z chwili odczytu
+     * @return UPDATED z kontem w nowej wersji, CONFLICT z aktualnym stanem konta
+     *         NOT_FOUND, jeśli użytkownik nie istnieje,
+     *         lub ERROR z opisem błędu bazy
+     */
+    public static UpdateResult<User> editUser(String username, String fullname, String password,
+                                              long expectedVersion) {
+        long start = System.nanoTime();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+            "UPDATE users SET fullname=?, password=?, version=version+1 " +
+            "WHERE username=? AND role='user' AND version=?"
+        )) {
+            ps.setString(1, fullname);
+            ps.setString(2, password);
+            ps.setString(3, username);
+            ps.setLong(4, expectedVersion);
+            if (ps.executeUpdate() == 1) {
+                User user = new User(fullname, username, password);
+                user.setVersion(expectedVersion + 1);
+                return UpdateResult.updated(user);
+            }
+        } catch (SQLException e) {
+            EDIT_USER_VERSIONED.error();
+            System.err.println("Błąd edycji użytkownika: " + e.getMessage());
+            return UpdateResult.error(e.getMessage());
+        } finally {
+            EDIT_USER_VERSIONED.record(start);
+        }
+        return getByUsername(username)
+                .map(UpdateResult::conflict)
+                .orElseGet(UpdateResult::notFound);
+    }
+
     /**
      * Usuwa użytkownika o roli "user" z bazy danych.
      *
      * @param username nazwa użytkownika do usunięcia
      */
     public static void removeUser(String username) {
+        long start = System.nanoTime();
         try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
             "DELETE FROM users WHERE username=? AND role='user'"
         )) {
             ps.setString(1, username);
             ps.executeUpdate();
         } catch (SQLException e) {
+            REMOVE_USER.error();
             System.err.println("Błąd usuwania użytkownika: " + e.getMessage());
+        } finally {
+            REMOVE_USER.record(start);
         }
     }
 
@@ -152,22 +272,80 @@ public class UserDao {
      * @return lista użytkowników
      */
     public static List<User> getAllUsers() {
+        long start = System.nanoTime();
         List<User> users = new ArrayList<>();
         try (Statement st = DatabaseManager.getConn().createStatement();
              ResultSet rs = st.executeQuery("SELECT * FROM users WHERE role='user'")) {
             while (rs.next()) {
-                users.add(new User(
+                User user = new User(
                         rs.getString("fullname"),
                         rs.getString("username"),
                         rs.getString("password")
-                ));
+                );
+                user.setVersion(rs.getLong("version"));
+                users.add(user);
             }
         } catch (SQLException e) {
+            GET_ALL_USERS.error();
             System.err.println("Błąd pobierania użytkowników: " + e.getMessage());
+        } finally {
+            GET_ALL_USERS.record(start, users.size());
         }
         return users;
     }
 
+    /**
+     * Przekazuje kolejno wszystkich użytkowników o roli "user", czytając wynik zapytania
+     * strumieniowo (bez budowania listy w pamięci).
+     *
+     * @param consumer odbiorca kolejnych użytkowników; zwraca false, aby przerwać
+     */
+    public static void forEachUser(Predicate<User> consumer) {
+        long start = System.nanoTime();
+        long count = 0;
+        try (Statement st = DatabaseManager.getConn().createStatement()) {
+            st.setFetchSize(1000);
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT username, fullname, password, version FROM users WHERE role='user'")) {
+                while (rs.next()) {
+                    User user = new User(rs.getString(2), rs.getString(1), rs.getString(3));
+                    user.setVersion(rs.getLong(4));
+                    count++;
+                    if (!consumer.test(user)) break;
+                }
+            }
+        } catch (SQLException e) {
+            FOR_EACH_USER.error();
+            System.err.println("Błąd pobierania użytkowników: " + e.getMessage());
+        } finally {
+            FOR_EACH_USER.record(start, count);
+        }
+    }
+
+    /**
+     * Zwraca liczbę kont o podanej roli.
+     *
+     * @param role rola ("user" lub "librarian")
+     * @return liczba kont
+     */
+    public static long countByRole(String role) {
+        long start = System.nanoTime();
+        try (PreparedStatement ps = DatabaseManager.getConn().prepareStatement(
+            "SELECT COUNT(*) FROM users WHERE role=?"
+        )) {
+            ps.setString(1, role);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            COUNT_BY_ROLE.error();
+            System.err.println("Błąd liczenia użytkowników: " + e.getMessage());
+        } finally {
+            COUNT_BY_ROLE.record(start);
+        }
+        return 0;
+    }
+
     /**
      * Eksportuje listę użytkowników do pliku tekstowego.
      * Format: username;fullname;password (jeden użytkownik na linię).
@@ -175,13 +353,17 @@ public class UserDao {
      * @param path ścieżka do pliku eksportu
      */
     public static void exportUsersToTxt(String path) {
+        long start = System.nanoTime();
         List<User> users = getAllUsers();
         try (java.io.PrintWriter out = new java.io.PrintWriter(path)) {
             for (User u : users) {
                 out.println(u.getUsername() + ";" + u.getFullName() + ";" + u.getPassword());
             }
         } catch (Exception e) {
+            EXPORT_USERS.error();
             System.err.println("Błąd eksportu użytkowników: " + e.getMessage());
+        } finally {
+            EXPORT_USERS.record(start, users.size());
         }
     }
 }
@@ -0,0 +1,17 @@
+package library.exceptions;
+
+/**
+ * Wyjątek sygnalizujący brak uprawnień do operacji: nieznana lub wygasła sesja
+ * albo rola niewystarczająca do wykonania operacji.
+ */
+public class AccessDeniedException extends Exception {
+
+    /**
+     * Konstruktor wyjątku z komunikatem błędu.
+     *
+     * @param message opis błędu
+     */
+    public AccessDeniedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package library.exceptions;
+
+/**
+ * Wyjątek sygnalizujący odrzucenie żądania przez kontrolę dopuszczania: wyczerpany limit
+ * żądań konta lub zajęte wszystkie miejsca na równoległe zapisy. Żądanie można ponowić później.
+ */
+public class RateLimitedException extends Exception {
+
+    private final long retryAfterMillis;
+
+    /**
+     * Konstruktor wyjątku z komunikatem błędu.
+     *
+     * @param message opis błędu
+     * @param retryAfterMillis sugerowany czas oczekiwania przed ponowieniem w milisekundach
+     */
+    public RateLimitedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return sugerowany czas oczekiwania przed ponowieniem w milisekundach
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
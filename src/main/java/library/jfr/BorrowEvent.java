@@ -0,0 +1,43 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Wypożyczenie pozycji przez użytkownika.
+ */
+@Name("library.Borrow")
+@Label("Wypożyczenie")
+@Category({"Vizja Library", "Wypożyczenia"})
+@Description("Wypożyczenie pozycji przez użytkownika.")
+@StackTrace(false)
+public class BorrowEvent extends LibraryEvent {
+
+    /** UUID wypożyczanej pozycji */
+    @Label("UUID pozycji")
+    public String itemUuid;
+
+    /** Login wypożyczającego */
+    @Label("Użytkownik")
+    public String username;
+
+    /**
+     * Kończy pomiar i zapisuje zdarzenie, jeśli nagrywanie jest włączone.
+     *
+     * @param itemUuid UUID pozycji
+     * @param username login wypożyczającego
+     * @param success czy wypożyczenie się powiodło
+     */
+    public void emit(String itemUuid, String username, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.itemUuid = itemUuid;
+            this.username = username;
+            this.success = success;
+            commit();
+        }
+    }
+}
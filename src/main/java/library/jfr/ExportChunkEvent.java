@@ -0,0 +1,43 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fragment eksportu zapisany do strumienia.
+ */
+@Name("library.ExportChunk")
+@Label("Fragment eksportu")
+@Category({"Vizja Library", "Import i eksport"})
+@Description("Fragment eksportu zapisany do strumienia.")
+@StackTrace(false)
+public class ExportChunkEvent extends LibraryEvent {
+
+    /** Format danych (csv lub bin) */
+    @Label("Format")
+    public String format;
+
+    /** Liczba wierszy we fragmencie */
+    @Label("Wiersze")
+    public int rows;
+
+    /**
+     * Kończy pomiar i zapisuje zdarzenie, jeśli nagrywanie jest włączone.
+     *
+     * @param format format danych
+     * @param rows liczba wierszy we fragmencie
+     * @param success czy zapis się powiódł
+     */
+    public void emit(String format, int rows, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.format = format;
+            this.rows = rows;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Paczka importu zatwierdzona w jednej transakcji.
+ */
+@Name("library.ImportBatch")
+@Label("Paczka importu")
+@Category({"Vizja Library", "Import i eksport"})
+@Description("Paczka importu zatwierdzona w jednej transakcji.")
+@StackTrace(false)
+public class ImportBatchEvent extends LibraryEvent {
+
+    /** Format danych (csv lub bin) */
+    @Label("Format")
+    public String format;
+
+    /** Liczba wierszy w paczce */
+    @Label("Wiersze")
+    public int rows;
+
+    /** Liczba dodanych pozycji */
+    @Label("Dodane")
+    public int added;
+
+    /**
+     * Kończy pomiar i zapisuje zdarzenie, jeśli nagrywanie jest włączone.
+     *
+     * @param format format danych
+     * @param rows liczba wierszy w paczce
+     * @param added liczba dodanych pozycji
+     * @param success czy paczka została zatwierdzona
+     */
+    public void emit(String format, int rows, int added, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.format = format;
+            this.rows = rows;
+            this.added = added;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package library.jfr;
+
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Wspólna klasa bazowa zdarzeń Java Flight Recorder emitowanych przez bibliotekę.
+ * <p>
+ * Zdarzenia używane są według wzorca:
+ * </p>
+ * <pre>
+ * BorrowEvent event = new BorrowEvent();
+ * event.begin();
+ * ... operacja ...
+ * event.emit(uuid, username, success);
+ * </pre>
+ * <p>
+ * Gdy nagrywanie jest wyłączone, {@code begin()} i {@code shouldCommit()} są pustymi wywołaniami,
+ * a obiekt zdarzenia nie opuszcza metody i jest usuwany przez kompilator JIT. Metody {@code emit}
+ * wypełniają pola tylko wtedy, gdy zdarzenie faktycznie zostanie zapisane. Czas trwania
+ * zapisuje JFR automatycznie (pola {@code startTime} i {@code duration}).
+ * </p>
+ */
+@Enabled(true)
+public abstract class LibraryEvent extends Event {
+
+    /** Czy operacja się powiodła */
+    @Label("Sukces")
+    public boolean success;
+}
@@ -0,0 +1,43 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Próba logowania użytkownika lub bibliotekarza.
+ */
+@Name("library.Login")
+@Label("Logowanie")
+@Category({"Vizja Library", "Użytkownicy"})
+@Description("Próba logowania użytkownika lub bibliotekarza.")
+@StackTrace(false)
+public class LoginEvent extends LibraryEvent {
+
+    /** Login użytkownika */
+    @Label("Użytkownik")
+    public String username;
+
+    /** Rola, w której następuje logowanie */
+    @Label("Rola")
+    public String role;
+
+    /**
+     * Kończy pomiar i zapisuje zdarzenie, jeśli nagrywanie jest włączone.
+     *
+     * @param username login użytkownika
+     * @param role rola
+     * @param success czy logowanie się powiodło
+     */
+    public void emit(String username, String role, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.username = username;
+            this.role = role;
+            this.success = success;
+            commit();
+        }
+    }
+}
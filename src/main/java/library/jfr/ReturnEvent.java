@@ -0,0 +1,43 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Zwrot pozycji do biblioteki.
+ */
+@Name("library.Return")
+@Label("Zwrot")
+@Category({"Vizja Library", "Wypożyczenia"})
+@Description("Zwrot pozycji do biblioteki.")
+@StackTrace(false)
+public class ReturnEvent extends LibraryEvent {
+
+    /** UUID zwracanej pozycji */
+    @Label("UUID pozycji")
+    public String itemUuid;
+
+    /** Login zwracającego (jeśli znany) */
+    @Label("Użytkownik")
+    public String username;
+
+    /**
+     * Kończy pomiar i zapisuje zdarzenie, jeśli nagrywanie jest włączone.
+     *
+     * @param itemUuid UUID pozycji
+     * @param username login zwracającego lub null
+     * @param success czy zwrot się powiódł
+     */
+    public void emit(String itemUuid, String username, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.itemUuid = itemUuid;
+            this.username = username;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Wyszukiwanie pozycji w katalogu.
+ */
+@Name("library.Search")
+@Label("Wyszukiwanie")
+@Category({"Vizja Library", "Katalog"})
+@Description("Wyszukiwanie pozycji w katalogu.")
+@StackTrace(false)
+public class SearchEvent extends LibraryEvent {
+
+    /** Szukany tekst */
+    @Label("Zapytanie")
+    public String query;
+
+    /** Liczba znalezionych pozycji */
+    @Label("Wiersze")
+    public int rows;
+
+    /**
+     * Kończy pomiar i zapisuje zdarzenie, jeśli nagrywanie jest włączone.
+     *
+     * @param query szukany tekst
+     * @param rows liczba wyników
+     * @param success czy wyszukiwanie zakończyło się bez błędu
+     */
+    public void emit(String query, int rows, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.query = query;
+            this.rows = rows;
+            this.success = success;
+            commit();
+        }
+    }
+}
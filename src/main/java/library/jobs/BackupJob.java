@@ -0,0 +1,35 @@
+package library.jobs;
+
+import java.nio.file.Paths;
+import library.config.LibraryConfig;
+import library.db.BackupManager;
+
+/**
+ * Kopia zapasowa bazy danych w tle ({@link BackupManager}).
+ * Postęp raportowany jest w procentach skopiowanych stron bazy.
+ */
+public class BackupJob extends Job {
+
+    private final String path;
+    private final boolean gzip;
+
+    /**
+     * @param path ścieżka do pliku kopii
+     * @param gzip czy skompresować kopię
+     */
+    public BackupJob(String path, boolean gzip) {
+        super("Kopia zapasowa bazy" + (gzip ? " (gzip)" : "") + ": " + path);
+        this.path = path;
+        this.gzip = gzip;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        totalRows = 100;
+        BackupManager.Result result = BackupManager.backup(Paths.get(path), gzip,
+                LibraryConfig.getInt(LibraryConfig.BACKUP_PAGES_PER_STEP),
+                LibraryConfig.getInt(LibraryConfig.BACKUP_SLEEP_MS), rows::set);
+        bytes.set(result.bytes);
+        return "Utworzono kopię, " + result;
+    }
+}
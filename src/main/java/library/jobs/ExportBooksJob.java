@@ -0,0 +1,62 @@
+package library.jobs;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import library.repository.Storage;
+import library.util.SerializationUtil;
+
+/**
+ * Eksport książek do pliku CSV lub binarnego w tle.
+ * Anulowany eksport usuwa niekompletny plik; ponowne uruchomienie zapisuje plik od początku.
+ */
+public class ExportBooksJob extends Job {
+
+    private final Storage storage;
+    private final String path;
+    private final boolean binary;
+
+    /**
+     * @param storage magazyn danych
+     * @param path ścieżka do pliku wyjściowego
+     * @param binary true dla formatu binarnego, false dla CSV
+     */
+    public ExportBooksJob(Storage storage, String path, boolean binary) {
+        super("Eksport książek (" + (binary ? "bin" : "csv") + "): " + path);
+        this.storage = storage;
+        this.path = path;
+        this.binary = binary;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        int count;
+        try (OutputStream out = countBytes(new FileOutputStream(path))) {
+            if (binary) {
+                count = SerializationUtil.exportToBin(storage, out);
+            } else {
+                Writer writer = new OutputStreamWriter(out);
+                count = SerializationUtil.exportToTxt(storage, writer, progressListener());
+                writer.flush();
+            }
+        }
+        rows.set(count);
+        if (isCancelRequested()) {
+            deletePartial();
+            return "";
+        }
+        return "Wyeksportowano " + count + " pozycji do pliku: " + path;
+    }
+
+    private void deletePartial() {
+        try {
+            Files.deleteIfExists(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println("Błąd usuwania niekompletnego pliku: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package library.jobs;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import library.model.Item;
+import library.repository.Storage;
+
+/**
+ * Eksport wypożyczonych pozycji wraz z użytkownikami do pliku CSV w tle.
+ */
+public class ExportLoansJob extends Job {
+
+    private final Storage storage;
+    private final String path;
+
+    /**
+     * @param storage magazyn danych
+     * @param path ścieżka do pliku wyjściowego
+     */
+    public ExportLoansJob(Storage storage, String path) {
+        super("Eksport wypożyczeń: " + path);
+        this.storage = storage;
+        this.path = path;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        List<Item> items = storage.items().getAll();
+        totalRows = items.size();
+        long loans = 0;
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(countBytes(new FileOutputStream(path)))))) {
+            pw.println("UUID;Tytuł;Użytkownik");
+            for (Item i : items) {
+                if (isCancelRequested()) break;
+                if (!i.isAvailable() && i.getLoanedTo() != null) {
+                    pw.printf("%s;%s;%s\n", i.getUuid().toString(), i.getTitle(), i.getLoanedTo());
+                    loans++;
+                }
+                rows.incrementAndGet();
+            }
+        }
+        return "Wyeksportowano " + loans + " wypożyczeń.";
+    }
+}
@@ -0,0 +1,46 @@
+package library.jobs;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import library.repository.Storage;
+import library.util.SerializationUtil;
+
+/**
+ * Eksport użytkowników do pliku binarnego lub tekstowego w tle. Użytkownicy czytani są
+ * z magazynu strumieniowo, bez budowania listy wszystkich kont.
+ */
+public class ExportUsersJob extends Job {
+
+    private final Storage storage;
+    private final String path;
+    private final boolean binary;
+
+    /**
+     * @param storage magazyn danych
+     * @param path ścieżka do pliku wyjściowego
+     * @param binary true dla formatu binarnego, false dla tekstowego
+     */
+    public ExportUsersJob(Storage storage, String path, boolean binary) {
+        super("Eksport użytkowników (" + (binary ? "bin" : "txt") + "): " + path);
+        this.storage = storage;
+        this.path = path;
+        this.binary = binary;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        totalRows = storage.users().countByRole("user");
+        long count;
+        try (OutputStream out = countBytes(new FileOutputStream(path))) {
+            if (binary) {
+                count = SerializationUtil.exportUsersToBin(storage, out, progressListener());
+            } else {
+                OutputStreamWriter writer = new OutputStreamWriter(out);
+                count = SerializationUtil.exportUsersToTxt(storage, writer, progressListener());
+                writer.flush();
+            }
+        }
+        return "Wyeksportowano " + count + " użytkowników " + (binary ? "binarnie." : "tekstowo.");
+    }
+}
@@ -0,0 +1,100 @@
+package library.jobs;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import library.config.LibraryConfig;
+import library.repository.Storage;
+import library.search.DuplicateDetector;
+import library.util.SerializationUtil;
+
+/**
+ * Import książek z pliku CSV lub binarnego w tle.
+ * <p>
+ * Zadanie jest wznawialne: punktem kontrolnym jest liczba wierszy danych odczytanych do chwili
+ * ostatniej zatwierdzonej paczki, więc po anulowaniu lub błędzie import kontynuuje od tego miejsca.
+ * Liczniki dodanych i pominiętych książek są zwiększane razem z punktem kontrolnym (po każdej
+ * zatwierdzonej paczce), więc wynik wznowionego importu obejmuje też paczki z przerwanych przebiegów.
+ * Prawie-duplikaty zgłoszone przy imporcie CSV są zbierane w szczegółach wyniku ({@link #getDetails()}),
+ * a nie wypisywane na stderr w trakcie pracy menu.
+ * </p>
+ */
+public class ImportBooksJob extends Job {
+
+    private final Storage storage;
+    private final String path;
+    private final boolean binary;
+    private int added;
+    private int skipped;
+    private int duplicates;
+    private final List<String> duplicateReport = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param storage magazyn danych
+     * @param path ścieżka do pliku
+     * @param binary true dla formatu binarnego, false dla CSV
+     */
+    public ImportBooksJob(Storage storage, String path, boolean binary) {
+        super("Import książek (" + (binary ? "bin" : "csv") + "): " + path);
+        this.storage = storage;
+        this.path = path;
+        this.binary = binary;
+    }
+
+    @Override
+    public boolean isResumable() {
+        return true;
+    }
+
+    @Override
+    protected void prepareRestart() {
+        bytes.set(0); // wiersze zostają jako punkt kontrolny
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        long checkpoint = rows.get();
+        totalBytes = Files.size(Paths.get(path));
+        int batch = LibraryConfig.getInt(LibraryConfig.IMPORT_BATCH_SIZE);
+        SerializationUtil.ProgressListener listener = progressListener();
+        SerializationUtil.ProgressListener counting = new SerializationUtil.ProgressListener() {
+            @Override
+            public void onStart(long total) {
+                listener.onStart(total);
+            }
+
+            @Override
+            public void onBatch(int batchAdded, int batchSkipped, int batchDuplicates) {
+                added += batchAdded;
+                skipped += batchSkipped;
+                duplicates += batchDuplicates;
+            }
+
+            @Override
+            public boolean onProgress(long rowsDone) {
+                return listener.onProgress(rowsDone);
+            }
+        };
+        try (InputStream in = countBytes(new FileInputStream(path))) {
+            if (binary) {
+                SerializationUtil.importFromBin(storage, in, batch, checkpoint, counting);
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+                SerializationUtil.importFromTxt(storage, reader, batch, checkpoint, counting,
+                        DuplicateDetector.Policy.fromConfig(), duplicateReport::add);
+            }
+        }
+        return String.format("Zaimportowano %d nowych książek (pominięto %d istniejących, prawie-duplikaty: %d)",
+                added, skipped, duplicates);
+    }
+
+    @Override
+    public List<String> getDetails() {
+        return List.copyOf(duplicateReport);
+    }
+}
@@ -0,0 +1,50 @@
+package library.jobs;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import library.config.LibraryConfig;
+import library.repository.Storage;
+import library.util.SerializationUtil;
+
+/**
+ * Import użytkowników z pliku tekstowego lub binarnego w tle, paczkami po
+ * {@link LibraryConfig#IMPORT_BATCH_SIZE} kont w jednej transakcji.
+ */
+public class ImportUsersJob extends Job {
+
+    private final Storage storage;
+    private final String path;
+    private final boolean binary;
+
+    /**
+     * @param storage magazyn danych
+     * @param path ścieżka do pliku
+     * @param binary true dla formatu binarnego, false dla tekstowego (z nagłówkiem)
+     */
+    public ImportUsersJob(Storage storage, String path, boolean binary) {
+        super("Import użytkowników (" + (binary ? "bin" : "txt") + "): " + path);
+        this.storage = storage;
+        this.path = path;
+        this.binary = binary;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        totalBytes = Files.size(Paths.get(path));
+        int batch = LibraryConfig.getInt(LibraryConfig.IMPORT_BATCH_SIZE);
+        int[] result;
+        try (InputStream in = countBytes(new FileInputStream(path))) {
+            if (binary) {
+                result = SerializationUtil.importUsersFromBin(storage, in, batch, progressListener());
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+                result = SerializationUtil.importUsersFromTxt(storage, reader, batch, true, progressListener());
+            }
+        }
+        return String.format("Zaimportowano %d nowych użytkowników (pominięto %d istniejących)", result[0], result[1]);
+    }
+}
@@ -0,0 +1,300 @@
+package library.jobs;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import library.util.SerializationUtil;
+
+/**
+ * Zadanie wykonywane w tle przez {@link JobManager} (np. długi import lub eksport).
+ * <p>
+ * Zadanie raportuje postęp (wiersze, bajty) oraz szacowany czas do końca. Anulowanie jest
+ * kooperacyjne: implementacja sprawdza {@link #isCancelRequested()} (lub korzysta z
+ * {@link #progressListener()}) i kończy pracę w bezpiecznym miejscu, np. po zatwierdzonej paczce.
+ * Zadania obsługujące wznowienie ({@link #isResumable()}) kontynuują od ostatniego punktu kontrolnego.
+ * </p>
+ */
+public abstract class Job {
+
+    /**
+     * Stan zadania.
+     */
+    public enum State {
+        /** Oczekuje w kolejce */
+        QUEUED("oczekuje"),
+        /** W trakcie wykonywania */
+        RUNNING("w toku"),
+        /** Zakończone pomyślnie */
+        DONE("zakończone"),
+        /** Zakończone błędem */
+        FAILED("błąd"),
+        /** Anulowane przez użytkownika */
+        CANCELLED("anulowane");
+
+        private final String label;
+
+        State(String label) {
+            this.label = label;
+        }
+
+        /** @return opis stanu do wyświetlenia */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    private final int id = NEXT_ID.getAndIncrement();
+    private final String name;
+
+    private volatile State state = State.QUEUED;
+    private volatile String message = "";
+    private volatile boolean cancelRequested;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    /** Liczba przetworzonych wierszy */
+    protected final AtomicLong rows = new AtomicLong();
+    /** Liczba odczytanych lub zapisanych bajtów */
+    protected final AtomicLong bytes = new AtomicLong();
+    /** Łączna liczba wierszy (-1, jeśli nieznana) */
+    protected volatile long totalRows = -1;
+    /** Łączna liczba bajtów (-1, jeśli nieznana) */
+    protected volatile long totalBytes = -1;
+
+    /**
+     * @param name opis zadania wyświetlany na liście zadań
+     */
+    protected Job(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Wykonuje zadanie. Wywoływane w wątku roboczym z przypisanym osobnym połączeniem z bazą.
+     *
+     * @return komunikat podsumowujący wynik
+     * @throws Exception jeśli zadanie zakończyło się błędem
+     */
+    protected abstract String execute() throws Exception;
+
+    /**
+     * @return true, jeśli zadanie po anulowaniu lub błędzie może być wznowione od punktu kontrolnego
+     */
+    public boolean isResumable() {
+        return false;
+    }
+
+    /**
+     * Przygotowuje zadanie do ponownego uruchomienia. Domyślnie zeruje postęp
+     * (zadanie wykona się od początku); zadania wznawialne zachowują punkt kontrolny.
+     */
+    protected void prepareRestart() {
+        rows.set(0);
+        bytes.set(0);
+    }
+
+    /** @return numer zadania */
+    public int getId() { return id; }
+
+    /** @return opis zadania */
+    public String getName() { return name; }
+
+    /** @return bieżący stan */
+    public State getState() { return state; }
+
+    /** @return komunikat o wyniku lub błędzie */
+    public String getMessage() { return message; }
+
+    /**
+     * @return szczegóły wyniku wyświetlane pod komunikatem (np. zgłoszone prawie-duplikaty);
+     *         domyślnie brak
+     */
+    public List<String> getDetails() {
+        return List.of();
+    }
+
+    /** @return liczba przetworzonych wierszy */
+    public long getRows() { return rows.get(); }
+
+    /** @return liczba przetworzonych bajtów */
+    public long getBytes() { return bytes.get(); }
+
+    /** @return true, jeśli zadanie jest w kolejce lub w toku */
+    public boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    /**
+     * Zgłasza prośbę o anulowanie zadania. Prośba zgłoszona przed uruchomieniem zadania nie przepada -
+     * zadanie zakończy się bez wykonania.
+     */
+    public synchronized void cancel() {
+        cancelRequested = true;
+    }
+
+    /** @return true, jeśli zgłoszono anulowanie */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Zwraca udział wykonanej pracy (według bajtów, a jeśli nieznane - według wierszy).
+     *
+     * @return wartość 0-1 lub -1, jeśli nie da się jej wyznaczyć
+     */
+    public double getFraction() {
+        if (state == State.DONE) return 1;
+        if (totalBytes > 0) return Math.min(1, (double) bytes.get() / totalBytes);
+        if (totalRows > 0) return Math.min(1, (double) rows.get() / totalRows);
+        return -1;
+    }
+
+    /**
+     * Szacuje czas do zakończenia na podstawie dotychczasowego tempa.
+     *
+     * @return szacowany czas w sekundach lub -1, jeśli nie da się go wyznaczyć
+     */
+    public long getEtaSeconds() {
+        double f = getFraction();
+        if (state != State.RUNNING || f <= 0) return -1;
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        return Math.round(elapsed * (1 - f) / f);
+    }
+
+    /**
+     * @return czas wykonywania w sekundach (do chwili obecnej lub do zakończenia)
+     */
+    public double getElapsedSeconds() {
+        if (startNanos == 0) return 0;
+        long end = isActive() ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1e9;
+    }
+
+    /**
+     * Zwraca jednowierszowy opis postępu, np. "45% 12000 wierszy, 1.2 MB, ETA 8 s".
+     *
+     * @return opis postępu
+     */
+    public String describeProgress() {
+        StringBuilder sb = new StringBuilder();
+        double f = getFraction();
+        if (f >= 0) sb.append(Math.round(f * 100)).append("% ");
+        sb.append(rows.get()).append(" wierszy");
+        if (bytes.get() > 0) sb.append(String.format(Locale.ROOT, ", %.1f MB", bytes.get() / 1048576.0));
+        long eta = getEtaSeconds();
+        if (eta >= 0) sb.append(", ETA ").append(eta).append(" s");
+        return sb.toString();
+    }
+
+    /**
+     * Odbiorca postępu dla metod {@link SerializationUtil}: zapisuje liczbę wierszy
+     * i przerywa operację po zgłoszeniu anulowania.
+     *
+     * @return odbiorca postępu powiązany z zadaniem
+     */
+    protected SerializationUtil.ProgressListener progressListener() {
+        return new SerializationUtil.ProgressListener() {
+            @Override
+            public void onStart(long total) {
+                totalRows = total;
+            }
+
+            @Override
+            public boolean onProgress(long rowsDone) {
+                rows.set(rowsDone);
+                return !cancelRequested;
+            }
+        };
+    }
+
+    /**
+     * Opakowuje strumień wejściowy tak, aby liczył odczytane bajty.
+     *
+     * @param in strumień źródłowy
+     * @return strumień liczący bajty
+     */
+    protected InputStream countBytes(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) bytes.incrementAndGet();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buf, int off, int len) throws IOException {
+                int n = super.read(buf, off, len);
+                if (n > 0) bytes.addAndGet(n);
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Opakowuje strumień wyjściowy tak, aby liczył zapisane bajty.
+     *
+     * @param out strumień docelowy
+     * @return strumień liczący bajty
+     */
+    protected OutputStream countBytes(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytes.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] buf, int off, int len) throws IOException {
+                out.write(buf, off, len);
+                bytes.addAndGet(len);
+            }
+        };
+    }
+
+    /**
+     * Oznacza rozpoczęcie wykonywania (wywoływane przez {@link JobManager}).
+     */
+    void markRunning() {
+        startNanos = System.nanoTime();
+        state = State.RUNNING;
+        message = "";
+    }
+
+    /**
+     * Oznacza zakończenie wykonywania (wywoływane przez {@link JobManager}).
+     *
+     * @param finalState stan końcowy
+     * @param text komunikat
+     */
+    void markFinished(State finalState, String text) {
+        endNanos = System.nanoTime();
+        message = text == null ? "" : text;
+        state = finalState;
+    }
+
+    /**
+     * Przywraca anulowane lub nieudane zadanie do kolejki przed ponownym uruchomieniem
+     * (wywoływane przez {@link JobManager}). Tylko to przejście kasuje wcześniejszą prośbę o anulowanie;
+     * wykonuje się pod tym samym monitorem co {@link #cancel()}, więc ani nie zgubi anulowania
+     * zgłoszonego po wznowieniu, ani nie wznowi zadania dwukrotnie.
+     *
+     * @return true, jeśli zadanie było anulowane lub nieudane i wróciło do kolejki
+     */
+    synchronized boolean requeue() {
+        if (state != State.CANCELLED && state != State.FAILED) return false;
+        prepareRestart();
+        cancelRequested = false;
+        message = "";
+        state = State.QUEUED;
+        return true;
+    }
+}
@@ -0,0 +1,183 @@
+package library.jobs;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import library.config.LibraryConfig;
+import library.db.DatabaseManager;
+
+/**
+ * Wykonawca zadań w tle o ograniczonej liczbie wątków i długości kolejki.
+ * <p>
+ * Każde zadanie działa na własnym połączeniu z bazą ({@link DatabaseManager#openConnection()}),
+ * dzięki czemu jego transakcje nie obejmują operacji wykonywanych w tym czasie przy stanowisku.
+ * Zakończone zadania trafiają do kolejki powiadomień, którą panel bibliotekarza wyświetla
+ * przy kolejnym pokazaniu menu (zadania nie piszą same po konsoli).
+ * </p>
+ */
+public class JobManager {
+
+    /** Wspólny wykonawca; liczba wątków i długość kolejki pochodzą z konfiguracji */
+    private static final JobManager INSTANCE = new JobManager(
+            LibraryConfig.getInt(LibraryConfig.JOBS_THREADS), LibraryConfig.getInt(LibraryConfig.JOBS_QUEUE));
+
+    private final ThreadPoolExecutor executor;
+    private final Map<Integer, Job> jobs = new ConcurrentHashMap<>();
+    private final Queue<Job> finished = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param threads liczba wątków roboczych
+     * @param queueSize maksymalna liczba zadań oczekujących
+     */
+    public JobManager(int threads, int queueSize) {
+        AtomicInteger n = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "job-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * @return wspólny wykonawca zadań aplikacji
+     */
+    public static JobManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Dodaje zadanie do kolejki.
+     *
+     * @param job zadanie
+     * @return true, jeśli przyjęto zadanie; false, jeśli kolejka jest pełna
+     */
+    public boolean submit(Job job) {
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            return false;
+        }
+    }
+
+    /**
+     * Zgłasza anulowanie zadania.
+     *
+     * @param id numer zadania
+     * @return true, jeśli zadanie istnieje i jest aktywne
+     */
+    public boolean cancel(int id) {
+        Job job = jobs.get(id);
+        if (job == null || !job.isActive()) return false;
+        job.cancel();
+        return true;
+    }
+
+    /**
+     * Ponownie uruchamia anulowane lub nieudane zadanie (od punktu kontrolnego,
+     * jeśli zadanie to obsługuje).
+     *
+     * @param id numer zadania
+     * @return true, jeśli zadanie przyjęto do kolejki
+     */
+    public boolean resume(int id) {
+        Job job = jobs.get(id);
+        if (job == null || !job.requeue()) return false;
+        try {
+            executor.execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            complete(job, Job.State.CANCELLED, "Kolejka zadań jest pełna");
+            return false;
+        }
+    }
+
+    /**
+     * @return wszystkie zadania w kolejności numerów
+     */
+    public List<Job> list() {
+        List<Job> result = new ArrayList<>(jobs.values());
+        result.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return result;
+    }
+
+    /**
+     * Zwraca i usuwa z kolejki zadania zakończone od ostatniego wywołania.
+     *
+     * @return lista zakończonych zadań
+     */
+    public List<Job> drainFinished() {
+        List<Job> result = new ArrayList<>();
+        Job job;
+        while ((job = finished.poll()) != null) {
+            result.add(job);
+        }
+        return result;
+    }
+
+    /**
+     * Usuwa z listy zadania zakończone pomyślnie.
+     */
+    public void clearDone() {
+        jobs.values().removeIf(j -> j.getState() == Job.State.DONE);
+    }
+
+    /**
+     * Wykonuje zadanie w wątku roboczym na osobnym połączeniu z bazą
+     * (o ile magazyn danych korzysta z SQLite).
+     */
+    private void run(Job job) {
+        if (job.isCancelRequested()) {
+            complete(job, Job.State.CANCELLED, "Anulowano przed uruchomieniem");
+            return;
+        }
+        job.markRunning();
+        Connection conn = null;
+        try {
+            if (DatabaseManager.isConnected()) {
+                conn = DatabaseManager.openConnection();
+                DatabaseManager.bindConnection(conn);
+            }
+            String result = job.execute();
+            if (job.isCancelRequested()) {
+                job.markFinished(Job.State.CANCELLED, "Anulowano po " + job.getRows() + " wierszach"
+                        + (job.isResumable() ? " (można wznowić)" : ""));
+            } else {
+                job.markFinished(Job.State.DONE, result);
+            }
+        } catch (Exception e) {
+            job.markFinished(Job.State.FAILED, e.getMessage());
+        } finally {
+            DatabaseManager.unbindConnection();
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Błąd zamykania połączenia zadania: " + e.getMessage());
+                }
+            }
+            finished.add(job);
+        }
+    }
+
+    /**
+     * Kończy zadanie, które nie zostanie wykonane, i dodaje je do kolejki powiadomień.
+     */
+    private void complete(Job job, Job.State state, String result) {
+        job.markFinished(state, result);
+        finished.add(job);
+    }
+}
@@ -0,0 +1,36 @@
+package library.jobs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import library.repository.Storage;
+import library.search.CoBorrowModel;
+
+/**
+ * Pełna przebudowa modelu rekomendacji „wypożyczyli też…” ({@link CoBorrowModel}) w tle:
+ * odczytuje bieżące wypożyczenia magazynu i przelicza liczniki par równolegle.
+ */
+public class RebuildRecommendationsJob extends Job {
+
+    private final Storage storage;
+    private final CoBorrowModel model;
+
+    /**
+     * @param storage magazyn danych
+     * @param model przebudowywany model
+     */
+    public RebuildRecommendationsJob(Storage storage, CoBorrowModel model) {
+        super("Przebudowa rekomendacji");
+        this.storage = storage;
+        this.model = model;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        Map<String, List<UUID>> loans = CoBorrowModel.currentLoans(storage);
+        rows.set(loans.values().stream().mapToLong(List::size).sum());
+        if (isCancelRequested()) return "Anulowano przed przeliczeniem modelu.";
+        int items = model.rebuild(loans);
+        return "Przeliczono rekomendacje dla " + items + " pozycji (" + model.userCount() + " użytkowników).";
+    }
+}
@@ -0,0 +1,36 @@
+package library.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Licznik bez blokad oparty na {@link LongAdder} - zwiększanie z wielu wątków
+ * nie rywalizuje o jedną linię pamięci podręcznej.
+ */
+public class Counter implements CounterMXBean {
+
+    private final LongAdder value = new LongAdder();
+
+    /** Zwiększa licznik o 1. */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Zwiększa licznik o podaną wartość.
+     *
+     * @param delta przyrost
+     */
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    @Override
+    public long getValue() {
+        return value.sum();
+    }
+
+    @Override
+    public void reset() {
+        value.reset();
+    }
+}
@@ -0,0 +1,13 @@
+package library.metrics;
+
+/**
+ * Interfejs JMX prostego licznika.
+ */
+public interface CounterMXBean {
+
+    /** @return bieżąca wartość licznika */
+    long getValue();
+
+    /** Zeruje licznik. */
+    void reset();
+}
@@ -0,0 +1,132 @@
+package library.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram czasów wykonania o stałej pamięci, w stylu HdrHistogram.
+ * <p>
+ * Wartości (w nanosekundach) trafiają do przedziałów log-liniowych: każdy przedział potęgi dwójki
+ * dzielony jest na {@value #SUB_BUCKETS} równych części, co daje błąd względny poniżej ~3%
+ * w całym zakresie {@code long}. Zapis jest bez blokad (jedna operacja atomowa na przedział,
+ * suma w {@link LongAdder}), więc histogram może być współdzielony przez wiele wątków.
+ * Liczba pomiarów nie jest przechowywana osobno, lecz liczona przy odczycie z przedziałów,
+ * co skraca ścieżkę zapisu kosztem (rzadkiego) odczytu.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Zapisuje pojedynczy pomiar.
+     *
+     * @param nanos czas w nanosekundach (wartości ujemne traktowane są jak 0)
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(v));
+        sum.add(v);
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) {
+            m = max.get();
+        }
+    }
+
+    /** @return liczba zapisanych pomiarów */
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    /** @return suma wszystkich pomiarów w nanosekundach */
+    public long sum() { return sum.sum(); }
+
+    /** @return największy zapisany pomiar w nanosekundach */
+    public long max() { return max.get(); }
+
+    /** @return średni czas w nanosekundach (0 jeśli brak pomiarów) */
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Zwraca przybliżoną wartość percentyla.
+     *
+     * @param percentile percentyl z zakresu 0-100, np. 99.9
+     * @return wartość w nanosekundach (0 jeśli brak pomiarów)
+     */
+    public long percentile(double percentile) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Zwraca liczbę pomiarów nie większych niż podana wartość (do eksportu histogramów skumulowanych).
+     *
+     * @param nanos górna granica w nanosekundach
+     * @return liczba pomiarów w przybliżeniu &lt;= nanos
+     */
+    public long countAtOrBelow(long nanos) {
+        int last = indexOf(Math.max(0, nanos));
+        long seen = 0;
+        for (int i = 0; i <= last; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    /**
+     * Zeruje wszystkie liczniki.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Wyznacza indeks przedziału dla wartości.
+     *
+     * @param v wartość nieujemna
+     * @return indeks przedziału
+     */
+    private static int indexOf(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int shift = (63 - Long.numberOfLeadingZeros(v)) - SUB_BITS;
+        int sub = (int) (v >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Zwraca największą wartość należącą do przedziału o podanym indeksie.
+     *
+     * @param index indeks przedziału
+     * @return górna granica przedziału
+     */
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,264 @@
+package library.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import library.config.LibraryConfig;
+import library.db.DatabaseManager;
+import library.repository.Storage;
+
+/**
+ * Opcjonalny wbudowany serwer HTTP udostępniający metryki w formacie tekstowym Prometheusa
+ * ({@code /metrics}) oraz stan aplikacji ({@code /health}).
+ * <p>
+ * Serwer obsługuje żądania w jednym wątku w tle, więc nie blokuje interaktywnego
+ * {@code LibraryApp}. Wątek serwera ma własne połączenie z bazą ({@link DatabaseManager#openConnection()}),
+ * otwierane przy pierwszym żądaniu, więc odpytania nie korzystają ze współdzielonego połączenia stanowiska.
+ * Włączany jest kluczem konfiguracji {@code library.metricsPort}; domyślnie nasłuchuje tylko na adresie
+ * lokalnym, inny adres można wskazać kluczem {@code library.metricsHost}.
+ * </p>
+ */
+public class MetricsHttpServer {
+
+    /** Typ zawartości formatu tekstowego Prometheusa */
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /** Górne granice przedziałów histogramu w sekundach */
+    private static final double[] BUCKETS = {
+        0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Storage storage;
+    /** Połączenie wątku serwera (używane tylko w tym wątku) */
+    private Connection conn;
+
+    /**
+     * Tworzy i uruchamia serwer na podanym porcie adresu lokalnego.
+     *
+     * @param port numer portu (0 - dowolny wolny port)
+     * @param storage magazyn danych, z którego pochodzą wskaźniki katalogu
+     * @throws IOException jeśli nie udało się otworzyć portu
+     */
+    public MetricsHttpServer(int port, Storage storage) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, storage);
+    }
+
+    /**
+     * Tworzy i uruchamia serwer na podanym adresie i porcie.
+     *
+     * @param address adres nasłuchiwania
+     * @param port numer portu (0 - dowolny wolny port)
+     * @param storage magazyn danych, z którego pochodzą wskaźniki katalogu
+     * @throws IOException jeśli nie udało się otworzyć portu
+     */
+    public MetricsHttpServer(InetAddress address, int port, Storage storage) throws IOException {
+        this.storage = storage;
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/health", this::handleHealth);
+        server.start();
+    }
+
+    /**
+     * Uruchamia serwer, jeśli w konfiguracji ustawiono port ({@link LibraryConfig#METRICS_PORT}).
+     *
+     * @param storage magazyn danych
+     * @return uruchomiony serwer lub null, jeśli serwer jest wyłączony albo nie udało się go uruchomić
+     */
+    public static MetricsHttpServer startIfConfigured(Storage storage) {
+        String port = LibraryConfig.get(LibraryConfig.METRICS_PORT);
+        if (port.isBlank()) return null;
+        String host = LibraryConfig.get(LibraryConfig.METRICS_HOST);
+        try {
+            InetAddress address = host.isBlank() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host.trim());
+            MetricsHttpServer s = new MetricsHttpServer(address, Integer.parseInt(port.trim()), storage);
+            System.err.println("Metryki dostępne pod adresem http://" + address.getHostAddress() + ":"
+                    + s.getPort() + "/metrics");
+            return s;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Błąd uruchamiania serwera metryk: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** @return port, na którym nasłuchuje serwer */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Zatrzymuje serwer.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.submit(this::closeConnection);
+        executor.shutdown();
+    }
+
+    /**
+     * Przypisuje wątkowi serwera własne połączenie z bazą, jeśli magazyn korzysta z SQLite.
+     * Wywoływana w wątku serwera przed obsługą żądania.
+     */
+    private void bindConnection() {
+        if (!DatabaseManager.isConnected()) return;
+        try {
+            if (conn != null && conn.isClosed()) conn = null;
+        } catch (SQLException e) {
+            conn = null;
+        }
+        if (conn == null) conn = DatabaseManager.openConnection();
+        DatabaseManager.bindConnection(conn);
+    }
+
+    private void closeConnection() {
+        DatabaseManager.unbindConnection();
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Błąd zamykania połączenia serwera metryk: " + e.getMessage());
+        }
+        conn = null;
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            bindConnection();
+        } catch (RuntimeException e) {
+            respond(exchange, 503, "text/plain; charset=utf-8", "BŁĄD " + e.getMessage() + "\n");
+            return;
+        }
+        respond(exchange, 200, PROMETHEUS_CONTENT_TYPE, render(storage));
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            bindConnection();
+        } catch (RuntimeException e) {
+            respond(exchange, 503, "text/plain; charset=utf-8", "BŁĄD " + e.getMessage() + "\n");
+            return;
+        }
+        if (!DatabaseManager.isConnected()) {
+            // Magazyn bez bazy SQLite: wystarczy, że odpowiada na zapytanie o liczbę pozycji
+            long items = storage.items().count();
+            double ms = (System.nanoTime() - start) / 1e6;
+            respond(exchange, 200, "text/plain; charset=utf-8",
+                    String.format(Locale.ROOT, "OK %.2f ms (%s, %d pozycji)%n", ms, storage.name(), items));
+            return;
+        }
+        try (Statement st = DatabaseManager.getConn().createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1")) {
+            rs.next();
+            double ms = (System.nanoTime() - start) / 1e6;
+            respond(exchange, 200, "text/plain; charset=utf-8", String.format(Locale.ROOT, "OK %.2f ms%n", ms));
+        } catch (SQLException | RuntimeException e) {
+            respond(exchange, 503, "text/plain; charset=utf-8", "BŁĄD " + e.getMessage() + "\n");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Buduje odpowiedź {@code /metrics} w formacie tekstowym Prometheusa.
+     *
+     * @param storage magazyn danych, z którego pochodzą wskaźniki katalogu
+     * @return treść odpowiedzi
+     */
+    static String render(Storage storage) {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        Map<String, OperationStats> operations = MetricsRegistry.operations();
+
+        sb.append("# HELP library_operation_duration_seconds Czas wywołań operacji (metody DAO, import/eksport, JDBC).\n");
+        sb.append("# TYPE library_operation_duration_seconds histogram\n");
+        for (Map.Entry<String, OperationStats> e : operations.entrySet()) {
+            LatencyHistogram h = e.getValue().histogram();
+            String label = "operation=\"" + escape(e.getKey()) + "\"";
+            for (double le : BUCKETS) {
+                sb.append("library_operation_duration_seconds_bucket{").append(label)
+                  .append(",le=\"").append(le).append("\"} ")
+                  .append(h.countAtOrBelow((long) (le * 1e9))).append('\n');
+            }
+            long count = h.count();
+            sb.append("library_operation_duration_seconds_bucket{").append(label).append(",le=\"+Inf\"} ")
+              .append(count).append('\n');
+            sb.append("library_operation_duration_seconds_sum{").append(label).append("} ")
+              .append(h.sum() / 1e9).append('\n');
+            sb.append("library_operation_duration_seconds_count{").append(label).append("} ")
+              .append(count).append('\n');
+        }
+
+        sb.append("# HELP library_operation_errors_total Liczba wywołań zakończonych błędem.\n");
+        sb.append("# TYPE library_operation_errors_total counter\n");
+        for (Map.Entry<String, OperationStats> e : operations.entrySet()) {
+            sb.append("library_operation_errors_total{operation=\"").append(escape(e.getKey())).append("\"} ")
+              .append(e.getValue().getErrors()).append('\n');
+        }
+
+        sb.append("# HELP library_operation_rows_total Liczba wierszy przetworzonych przez operację.\n");
+        sb.append("# TYPE library_operation_rows_total counter\n");
+        for (Map.Entry<String, OperationStats> e : operations.entrySet()) {
+            sb.append("library_operation_rows_total{operation=\"").append(escape(e.getKey())).append("\"} ")
+              .append(e.getValue().getRows()).append('\n');
+        }
+
+        Map<String, Counter> counters = MetricsRegistry.counters();
+        sb.append("# HELP library_counter_total Liczniki zdarzeń aplikacji.\n");
+        sb.append("# TYPE library_counter_total counter\n");
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            sb.append("library_counter_total{name=\"").append(escape(e.getKey())).append("\"} ")
+              .append(e.getValue().getValue()).append('\n');
+        }
+
+        sb.append("# HELP library_db_connections Połączenia z bazą danych: open - otwarte (współdzielone i pula),"
+                + " idle/leased - wolne i wypożyczone połączenia puli, in_transaction - transakcja na współdzielonym.\n");
+        sb.append("# TYPE library_db_connections gauge\n");
+        sb.append("library_db_connections{state=\"open\"} ")
+          .append((DatabaseManager.isConnected() ? 1 : 0) + DatabaseManager.pooledConnections()).append('\n');
+        sb.append("library_db_connections{state=\"idle\"} ").append(DatabaseManager.idleConnections()).append('\n');
+        sb.append("library_db_connections{state=\"leased\"} ").append(DatabaseManager.leasedConnections()).append('\n');
+        sb.append("library_db_connections{state=\"in_transaction\"} ")
+          .append(DatabaseManager.isInTransaction() ? 1 : 0).append('\n');
+
+        if (storage != null) {
+            sb.append("# HELP library_catalog_items Liczba pozycji w katalogu.\n");
+            sb.append("# TYPE library_catalog_items gauge\n");
+            sb.append("library_catalog_items ").append(storage.items().count()).append('\n');
+            sb.append("# HELP library_loans_active Liczba aktualnie wypożyczonych pozycji.\n");
+            sb.append("# TYPE library_loans_active gauge\n");
+            sb.append("library_loans_active ").append(storage.items().countLoaned()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
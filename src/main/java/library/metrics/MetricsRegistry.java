@@ -0,0 +1,101 @@
+package library.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Globalny rejestr metryk aplikacji.
+ * <p>
+ * Metryki tworzone są raz (zwykle w polach {@code static final} klas DAO), więc wywołanie
+ * instrumentowanej metody nie wykonuje żadnego wyszukiwania w mapie. Każda metryka
+ * rejestrowana jest jako MBean w domenie {@value #JMX_DOMAIN} i jest widoczna np. w JConsole
+ * lub VisualVM.
+ * </p>
+ */
+public class MetricsRegistry {
+
+    /** Domena JMX, w której rejestrowane są metryki */
+    public static final String JMX_DOMAIN = "library.metrics";
+
+    private static final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Zwraca (tworząc przy pierwszym użyciu) statystyki operacji.
+     *
+     * @param component nazwa komponentu, np. "ItemDao"
+     * @param operation nazwa operacji, np. "getAll"
+     * @return statystyki operacji
+     */
+    public static OperationStats operation(String component, String operation) {
+        return operations.computeIfAbsent(component + "." + operation, name -> {
+            OperationStats stats = new OperationStats(name);
+            register(component, operation, "operation", stats);
+            return stats;
+        });
+    }
+
+    /**
+     * Zwraca (tworząc przy pierwszym użyciu) licznik.
+     *
+     * @param component nazwa komponentu, np. "SerializationUtil"
+     * @param name nazwa licznika, np. "importedRows"
+     * @return licznik
+     */
+    public static Counter counter(String component, String name) {
+        return counters.computeIfAbsent(component + "." + name, key -> {
+            Counter counter = new Counter();
+            register(component, name, "counter", counter);
+            return counter;
+        });
+    }
+
+    /**
+     * Zwraca wszystkie statystyki operacji posortowane po nazwie.
+     *
+     * @return mapa nazwa operacji - statystyki
+     */
+    public static Map<String, OperationStats> operations() {
+        return new TreeMap<>(operations);
+    }
+
+    /**
+     * Zwraca wszystkie liczniki posortowane po nazwie.
+     *
+     * @return mapa nazwa licznika - licznik
+     */
+    public static Map<String, Counter> counters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * Zeruje wszystkie metryki.
+     */
+    public static void resetAll() {
+        operations.values().forEach(OperationStats::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    /**
+     * Rejestruje metrykę jako MBean. Błąd rejestracji nie przerywa działania aplikacji.
+     */
+    private static void register(String component, String name, String kind, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + component + ",kind=" + kind
+                    + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (Exception e) {
+            System.err.println("Błąd rejestracji metryki JMX " + component + "." + name + ": " + e.getMessage());
+        }
+    }
+}
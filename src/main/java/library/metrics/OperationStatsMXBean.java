@@ -0,0 +1,35 @@
+package library.metrics;
+
+/**
+ * Interfejs JMX statystyk pojedynczej operacji (np. metody DAO).
+ * Czasy podawane są w mikrosekundach.
+ */
+public interface OperationStatsMXBean {
+
+    /** @return liczba wywołań */
+    long getCount();
+
+    /** @return liczba wywołań zakończonych błędem */
+    long getErrors();
+
+    /** @return łączna liczba przetworzonych wierszy */
+    long getRows();
+
+    /** @return średni czas wywołania w mikrosekundach */
+    double getMeanMicros();
+
+    /** @return mediana czasu wywołania w mikrosekundach */
+    double getP50Micros();
+
+    /** @return 99. percentyl czasu wywołania w mikrosekundach */
+    double getP99Micros();
+
+    /** @return 99,9. percentyl czasu wywołania w mikrosekundach */
+    double getP999Micros();
+
+    /** @return najdłuższy czas wywołania w mikrosekundach */
+    double getMaxMicros();
+
+    /** Zeruje statystyki. */
+    void reset();
+}
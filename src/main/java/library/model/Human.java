@@ -19,6 +19,9 @@ public abstract class Human implements Serializable {
     /** Hasło użytkownika */
     protected String password;
 
+    /** Numer wersji rekordu, zwiększany przy każdej zmianie (optymistyczna kontrola współbieżności) */
+    protected long version;
+
     /**
      * Konstruktor klasy Human.
      *
@@ -40,4 +43,12 @@ public abstract class Human implements Serializable {
 
     /** @return hasło użytkownika */
     public String getPassword() { return password; }
+
+    /** @return wersja rekordu odczytana z magazynu danych (0 dla nowego konta) */
+    public long getVersion() { return version; }
+
+    /** Ustawia wersję rekordu
+     * @param version wersja odczytana z magazynu danych
+     */
+    public void setVersion(long version) { this.version = version; }
 }
@@ -27,6 +27,9 @@ public abstract class Item implements Serializable {
     /** Nazwa użytkownika, który wypożyczył pozycję (null jeśli dostępna) */
     protected String loanedTo;
 
+    /** Numer wersji rekordu, zwiększany przy każdej zmianie (optymistyczna kontrola współbieżności) */
+    protected long version;
+
     /**
      * Konstruktor tworzący nową pozycję z generowanym UUID.
      * Pozycja domyślnie jest dostępna i nie jest wypożyczona.
@@ -94,6 +97,14 @@ public abstract class Item implements Serializable {
      */
     public void setLoanedTo(String loanedTo) { this.loanedTo = loanedTo; }
 
+    /** @return wersja rekordu odczytana z magazynu danych (0 dla nowej pozycji) */
+    public long getVersion() { return version; }
+
+    /** Ustawia wersję rekordu
+     * @param version wersja odczytana z magazynu danych
+     */
+    public void setVersion(long version) { this.version = version; }
+
     /**
      * Abstrakcyjna metoda do wyświetlania szczegółów pozycji.
      * Każda podklasa musi ją zaimplementować.
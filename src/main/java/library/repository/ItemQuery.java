@@ -0,0 +1,262 @@
+package library.repository;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+import library.model.Book;
+import library.model.Item;
+import library.model.Magazine;
+
+/**
+ * Zapytanie o katalog: filtry, kolejność i stronicowanie, budowane łańcuchowo, np.
+ * <pre>
+ * new ItemQuery().type(ItemQuery.Type.BOOK).genre("Fantastyka").available(true)
+ *         .orderBy(ItemQuery.Sort.YEAR, true).limit(20)
+ * </pre>
+ * Niepodane filtry nie ograniczają wyniku. Kolejne strony można pobierać przez {@link #offset(long)}
+ * albo - szybciej dla dalekich stron - przez {@link #after(Item)}, podając ostatnią pozycję
+ * poprzedniej strony (stronicowanie po kluczu). Przy równych wartościach sortowania o kolejności
+ * decyduje UUID, więc strony nie pomijają ani nie powtarzają pozycji.
+ * <p>
+ * {@link library.db.ItemDao#query(ItemQuery)} tłumaczy zapytanie na sparametryzowany SQL
+ * korzystający z indeksów złożonych; magazyny w pamięci używają {@link #matches(Item)}
+ * i {@link #comparator()} o tej samej semantyce.
+ * </p>
+ */
+public final class ItemQuery {
+
+    /**
+     * Typ pozycji (wartość kolumny {@code type}).
+     */
+    public enum Type {
+        BOOK("book"),
+        MAGAZINE("magazine");
+
+        /** Wartość kolumny {@code type} w tabeli items */
+        public final String column;
+
+        Type(String column) {
+            this.column = column;
+        }
+
+        /**
+         * @param item pozycja
+         * @return czy pozycja jest tego typu
+         */
+        public boolean isInstance(Item item) {
+            return this == BOOK ? item instanceof Book : item instanceof Magazine;
+        }
+    }
+
+    /**
+     * Kolejność wyników. Wartości puste (np. autor magazynu) są traktowane jak najmniejsze.
+     */
+    public enum Sort {
+        /** Kolejność wstawiania do katalogu */
+        INSERTION(null, false, null),
+        YEAR("year", false, Item::getYear),
+        TITLE("title", false, Item::getTitle),
+        AUTHOR("author", true, i -> i instanceof Book ? ((Book) i).getAuthor() : null);
+
+        /** Kolumna tabeli items (null dla kolejności wstawiania) */
+        public final String column;
+        /** Czy kolumna bywa pusta (autor magazynu) */
+        public final boolean nullable;
+        private final Function<Item, Comparable<?>> key;
+
+        Sort(String column, boolean nullable, Function<Item, Comparable<?>> key) {
+            this.column = column;
+            this.nullable = nullable;
+            this.key = key;
+        }
+
+        /**
+         * @param item pozycja
+         * @return wartość, według której sortowana jest pozycja (może być null)
+         */
+        public Comparable<?> key(Item item) {
+            return key == null ? null : key.apply(item);
+        }
+    }
+
+    /** Domyślna liczba wyników */
+    public static final int DEFAULT_LIMIT = 50;
+
+    private Type type;
+    private String genre;
+    private String author;
+    private Boolean available;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private String text;
+    private Sort sort = Sort.INSERTION;
+    private boolean descending;
+    private int limit = DEFAULT_LIMIT;
+    private long offset;
+    private Item after;
+
+    /**
+     * @param type typ pozycji lub null (dowolny)
+     * @return to zapytanie
+     */
+    public ItemQuery type(Type type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * @param genre gatunek (dokładna wartość) lub null
+     * @return to zapytanie
+     */
+    public ItemQuery genre(String genre) {
+        this.genre = genre;
+        return this;
+    }
+
+    /**
+     * @param author autor (dokładna wartość) lub null
+     * @return to zapytanie
+     */
+    public ItemQuery author(String author) {
+        this.author = author;
+        return this;
+    }
+
+    /**
+     * @param available true - tylko dostępne, false - tylko wypożyczone, null - wszystkie
+     * @return to zapytanie
+     */
+    public ItemQuery available(Boolean available) {
+        this.available = available;
+        return this;
+    }
+
+    /**
+     * Ogranicza rok wydania do przedziału (obustronnie domkniętego).
+     *
+     * @param from najmniejszy rok lub null
+     * @param to największy rok lub null
+     * @return to zapytanie
+     */
+    public ItemQuery years(Integer from, Integer to) {
+        this.yearFrom = from;
+        this.yearTo = to;
+        return this;
+    }
+
+    /**
+     * @param text fragment tytułu lub autora (bez rozróżniania wielkości liter) lub null
+     * @return to zapytanie
+     */
+    public ItemQuery containing(String text) {
+        this.text = text;
+        return this;
+    }
+
+    /**
+     * @param sort kolejność wyników
+     * @param descending czy malejąco
+     * @return to zapytanie
+     */
+    public ItemQuery orderBy(Sort sort, boolean descending) {
+        this.sort = sort;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * @param limit maksymalna liczba wyników
+     * @return to zapytanie
+     */
+    public ItemQuery limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("Limit nie może być ujemny: " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @param offset liczba pomijanych pierwszych wyników
+     * @return to zapytanie
+     */
+    public ItemQuery offset(long offset) {
+        if (offset < 0) throw new IllegalArgumentException("Przesunięcie nie może być ujemne: " + offset);
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Zwraca wyniki następujące (w kolejności zapytania) po podanej pozycji.
+     * Przy kolejności wstawiania pozycja musi nadal istnieć w katalogu.
+     *
+     * @param last ostatnia pozycja poprzedniej strony lub null (od początku)
+     * @return to zapytanie
+     */
+    public ItemQuery after(Item last) {
+        this.after = last;
+        return this;
+    }
+
+    public Type getType() { return type; }
+
+    public String getGenre() { return genre; }
+
+    public String getAuthor() { return author; }
+
+    public Boolean getAvailable() { return available; }
+
+    public Integer getYearFrom() { return yearFrom; }
+
+    public Integer getYearTo() { return yearTo; }
+
+    public String getText() { return text; }
+
+    public Sort getSort() { return sort; }
+
+    public boolean isDescending() { return descending; }
+
+    public int getLimit() { return limit; }
+
+    public long getOffset() { return offset; }
+
+    public Item getAfter() { return after; }
+
+    /**
+     * Sprawdza filtry zapytania (bez stronicowania).
+     *
+     * @param item pozycja
+     * @return czy pozycja spełnia wszystkie filtry
+     */
+    public boolean matches(Item item) {
+        String itemAuthor = item instanceof Book ? ((Book) item).getAuthor() : null;
+        String itemGenre = item instanceof Book ? ((Book) item).getGenre() : null;
+        if (type != null && !type.isInstance(item)) return false;
+        if (genre != null && !genre.equals(itemGenre)) return false;
+        if (author != null && !author.equals(itemAuthor)) return false;
+        if (available != null && available != item.isAvailable()) return false;
+        if (yearFrom != null && item.getYear() < yearFrom) return false;
+        if (yearTo != null && item.getYear() > yearTo) return false;
+        if (text != null) {
+            String needle = text.toLowerCase(Locale.ROOT);
+            return contains(item.getTitle(), needle) || contains(itemAuthor, needle);
+        }
+        return true;
+    }
+
+    /**
+     * Porównanie pozycji w kolejności zapytania (z UUID jako rozstrzygnięciem remisów).
+     * Dla kolejności wstawiania magazyn musi wyznaczyć porządek sam.
+     *
+     * @return komparator zgodny z kolejnością zapytania
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<Item> comparator() {
+        Comparator<Item> byKey = Comparator.comparing(i -> (Comparable) sort.key(i),
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        Comparator<Item> order = byKey.thenComparing(i -> i.getUuid().toString());
+        return descending ? order.reversed() : order;
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
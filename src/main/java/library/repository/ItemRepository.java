@@ -0,0 +1,195 @@
+package library.repository;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import library.model.Book;
+import library.model.Item;
+
+/**
+ * Repozytorium pozycji bibliotecznych (książek i magazynów).
+ * Operacje odpowiadają metodom {@link library.db.ItemDao}; implementacje muszą być bezpieczne
+ * przy wywołaniach z wielu wątków, a wypożyczenie i zwrot muszą być atomowe
+ * (z dwóch równoczesnych wypożyczeń tej samej pozycji powiedzie się tylko jedno).
+ */
+public interface ItemRepository {
+
+    /**
+     * Zapisuje pozycję; pozycja o tym samym UUID zostaje zastąpiona bez sprawdzania wersji
+     * (jej wersja jest zwiększana). Do zmian po odczycie służy {@link #update(Item)}.
+     *
+     * @param item pozycja (Book lub Magazine)
+     */
+    void save(Item item);
+
+    /**
+     * Zapisuje wiele pozycji naraz; pozycje o istniejącym UUID zostają zastąpione.
+     *
+     * @param items lista pozycji
+     */
+    void saveAll(List<? extends Item> items);
+
+    /**
+     * Dodaje nową, dostępną książkę z losowym UUID.
+     *
+     * @param title tytuł
+     * @param author autor
+     * @param year rok wydania
+     * @param genre gatunek
+     */
+    default void addBook(String title, String author, int year, String genre) {
+        save(new Book(UUID.randomUUID(), title, year, author, genre, true, null));
+    }
+
+    /**
+     * @return wszystkie pozycje w kolejności wstawiania
+     */
+    List<Item> getAll();
+
+    /**
+     * @return liczba wszystkich pozycji
+     */
+    long count();
+
+    /**
+     * @return liczba aktualnie wypożyczonych pozycji
+     */
+    long countLoaned();
+
+    /**
+     * Wyszukuje pozycje, których tytuł lub autor zawiera podany tekst (bez rozróżniania wielkości liter).
+     *
+     * @param text szukany fragment
+     * @param limit maksymalna liczba wyników
+     * @return znalezione pozycje
+     */
+    List<Item> search(String text, int limit);
+
+    /**
+     * Pobiera jedną stronę pozycji w kolejności wstawiania.
+     *
+     * @param offset numer pierwszej pozycji (od 0)
+     * @param limit maksymalna liczba pozycji
+     * @return pozycje ze strony
+     */
+    List<Item> getPage(long offset, int limit);
+
+    /**
+     * Wykonuje zapytanie z filtrami, kolejnością i stronicowaniem (zob. {@link ItemQuery}).
+     *
+     * @param query zapytanie
+     * @return pozycje spełniające filtry, w kolejności zapytania, najwyżej {@link ItemQuery#getLimit()}
+     */
+    List<Item> query(ItemQuery query);
+
+    /**
+     * @param uuid UUID pozycji
+     * @return pozycja lub pusty Optional
+     */
+    Optional<Item> getByUuid(UUID uuid);
+
+    /**
+     * Zmienia pozycję, jeśli jej wersja w magazynie jest równa {@link Item#getVersion()}
+     * (optymistyczna kontrola współbieżności: porównanie i zapis są atomowe, odczyty nie są blokowane).
+     * Kolejność pozycji się nie zmienia.
+     *
+     * @param item zmieniona pozycja z wersją z chwili odczytu
+     * @return UPDATED z pozycją w nowej wersji, CONFLICT z aktualnym stanem, NOT_FOUND
+     *         lub ERROR, jeśli zapis się nie powiódł
+     */
+    UpdateResult<Item> update(Item item);
+
+    /**
+     * Usuwa pozycję.
+     *
+     * @param uuid UUID pozycji
+     */
+    void delete(UUID uuid);
+
+    /**
+     * Wypożycza pozycję, jeśli istnieje i jest dostępna.
+     *
+     * @param uuidStr UUID pozycji w formie tekstowej
+     * @param username login wypożyczającego
+     * @return true, jeśli wypożyczenie się powiodło
+     */
+    boolean borrowItem(String uuidStr, String username);
+
+    /**
+     * Przyjmuje zwrot pozycji, jeśli jest wypożyczona.
+     *
+     * @param uuidStr UUID pozycji w formie tekstowej
+     * @return true, jeśli zwrot się powiódł
+     */
+    boolean returnItem(String uuidStr);
+
+    /**
+     * Przyjmuje zwrot pozycji, jeśli wypożyczył ją podany użytkownik.
+     *
+     * @param uuidStr UUID pozycji w formie tekstowej
+     * @param username login zwracającego
+     * @return true, jeśli zwrot się powiódł
+     */
+    boolean returnItemByUser(String uuidStr, String username);
+
+    /**
+     * Wypożycza wszystkie podane pozycje jednemu użytkownikowi albo żadnej: jeśli którakolwiek
+     * nie istnieje lub jest już wypożyczona, stan katalogu się nie zmienia.
+     * Powtórzone UUID są traktowane jak jedno.
+     *
+     * @param uuids UUID pozycji
+     * @param username login wypożyczającego
+     * @return wynik operacji z listą pozycji, przez które ją odrzucono
+     */
+    LoanResult borrowAll(List<UUID> uuids, String username);
+
+    /**
+     * Przyjmuje zwrot wszystkich podanych pozycji albo żadnej: jeśli którakolwiek nie jest
+     * wypożyczona (lub - gdy podano użytkownika - nie jest wypożyczona przez niego),
+     * stan katalogu się nie zmienia.
+     *
+     * @param uuids UUID pozycji
+     * @param username wymagany wypożyczający lub null, jeśli dowolny
+     * @return wynik operacji z listą pozycji, przez które ją odrzucono
+     */
+    LoanResult returnAll(List<UUID> uuids, String username);
+
+    /**
+     * @param username login użytkownika
+     * @return pozycje wypożyczone przez użytkownika
+     */
+    List<Item> getUserLoans(String username);
+
+    /**
+     * Otwiera zestaw operacji do masowego wykonywania wypożyczeń i zwrotów
+     * (np. z raz przygotowanymi zapytaniami). Transakcjami zarządza wywołujący.
+     *
+     * @return nowy zestaw operacji (należy go zamknąć po użyciu)
+     * @throws SQLException jeśli nie udało się go przygotować
+     */
+    LoanBatch openLoanBatch() throws SQLException;
+
+    /**
+     * Zestaw operacji do masowego wykonywania wypożyczeń i zwrotów.
+     */
+    interface LoanBatch extends AutoCloseable {
+        /**
+         * @param uuid UUID pozycji
+         * @param username login wypożyczającego
+         * @return true, jeśli wypożyczenie się powiodło
+         * @throws SQLException jeśli wystąpi błąd magazynu danych
+         */
+        boolean borrow(UUID uuid, String username) throws SQLException;
+
+        /**
+         * @param uuid UUID pozycji
+         * @return true, jeśli zwrot się powiódł
+         * @throws SQLException jeśli wystąpi błąd magazynu danych
+         */
+        boolean returnItem(UUID uuid) throws SQLException;
+
+        @Override
+        void close();
+    }
+}
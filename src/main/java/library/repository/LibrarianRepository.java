@@ -0,0 +1,58 @@
+package library.repository;
+
+import java.util.List;
+import java.util.Optional;
+import library.model.Librarian;
+
+/**
+ * Repozytorium kont bibliotekarzy. Operacje odpowiadają metodom {@link library.db.LibrarianDao}.
+ */
+public interface LibrarianRepository {
+
+    /**
+     * @param username login
+     * @param fullname imię i nazwisko
+     * @param password hasło
+     * @param salary wynagrodzenie
+     */
+    void addLibrarian(String username, String fullname, String password, int salary);
+
+    /**
+     * @param username login bibliotekarza do edycji
+     * @param fullname nowe imię i nazwisko
+     * @param password nowe hasło
+     * @param salary nowe wynagrodzenie
+     */
+    void editLibrarian(String username, String fullname, String password, int salary);
+
+    /**
+     * Edytuje bibliotekarza, jeśli jego wersja w magazynie jest równa oczekiwanej
+     * (porównanie i zapis są atomowe).
+     *
+     * @param username login bibliotekarza do edycji
+     * @param fullname nowe imię i nazwisko
+     * @param password nowe hasło
+     * @param salary nowe wynagrodzenie
+     * @param expectedVersion wersja konta z chwili odczytu
+     * @return UPDATED z kontem w nowej wersji, CONFLICT z aktualnym stanem, NOT_FOUND
+     *         lub ERROR, jeśli zapis się nie powiódł
+     */
+    UpdateResult<Librarian> editLibrarian(String username, String fullname, String password, int salary,
+                                          long expectedVersion);
+
+    /**
+     * @param username login bibliotekarza do usunięcia
+     */
+    void removeLibrarian(String username);
+
+    /**
+     * @return wszyscy bibliotekarze
+     */
+    List<Librarian> getAllLibrarians();
+
+    /**
+     * @param username login
+     * @return bibliotekarz lub pusty Optional
+     */
+    Optional<Librarian> getByUsername(String username);
+}
@@ -0,0 +1,59 @@
+package library.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wynik wypożyczenia lub zwrotu wielu pozycji w jednej operacji (wszystkie albo żadna).
+ */
+public final class LoanResult {
+
+    private static final LoanResult ACCEPTED = new LoanResult(true, List.of(), null);
+
+    /** Czy operacja objęła wszystkie pozycje */
+    public final boolean success;
+
+    /**
+     * Pozycje, przez które operację odrzucono (nie istnieją, są niedostępne albo - przy zwrocie -
+     * nie są wypożyczone przez wskazanego użytkownika); pusta lista przy powodzeniu
+     */
+    public final List<UUID> rejected;
+
+    /** Opis błędu magazynu, jeśli operacji nie udało się wykonać (null, gdy ją wykonano lub odrzucono) */
+    public final String error;
+
+    private LoanResult(boolean success, List<UUID> rejected, String error) {
+        this.success = success;
+        this.rejected = rejected;
+        this.error = error;
+    }
+
+    /**
+     * @return wynik operacji, która objęła wszystkie pozycje
+     */
+    public static LoanResult accepted() {
+        return ACCEPTED;
+    }
+
+    /**
+     * @param rejected pozycje, które nie spełniły warunków operacji
+     * @return wynik odrzuconej operacji (żadna pozycja nie została zmieniona)
+     */
+    public static LoanResult rejected(List<UUID> rejected) {
+        return new LoanResult(false, List.copyOf(rejected), null);
+    }
+
+    /**
+     * @param message opis błędu magazynu
+     * @return wynik operacji, której nie udało się wykonać (żadna pozycja nie została zmieniona)
+     */
+    public static LoanResult error(String message) {
+        return new LoanResult(false, List.of(), message);
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) return "ERROR " + error;
+        return success ? "ACCEPTED" : "REJECTED " + rejected;
+    }
+}
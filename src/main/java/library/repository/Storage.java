@@ -0,0 +1,68 @@
+package library.repository;
+
+import java.util.Locale;
+import library.config.LibraryConfig;
+import library.db.SqliteStorage;
+import library.repository.log.LogStorage;
+import library.repository.memory.InMemoryStorage;
+
+/**
+ * Magazyn danych aplikacji: repozytoria pozycji, użytkowników i bibliotekarzy
+ * oraz transakcje obejmujące wiele operacji.
+ * <p>
+ * Magazyn jest przekazywany do serwisów, poleceń i zadań przy ich tworzeniu
+ * ({@link library.LibraryApp} wybiera go na podstawie konfiguracji {@link LibraryConfig#STORAGE}).
+ * </p>
+ */
+public interface Storage {
+
+    /** @return repozytorium pozycji */
+    ItemRepository items();
+
+    /** @return repozytorium użytkowników */
+    UserRepository users();
+
+    /** @return repozytorium bibliotekarzy */
+    LibrarianRepository librarians();
+
+    /**
+     * Rozpoczyna transakcję bieżącego wątku.
+     */
+    void beginTransaction();
+
+    /**
+     * Zatwierdza transakcję bieżącego wątku.
+     */
+    void commitTransaction();
+
+    /**
+     * Wycofuje transakcję bieżącego wątku (jeśli magazyn to obsługuje).
+     */
+    void rollbackTransaction();
+
+    /**
+     * @return nazwa magazynu (np. do komunikatów i metryk)
+     */
+    String name();
+
+    /**
+     * Tworzy magazyn wskazany w konfiguracji: {@code sqlite} (domyślnie), {@code memory}
+     * lub {@code log} (dziennik zdarzeń z migawkami).
+     *
+     * @return nowy magazyn
+     */
+    static Storage fromConfig() {
+        String name = LibraryConfig.get(LibraryConfig.STORAGE).toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "memory":
+                return new InMemoryStorage();
+            case "log":
+                return new LogStorage();
+            case "sqlite":
+                return new SqliteStorage();
+            default:
+                System.err.println("Nieznany magazyn danych: " + name + ", używam sqlite");
+                return new SqliteStorage();
+        }
+    }
+}
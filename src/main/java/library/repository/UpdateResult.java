@@ -0,0 +1,75 @@
+package library.repository;
+
+/**
+ * Wynik zmiany rekordu z optymistyczną kontrolą współbieżności (porównanie wersji przy zapisie).
+ *
+ * @param <T> typ rekordu
+ */
+public final class UpdateResult<T> {
+
+    /**
+     * Rodzaj wyniku zmiany.
+     */
+    public enum Status {
+        /** Rekord zmieniono; {@link #value} to zapisany stan w nowej wersji */
+        UPDATED,
+        /** Rekord zmienił ktoś inny od chwili odczytu; {@link #value} to jego aktualny stan */
+        CONFLICT,
+        /** Rekord nie istnieje; {@link #value} jest null */
+        NOT_FOUND,
+        /** Zapis się nie powiódł (błąd magazynu); {@link #value} jest null, opis w {@link #error} */
+        ERROR
+    }
+
+    public final Status status;
+    public final T value;
+    /** Opis błędu magazynu (tylko dla {@link Status#ERROR}) */
+    public final String error;
+
+    private UpdateResult(Status status, T value, String error) {
+        this.status = status;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @param value zapisany stan rekordu
+     * @return wynik udanej zmiany
+     */
+    public static <T> UpdateResult<T> updated(T value) {
+        return new UpdateResult<>(Status.UPDATED, value, null);
+    }
+
+    /**
+     * @param current aktualny stan rekordu w magazynie
+     * @return wynik zmiany odrzuconej z powodu niezgodnej wersji
+     */
+    public static <T> UpdateResult<T> conflict(T current) {
+        return new UpdateResult<>(Status.CONFLICT, current, null);
+    }
+
+    /**
+     * @return wynik zmiany nieistniejącego rekordu
+     */
+    public static <T> UpdateResult<T> notFound() {
+        return new UpdateResult<>(Status.NOT_FOUND, null, null);
+    }
+
+    /**
+     * @param message opis błędu magazynu
+     * @return wynik zmiany, której nie udało się zapisać
+     */
+    public static <T> UpdateResult<T> error(String message) {
+        return new UpdateResult<>(Status.ERROR, null, message);
+    }
+
+    /** @return czy rekord został zmieniony */
+    public boolean isUpdated() {
+        return status == Status.UPDATED;
+    }
+
+    @Override
+    public String toString() {
+        return status + (value != null ? " " + value : "") + (error != null ? " " + error : "");
+    }
+}
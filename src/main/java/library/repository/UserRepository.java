@@ -0,0 +1,96 @@
+package library.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import library.model.Human;
+import library.model.User;
+
+/**
+ * Repozytorium kont użytkowników. Operacje odpowiadają metodom {@link library.db.UserDao}.
+ * Loginy są unikalne dla wszystkich kont (użytkowników i bibliotekarzy).
+ */
+public interface UserRepository {
+
+    /**
+     * @param username login
+     * @param role rola ("user" lub "librarian")
+     * @return konto (User lub Librarian) lub pusty Optional
+     */
+    Optional<Human> findUser(String username, String role);
+
+    /**
+     * @param username login
+     * @return użytkownik o roli "user" lub pusty Optional
+     */
+    Optional<User> getByUsername(String username);
+
+    /**
+     * Zapisuje konto (z nadpisaniem istniejącego o tym samym loginie i zwiększeniem jego wersji).
+     *
+     * @param user konto
+     * @param role rola ("user" lub "librarian")
+     */
+    void saveUser(Human user, String role);
+
+    /**
+     * Dodaje użytkownika o roli "user" (nic nie robi, jeśli login jest zajęty).
+     *
+     * @param username login
+     * @param fullname imię i nazwisko
+     * @param password hasło
+     */
+    void addUser(String username, String fullname, String password);
+
+    /**
+     * Dodaje wielu użytkowników o roli "user", pomijając zajęte loginy.
+     *
+     * @param users lista użytkowników
+     * @return loginy faktycznie dodanych użytkowników, w kolejności listy
+     */
+    List<String> addUsers(List<User> users);
+
+    /**
+     * @param username login użytkownika do edycji
+     * @param fullname nowe imię i nazwisko
+     * @param password nowe hasło
+     */
+    void editUser(String username, String fullname, String password);
+
+    /**
+     * Edytuje użytkownika, jeśli jego wersja w magazynie jest równa oczekiwanej
+     * (porównanie i zapis są atomowe).
+     *
+     * @param username login użytkownika do edycji
+     * @param fullname nowe imię i nazwisko
+     * @param password nowe hasło
+     * @param expectedVersion wersja konta z chwili odczytu
+     * @return UPDATED z kontem w nowej wersji, CONFLICT z aktualnym stanem, NOT_FOUND
+     *         lub ERROR, jeśli zapis się nie powiódł
+     */
+    UpdateResult<User> editUser(String username, String fullname, String password, long expectedVersion);
+
+    /**
+     * @param username login użytkownika do usunięcia
+     */
+    void removeUser(String username);
+
+    /**
+     * @return wszyscy użytkownicy o roli "user"
+     */
+    List<User> getAllUsers();
+
+    /**
+     * Przekazuje kolejno wszystkich użytkowników o roli "user" bez budowania listy
+     * (eksport dużej liczby kont).
+     *
+     * @param consumer odbiorca kolejnych użytkowników; zwraca false, aby przerwać
+     */
+    void forEachUser(Predicate<User> consumer);
+
+    /**
+     * @param role rola ("user" lub "librarian")
+     * @return liczba kont o podanej roli
+     */
+    long countByRole(String role);
+}
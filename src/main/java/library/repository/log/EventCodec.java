@@ -0,0 +1,117 @@
+package library.repository.log;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+import library.model.Book;
+import library.model.Human;
+import library.model.Item;
+import library.model.Librarian;
+import library.model.Magazine;
+import library.model.User;
+
+/**
+ * Binarny zapis pozycji i kont wspólny dla zdarzeń dziennika i migawek.
+ */
+final class EventCodec {
+
+    private static final byte BOOK = 1;
+    private static final byte MAGAZINE = 2;
+
+    private EventCodec() {
+    }
+
+    static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Zapisuje pozycję wraz ze stanem wypożyczenia i wersją.
+     */
+    static void writeItem(DataOutput out, Item item) throws IOException {
+        if (item instanceof Book) {
+            Book b = (Book) item;
+            out.writeByte(BOOK);
+            writeUuid(out, b.getUuid());
+            out.writeUTF(b.getTitle());
+            out.writeInt(b.getYear());
+            writeNullable(out, b.getAuthor());
+            writeNullable(out, b.getGenre());
+        } else if (item instanceof Magazine) {
+            Magazine m = (Magazine) item;
+            out.writeByte(MAGAZINE);
+            writeUuid(out, m.getUuid());
+            out.writeUTF(m.getTitle());
+            out.writeInt(m.getYear());
+            out.writeInt(m.getIssueNumber());
+        } else {
+            throw new IllegalArgumentException("Nieznany typ pozycji: " + item.getClass().getName());
+        }
+        out.writeBoolean(item.isAvailable());
+        writeNullable(out, item.getLoanedTo());
+        out.writeLong(item.getVersion());
+    }
+
+    static Item readItem(DataInput in) throws IOException {
+        byte type = in.readByte();
+        UUID uuid = readUuid(in);
+        String title = in.readUTF();
+        int year = in.readInt();
+        Item item;
+        if (type == BOOK) {
+            String author = readNullable(in);
+            String genre = readNullable(in);
+            boolean available = in.readBoolean();
+            item = new Book(uuid, title, year, author, genre, available, readNullable(in));
+        } else if (type == MAGAZINE) {
+            int issue = in.readInt();
+            boolean available = in.readBoolean();
+            item = new Magazine(uuid, title, year, issue, available, readNullable(in));
+        } else {
+            throw new IOException("Nieznany typ pozycji w dzienniku: " + type);
+        }
+        item.setVersion(in.readLong());
+        return item;
+    }
+
+    /**
+     * Zapisuje konto z wersją (wynagrodzenie 0 dla użytkowników).
+     */
+    static void writeHuman(DataOutput out, Human human) throws IOException {
+        out.writeUTF(human.getUsername());
+        out.writeUTF(human.getFullName());
+        out.writeUTF(human.getPassword());
+        out.writeInt(human instanceof Librarian ? ((Librarian) human).getSalary() : 0);
+        out.writeLong(human.getVersion());
+    }
+
+    /**
+     * Odczytuje konto o podanej roli.
+     */
+    static Human readHuman(DataInput in, String role) throws IOException {
+        String username = in.readUTF();
+        String fullname = in.readUTF();
+        String password = in.readUTF();
+        int salary = in.readInt();
+        Human human = "librarian".equals(role)
+                ? new Librarian(fullname, username, password, salary)
+                : new User(fullname, username, password);
+        human.setVersion(in.readLong());
+        return human;
+    }
+}
@@ -0,0 +1,416 @@
+package library.repository.log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+
+/**
+ * Dziennik zdarzeń tylko do dopisywania, podzielony na segmenty {@code log-<lsn>.log}.
+ * <p>
+ * Każde zdarzenie zapisywane jest jako ramka: długość (int), suma kontrolna CRC32 treści (int), treść.
+ * Zdarzenia numerowane są kolejno od 1 (LSN), a nazwa segmentu zawiera numer jego pierwszego zdarzenia.
+ * </p>
+ * <p>
+ * Zapis odbywa się grupowo (group commit): {@link #append(byte[])} jedynie dokłada ramkę do bufora
+ * w pamięci, a osobny wątek {@code event-log-flush} zapisuje naraz wszystko, co się nagromadziło,
+ * i wykonuje jeden {@code fsync} dla całej grupy. Wywołujący czeka na utrwalenie swojego zdarzenia
+ * w {@link #awaitDurable(long)}; im więcej równoczesnych zapisów, tym więcej zdarzeń przypada na jeden fsync.
+ * </p>
+ */
+public class EventLog implements AutoCloseable {
+
+    /** Statystyki zapisów grupowych: czas zapisu z fsync, wiersze = liczba zdarzeń w grupie */
+    private static final OperationStats FLUSH = MetricsRegistry.operation("EventLog", "flush");
+
+    /** Rozmiar nagłówka ramki: długość i suma kontrolna */
+    private static final int FRAME_HEADER = 8;
+
+    /** Maksymalny rozmiar treści zdarzenia (chroni przed odczytem uszkodzonej długości) */
+    private static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+    /**
+     * Bufor z dostępem do wewnętrznej tablicy (zapis bez kopiowania).
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(64 * 1024);
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private final Path dir;
+    private final boolean fsync;
+    private final long commitDelayNanos;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasData = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // Pola chronione przez lock
+    private Buffer pending = new Buffer();
+    private int pendingEvents;
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean rotateRequested;
+    private long rotatedAt;
+    private boolean closed;
+    private IOException failure;
+
+    // Pola używane tylko przez wątek zapisujący
+    private Buffer spare = new Buffer();
+    private FileChannel channel;
+
+    /**
+     * Otwiera nowy segment dziennika zaczynający się od zdarzenia {@code nextLsn}
+     * i uruchamia wątek zapisujący.
+     *
+     * @param dir katalog dziennika
+     * @param nextLsn numer następnego zdarzenia (po odtworzeniu istniejących segmentów)
+     * @param fsync czy przed potwierdzeniem wykonywać fsync
+     * @param commitDelayMicros dodatkowe oczekiwanie na kolejne zdarzenia przed zapisem grupy
+     * @throws IOException jeśli nie udało się utworzyć segmentu
+     */
+    public EventLog(Path dir, long nextLsn, boolean fsync, long commitDelayMicros) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.commitDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, commitDelayMicros));
+        this.appendedLsn = nextLsn - 1;
+        this.durableLsn = nextLsn - 1;
+        this.channel = openSegment(nextLsn);
+        this.flusher = new Thread(this::flushLoop, "event-log-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Dopisuje zdarzenie do bufora dziennika. Zdarzenie nie jest jeszcze utrwalone.
+     *
+     * @param payload treść zdarzenia
+     * @return numer zdarzenia (LSN)
+     * @throws IllegalArgumentException jeśli zdarzenie jest za duże, by je odtworzyć
+     */
+    public long append(byte[] payload) {
+        if (payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Zdarzenie ma " + payload.length + " B, limit to " + MAX_PAYLOAD + " B");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int checksum = (int) crc.getValue();
+        lock.lock();
+        try {
+            if (failure != null) throw new RuntimeException("Błąd zapisu dziennika: " + failure.getMessage());
+            if (closed) throw new IllegalStateException("Dziennik jest zamknięty");
+            writeInt(pending, payload.length);
+            writeInt(pending, checksum);
+            pending.write(payload, 0, payload.length);
+            pendingEvents++;
+            hasData.signal();
+            return ++appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Czeka, aż zdarzenie o podanym numerze (i wszystkie wcześniejsze) zostanie utrwalone.
+     *
+     * @param lsn numer zdarzenia
+     */
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durableLsn < lsn) throw new RuntimeException("Błąd zapisu dziennika: " + failure.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return numer ostatniego dopisanego zdarzenia
+     */
+    public long lastLsn() {
+        lock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zamyka bieżący segment (po utrwaleniu wszystkich dopisanych zdarzeń) i rozpoczyna nowy.
+     * Wszystkie zdarzenia dopisane przed wywołaniem trafiają do starego segmentu.
+     *
+     * @return numer pierwszego zdarzenia nowego segmentu
+     */
+    public long rotate() {
+        lock.lock();
+        try {
+            rotateRequested = true;
+            hasData.signal();
+            while (rotateRequested && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (rotateRequested) throw new RuntimeException("Błąd zapisu dziennika: " + failure.getMessage());
+            return rotatedAt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Utrwala dopisane zdarzenia i zatrzymuje wątek zapisujący.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            hasData.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pętla wątku zapisującego: zabiera cały bufor, zapisuje go jednym wywołaniem i wykonuje fsync.
+     */
+    private void flushLoop() {
+        try {
+            while (true) {
+                Buffer batch;
+                int events;
+                long upTo;
+                boolean rotate;
+                lock.lock();
+                try {
+                    while (pendingEvents == 0 && !rotateRequested && !closed) {
+                        hasData.awaitUninterruptibly();
+                    }
+                    if (pendingEvents == 0 && !rotateRequested) break;
+                    if (commitDelayNanos > 0 && !rotateRequested && !closed) {
+                        // Krótkie oczekiwanie, by do grupy dołączyły zdarzenia z innych wątków
+                        hasData.awaitNanos(commitDelayNanos);
+                    }
+                    batch = pending;
+                    events = pendingEvents;
+                    pending = spare;
+                    pendingEvents = 0;
+                    upTo = appendedLsn;
+                    rotate = rotateRequested;
+                } finally {
+                    lock.unlock();
+                }
+
+                if (events > 0) {
+                    long start = System.nanoTime();
+                    ByteBuffer bytes = batch.view();
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    if (fsync) channel.force(false);
+                    FLUSH.record(start, events);
+                }
+                batch.reset();
+                spare = batch;
+                if (rotate) {
+                    channel.force(false);
+                    channel.close();
+                    channel = openSegment(upTo + 1);
+                }
+
+                lock.lock();
+                try {
+                    durableLsn = upTo;
+                    if (rotate) {
+                        rotatedAt = upTo + 1;
+                        rotateRequested = false;
+                    }
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            channel.force(false);
+            channel.close();
+        } catch (IOException | InterruptedException e) {
+            FLUSH.error();
+            System.err.println("Błąd zapisu dziennika: " + e.getMessage());
+            lock.lock();
+            try {
+                failure = e instanceof IOException ? (IOException) e : new IOException("przerwano zapis", e);
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Tworzy plik nowego segmentu.
+     */
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        Files.createDirectories(dir);
+        return FileChannel.open(dir.resolve(segmentName(firstLsn)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    /**
+     * @param firstLsn numer pierwszego zdarzenia segmentu
+     * @return nazwa pliku segmentu
+     */
+    static String segmentName(long firstLsn) {
+        return String.format("log-%020d.log", firstLsn);
+    }
+
+    /**
+     * Zwraca segmenty dziennika w katalogu, posortowane według numeru pierwszego zdarzenia.
+     *
+     * @param dir katalog dziennika
+     * @return pary {numer pierwszego zdarzenia, ścieżka}
+     * @throws IOException jeśli nie udało się odczytać katalogu
+     */
+    static List<Segment> segments(Path dir) throws IOException {
+        List<Segment> result = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return result;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(p -> {
+                String name = p.getFileName().toString();
+                if (name.startsWith("log-") && name.endsWith(".log")) {
+                    try {
+                        result.add(new Segment(Long.parseLong(name.substring(4, name.length() - 4)), p));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Pomijam nieznany plik dziennika: " + p);
+                    }
+                }
+            });
+        }
+        result.sort((a, b) -> Long.compare(a.firstLsn, b.firstLsn));
+        return result;
+    }
+
+    /**
+     * Segment dziennika na dysku.
+     */
+    static final class Segment {
+        final long firstLsn;
+        final Path path;
+
+        Segment(long firstLsn, Path path) {
+            this.firstLsn = firstLsn;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Odtwarza zdarzenia od numeru {@code fromLsn} ze wszystkich segmentów w katalogu.
+     * Uszkodzona lub niepełna ramka na końcu segmentu (przerwany zapis) jest obcinana;
+     * luka w numeracji między segmentami jest błędem.
+     *
+     * @param dir katalog dziennika
+     * @param fromLsn numer pierwszego zdarzenia do odtworzenia
+     * @param handler obsługa treści kolejnych zdarzeń
+     * @return numer następnego zdarzenia (ostatnie odtworzone + 1, albo fromLsn, jeśli nie było żadnego)
+     * @throws IOException jeśli nie udało się odczytać dziennika
+     */
+    public static long replay(Path dir, long fromLsn, Consumer<byte[]> handler) throws IOException {
+        List<Segment> all = segments(dir);
+        long next = -1;
+        for (int i = 0; i < all.size(); i++) {
+            Segment seg = all.get(i);
+            boolean last = i == all.size() - 1;
+            // Segment w całości przed fromLsn - pomijany bez czytania
+            if (!last && all.get(i + 1).firstLsn <= fromLsn) continue;
+            if (next == -1) {
+                if (seg.firstLsn > fromLsn) {
+                    throw new IOException("Brak zdarzeń " + fromLsn + ".." + (seg.firstLsn - 1) + " w dzienniku " + dir);
+                }
+                next = seg.firstLsn;
+            } else if (seg.firstLsn != next) {
+                throw new IOException("Luka w dzienniku: oczekiwano zdarzenia " + next + ", segment " + seg.path);
+            }
+            next = replaySegment(seg, next, fromLsn, handler);
+        }
+        return next == -1 ? fromLsn : Math.max(next, fromLsn);
+    }
+
+    /**
+     * Odtwarza jeden segment, obcinając uszkodzoną końcówkę.
+     *
+     * @return numer następnego zdarzenia
+     */
+    private static long replaySegment(Segment seg, long lsn, long fromLsn, Consumer<byte[]> handler) throws IOException {
+        long validBytes = 0;
+        long size = Files.size(seg.path);
+        CRC32 crc = new CRC32();
+        try (InputStream raw = Files.newInputStream(seg.path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 64 * 1024))) {
+            while (validBytes < size) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD || validBytes + FRAME_HEADER + length > size) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+                if (lsn >= fromLsn) handler.accept(payload);
+                lsn++;
+                validBytes += FRAME_HEADER + length;
+            }
+        }
+        if (validBytes < size) {
+            System.err.println("Dziennik " + seg.path + ": uszkodzona końcówka od bajtu " + validBytes
+                    + " (" + (size - validBytes) + " B) - obcinam");
+            try (FileChannel ch = FileChannel.open(seg.path, StandardOpenOption.WRITE)) {
+                ch.truncate(validBytes);
+                ch.force(false);
+            }
+        }
+        return lsn;
+    }
+}
@@ -0,0 +1,953 @@
+package library.repository.log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import library.config.LibraryConfig;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.model.Human;
+import library.model.Item;
+import library.model.Librarian;
+import library.model.User;
+import library.repository.ItemQuery;
+import library.repository.ItemRepository;
+import library.repository.LibrarianRepository;
+import library.repository.LoanResult;
+import library.repository.Storage;
+import library.repository.UpdateResult;
+import library.repository.UserRepository;
+import library.repository.memory.InMemoryItemRepository;
+import library.repository.memory.InMemoryStorage;
+
+/**
+ * Magazyn danych oparty na dzienniku zdarzeń (event sourcing).
+ * <p>
+ * Stan trzymany jest w pamięci ({@link InMemoryStorage}), więc odczyty nie dotykają dysku i nie
+ * biorą żadnej blokady. Każda skuteczna zmiana (zapis i usunięcie pozycji, wypożyczenie, zwrot,
+ * zmiany kont) jest najpierw stosowana do stanu, a następnie dopisywana do {@link EventLog};
+ * obie czynności wykonywane są pod jedną blokadą zapisu, więc kolejność zdarzeń w dzienniku
+ * odpowiada kolejności zmian. Potwierdzenie operacji następuje po utrwaleniu zdarzenia
+ * (wspólny fsync dla grupy równoczesnych zapisów).
+ * </p>
+ * <p>
+ * Transakcja ({@link #beginTransaction()}) korzysta z transakcji stanu w pamięci: ma wyłączność
+ * na zapis, a jej zdarzenia są odkładane w buforze wątku. Zatwierdzenie dopisuje je do dziennika
+ * jako jedno zdarzenie zbiorcze (jedna ramka z jedną sumą kontrolną), więc po awarii odtwarzana
+ * jest cała transakcja albo nic z niej; wycofanie porzuca je i cofa zmiany stanu, więc w dzienniku
+ * nie ma zdarzeń wycofanych transakcji.
+ * </p>
+ * <p>
+ * Zdarzenia opisują stan wynikowy klucza łącznie z jego wersją (np. "pozycja X wypożyczona
+ * przez Y, wersja 7"), więc po odtworzeniu wersje są takie same jak przed zamknięciem, a dzięki temu
+ * migawkę można zapisywać bez wstrzymywania zapisów: co {@link LibraryConfig#LOG_SNAPSHOT_EVERY}
+ * zdarzeń dziennik przechodzi do nowego segmentu, a w tle zapisywana jest migawka stanu.
+ * Przy starcie wczytywana jest najnowsza poprawna migawka i odtwarzane są zdarzenia od początku
+ * segmentu, w którym ją rozpoczęto. Zachowywane są dwie ostatnie migawki; starsze segmenty są usuwane.
+ * </p>
+ */
+public class LogStorage implements Storage {
+
+    /** Statystyki zapisu migawek (wiersze = liczba pozycji) */
+    private static final OperationStats SNAPSHOT = MetricsRegistry.operation("LogStorage", "snapshot");
+    /** Statystyki odtwarzania stanu przy starcie (wiersze = liczba odtworzonych zdarzeń) */
+    private static final OperationStats RECOVER = MetricsRegistry.operation("LogStorage", "recover");
+
+    private static final byte ITEM_PUT = 1;
+    private static final byte ITEM_DELETE = 2;
+    private static final byte ITEM_LOAN = 3;
+    private static final byte ACCOUNT_ADD = 4;
+    private static final byte ACCOUNT_EDIT = 5;
+    private static final byte ACCOUNT_SAVE = 6;
+    private static final byte ACCOUNT_REMOVE = 7;
+    private static final byte ITEM_UPDATE = 8;
+    private static final byte ITEM_LOANS = 9;
+    private static final byte TX_BATCH = 10;
+
+    /**
+     * Zapis treści zdarzenia.
+     */
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private final Path dir;
+    private final long snapshotEvery;
+    private final InMemoryStorage state = new InMemoryStorage();
+    private final EventLog log;
+
+    /** Blokada zapisu: zmiana stanu i dopisanie zdarzenia wykonywane są razem */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** Zdarzenia bieżącej transakcji wątku, dopisywane przy zatwierdzeniu (null - poza transakcją) */
+    private final ThreadLocal<List<byte[]>> transaction = new ThreadLocal<>();
+
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "log-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private volatile long lastSnapshotLsn;
+    private volatile long previousSnapshotLsn;
+
+    private final ItemRepository items = new Items();
+    private final UserRepository users = new Users();
+    private final LibrarianRepository librarians = new Librarians();
+
+    /**
+     * Otwiera magazyn w katalogu i z parametrami z konfiguracji
+     * ({@link LibraryConfig#LOG_DIR}, {@link LibraryConfig#LOG_SYNC},
+     * {@link LibraryConfig#LOG_COMMIT_DELAY_MICROS}, {@link LibraryConfig#LOG_SNAPSHOT_EVERY}).
+     */
+    public LogStorage() {
+        this(Paths.get(LibraryConfig.get(LibraryConfig.LOG_DIR)),
+                "FSYNC".equals(LibraryConfig.getKeyword(LibraryConfig.LOG_SYNC, "FSYNC", "WRITE")),
+                LibraryConfig.getLong(LibraryConfig.LOG_COMMIT_DELAY_MICROS),
+                LibraryConfig.getLong(LibraryConfig.LOG_SNAPSHOT_EVERY));
+    }
+
+    /**
+     * Otwiera magazyn: wczytuje najnowszą migawkę i odtwarza dziennik.
+     * Jeśli po odtworzeniu nie ma żadnego konta, zakładane jest konto {@code admin}.
+     *
+     * @param dir katalog dziennika i migawek (zostanie utworzony)
+     * @param fsync czy przed potwierdzeniem zmiany wykonywać fsync
+     * @param commitDelayMicros dodatkowe oczekiwanie na zapisy innych wątków przed wspólnym fsync
+     * @param snapshotEvery liczba zdarzeń, po której zapisywana jest nowa migawka
+     */
+    public LogStorage(Path dir, boolean fsync, long commitDelayMicros, long snapshotEvery) {
+        this.dir = dir;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+        long start = System.nanoTime();
+        long replayed;
+        try {
+            Files.createDirectories(dir);
+            state.librarians().removeLibrarian("admin");
+            long from = loadSnapshot();
+            long next = EventLog.replay(dir, from, this::apply);
+            replayed = next - from;
+            log = new EventLog(dir, next, fsync, commitDelayMicros);
+        } catch (IOException | UncheckedIOException e) {
+            RECOVER.error();
+            throw new RuntimeException("Błąd otwierania dziennika " + dir + ": " + e.getMessage());
+        }
+        RECOVER.record(start, replayed);
+        System.err.printf("Dziennik %s: %d pozycji, odtworzono %d zdarzeń w %d ms%n",
+                dir, state.items().count(), replayed, (System.nanoTime() - start) / 1_000_000);
+        if (state.users().countByRole("user") + state.users().countByRole("librarian") == 0) {
+            librarians.addLibrarian("admin", "Administrator", "admin", 0);
+            System.out.println("Dodano domyślnego użytkownika admin.");
+        }
+    }
+
+    @Override
+    public ItemRepository items() {
+        return items;
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public LibrarianRepository librarians() {
+        return librarians;
+    }
+
+    /**
+     * Rozpoczyna transakcję: zmiany innych wątków czekają na jej koniec, a zdarzenia
+     * są odkładane do zatwierdzenia.
+     */
+    @Override
+    public void beginTransaction() {
+        if (transaction.get() != null) return;
+        state.beginTransaction();
+        transaction.set(new ArrayList<>());
+    }
+
+    /**
+     * Dopisuje zdarzenia transakcji do dziennika jako jedno zdarzenie zbiorcze i czeka na jego utrwalenie.
+     * Jeśli zdarzenia nie da się dopisać, transakcja jest wycofywana.
+     */
+    @Override
+    public void commitTransaction() {
+        List<byte[]> events = transaction.get();
+        if (events == null) return;
+        long lsn = 0;
+        boolean written = false;
+        try {
+            if (!events.isEmpty()) {
+                byte[] payload = events.size() == 1 ? events.get(0) : batch(events);
+                lockWrite();
+                try {
+                    lsn = log.append(payload);
+                } finally {
+                    unlockWrite();
+                }
+            }
+            written = true;
+        } finally {
+            transaction.remove();
+            if (written) {
+                state.commitTransaction();
+            } else {
+                state.rollbackTransaction();
+            }
+        }
+        if (lsn > 0) {
+            maybeSnapshot(lsn);
+            log.awaitDurable(lsn);
+        }
+    }
+
+    /**
+     * Porzuca zdarzenia transakcji i przywraca stan sprzed jej rozpoczęcia.
+     */
+    @Override
+    public void rollbackTransaction() {
+        if (transaction.get() == null) return;
+        transaction.remove();
+        state.rollbackTransaction();
+    }
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    /**
+     * Zapisuje migawkę bieżącego stanu (w wątku wywołującym) i usuwa niepotrzebne segmenty.
+     *
+     * @throws IOException jeśli zapis migawki się nie powiódł
+     */
+    public void snapshot() throws IOException {
+        long start = System.nanoTime();
+        try {
+            long lsn;
+            List<Item> all;
+            List<SnapshotFile.Account> accounts = new ArrayList<>();
+            // blokada zmian wyklucza trwającą transakcję - migawka nie zawiera zmian, które mogą zostać wycofane
+            Lock changes = state.changeLock();
+            changes.lock();
+            try {
+                lsn = log.rotate();
+                all = state.items().getAll();
+                for (Librarian l : state.librarians().getAllLibrarians()) {
+                    accounts.add(new SnapshotFile.Account("librarian", l));
+                }
+                for (User u : state.users().getAllUsers()) {
+                    accounts.add(new SnapshotFile.Account("user", u));
+                }
+            } finally {
+                changes.unlock();
+            }
+            new SnapshotFile(lsn, all, accounts).write(dir);
+            if (lsn != lastSnapshotLsn) {
+                previousSnapshotLsn = lastSnapshotLsn;
+                lastSnapshotLsn = lsn;
+            }
+            removeObsolete(previousSnapshotLsn);
+            SNAPSHOT.record(start, all.size());
+        } catch (IOException | RuntimeException e) {
+            SNAPSHOT.error();
+            throw e;
+        }
+    }
+
+    /**
+     * Utrwala dziennik i zatrzymuje wątki magazynu.
+     */
+    public void close() {
+        snapshotter.shutdown();
+        log.close();
+    }
+
+    /**
+     * Uruchamia migawkę w tle, jeśli od poprzedniej dopisano dość zdarzeń.
+     */
+    private void maybeSnapshot(long lsn) {
+        if (lsn - lastSnapshotLsn < snapshotEvery || !snapshotRunning.compareAndSet(false, true)) return;
+        snapshotter.execute(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Błąd zapisu migawki: " + e.getMessage());
+            } finally {
+                snapshotRunning.set(false);
+            }
+        });
+    }
+
+    /**
+     * Usuwa migawki starsze niż {@code keepFrom} i segmenty dziennika sprzed niej.
+     */
+    private void removeObsolete(long keepFrom) throws IOException {
+        if (keepFrom <= 0) return;
+        for (long lsn : SnapshotFile.list(dir)) {
+            if (lsn < keepFrom) Files.deleteIfExists(dir.resolve(SnapshotFile.fileName(lsn)));
+        }
+        for (EventLog.Segment seg : EventLog.segments(dir)) {
+            if (seg.firstLsn < keepFrom) Files.deleteIfExists(seg.path);
+        }
+    }
+
+    /**
+     * Wczytuje najnowszą poprawną migawkę do stanu.
+     *
+     * @return numer zdarzenia, od którego należy odtwarzać dziennik
+     */
+    private long loadSnapshot() throws IOException {
+        List<Long> available = SnapshotFile.list(dir);
+        for (int i = 0; i < available.size(); i++) {
+            long lsn = available.get(i);
+            SnapshotFile snapshot;
+            try {
+                snapshot = SnapshotFile.read(dir.resolve(SnapshotFile.fileName(lsn)));
+            } catch (IOException e) {
+                System.err.println("Błąd odczytu migawki " + lsn + ": " + e.getMessage() + " - używam starszej");
+                continue;
+            }
+            for (Item item : snapshot.items) {
+                state.items().restore(item);
+            }
+            for (SnapshotFile.Account a : snapshot.accounts) {
+                state.users().restore(a.human, a.role);
+            }
+            lastSnapshotLsn = lsn;
+            previousSnapshotLsn = i + 1 < available.size() ? available.get(i + 1) : 0;
+            return lsn;
+        }
+        return 1;
+    }
+
+    /**
+     * Stosuje odtwarzane zdarzenie do stanu.
+     */
+    private void apply(byte[] payload) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        try {
+            byte type = in.readByte();
+            switch (type) {
+                case ITEM_PUT, ITEM_UPDATE -> state.items().restore(EventCodec.readItem(in));
+                case ITEM_LOANS -> {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        UUID uuid = EventCodec.readUuid(in);
+                        String loanedTo = EventCodec.readNullable(in);
+                        state.items().setLoan(uuid, loanedTo, in.readLong());
+                    }
+                }
+                case TX_BATCH -> {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] event = new byte[in.readInt()];
+                        in.readFully(event);
+                        apply(event);
+                    }
+                }
+                case ITEM_DELETE -> state.items().delete(EventCodec.readUuid(in));
+                case ITEM_LOAN -> {
+                    UUID uuid = EventCodec.readUuid(in);
+                    String loanedTo = EventCodec.readNullable(in);
+                    state.items().setLoan(uuid, loanedTo, in.readLong());
+                }
+                case ACCOUNT_ADD -> {
+                    String role = in.readUTF();
+                    Human human = EventCodec.readHuman(in, role);
+                    if (!loginTaken(human.getUsername())) state.users().restore(human, role);
+                }
+                case ACCOUNT_EDIT -> {
+                    String role = in.readUTF();
+                    Human human = EventCodec.readHuman(in, role);
+                    if (accountExists(role, human.getUsername())) state.users().restore(human, role);
+                }
+                case ACCOUNT_SAVE -> {
+                    String role = in.readUTF();
+                    state.users().restore(EventCodec.readHuman(in, role), role);
+                }
+                case ACCOUNT_REMOVE -> {
+                    String role = in.readUTF();
+                    removeAccount(role, in.readUTF());
+                }
+                default -> throw new IOException("nieznany typ zdarzenia " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Dopisuje zdarzenie do dziennika albo - w transakcji - do jej bufora.
+     * Wywoływane pod blokadą zapisu, po zmianie stanu.
+     *
+     * @return numer zdarzenia (0 w transakcji)
+     */
+    private long append(byte type, Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<byte[]> events = transaction.get();
+        if (events != null) {
+            events.add(bytes.toByteArray());
+            return 0;
+        }
+        long lsn = log.append(bytes.toByteArray());
+        maybeSnapshot(lsn);
+        return lsn;
+    }
+
+    /**
+     * Łączy zdarzenia transakcji w jedno zdarzenie zbiorcze (liczba zdarzeń, a dla każdego długość i treść).
+     */
+    private static byte[] batch(List<byte[]> events) {
+        int size = 5;
+        for (byte[] event : events) {
+            size += 4 + event.length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TX_BATCH);
+            out.writeInt(events.size());
+            for (byte[] event : events) {
+                out.writeInt(event.length);
+                out.write(event);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Czeka na utrwalenie zdarzenia (w transakcji czeka się dopiero przy zatwierdzeniu).
+     */
+    private void durable(long lsn) {
+        if (lsn > 0) log.awaitDurable(lsn);
+    }
+
+    /**
+     * Zajmuje blokadę zapisu. Najpierw blokada zmian stanu w pamięci - czeka na koniec transakcji
+     * innego wątku, więc zmiany i zdarzenia trafiają do dziennika w kolejności wykonania.
+     */
+    private void lockWrite() {
+        state.changeLock().lock();
+        writeLock.lock();
+    }
+
+    private void unlockWrite() {
+        writeLock.unlock();
+        state.changeLock().unlock();
+    }
+
+    private boolean loginTaken(String username) {
+        return state.users().findUser(username, "user").isPresent()
+                || state.users().findUser(username, "librarian").isPresent();
+    }
+
+    private boolean accountExists(String role, String username) {
+        return state.users().findUser(username, role).isPresent();
+    }
+
+    private void addAccount(String role, Human h) {
+        if ("librarian".equals(role)) {
+            state.librarians().addLibrarian(h.getUsername(), h.getFullName(), h.getPassword(), ((Librarian) h).getSalary());
+        } else {
+            state.users().addUser(h.getUsername(), h.getFullName(), h.getPassword());
+        }
+    }
+
+    private void editAccount(String role, Human h) {
+        if ("librarian".equals(role)) {
+            state.librarians().editLibrarian(h.getUsername(), h.getFullName(), h.getPassword(), ((Librarian) h).getSalary());
+        } else {
+            state.users().editUser(h.getUsername(), h.getFullName(), h.getPassword());
+        }
+    }
+
+    private void removeAccount(String role, String username) {
+        if ("librarian".equals(role)) {
+            state.librarians().removeLibrarian(username);
+        } else {
+            state.users().removeUser(username);
+        }
+    }
+
+    /**
+     * Dodaje konto, jeśli login jest wolny, i zapisuje zdarzenie.
+     *
+     * @return true, jeśli konto dodano
+     */
+    private boolean addLogged(String role, Human human) {
+        long lsn;
+        lockWrite();
+        try {
+            if (loginTaken(human.getUsername())) return false;
+            addAccount(role, human);
+            lsn = appendAccount(ACCOUNT_ADD, role, human.getUsername());
+        } finally {
+            unlockWrite();
+        }
+        durable(lsn);
+        return true;
+    }
+
+    private void editLogged(String role, Human human) {
+        long lsn;
+        lockWrite();
+        try {
+            if (!accountExists(role, human.getUsername())) return;
+            editAccount(role, human);
+            lsn = appendAccount(ACCOUNT_EDIT, role, human.getUsername());
+        } finally {
+            unlockWrite();
+        }
+        durable(lsn);
+    }
+
+    /**
+     * Zmienia konto, jeśli jego wersja jest równa oczekiwanej, i zapisuje zdarzenie.
+     *
+     * @param change zmiana porównująca wersję w stanie w pamięci
+     * @return wynik zmiany
+     */
+    private <T extends Human> UpdateResult<T> editVersioned(String role, Supplier<UpdateResult<T>> change) {
+        long lsn;
+        UpdateResult<T> result;
+        lockWrite();
+        try {
+            result = change.get();
+            if (!result.isUpdated()) return result;
+            Human stored = result.value;
+            lsn = append(ACCOUNT_EDIT, out -> {
+                out.writeUTF(role);
+                EventCodec.writeHuman(out, stored);
+            });
+        } finally {
+            unlockWrite();
+        }
+        durable(lsn);
+        return result;
+    }
+
+    /**
+     * Dopisuje zdarzenie z bieżącym stanem konta (łącznie z wersją). Wywoływane pod blokadą zapisu.
+     */
+    private long appendAccount(byte type, String role, String username) {
+        Human stored = state.users().findUser(username, role).orElseThrow();
+        return append(type, out -> {
+            out.writeUTF(role);
+            EventCodec.writeHuman(out, stored);
+        });
+    }
+
+    private void removeLogged(String role, String username) {
+        long lsn;
+        lockWrite();
+        try {
+            if (!accountExists(role, username)) return;
+            removeAccount(role, username);
+            lsn = append(ACCOUNT_REMOVE, out -> {
+                out.writeUTF(role);
+                out.writeUTF(username);
+            });
+        } finally {
+            unlockWrite();
+        }
+        durable(lsn);
+    }
+
+    /**
+     * Zmienia stan wypożyczenia pozycji i zapisuje zdarzenie, jeśli zmiana się powiodła.
+     *
+     * @param uuid UUID pozycji
+     * @param loanedTo nowy wypożyczający (wypożyczenie) lub null (zwrot)
+     * @param requiredBorrower przy zwrocie: wymagany dotychczasowy wypożyczający lub null
+     * @return true, jeśli zmiana się powiodła
+     */
+    private boolean loan(UUID uuid, String loanedTo, String requiredBorrower) {
+        long lsn;
+        lockWrite();
+        try {
+            InMemoryItemRepository memory = state.items();
+            boolean ok = loanedTo != null ? memory.borrow(uuid, loanedTo) : memory.giveBack(uuid, requiredBorrower);
+            if (!ok) return false;
+            long version = memory.getByUuid(uuid).orElseThrow().getVersion();
+            lsn = append(ITEM_LOAN, out -> {
+                EventCodec.writeUuid(out, uuid);
+                EventCodec.writeNullable(out, loanedTo);
+                out.writeLong(version);
+            });
+        } finally {
+            unlockWrite();
+        }
+        durable(lsn);
+        return true;
+    }
+
+    /**
+     * Wypożycza lub przyjmuje zwrot wszystkich pozycji albo żadnej. Warunki sprawdzane są pod blokadą
+     * zapisu, więc po pozytywnej weryfikacji wszystkie zmiany się powiodą; zapisywane są jednym
+     * zdarzeniem, które po awarii jest odtwarzane w całości albo wcale.
+     *
+     * @param uuids UUID pozycji
+     * @param username wypożyczający (wypożyczenie) albo wymagany wypożyczający lub null (zwrot)
+     * @param borrow true dla wypożyczenia, false dla zwrotu
+     * @return wynik operacji
+     */
+    private LoanResult loanAll(List<UUID> uuids, String username, boolean borrow) {
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(uuids));
+        if (ids.isEmpty()) return LoanResult.accepted();
+        long lsn;
+        lockWrite();
+        try {
+            InMemoryItemRepository memory = state.items();
+            List<UUID> rejected = new ArrayList<>();
+            for (UUID uuid : ids) {
+                Optional<Item> item = memory.getByUuid(uuid);
+                boolean ok = item.isPresent() && (borrow
+                        ? item.get().isAvailable()
+                        : !item.get().isAvailable() && (username == null || username.equals(item.get().getLoanedTo())));
+                if (!ok) rejected.add(uuid);
+            }
+            if (!rejected.isEmpty()) return LoanResult.rejected(rejected);
+            long[] versions = new long[ids.size()];
+            for (int i = 0; i < ids.size(); i++) {
+                UUID uuid = ids.get(i);
+                if (borrow) memory.borrow(uuid, username); else memory.giveBack(uuid, username);
+                versions[i] = memory.getByUuid(uuid).orElseThrow().getVersion();
+            }
+            String loanedTo = borrow ? username : null;
+            lsn = append(ITEM_LOANS, out -> {
+                out.writeInt(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    EventCodec.writeUuid(out, ids.get(i));
+                    EventCodec.writeNullable(out, loanedTo);
+                    out.writeLong(versions[i]);
+                }
+            });
+        } finally {
+            unlockWrite();
+        }
+        durable(lsn);
+        return LoanResult.accepted();
+    }
+
+    /**
+     * Repozytorium pozycji: odczyty ze stanu w pamięci, zmiany przez dziennik.
+     */
+    private final class Items implements ItemRepository {
+        @Override
+        public void save(Item item) {
+            long lsn;
+            lockWrite();
+            try {
+                lsn = saveLogged(item);
+            } finally {
+                unlockWrite();
+            }
+            durable(lsn);
+        }
+
+        @Override
+        public void saveAll(List<? extends Item> list) {
+            if (list.isEmpty()) return;
+            long lsn = 0;
+            lockWrite();
+            try {
+                for (Item item : list) {
+                    lsn = saveLogged(item);
+                }
+            } finally {
+                unlockWrite();
+            }
+            durable(lsn);
+        }
+
+        /**
+         * Zapisuje pozycję w stanie i dopisuje zdarzenie z jej nową wersją. Wywoływane pod blokadą zapisu.
+         */
+        private long saveLogged(Item item) {
+            state.items().save(item);
+            Item stored = state.items().getByUuid(item.getUuid()).orElseThrow();
+            return append(ITEM_PUT, out -> EventCodec.writeItem(out, stored));
+        }
+
+        @Override
+        public UpdateResult<Item> update(Item item) {
+            long lsn;
+            UpdateResult<Item> result;
+            lockWrite();
+            try {
+                result = state.items().update(item);
+                if (!result.isUpdated()) return result;
+                Item stored = result.value;
+                lsn = append(ITEM_UPDATE, out -> EventCodec.writeItem(out, stored));
+            } finally {
+                unlockWrite();
+            }
+            durable(lsn);
+            return result;
+        }
+
+        @Override
+        public List<Item> getAll() {
+            return state.items().getAll();
+        }
+
+        @Override
+        public long count() {
+            return state.items().count();
+        }
+
+        @Override
+        public long countLoaned() {
+            return state.items().countLoaned();
+        }
+
+        @Override
+        public List<Item> search(String text, int limit) {
+            return state.items().search(text, limit);
+        }
+
+        @Override
+        public List<Item> getPage(long offset, int limit) {
+            return state.items().getPage(offset, limit);
+        }
+
+        @Override
+        public List<Item> query(ItemQuery query) {
+            return state.items().query(query);
+        }
+
+        @Override
+        public Optional<Item> getByUuid(UUID uuid) {
+            return state.items().getByUuid(uuid);
+        }
+
+        @Override
+        public void delete(UUID uuid) {
+            long lsn;
+            lockWrite();
+            try {
+                if (state.items().getByUuid(uuid).isEmpty()) return;
+                state.items().delete(uuid);
+                lsn = append(ITEM_DELETE, out -> EventCodec.writeUuid(out, uuid));
+            } finally {
+                unlockWrite();
+            }
+            durable(lsn);
+        }
+
+        @Override
+        public boolean borrowItem(String uuidStr, String username) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(uuidStr);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Błąd wypożyczania: " + e.getMessage());
+                return false;
+            }
+            return loan(uuid, username, null);
+        }
+
+        @Override
+        public boolean returnItem(String uuidStr) {
+            return returnItemByUser(uuidStr, null);
+        }
+
+        @Override
+        public boolean returnItemByUser(String uuidStr, String username) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(uuidStr);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Błąd zwrotu: " + e.getMessage());
+                return false;
+            }
+            return loan(uuid, null, username);
+        }
+
+        @Override
+        public LoanResult borrowAll(List<UUID> uuids, String username) {
+            return loanAll(uuids, username, true);
+        }
+
+        @Override
+        public LoanResult returnAll(List<UUID> uuids, String username) {
+            return loanAll(uuids, username, false);
+        }
+
+        @Override
+        public List<Item> getUserLoans(String username) {
+            return state.items().getUserLoans(username);
+        }
+
+        @Override
+        public LoanBatch openLoanBatch() {
+            return new LoanBatch() {
+                @Override
+                public boolean borrow(UUID uuid, String username) {
+                    return loan(uuid, username, null);
+                }
+
+                @Override
+                public boolean returnItem(UUID uuid) {
+                    return loan(uuid, null, null);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    /**
+     * Repozytorium użytkowników: odczyty ze stanu w pamięci, zmiany przez dziennik.
+     */
+    private final class Users implements UserRepository {
+        @Override
+        public Optional<Human> findUser(String username, String role) {
+            return state.users().findUser(username, role);
+        }
+
+        @Override
+        public Optional<User> getByUsername(String username) {
+            return state.users().getByUsername(username);
+        }
+
+        @Override
+        public void saveUser(Human user, String role) {
+            long lsn;
+            lockWrite();
+            try {
+                state.users().saveUser(user, role);
+                lsn = appendAccount(ACCOUNT_SAVE, role, user.getUsername());
+            } finally {
+                unlockWrite();
+            }
+            durable(lsn);
+        }
+
+        @Override
+        public void addUser(String username, String fullname, String password) {
+            if (!addLogged("user", new User(fullname, username, password))) {
+                System.err.println("Błąd dodawania użytkownika: login " + username + " jest zajęty");
+            }
+        }
+
+        @Override
+        public List<String> addUsers(List<User> list) {
+            List<String> added = new ArrayList<>();
+            long lsn = 0;
+            lockWrite();
+            try {
+                for (User u : list) {
+                    if (loginTaken(u.getUsername())) continue;
+                    addAccount("user", u);
+                    lsn = appendAccount(ACCOUNT_ADD, "user", u.getUsername());
+                    added.add(u.getUsername());
+                }
+            } finally {
+                unlockWrite();
+            }
+            durable(lsn);
+            return added;
+        }
+
+        @Override
+        public void editUser(String username, String fullname, String password) {
+            editLogged("user", new User(fullname, username, password));
+        }
+
+        @Override
+        public UpdateResult<User> editUser(String username, String fullname, String password, long expectedVersion) {
+            return editVersioned("user", () -> state.users().editUser(username, fullname, password, expectedVersion));
+        }
+
+        @Override
+        public void removeUser(String username) {
+            removeLogged("user", username);
+        }
+
+        @Override
+        public List<User> getAllUsers() {
+            return state.users().getAllUsers();
+        }
+
+        @Override
+        public void forEachUser(Predicate<User> consumer) {
+            state.users().forEachUser(consumer);
+        }
+
+        @Override
+        public long countByRole(String role) {
+            return state.users().countByRole(role);
+        }
+    }
+
+    /**
+     * Repozytorium bibliotekarzy: odczyty ze stanu w pamięci, zmiany przez dziennik.
+     */
+    private final class Librarians implements LibrarianRepository {
+        @Override
+        public void addLibrarian(String username, String fullname, String password, int salary) {
+            if (!addLogged("librarian", new Librarian(fullname, username, password, salary))) {
+                System.err.println("Błąd dodawania bibliotekarza: login " + username + " jest zajęty");
+            }
+        }
+
+        @Override
+        public void editLibrarian(String username, String fullname, String password, int salary) {
+            editLogged("librarian", new Librarian(fullname, username, password, salary));
+        }
+
+        @Override
+        public UpdateResult<Librarian> editLibrarian(String username, String fullname, String password, int salary,
+                                                     long expectedVersion) {
+            return editVersioned("librarian",
+                    () -> state.librarians().editLibrarian(username, fullname, password, salary, expectedVersion));
+        }
+
+        @Override
+        public void removeLibrarian(String username) {
+            removeLogged("librarian", username);
+        }
+
+        @Override
+        public List<Librarian> getAllLibrarians() {
+            return state.librarians().getAllLibrarians();
+        }
+
+        @Override
+        public Optional<Librarian> getByUsername(String username) {
+            return state.librarians().getByUsername(username);
+        }
+    }
+}
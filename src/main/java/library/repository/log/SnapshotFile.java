@@ -0,0 +1,154 @@
+package library.repository.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import library.model.Human;
+import library.model.Item;
+
+/**
+ * Migawka stanu magazynu {@code log}: wszystkie pozycje (w kolejności wstawiania) i konta
+ * oraz numer zdarzenia, od którego należy odtwarzać dziennik. Plik kończy się sumą kontrolną
+ * CRC32 całej treści; migawka jest zapisywana do pliku tymczasowego i przenoszona atomowo.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x565A534E; // "VZSN"
+    private static final int VERSION = 2;
+
+    /**
+     * Konto z rolą.
+     */
+    static final class Account {
+        final String role;
+        final Human human;
+
+        Account(String role, Human human) {
+            this.role = role;
+            this.human = human;
+        }
+    }
+
+    /** Numer pierwszego zdarzenia dziennika, którego migawka może nie zawierać */
+    final long lsn;
+    final List<Item> items;
+    final List<Account> accounts;
+
+    SnapshotFile(long lsn, List<Item> items, List<Account> accounts) {
+        this.lsn = lsn;
+        this.items = items;
+        this.accounts = accounts;
+    }
+
+    static String fileName(long lsn) {
+        return String.format("snapshot-%020d.bin", lsn);
+    }
+
+    /**
+     * Zapisuje migawkę w katalogu dziennika (z fsync przed przeniesieniem na docelową nazwę).
+     *
+     * @param dir katalog dziennika
+     * @return ścieżka zapisanej migawki
+     * @throws IOException jeśli zapis się nie powiódł
+     */
+    Path write(Path dir) throws IOException {
+        Path target = dir.resolve(fileName(lsn));
+        Path tmp = dir.resolve(fileName(lsn) + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(fos, 256 * 1024);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            out.writeInt(items.size());
+            for (Item item : items) {
+                EventCodec.writeItem(out, item);
+            }
+            out.writeInt(accounts.size());
+            for (Account a : accounts) {
+                out.writeUTF(a.role);
+                EventCodec.writeHuman(out, a.human);
+            }
+            out.flush();
+            new DataOutputStream(buffered).writeLong(crc.getValue());
+            buffered.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * Wczytuje migawkę i sprawdza jej sumę kontrolną.
+     *
+     * @param file plik migawki
+     * @return migawka
+     * @throws IOException jeśli plik jest uszkodzony lub nie da się go odczytać
+     */
+    static SnapshotFile read(Path file) throws IOException {
+        try (InputStream raw = Files.newInputStream(file)) {
+            BufferedInputStream buffered = new BufferedInputStream(raw, 256 * 1024);
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(buffered, crc));
+            if (in.readInt() != MAGIC) throw new IOException("to nie jest plik migawki");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("nieobsługiwana wersja migawki " + version);
+            long lsn = in.readLong();
+            int itemCount = in.readInt();
+            List<Item> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(EventCodec.readItem(in));
+            }
+            int accountCount = in.readInt();
+            List<Account> accounts = new ArrayList<>(accountCount);
+            for (int i = 0; i < accountCount; i++) {
+                String role = in.readUTF();
+                accounts.add(new Account(role, EventCodec.readHuman(in, role)));
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(buffered).readLong() != expected) {
+                throw new IOException("niezgodna suma kontrolna");
+            }
+            return new SnapshotFile(lsn, items, accounts);
+        }
+    }
+
+    /**
+     * Zwraca numery zdarzeń istniejących migawek w katalogu, od najnowszej.
+     *
+     * @param dir katalog dziennika
+     * @return numery migawek
+     * @throws IOException jeśli nie udało się odczytać katalogu
+     */
+    static List<Long> list(Path dir) throws IOException {
+        List<Long> result = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return result;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                 .filter(n -> n.startsWith("snapshot-") && n.endsWith(".bin"))
+                 .forEach(n -> {
+                     try {
+                         result.add(Long.parseLong(n.substring(9, n.length() - 4)));
+                     } catch (NumberFormatException e) {
+                         System.err.println("Pomijam nieznany plik migawki: " + n);
+                     }
+                 });
+        }
+        result.sort((a, b) -> Long.compare(b, a));
+        return result;
+    }
+}
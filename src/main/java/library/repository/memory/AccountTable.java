@@ -0,0 +1,133 @@
+package library.repository.memory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import library.model.Human;
+import library.model.Librarian;
+import library.model.User;
+
+/**
+ * Wspólna tabela kont (użytkowników i bibliotekarzy) magazynu w pamięci,
+ * odpowiednik tabeli {@code users}: login jest unikalny dla wszystkich ról.
+ */
+final class AccountTable {
+
+    /**
+     * Konto z rolą i numerem kolejnym wstawienia.
+     */
+    static final class Account {
+        final Human human;
+        final String role;
+        final long seq;
+
+        Account(Human human, String role, long seq) {
+            this.human = human;
+            this.role = role;
+            this.seq = seq;
+        }
+    }
+
+    final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Transactions tx;
+
+    AccountTable(Transactions tx) {
+        this.tx = tx;
+    }
+
+    /**
+     * Wykonuje zmianę kont pod blokadą transakcji; w transakcji najpierw zapamiętuje
+     * do cofnięcia poprzedni stan podanych kont.
+     */
+    <T> T change(Supplier<T> action, String... usernames) {
+        return tx.change(() -> {
+            for (String username : usernames) remember(username);
+            return action.get();
+        });
+    }
+
+    /**
+     * Zapamiętuje w dzienniku transakcji wątku bieżący stan konta (także jego brak).
+     */
+    void remember(String username) {
+        if (!tx.active()) return;
+        Account before = accounts.get(username);
+        tx.record(() -> {
+            if (before == null) {
+                accounts.remove(username);
+            } else {
+                accounts.put(username, before);
+            }
+        });
+    }
+
+    /**
+     * Tworzy nowy wpis konta w wersji 0 (z kopią konta, bo obiekty modelu są modyfikowalne).
+     */
+    Account account(Human human, String role) {
+        return account(human, role, 0);
+    }
+
+    /**
+     * Tworzy nowy wpis konta w podanej wersji, na końcu kolejności wstawiania.
+     */
+    Account account(Human human, String role, long version) {
+        return new Account(copy(human, version), role, sequence.incrementAndGet());
+    }
+
+    /**
+     * Zwraca wpis z nowymi danymi konta w następnej wersji, zachowujący miejsce w kolejności.
+     */
+    static Account edited(Account a, Human human) {
+        return new Account(copy(human, a.human.getVersion() + 1), a.role, a.seq);
+    }
+
+    /**
+     * Zwraca kopie kont o podanej roli w kolejności wstawiania.
+     */
+    <T> List<T> list(String role, Function<Human, T> mapper) {
+        return accounts.values().stream()
+                .filter(a -> a.role.equals(role))
+                .sorted(Comparator.comparingLong(a -> a.seq))
+                .map(a -> mapper.apply(copy(a.human)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Przekazuje kopie kont o podanej roli (w dowolnej kolejności), bez budowania listy,
+     * dopóki odbiorca zwraca true.
+     */
+    <T> void forEach(String role, Function<Human, T> mapper, Predicate<? super T> consumer) {
+        for (Account a : accounts.values()) {
+            if (a.role.equals(role) && !consumer.test(mapper.apply(copy(a.human)))) return;
+        }
+    }
+
+    /**
+     * Zwraca dokładną kopię konta (łącznie z wersją).
+     */
+    static Human copy(Human human) {
+        return copy(human, human.getVersion());
+    }
+
+    /**
+     * Zwraca kopię konta z podaną wersją.
+     */
+    static Human copy(Human human, long version) {
+        Human copy;
+        if (human instanceof Librarian) {
+            Librarian l = (Librarian) human;
+            copy = new Librarian(l.getFullName(), l.getUsername(), l.getPassword(), l.getSalary());
+        } else {
+            copy = new User(human.getFullName(), human.getUsername(), human.getPassword());
+        }
+        copy.setVersion(version);
+        return copy;
+    }
+}
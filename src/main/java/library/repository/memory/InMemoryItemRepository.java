@@ -0,0 +1,510 @@
+package library.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import library.jfr.BorrowEvent;
+import library.jfr.ReturnEvent;
+import library.jfr.SearchEvent;
+import library.model.Book;
+import library.model.Item;
+import library.model.Magazine;
+import library.repository.ItemQuery;
+import library.repository.ItemRepository;
+import library.repository.LoanResult;
+import library.repository.UpdateResult;
+
+/**
+ * Repozytorium pozycji przechowywane w pamięci.
+ * <p>
+ * Pozycje trzymane są jako prywatne kopie w {@link ConcurrentHashMap}; każda zmiana pozycji
+ * (zapis, wypożyczenie, zwrot) wykonywana jest atomowo funkcją {@code compute} na jej kluczu,
+ * a odczyty zwracają kopie, więc modyfikacja zwróconego obiektu nie zmienia magazynu.
+ * Kolejność wstawiania (jak {@code rowid} w SQLite: ponowny zapis zachowuje miejsce pozycji)
+ * utrzymuje indeks {@link ConcurrentSkipListMap} numerów kolejnych.
+ * Operacje emitują te same zdarzenia JFR co {@link library.db.ItemDao}.
+ * Każda zmiana zwiększa wersję pozycji; {@link #update(Item)} porównuje ją wewnątrz {@code compute}.
+ * Zmiany wykonywane są pod blokadą transakcji magazynu ({@link Transactions}), a w transakcji
+ * poprzedni stan pozycji trafia do dziennika cofania.
+ * </p>
+ */
+public class InMemoryItemRepository implements ItemRepository {
+
+    /**
+     * Zapisana pozycja wraz z numerem kolejnym wstawienia.
+     */
+    private static final class Entry {
+        final long seq;
+        final Item item;
+
+        Entry(long seq, Item item) {
+            this.seq = seq;
+            this.item = item;
+        }
+    }
+
+    private final ConcurrentHashMap<UUID, Entry> items = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, UUID> order = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder loaned = new LongAdder();
+    private final Transactions tx;
+
+    /**
+     * Tworzy puste repozytorium z własną blokadą transakcji.
+     */
+    public InMemoryItemRepository() {
+        this(new Transactions());
+    }
+
+    InMemoryItemRepository(Transactions tx) {
+        this.tx = tx;
+    }
+
+    @Override
+    public void save(Item item) {
+        Item copy = copy(item);
+        change(copy.getUuid(), () -> items.compute(copy.getUuid(), (uuid, old) -> {
+            copy.setVersion(old == null ? 0 : old.item.getVersion() + 1);
+            return place(uuid, old, copy);
+        }));
+    }
+
+    /**
+     * Zapisuje pozycję dokładnie w podanym stanie, łącznie z wersją (odtwarzanie magazynu).
+     *
+     * @param item pozycja
+     */
+    public void restore(Item item) {
+        Item copy = copy(item);
+        change(copy.getUuid(), () -> items.compute(copy.getUuid(), (uuid, old) -> place(uuid, old, copy)));
+    }
+
+    /**
+     * Wykonuje zmianę pozycji pod blokadą transakcji; w transakcji najpierw zapamiętuje
+     * do cofnięcia jej poprzedni stan.
+     */
+    private <T> T change(UUID uuid, Supplier<T> action) {
+        return tx.change(() -> {
+            if (tx.active()) {
+                Entry before = items.get(uuid);
+                tx.record(() -> revert(uuid, before));
+            }
+            return action.get();
+        });
+    }
+
+    /**
+     * Przywraca wpis pozycji (lub jego brak) z dziennika cofania, razem z indeksem kolejności
+     * i licznikiem wypożyczeń.
+     */
+    private void revert(UUID uuid, Entry before) {
+        Entry current = before == null ? items.remove(uuid) : items.put(uuid, before);
+        if (current != null) {
+            if (!current.item.isAvailable()) loaned.decrement();
+            order.remove(current.seq);
+        }
+        if (before != null) {
+            if (!before.item.isAvailable()) loaned.increment();
+            order.put(before.seq, uuid);
+        }
+    }
+
+    /**
+     * Zastępuje wpis pozycji, aktualizując indeks kolejności i licznik wypożyczeń.
+     * Istniejąca pozycja zachowuje swoje miejsce w kolejności, nowa trafia na koniec.
+     * Wywoływana wewnątrz {@code compute} na kluczu pozycji.
+     */
+    private Entry place(UUID uuid, Entry old, Item item) {
+        if (old != null && !old.item.isAvailable()) loaned.decrement();
+        if (!item.isAvailable()) loaned.increment();
+        if (old != null) {
+            return new Entry(old.seq, item);
+        }
+        long seq = sequence.incrementAndGet();
+        order.put(seq, uuid);
+        return new Entry(seq, item);
+    }
+
+    @Override
+    public void saveAll(List<? extends Item> list) {
+        for (Item item : list) {
+            save(item);
+        }
+    }
+
+    @Override
+    public List<Item> getAll() {
+        return getPage(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long count() {
+        return items.size();
+    }
+
+    @Override
+    public long countLoaned() {
+        return loaned.sum();
+    }
+
+    @Override
+    public List<Item> search(String text, int limit) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        String needle = text.toLowerCase(Locale.ROOT);
+        List<Item> result = new ArrayList<>();
+        for (UUID uuid : order.values()) {
+            if (result.size() >= limit) break;
+            Entry e = items.get(uuid);
+            if (e == null) continue;
+            String author = e.item instanceof Book ? ((Book) e.item).getAuthor() : null;
+            if (contains(e.item.getTitle(), needle) || contains(author, needle)) {
+                result.add(copy(e.item));
+            }
+        }
+        event.emit(text, result.size(), true);
+        return result;
+    }
+
+    @Override
+    public List<Item> getPage(long offset, int limit) {
+        List<Item> result = new ArrayList<>(Math.min(limit, items.size()));
+        long skipped = 0;
+        for (UUID uuid : order.values()) {
+            if (result.size() >= limit) break;
+            Entry e = items.get(uuid);
+            if (e == null) continue;
+            if (skipped++ < offset) continue;
+            result.add(copy(e.item));
+        }
+        return result;
+    }
+
+    /**
+     * Zapytanie w kolejności wstawiania przechodzi indeks kolejności; zapytanie sortowane
+     * przegląda wszystkie pozycje, utrzymując kopiec najwyżej {@code offset + limit} najlepszych.
+     */
+    @Override
+    public List<Item> query(ItemQuery query) {
+        if (query.getLimit() == 0) return new ArrayList<>();
+        if (query.getSort() == ItemQuery.Sort.INSERTION) {
+            return queryInInsertionOrder(query);
+        }
+        Comparator<Item> cmp = query.comparator();
+        Item after = query.getAfter();
+        long keep = query.getOffset() + query.getLimit();
+        PriorityQueue<Item> top = new PriorityQueue<>(cmp.reversed());
+        for (Entry e : items.values()) {
+            if (!query.matches(e.item) || (after != null && cmp.compare(e.item, after) <= 0)) continue;
+            if (top.size() < keep) {
+                top.add(e.item);
+            } else if (cmp.compare(e.item, top.peek()) < 0) {
+                top.poll();
+                top.add(e.item);
+            }
+        }
+        List<Item> sorted = new ArrayList<>(top);
+        sorted.sort(cmp);
+        List<Item> result = new ArrayList<>();
+        for (int i = (int) Math.min(query.getOffset(), sorted.size()); i < sorted.size(); i++) {
+            result.add(copy(sorted.get(i)));
+        }
+        return result;
+    }
+
+    private List<Item> queryInInsertionOrder(ItemQuery query) {
+        NavigableMap<Long, UUID> range = order;
+        if (query.getAfter() != null) {
+            Entry last = items.get(query.getAfter().getUuid());
+            if (last == null) return new ArrayList<>();
+            range = query.isDescending() ? order.headMap(last.seq, false) : order.tailMap(last.seq, false);
+        }
+        if (query.isDescending()) range = range.descendingMap();
+        List<Item> result = new ArrayList<>();
+        long skipped = 0;
+        for (UUID uuid : range.values()) {
+            if (result.size() >= query.getLimit()) break;
+            Entry e = items.get(uuid);
+            if (e == null || !query.matches(e.item)) continue;
+            if (skipped++ < query.getOffset()) continue;
+            result.add(copy(e.item));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Item> getByUuid(UUID uuid) {
+        Entry e = items.get(uuid);
+        return e == null ? Optional.empty() : Optional.of(copy(e.item));
+    }
+
+    @Override
+    public UpdateResult<Item> update(Item item) {
+        Item copy = copy(item);
+        long expected = item.getVersion();
+        AtomicReference<UpdateResult<Item>> result = new AtomicReference<>(UpdateResult.notFound());
+        change(copy.getUuid(), () -> items.computeIfPresent(copy.getUuid(), (uuid, old) -> {
+            if (old.item.getVersion() != expected) {
+                result.set(UpdateResult.conflict(copy(old.item)));
+                return old;
+            }
+            copy.setVersion(expected + 1);
+            result.set(UpdateResult.updated(copy(copy)));
+            return place(uuid, old, copy);
+        }));
+        return result.get();
+    }
+
+    @Override
+    public void delete(UUID uuid) {
+        change(uuid, () -> items.computeIfPresent(uuid, (k, old) -> {
+            order.remove(old.seq);
+            if (!old.item.isAvailable()) loaned.decrement();
+            return null;
+        }));
+    }
+
+    @Override
+    public boolean borrowItem(String uuidStr, String username) {
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            success = borrow(UUID.fromString(uuidStr), username);
+            return success;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd wypożyczania: " + e.getMessage());
+            return false;
+        } finally {
+            event.emit(uuidStr, username, success);
+        }
+    }
+
+    @Override
+    public boolean returnItem(String uuidStr) {
+        return returnByUser(uuidStr, null);
+    }
+
+    @Override
+    public boolean returnItemByUser(String uuidStr, String username) {
+        return returnByUser(uuidStr, username);
+    }
+
+    /**
+     * Wypożycza wszystkie pozycje albo żadnej. Warunki sprawdzane są pod wyłączną blokadą zmian
+     * (jak w {@link library.repository.log.LogStorage}), więc po pozytywnej weryfikacji wszystkie
+     * wypożyczenia się powiodą, a zmiany innych wątków nie przeplotą się z operacją.
+     */
+    @Override
+    public LoanResult borrowAll(List<UUID> uuids, String username) {
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(uuids));
+        LoanResult result = tx.exclusive(() -> {
+            List<UUID> rejected = rejected(ids, e -> e.item.isAvailable());
+            if (!rejected.isEmpty()) return LoanResult.rejected(rejected);
+            for (UUID id : ids) borrow(id, username);
+            return LoanResult.accepted();
+        });
+        emitAll(ids, username, true, result.success);
+        return result;
+    }
+
+    /**
+     * Przyjmuje zwrot wszystkich pozycji albo żadnej; warunki sprawdzane są pod wyłączną blokadą
+     * zmian, jak w {@link #borrowAll(List, String)}.
+     */
+    @Override
+    public LoanResult returnAll(List<UUID> uuids, String username) {
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(uuids));
+        LoanResult result = tx.exclusive(() -> {
+            List<UUID> rejected = rejected(ids, e -> !e.item.isAvailable()
+                    && (username == null || username.equals(e.item.getLoanedTo())));
+            if (!rejected.isEmpty()) return LoanResult.rejected(rejected);
+            for (UUID id : ids) release(id, username);
+            return LoanResult.accepted();
+        });
+        emitAll(ids, username, false, result.success);
+        return result;
+    }
+
+    /**
+     * Wyznacza pozycje, które nie istnieją lub nie spełniają warunku operacji grupowej.
+     */
+    private List<UUID> rejected(List<UUID> ids, Predicate<Entry> allowed) {
+        List<UUID> result = new ArrayList<>();
+        for (UUID id : ids) {
+            Entry e = items.get(id);
+            if (e == null || !allowed.test(e)) result.add(id);
+        }
+        return result;
+    }
+
+    private static void emitAll(List<UUID> ids, String username, boolean borrow, boolean success) {
+        for (UUID id : ids) {
+            if (borrow) {
+                BorrowEvent event = new BorrowEvent();
+                event.begin();
+                event.emit(id.toString(), username, success);
+            } else {
+                ReturnEvent event = new ReturnEvent();
+                event.begin();
+                event.emit(id.toString(), username, success);
+            }
+        }
+    }
+
+    @Override
+    public List<Item> getUserLoans(String username) {
+        List<Item> result = new ArrayList<>();
+        for (UUID uuid : order.values()) {
+            Entry e = items.get(uuid);
+            if (e != null && username.equals(e.item.getLoanedTo())) {
+                result.add(copy(e.item));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public LoanBatch openLoanBatch() {
+        return new LoanBatch() {
+            @Override
+            public boolean borrow(UUID uuid, String username) {
+                return InMemoryItemRepository.this.borrow(uuid, username);
+            }
+
+            @Override
+            public boolean returnItem(UUID uuid) {
+                return giveBack(uuid, null);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Atomowo oznacza dostępną pozycję jako wypożyczoną (bez zdarzenia JFR).
+     *
+     * @param uuid UUID pozycji
+     * @param username login wypożyczającego
+     * @return true, jeśli wypożyczenie się powiodło
+     */
+    public boolean borrow(UUID uuid, String username) {
+        boolean[] done = {false};
+        change(uuid, () -> items.computeIfPresent(uuid, (k, e) -> {
+            if (!e.item.isAvailable()) return e;
+            done[0] = true;
+            loaned.increment();
+            return new Entry(e.seq, copy(e.item, false, username, e.item.getVersion() + 1));
+        }));
+        return done[0];
+    }
+
+    /**
+     * Zwrot z obsługą zdarzenia JFR i niepoprawnego UUID.
+     */
+    private boolean returnByUser(String uuidStr, String username) {
+        ReturnEvent event = new ReturnEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            success = giveBack(UUID.fromString(uuidStr), username);
+            return success;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd zwrotu: " + e.getMessage());
+            return false;
+        } finally {
+            event.emit(uuidStr, username, success);
+        }
+    }
+
+    /**
+     * Atomowo oznacza wypożyczoną pozycję jako dostępną (bez zdarzenia JFR).
+     *
+     * @param uuid UUID pozycji
+     * @param username wymagany wypożyczający lub null, jeśli dowolny
+     * @return true, jeśli zwrot się powiódł
+     */
+    public boolean giveBack(UUID uuid, String username) {
+        return release(uuid, username) != null;
+    }
+
+    /**
+     * Atomowo oznacza wypożyczoną pozycję jako dostępną.
+     *
+     * @return stan pozycji sprzed zwrotu lub null, jeśli zwrot się nie powiódł
+     */
+    private Item release(UUID uuid, String username) {
+        Item[] previous = {null};
+        change(uuid, () -> items.computeIfPresent(uuid, (k, e) -> {
+            if (e.item.isAvailable() || username != null && !username.equals(e.item.getLoanedTo())) return e;
+            previous[0] = e.item;
+            loaned.decrement();
+            return new Entry(e.seq, copy(e.item, true, null, e.item.getVersion() + 1));
+        }));
+        return previous[0];
+    }
+
+    /**
+     * Ustawia stan wypożyczenia i wersję istniejącej pozycji bez sprawdzania warunków
+     * (odtwarzanie magazynu ze zdarzeń).
+     *
+     * @param uuid UUID pozycji
+     * @param loanedTo wypożyczający lub null, jeśli pozycja jest dostępna
+     * @param version wersja pozycji po zmianie
+     */
+    public void setLoan(UUID uuid, String loanedTo, long version) {
+        change(uuid, () -> items.computeIfPresent(uuid,
+                (k, e) -> place(k, e, copy(e.item, loanedTo == null, loanedTo, version))));
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    /**
+     * @param item pozycja (Book lub Magazine)
+     * @return dokładna kopia pozycji (łącznie z wersją)
+     */
+    static Item copy(Item item) {
+        return copy(item, item.isAvailable(), item.getLoanedTo(), item.getVersion());
+    }
+
+    /**
+     * Tworzy kopię pozycji z podanym stanem wypożyczenia i wersją.
+     *
+     * @param item pozycja (Book lub Magazine)
+     * @param available czy pozycja jest dostępna
+     * @param loanedTo wypożyczający lub null
+     * @param version wersja kopii
+     * @return nowa pozycja
+     */
+    static Item copy(Item item, boolean available, String loanedTo, long version) {
+        Item copy;
+        if (item instanceof Book) {
+            Book b = (Book) item;
+            copy = new Book(b.getUuid(), b.getTitle(), b.getYear(), b.getAuthor(), b.getGenre(), available, loanedTo);
+        } else if (item instanceof Magazine) {
+            Magazine m = (Magazine) item;
+            copy = new Magazine(m.getUuid(), m.getTitle(), m.getYear(), m.getIssueNumber(), available, loanedTo);
+        } else {
+            throw new IllegalArgumentException("Nieznany typ pozycji: " + item.getClass().getName());
+        }
+        copy.setVersion(version);
+        return copy;
+    }
+}
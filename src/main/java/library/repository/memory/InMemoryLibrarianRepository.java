@@ -0,0 +1,70 @@
+package library.repository.memory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import library.model.Librarian;
+import library.repository.LibrarianRepository;
+import library.repository.UpdateResult;
+
+/**
+ * Repozytorium bibliotekarzy przechowywane w pamięci (wspólna tabela kont z użytkownikami).
+ */
+public class InMemoryLibrarianRepository implements LibrarianRepository {
+
+    private final AccountTable table;
+
+    InMemoryLibrarianRepository(AccountTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public void addLibrarian(String username, String fullname, String password, int salary) {
+        if (table.change(() -> table.accounts.putIfAbsent(username,
+                table.account(new Librarian(fullname, username, password, salary), "librarian")), username) != null) {
+            System.err.println("Błąd dodawania bibliotekarza: login " + username + " jest zajęty");
+        }
+    }
+
+    @Override
+    public void editLibrarian(String username, String fullname, String password, int salary) {
+        table.change(() -> table.accounts.computeIfPresent(username, (k, a) -> a.role.equals("librarian")
+                ? AccountTable.edited(a, new Librarian(fullname, username, password, salary))
+                : a), username);
+    }
+
+    @Override
+    public UpdateResult<Librarian> editLibrarian(String username, String fullname, String password, int salary,
+                                                 long expectedVersion) {
+        AtomicReference<UpdateResult<Librarian>> result = new AtomicReference<>(UpdateResult.notFound());
+        table.change(() -> table.accounts.computeIfPresent(username, (k, a) -> {
+            if (!a.role.equals("librarian")) return a;
+            if (a.human.getVersion() != expectedVersion) {
+                result.set(UpdateResult.conflict((Librarian) AccountTable.copy(a.human)));
+                return a;
+            }
+            AccountTable.Account next = AccountTable.edited(a, new Librarian(fullname, username, password, salary));
+            result.set(UpdateResult.updated((Librarian) AccountTable.copy(next.human)));
+            return next;
+        }), username);
+        return result.get();
+    }
+
+    @Override
+    public void removeLibrarian(String username) {
+        table.change(() -> table.accounts.computeIfPresent(username, (k, a) -> a.role.equals("librarian") ? null : a),
+                username);
+    }
+
+    @Override
+    public List<Librarian> getAllLibrarians() {
+        return table.list("librarian", h -> (Librarian) h);
+    }
+
+    @Override
+    public Optional<Librarian> getByUsername(String username) {
+        AccountTable.Account a = table.accounts.get(username);
+        if (a == null || !a.role.equals("librarian")) return Optional.empty();
+        return Optional.of((Librarian) AccountTable.copy(a.human));
+    }
+}
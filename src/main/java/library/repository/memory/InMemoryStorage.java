@@ -0,0 +1,79 @@
+package library.repository.memory;
+
+import java.util.concurrent.locks.Lock;
+import library.repository.LibrarianRepository;
+import library.repository.Storage;
+
+/**
+ * Magazyn danych w pamięci procesu, bez zapisu na dysk (testy, benchmarki, pokazy).
+ * <p>
+ * Wszystkie repozytoria są bezpieczne wątkowo, a pojedyncze operacje atomowe.
+ * Transakcja ({@link #beginTransaction()}) ma wyłączność na zapis do zatwierdzenia lub wycofania;
+ * {@link #rollbackTransaction()} przywraca stan sprzed transakcji z dziennika cofania wątku
+ * ({@link Transactions}). Zmiany innych wątków czekają na koniec transakcji, odczyty nie.
+ * Jak w bazie SQLite, przy tworzeniu magazynu zakładane jest konto {@code admin}.
+ * </p>
+ */
+public class InMemoryStorage implements Storage {
+
+    private final Transactions tx = new Transactions();
+    private final InMemoryItemRepository items = new InMemoryItemRepository(tx);
+    private final InMemoryUserRepository users;
+    private final InMemoryLibrarianRepository librarians;
+
+    /**
+     * Tworzy pusty magazyn z domyślnym kontem bibliotekarza admin.
+     */
+    public InMemoryStorage() {
+        AccountTable table = new AccountTable(tx);
+        users = new InMemoryUserRepository(table);
+        librarians = new InMemoryLibrarianRepository(table);
+        librarians.addLibrarian("admin", "Administrator", "admin", 0);
+    }
+
+    @Override
+    public InMemoryItemRepository items() {
+        return items;
+    }
+
+    @Override
+    public InMemoryUserRepository users() {
+        return users;
+    }
+
+    @Override
+    public LibrarianRepository librarians() {
+        return librarians;
+    }
+
+    @Override
+    public void beginTransaction() {
+        tx.begin();
+    }
+
+    @Override
+    public void commitTransaction() {
+        tx.commit();
+    }
+
+    @Override
+    public void rollbackTransaction() {
+        tx.rollback();
+    }
+
+    /**
+     * Blokada współdzielona zmian: zajęta, gdy inny wątek jest w transakcji, czeka na jej koniec.
+     * Pozwala magazynom opartym na tym stanie połączyć zmianę z własnym zapisem, nie przeplatając
+     * go z cudzą transakcją.
+     *
+     * @return blokada współdzielona zmian
+     */
+    public Lock changeLock() {
+        return tx.shared();
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+}
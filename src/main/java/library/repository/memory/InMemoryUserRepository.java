@@ -0,0 +1,135 @@
+package library.repository.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import library.model.Human;
+import library.model.Librarian;
+import library.model.User;
+import library.repository.UpdateResult;
+import library.repository.UserRepository;
+
+/**
+ * Repozytorium użytkowników przechowywane w pamięci (wspólna tabela kont z bibliotekarzami).
+ */
+public class InMemoryUserRepository implements UserRepository {
+
+    private final AccountTable table;
+
+    InMemoryUserRepository(AccountTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public Optional<Human> findUser(String username, String role) {
+        AccountTable.Account a = table.accounts.get(username);
+        if (a == null || !a.role.equals(role)) return Optional.empty();
+        return Optional.of(AccountTable.copy(a.human));
+    }
+
+    @Override
+    public Optional<User> getByUsername(String username) {
+        return findUser(username, "user").map(h -> (User) h);
+    }
+
+    @Override
+    public void saveUser(Human user, String role) {
+        Human stored = asRole(user, role);
+        table.change(() -> table.accounts.compute(user.getUsername(), (k, old) -> old == null
+                ? table.account(stored, role, 0)
+                : new AccountTable.Account(AccountTable.copy(stored, old.human.getVersion() + 1), role, old.seq)),
+                user.getUsername());
+    }
+
+    /**
+     * Zapisuje konto dokładnie w podanym stanie, łącznie z wersją (odtwarzanie magazynu).
+     * Istniejące konto zachowuje swoje miejsce w kolejności.
+     *
+     * @param user konto
+     * @param role rola ("user" lub "librarian")
+     */
+    public void restore(Human user, String role) {
+        Human stored = asRole(user, role);
+        long version = user.getVersion();
+        table.change(() -> table.accounts.compute(user.getUsername(), (k, old) -> old != null
+                ? new AccountTable.Account(AccountTable.copy(stored, version), role, old.seq)
+                : table.account(stored, role, version)), user.getUsername());
+    }
+
+    private static Human asRole(Human user, String role) {
+        if ("librarian".equals(role) && !(user instanceof Librarian)) {
+            return new Librarian(user.getFullName(), user.getUsername(), user.getPassword(), 0);
+        } else if (!"librarian".equals(role) && !(user instanceof User)) {
+            return new User(user.getFullName(), user.getUsername(), user.getPassword());
+        }
+        return user;
+    }
+
+    @Override
+    public void addUser(String username, String fullname, String password) {
+        if (table.change(() -> table.accounts.putIfAbsent(username,
+                table.account(new User(fullname, username, password), "user")), username) != null) {
+            System.err.println("Błąd dodawania użytkownika: login " + username + " jest zajęty");
+        }
+    }
+
+    @Override
+    public List<String> addUsers(List<User> users) {
+        return table.change(() -> {
+            List<String> added = new ArrayList<>();
+            for (User u : users) {
+                table.remember(u.getUsername());
+                if (table.accounts.putIfAbsent(u.getUsername(), table.account(u, "user")) == null) {
+                    added.add(u.getUsername());
+                }
+            }
+            return added;
+        });
+    }
+
+    @Override
+    public void editUser(String username, String fullname, String password) {
+        table.change(() -> table.accounts.computeIfPresent(username, (k, a) -> a.role.equals("user")
+                ? AccountTable.edited(a, new User(fullname, username, password))
+                : a), username);
+    }
+
+    @Override
+    public UpdateResult<User> editUser(String username, String fullname, String password, long expectedVersion) {
+        AtomicReference<UpdateResult<User>> result = new AtomicReference<>(UpdateResult.notFound());
+        table.change(() -> table.accounts.computeIfPresent(username, (k, a) -> {
+            if (!a.role.equals("user")) return a;
+            if (a.human.getVersion() != expectedVersion) {
+                result.set(UpdateResult.conflict((User) AccountTable.copy(a.human)));
+                return a;
+            }
+            AccountTable.Account next = AccountTable.edited(a, new User(fullname, username, password));
+            result.set(UpdateResult.updated((User) AccountTable.copy(next.human)));
+            return next;
+        }), username);
+        return result.get();
+    }
+
+    @Override
+    public void removeUser(String username) {
+        table.change(() -> table.accounts.computeIfPresent(username, (k, a) -> a.role.equals("user") ? null : a),
+                username);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return table.list("user", h -> (User) h);
+    }
+
+    @Override
+    public void forEachUser(Predicate<User> consumer) {
+        table.forEach("user", h -> (User) h, consumer);
+    }
+
+    @Override
+    public long countByRole(String role) {
+        return table.accounts.values().stream().filter(a -> a.role.equals(role)).count();
+    }
+}
@@ -0,0 +1,125 @@
+package library.repository.memory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Transakcje magazynu w pamięci: blokada zapisu i dziennik cofania wątku.
+ * <p>
+ * Zmiany poza transakcją zajmują blokadę współdzieloną ({@link #change(Supplier)}), więc
+ * wykonują się równolegle (każda jest atomowa na swoim kluczu). Transakcja zajmuje blokadę
+ * wyłączną od {@link #begin()} do {@link #commit()} lub {@link #rollback()} - jak jedyny
+ * zapisujący w SQLite. Przed każdą zmianą w transakcji repozytorium zapisuje w dzienniku
+ * wątku operację przywracającą poprzedni stan klucza; wycofanie wykonuje je w odwrotnej
+ * kolejności. Odczyty nie czekają na blokadę i widzą zmiany trwającej transakcji.
+ * </p>
+ */
+final class Transactions {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Deque<Runnable>> undo = new ThreadLocal<>();
+
+    /**
+     * Rozpoczyna transakcję wątku (w trwającej transakcji nic nie robi).
+     */
+    void begin() {
+        if (undo.get() != null) return;
+        lock.writeLock().lock();
+        undo.set(new ArrayDeque<>());
+    }
+
+    /**
+     * Zatwierdza transakcję wątku: zmiany zostają, dziennik cofania jest porzucany.
+     */
+    void commit() {
+        if (undo.get() == null) return;
+        undo.remove();
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * Wycofuje transakcję wątku, przywracając stan sprzed {@link #begin()}.
+     */
+    void rollback() {
+        Deque<Runnable> journal = undo.get();
+        if (journal == null) return;
+        try {
+            while (!journal.isEmpty()) {
+                journal.pop().run();
+            }
+        } finally {
+            undo.remove();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true, jeśli bieżący wątek jest w transakcji
+     */
+    boolean active() {
+        return undo.get() != null;
+    }
+
+    /**
+     * Dopisuje do dziennika transakcji wątku operację cofającą zmianę (poza transakcją nic nie robi).
+     *
+     * @param action przywrócenie stanu sprzed zmiany
+     */
+    void record(Runnable action) {
+        Deque<Runnable> journal = undo.get();
+        if (journal != null) journal.push(action);
+    }
+
+    /**
+     * @return blokada współdzielona zmian (poza transakcją)
+     */
+    Lock shared() {
+        return lock.readLock();
+    }
+
+    /**
+     * Wykonuje zmianę pod blokadą współdzieloną - czeka na zakończenie transakcji innego wątku.
+     *
+     * @param action zmiana
+     * @return wynik zmiany
+     */
+    <T> T change(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wykonuje zmianę pod blokadą wyłączną: żadna inna zmiana nie wykona się w jej trakcie
+     * (w transakcji wątek ma już tę blokadę).
+     *
+     * @param action zmiana
+     * @return wynik zmiany
+     */
+    <T> T exclusive(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Wykonuje zmianę bez wyniku pod blokadą współdzieloną.
+     *
+     * @param action zmiana
+     */
+    void change(Runnable action) {
+        change(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,215 @@
+package library.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.model.Book;
+import library.model.Item;
+import library.repository.Storage;
+
+/**
+ * Podpowiedzi (dopełnianie prefiksu) tytułów, autorów i loginów użytkowników.
+ * <p>
+ * Indeks trzyma w pamięci trzy drzewa {@link RadixTree} z kluczami w małych literach,
+ * więc wielkość liter wpisanego prefiksu nie ma znaczenia. Budowany jest raz przy starcie
+ * ({@link IndexedStorage#open(Storage)}), a potem aktualizowany przy zapisach przez {@link IndexedStorage}.
+ * Odczyty biorą blokadę współdzieloną, zmiany - wyłączną.
+ * </p>
+ */
+public class AutocompleteIndex {
+
+    private static final OperationStats COMPLETE_ITEMS = MetricsRegistry.operation("Autocomplete", "completeItems");
+    private static final OperationStats COMPLETE_USERS = MetricsRegistry.operation("Autocomplete", "completeUsernames");
+
+    /**
+     * Podpowiadana pozycja: UUID oraz tekst, po którym ją znaleziono.
+     */
+    public static final class ItemRef {
+        public final UUID uuid;
+        public final String title;
+        public final String author;
+
+        ItemRef(UUID uuid, String title, String author) {
+            this.uuid = uuid;
+            this.title = title;
+            this.author = author;
+        }
+
+        @Override
+        public String toString() {
+            return title + (author != null ? " – " + author : "") + " (" + uuid + ")";
+        }
+    }
+
+    private final RadixTree<ItemRef> titles = new RadixTree<>();
+    private final RadixTree<ItemRef> authors = new RadixTree<>();
+    private final RadixTree<String> usernames = new RadixTree<>();
+    private final Map<UUID, ItemRef> refs = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Dodaje pozycję lub aktualizuje jej tytuł i autora.
+     *
+     * @param item pozycja
+     */
+    public void putItem(Item item) {
+        String author = item instanceof Book ? ((Book) item).getAuthor() : null;
+        ItemRef ref = new ItemRef(item.getUuid(), item.getTitle(), author);
+        lock.writeLock().lock();
+        try {
+            unindex(refs.put(ref.uuid, ref));
+            if (!isBlank(ref.title)) titles.add(key(ref.title), ref);
+            if (!isBlank(ref.author)) authors.add(key(ref.author), ref);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param uuid UUID usuniętej pozycji
+     */
+    public void removeItem(UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            unindex(refs.remove(uuid));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(ItemRef old) {
+        if (old == null) return;
+        if (!isBlank(old.title)) titles.remove(key(old.title), old);
+        if (!isBlank(old.author)) authors.remove(key(old.author), old);
+    }
+
+    /**
+     * @param username login dodanego użytkownika
+     */
+    public void putUsername(String username) {
+        if (isBlank(username)) return;
+        lock.writeLock().lock();
+        try {
+            usernames.add(key(username), username);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param username login usuniętego użytkownika
+     */
+    public void removeUsername(String username) {
+        if (isBlank(username)) return;
+        lock.writeLock().lock();
+        try {
+            usernames.remove(key(username), username);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Podpowiada pozycje, których tytuł, a następnie autor zaczyna się od prefiksu.
+     *
+     * @param prefix wpisany początek tytułu lub autora
+     * @param limit maksymalna liczba podpowiedzi
+     * @return pozycje (bez powtórzeń), najpierw dopasowane po tytule
+     */
+    public List<ItemRef> completeItems(String prefix, int limit) {
+        long start = System.nanoTime();
+        Map<UUID, ItemRef> result = new LinkedHashMap<>();
+        String key = key(prefix);
+        lock.readLock().lock();
+        try {
+            for (ItemRef ref : titles.valuesWithPrefix(key, limit)) {
+                result.put(ref.uuid, ref);
+            }
+            if (result.size() < limit) {
+                for (ItemRef ref : authors.valuesWithPrefix(key, limit)) {
+                    if (result.size() >= limit) break;
+                    result.putIfAbsent(ref.uuid, ref);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+            COMPLETE_ITEMS.record(start, result.size());
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Podpowiada autorów zaczynających się od prefiksu.
+     *
+     * @param prefix wpisany początek nazwiska lub imienia autora
+     * @param limit maksymalna liczba podpowiedzi
+     * @return autorzy (w małych literach), w porządku alfabetycznym
+     */
+    public List<String> completeAuthors(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return authors.keysWithPrefix(key(prefix), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Podpowiada loginy użytkowników zaczynające się od prefiksu.
+     *
+     * @param prefix wpisany początek loginu
+     * @param limit maksymalna liczba podpowiedzi
+     * @return loginy w oryginalnej pisowni, w porządku alfabetycznym
+     */
+    public List<String> completeUsernames(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<String> result = List.of();
+        lock.readLock().lock();
+        try {
+            result = usernames.valuesWithPrefix(key(prefix), limit);
+        } finally {
+            lock.readLock().unlock();
+            COMPLETE_USERS.record(start, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * @return liczba pozycji w indeksie
+     */
+    public int itemCount() {
+        lock.readLock().lock();
+        try {
+            return refs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return liczba loginów w indeksie
+     */
+    public int usernameCount() {
+        lock.readLock().lock();
+        try {
+            return usernames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String key(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+}
@@ -0,0 +1,318 @@
+package library.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.model.Item;
+import library.repository.ItemQuery;
+import library.repository.Storage;
+
+/**
+ * Model „czytelnicy, którzy wypożyczyli tę pozycję, wypożyczyli też…”.
+ * <p>
+ * Dla każdej pary pozycji model liczy użytkowników, którzy wypożyczyli obie (wśród ostatnich
+ * {@code history} wypożyczeń użytkownika), a dla każdej pozycji trzyma gotową listę co najwyżej
+ * {@code k} najczęściej współwypożyczanych sąsiadów. Odczyt ({@link #neighbors(UUID)}) zwraca tę listę
+ * bez blokad i bez przeliczania, więc kosztuje O(k).
+ * </p>
+ * <p>
+ * Każde wypożyczenie ({@link #recordLoan(String, UUID)}) zwiększa liczniki par z pozostałymi pozycjami
+ * z historii użytkownika i poprawia listy sąsiadów obu pozycji - liczniki tylko rosną, więc lista
+ * pozostaje dokładna. Pełna przebudowa ({@link #rebuild(Map)}) przelicza liczniki od nowa równolegle
+ * (osobno dla każdej pozycji) i usuwa z list pary, które wypadły z historii użytkowników lub dotyczą
+ * usuniętych pozycji.
+ * </p>
+ */
+public class CoBorrowModel {
+
+    private static final OperationStats NEIGHBORS = MetricsRegistry.operation("CoBorrow", "neighbors");
+    private static final OperationStats REBUILD = MetricsRegistry.operation("CoBorrow", "rebuild");
+
+    /** Liczba pozycji czytanych jedną stroną przy zbieraniu bieżących wypożyczeń */
+    private static final int LOANS_PAGE = 10_000;
+
+    /** Najczęściej z tych pozycji wypożyczana pozycja najpierw, przy remisie - mniejszy UUID */
+    private static final Comparator<Neighbor> ORDER =
+            Comparator.comparingInt((Neighbor n) -> n.count).reversed().thenComparing(n -> n.uuid);
+
+    /**
+     * Współwypożyczana pozycja i liczba użytkowników, którzy wypożyczyli obie pozycje.
+     */
+    public static final class Neighbor {
+        public final UUID uuid;
+        public final int count;
+
+        Neighbor(UUID uuid, int count) {
+            this.uuid = uuid;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return uuid + " (" + count + ")";
+        }
+    }
+
+    private final int k;
+    private final int history;
+
+    /** Listy sąsiadów - tablice niezmienne, podmieniane w całości; czytane bez blokady */
+    private volatile Map<UUID, Neighbor[]> top = new ConcurrentHashMap<>();
+    /** Liczniki par (rzadka macierz), chronione monitorem modelu */
+    private Map<UUID, Map<UUID, Integer>> counts = new HashMap<>();
+    /** Ostatnie wypożyczenia użytkowników, chronione monitorem modelu */
+    private final Map<String, ArrayDeque<UUID>> baskets = new HashMap<>();
+
+    /** Zmiany zarejestrowane w trakcie przebudowy, powtarzane po jej zakończeniu */
+    private List<UUID[]> pendingPairs;
+    private Set<UUID> pendingRemovals;
+
+    /**
+     * @param k liczba sąsiadów pamiętanych dla każdej pozycji
+     * @param history liczba ostatnich wypożyczeń użytkownika branych pod uwagę
+     */
+    public CoBorrowModel(int k, int history) {
+        if (k < 1 || history < 2) {
+            throw new IllegalArgumentException("Niepoprawne parametry modelu: k=" + k + ", history=" + history);
+        }
+        this.k = k;
+        this.history = history;
+    }
+
+    /**
+     * Zbiera bieżące wypożyczenia magazynu (pozycje niedostępne, czytane stronami po indeksie),
+     * pogrupowane według wypożyczającego.
+     *
+     * @param storage magazyn danych
+     * @return login -> wypożyczone pozycje
+     */
+    public static Map<String, List<UUID>> currentLoans(Storage storage) {
+        Map<String, List<UUID>> loans = new HashMap<>();
+        ItemQuery query = new ItemQuery().available(false).limit(LOANS_PAGE);
+        while (true) {
+            List<Item> page = storage.items().query(query);
+            for (Item item : page) {
+                if (item.getLoanedTo() != null) {
+                    loans.computeIfAbsent(item.getLoanedTo(), u -> new ArrayList<>()).add(item.getUuid());
+                }
+            }
+            if (page.size() < LOANS_PAGE) break;
+            query.after(page.get(page.size() - 1));
+        }
+        return loans;
+    }
+
+    /**
+     * Rejestruje wypożyczenie: zwiększa liczniki par z ostatnimi wypożyczeniami użytkownika.
+     * Ponowne wypożyczenie pozycji z historii użytkownika niczego nie zmienia.
+     *
+     * @param username login wypożyczającego
+     * @param item UUID wypożyczonej pozycji
+     */
+    public synchronized void recordLoan(String username, UUID item) {
+        ArrayDeque<UUID> basket = baskets.computeIfAbsent(username, u -> new ArrayDeque<>());
+        if (basket.contains(item)) return;
+        for (UUID other : basket) {
+            increment(item, other);
+            increment(other, item);
+            if (pendingPairs != null) pendingPairs.add(new UUID[] {item, other});
+        }
+        basket.addLast(item);
+        if (basket.size() > history) basket.removeFirst();
+    }
+
+    /**
+     * Usuwa pozycję z modelu. Pozycja może jeszcze występować na listach sąsiadów innych pozycji
+     * (do najbliższej przebudowy) - wywołujący pomija pozycje, których nie ma już w magazynie.
+     *
+     * @param item UUID usuniętej pozycji
+     */
+    public synchronized void removeItem(UUID item) {
+        counts.remove(item);
+        top.remove(item);
+        for (ArrayDeque<UUID> basket : baskets.values()) {
+            basket.remove(item);
+        }
+        if (pendingRemovals != null) pendingRemovals.add(item);
+    }
+
+    /**
+     * @param item UUID pozycji
+     * @return najczęściej współwypożyczane pozycje, od najczęstszej (co najwyżej k)
+     */
+    public List<Neighbor> neighbors(UUID item) {
+        long start = System.nanoTime();
+        Neighbor[] list = top.get(item);
+        NEIGHBORS.record(start, list == null ? 0 : list.length);
+        return list == null ? List.of() : Arrays.asList(list);
+    }
+
+    /**
+     * Łączy listy sąsiadów kilku pozycji (np. wypożyczeń użytkownika) - koszt O(liczba pozycji * k).
+     *
+     * @param items pozycje, dla których szukane są rekomendacje
+     * @param limit maksymalna liczba rekomendacji
+     * @return sąsiedzi spoza {@code items}, od największej sumy liczników
+     */
+    public List<Neighbor> recommend(Collection<UUID> items, int limit) {
+        Map<UUID, Integer> sum = new LinkedHashMap<>();
+        for (UUID item : items) {
+            for (Neighbor n : neighbors(item)) {
+                if (!items.contains(n.uuid)) sum.merge(n.uuid, n.count, Integer::sum);
+            }
+        }
+        List<Neighbor> result = new ArrayList<>(sum.size());
+        sum.forEach((uuid, count) -> result.add(new Neighbor(uuid, count)));
+        result.sort(ORDER);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Pełna przebudowa: dopisuje podane wypożyczenia do historii użytkowników, a następnie przelicza
+     * liczniki wszystkich par i listy sąsiadów równolegle, poza monitorem modelu - odczyty i nowe
+     * wypożyczenia nie czekają. Wypożyczenia i usunięcia zarejestrowane w trakcie przelicza
+     * się ponownie po podmianie wyników.
+     *
+     * @param loans wypożyczenia do uwzględnienia (login -> pozycje), np. {@link #currentLoans(Storage)}
+     * @return liczba pozycji, dla których wyznaczono sąsiadów
+     */
+    public int rebuild(Map<String, List<UUID>> loans) {
+        long start = System.nanoTime();
+        List<UUID[]> snapshot = new ArrayList<>();
+        synchronized (this) {
+            if (pendingPairs != null) throw new IllegalStateException("Przebudowa modelu już trwa");
+            loans.forEach((username, items) -> {
+                ArrayDeque<UUID> basket = baskets.computeIfAbsent(username, u -> new ArrayDeque<>());
+                for (UUID item : items) {
+                    if (basket.contains(item)) continue;
+                    basket.addLast(item);
+                    if (basket.size() > history) basket.removeFirst();
+                }
+            });
+            for (ArrayDeque<UUID> basket : baskets.values()) {
+                if (basket.size() > 1) snapshot.add(basket.toArray(new UUID[0]));
+            }
+            pendingPairs = new ArrayList<>();
+            pendingRemovals = new HashSet<>();
+        }
+
+        Map<UUID, Map<UUID, Integer>> newCounts = new ConcurrentHashMap<>();
+        Map<UUID, Neighbor[]> newTop = new ConcurrentHashMap<>();
+        try {
+            // pozycja -> historie, w których występuje; każda pozycja przeliczana niezależnie
+            Map<UUID, List<UUID[]>> byItem = new HashMap<>();
+            for (UUID[] basket : snapshot) {
+                for (UUID item : basket) {
+                    byItem.computeIfAbsent(item, i -> new ArrayList<>()).add(basket);
+                }
+            }
+            byItem.entrySet().parallelStream().forEach(e -> {
+                Map<UUID, Integer> row = new HashMap<>();
+                for (UUID[] basket : e.getValue()) {
+                    for (UUID other : basket) {
+                        if (!other.equals(e.getKey())) row.merge(other, 1, Integer::sum);
+                    }
+                }
+                newCounts.put(e.getKey(), row);
+                newTop.put(e.getKey(), topOf(row));
+            });
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                pendingPairs = null;
+                pendingRemovals = null;
+            }
+            REBUILD.error();
+            throw e;
+        }
+
+        synchronized (this) {
+            counts = new HashMap<>(newCounts);
+            top = newTop;
+            for (UUID removed : pendingRemovals) {
+                counts.remove(removed);
+                top.remove(removed);
+            }
+            for (UUID[] pair : pendingPairs) {
+                if (pendingRemovals.contains(pair[0]) || pendingRemovals.contains(pair[1])) continue;
+                increment(pair[0], pair[1]);
+                increment(pair[1], pair[0]);
+            }
+            pendingPairs = null;
+            pendingRemovals = null;
+            REBUILD.record(start, top.size());
+            return top.size();
+        }
+    }
+
+    /**
+     * @return liczba pozycji mających co najmniej jednego sąsiada
+     */
+    public int itemCount() {
+        return top.size();
+    }
+
+    /**
+     * @return liczba użytkowników z zapamiętaną historią wypożyczeń
+     */
+    public synchronized int userCount() {
+        return baskets.size();
+    }
+
+    /** Zwiększa licznik pary (a, b) i poprawia listę sąsiadów pozycji a */
+    private void increment(UUID a, UUID b) {
+        int count = counts.computeIfAbsent(a, i -> new HashMap<>()).merge(b, 1, Integer::sum);
+        Neighbor[] list = top.get(a);
+        Neighbor[] updated = withCount(list == null ? new Neighbor[0] : list, new Neighbor(b, count));
+        if (updated != list) top.put(a, updated);
+    }
+
+    /**
+     * Wstawia sąsiada z nowym (większym) licznikiem do uporządkowanej listy co najwyżej k sąsiadów.
+     * Zwraca tę samą tablicę, jeśli sąsiad nadal się na niej nie mieści.
+     */
+    private Neighbor[] withCount(Neighbor[] list, Neighbor neighbor) {
+        int existing = -1;
+        for (int i = 0; i < list.length; i++) {
+            if (list[i].uuid.equals(neighbor.uuid)) {
+                existing = i;
+                break;
+            }
+        }
+        if (existing < 0 && list.length == k && ORDER.compare(neighbor, list[k - 1]) > 0) return list;
+        int size = existing >= 0 || list.length == k ? list.length : list.length + 1;
+        Neighbor[] result = new Neighbor[size];
+        int out = 0;
+        boolean placed = false;
+        for (Neighbor n : list) {
+            if (n.uuid.equals(neighbor.uuid)) continue;
+            if (!placed && ORDER.compare(neighbor, n) < 0) {
+                result[out++] = neighbor;
+                placed = true;
+            }
+            if (out == size) break;
+            result[out++] = n;
+        }
+        if (!placed && out < size) result[out] = neighbor;
+        return result;
+    }
+
+    /** Wybiera k największych liczników wiersza macierzy */
+    private Neighbor[] topOf(Map<UUID, Integer> row) {
+        List<Neighbor> all = new ArrayList<>(row.size());
+        row.forEach((uuid, count) -> all.add(new Neighbor(uuid, count)));
+        all.sort(ORDER);
+        return all.subList(0, Math.min(k, all.size())).toArray(new Neighbor[0]);
+    }
+}
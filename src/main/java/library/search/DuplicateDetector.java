@@ -0,0 +1,366 @@
+package library.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import library.config.LibraryConfig;
+import library.model.Book;
+import library.model.Item;
+import library.repository.ItemQuery;
+import library.repository.Storage;
+
+/**
+ * Wykrywanie prawie-duplikatów pozycji podczas importu katalogu (ta sama książka pod innym UUID,
+ * z nieco inną pisownią tytułu lub autora).
+ * <p>
+ * Każda pozycja opisana jest kluczem ujednoliconym (tytuł i autor po {@link TrigramIndex#fold(String)}
+ * oraz rok) i sygnaturą MinHash zbioru trigramów tytułu z autorem. Sygnatura dzielona jest na
+ * {@value #BANDS} pasm po {@value #ROWS} wartości (LSH): kandydatami są tylko pozycje z tego samego roku,
+ * które mają identyczne co najmniej jedno pasmo albo identyczny klucz ujednolicony. Sprawdzenie
+ * pozycji kosztuje więc tyle, ile jej kandydatów, a nie tyle, ile pozycji w katalogu - import
+ * pozostaje strumieniowy. Kandydaci weryfikowani są dokładnym podobieństwem Jaccarda trigramów
+ * (pozycja czytana z magazynu); różne liczby w tytule (np. numer tomu) wykluczają duplikat.
+ * </p>
+ * <p>
+ * Przy podobieństwie 0,8 pozycja trafia do kandydatów z prawdopodobieństwem ok. 98%, przy 0,6 - ok. 67%.
+ * Klasa nie jest bezpieczna wątkowo - jeden detektor obsługuje jeden import.
+ * </p>
+ */
+public class DuplicateDetector {
+
+    /**
+     * Postępowanie z wykrytym duplikatem.
+     */
+    public enum Policy {
+        /** Bez wykrywania duplikatów */
+        OFF,
+        /** Duplikat jest importowany i zgłaszany */
+        FLAG,
+        /** Duplikat nie jest importowany - zastępuje go istniejąca pozycja */
+        MERGE;
+
+        /**
+         * @return postępowanie ustawione w {@link LibraryConfig#IMPORT_DEDUPE}
+         */
+        public static Policy fromConfig() {
+            return valueOf(LibraryConfig.getKeyword(LibraryConfig.IMPORT_DEDUPE, "OFF", "FLAG", "MERGE")
+                    .toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Znaleziony duplikat: istniejąca pozycja i jej podobieństwo do sprawdzanej.
+     */
+    public static final class Match {
+        public final UUID uuid;
+        public final String title;
+        public final double similarity;
+
+        Match(UUID uuid, String title, double similarity) {
+            this.uuid = uuid;
+            this.title = title;
+            this.similarity = similarity;
+        }
+
+        @Override
+        public String toString() {
+            return title + " (" + uuid + String.format(Locale.ROOT, ", podobieństwo %.2f)", similarity);
+        }
+    }
+
+    /** Domyślne najmniejsze podobieństwo Jaccarda trigramów, przy którym pozycje uznaje się za duplikaty */
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    static final int BANDS = 8;
+    static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    /** Pasma LSH i klucz ujednolicony */
+    private static final int SLOTS = BANDS + 1;
+    /** Najwięcej kandydatów sprawdzanych w jednym koszyku (najnowsi najpierw) */
+    private static final int MAX_CHAIN = 64;
+    /**
+     * Margines oszacowania podobieństwa z sygnatury (ok. dwa odchylenia standardowe przy 32 wartościach):
+     * kandydaci oszacowani poniżej progu minus margines nie są czytani z magazynu
+     */
+    private static final double ESTIMATE_MARGIN = 0.15;
+    /** Liczba pozycji czytanych jedną stroną przy budowaniu detektora */
+    private static final int BUILD_PAGE = 10_000;
+
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final Storage storage;
+    private final double threshold;
+
+    /**
+     * Dane pozycji numerowanych kolejno: UUID, rok, skrót liczb w tytule, sygnatura (młodsze 16 bitów
+     * wartości) i klucz ujednolicony
+     */
+    private long[] msb = new long[1024];
+    private long[] lsb = new long[1024];
+    private int[] years = new int[1024];
+    private int[] numbers = new int[1024];
+    private short[] signatures = new short[1024 * HASHES];
+    private long[] keys = new long[1024];
+    private int docs;
+
+    /** Koszyki: wpis = pozycja * SLOTS + pasmo; heads - pierwszy wpis koszyka, next - następny */
+    private int[] heads = new int[4096];
+    private int[] next = new int[1024 * SLOTS];
+
+    /**
+     * @param storage magazyn, z którego czytani są kandydaci do weryfikacji
+     * @param threshold najmniejsze podobieństwo duplikatu (0..1]
+     */
+    public DuplicateDetector(Storage storage, double threshold) {
+        this.storage = storage;
+        this.threshold = threshold;
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * Tworzy detektor zawierający wszystkie pozycje magazynu (czytane stronami po indeksie).
+     *
+     * @param storage magazyn danych
+     * @param threshold najmniejsze podobieństwo duplikatu (0..1]
+     * @return detektor
+     */
+    public static DuplicateDetector build(Storage storage, double threshold) {
+        DuplicateDetector detector = new DuplicateDetector(storage, threshold);
+        ItemQuery query = new ItemQuery().limit(BUILD_PAGE);
+        while (true) {
+            List<Item> page = storage.items().query(query);
+            for (Item item : page) {
+                detector.add(item.getUuid(), item.getTitle(), authorOf(item), item.getYear());
+            }
+            if (page.size() < BUILD_PAGE) break;
+            query.after(page.get(page.size() - 1));
+        }
+        return detector;
+    }
+
+    /**
+     * Szuka w detektorze pozycji najbardziej podobnej do podanej.
+     *
+     * @param title tytuł
+     * @param author autor (może być null)
+     * @param year rok wydania
+     * @return najbardziej podobna pozycja o podobieństwie co najmniej progowym (z tego samego roku)
+     */
+    public Optional<Match> find(String title, String author, int year) {
+        String text = text(title, author);
+        long[] grams = TrigramIndex.trigrams(text);
+        short[] signature = signature(grams);
+        long key = key(text, year);
+        int numbersHash = numbers(text).hashCode();
+        int[] seen = new int[SLOTS * MAX_CHAIN];
+        int seenCount = 0;
+        Match best = null;
+        for (int band = 0; band < SLOTS; band++) {
+            long hash = band < BANDS ? bandHash(signature, 0, band, year) : key;
+            int checked = 0;
+            for (int e = heads[slot(hash, band)]; e >= 0 && checked < MAX_CHAIN; e = next[e]) {
+                if (e % SLOTS != band) continue;
+                int doc = e / SLOTS;
+                boolean same = band < BANDS
+                        ? years[doc] == year && sameBand(signatures, doc * HASHES, signature, 0, band)
+                        : keys[doc] == key;
+                if (!same || contains(seen, seenCount, doc)) continue;
+                checked++;
+                seen[seenCount++] = doc;
+                if (numbers[doc] != numbersHash) continue;
+                if (band < BANDS && estimate(doc, signature) < threshold - ESTIMATE_MARGIN) continue;
+                Match match = verify(doc, text, grams, year);
+                if (match != null && (best == null || match.similarity > best.similarity)) best = match;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Dodaje pozycję do detektora (np. po imporcie), aby kolejne wiersze mogły ją znaleźć.
+     *
+     * @param uuid UUID pozycji
+     * @param title tytuł
+     * @param author autor (może być null)
+     * @param year rok wydania
+     */
+    public void add(UUID uuid, String title, String author, int year) {
+        String text = text(title, author);
+        short[] signature = signature(TrigramIndex.trigrams(text));
+        if (docs == msb.length) grow();
+        if ((docs + 1) * SLOTS > heads.length) rehash(heads.length * 2);
+        int doc = docs++;
+        msb[doc] = uuid.getMostSignificantBits();
+        lsb[doc] = uuid.getLeastSignificantBits();
+        years[doc] = year;
+        numbers[doc] = numbers(text).hashCode();
+        keys[doc] = key(text, year);
+        System.arraycopy(signature, 0, signatures, doc * HASHES, HASHES);
+        for (int band = 0; band < SLOTS; band++) {
+            link(doc * SLOTS + band, band < BANDS ? bandHash(signature, 0, band, year) : keys[doc]);
+        }
+    }
+
+    /**
+     * @return liczba pozycji w detektorze
+     */
+    public int size() {
+        return docs;
+    }
+
+    /** Dokładne podobieństwo kandydata odczytanego z magazynu lub null poniżej progu */
+    private Match verify(int doc, String text, long[] grams, int year) {
+        Optional<Item> item = storage.items().getByUuid(new UUID(msb[doc], lsb[doc]));
+        if (item.isEmpty() || item.get().getYear() != year) return null;
+        String otherText = text(item.get().getTitle(), authorOf(item.get()));
+        if (!numbers(text).equals(numbers(otherText))) return null;
+        double similarity = jaccard(grams, TrigramIndex.trigrams(otherText));
+        return similarity >= threshold ? new Match(item.get().getUuid(), item.get().getTitle(), similarity) : null;
+    }
+
+    /** Podobieństwo oszacowane z sygnatur: odsetek zgodnych wartości MinHash */
+    private double estimate(int doc, short[] signature) {
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (signatures[doc * HASHES + i] == signature[i]) equal++;
+        }
+        return (double) equal / HASHES;
+    }
+
+    private void link(int entry, long hash) {
+        int slot = slot(hash, entry % SLOTS);
+        next[entry] = heads[slot];
+        heads[slot] = entry;
+    }
+
+    private int slot(long hash, int band) {
+        return (int) mix(hash + band) & (heads.length - 1);
+    }
+
+    private void grow() {
+        int capacity = msb.length * 2;
+        msb = Arrays.copyOf(msb, capacity);
+        lsb = Arrays.copyOf(lsb, capacity);
+        years = Arrays.copyOf(years, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        signatures = Arrays.copyOf(signatures, capacity * HASHES);
+        next = Arrays.copyOf(next, capacity * SLOTS);
+    }
+
+    private void rehash(int size) {
+        heads = new int[size];
+        Arrays.fill(heads, -1);
+        for (int entry = 0; entry < docs * SLOTS; entry++) {
+            int doc = entry / SLOTS, band = entry % SLOTS;
+            link(entry, band < BANDS ? bandHash(signatures, doc * HASHES, band, years[doc]) : keys[doc]);
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private static boolean sameBand(short[] a, int aOffset, short[] b, int bOffset, int band) {
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) return false;
+        }
+        return true;
+    }
+
+    private static long bandHash(short[] signature, int offset, int band, int year) {
+        long hash = year;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = hash * 0x100000001B3L + signature[offset + i];
+        }
+        return hash;
+    }
+
+    /**
+     * Sygnatura MinHash: dla każdej funkcji skrótu najmniejszy skrót trigramu (starsze 16 bitów).
+     * Trigram mieszany jest raz, a kolejne funkcje to permutacje (xor z ziarnem i mnożenie przez liczbę nieparzystą).
+     */
+    static short[] signature(long[] grams) {
+        short[] signature = new short[HASHES];
+        if (grams.length == 0) return signature;
+        long[] min = new long[HASHES];
+        Arrays.fill(min, Long.MAX_VALUE);
+        for (long g : grams) {
+            long h = mix(g);
+            for (int i = 0; i < HASHES; i++) {
+                long v = ((h ^ SEEDS[i]) * 0x9E3779B97F4A7C15L) >>> 1;
+                if (v < min[i]) min[i] = v;
+            }
+        }
+        for (int i = 0; i < HASHES; i++) {
+            signature[i] = (short) (min[i] >>> 47);
+        }
+        return signature;
+    }
+
+    /** Podobieństwo Jaccarda posortowanych, niepowtarzających się trigramów */
+    static double jaccard(long[] a, long[] b) {
+        if (a.length == 0 && b.length == 0) return 1.0;
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    private static long key(String text, int year) {
+        long hash = 0xCBF29CE484222325L ^ year;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Liczby występujące w tekście (numer tomu, części, wydania) - pozycje różniące się nimi
+     * nie są duplikatami, choć ich trigramy są prawie takie same.
+     */
+    static String numbers(String folded) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : folded.split(" ")) {
+            if (!word.isEmpty() && Character.isDigit(word.charAt(0))) sb.append(word).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static String text(String title, String author) {
+        return TrigramIndex.fold((title == null ? "" : title) + " " + (author == null ? "" : author));
+    }
+
+    private static String authorOf(Item item) {
+        return item instanceof Book ? ((Book) item).getAuthor() : null;
+    }
+
+    /** Mieszanie bitów (finalizator SplitMix64) */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,365 @@
+package library.search;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import library.config.LibraryConfig;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.model.Human;
+import library.model.Item;
+import library.model.User;
+import library.repository.ItemQuery;
+import library.repository.ItemRepository;
+import library.repository.LibrarianRepository;
+import library.repository.LoanResult;
+import library.repository.Storage;
+import library.repository.UpdateResult;
+import library.repository.UserRepository;
+
+/**
+ * Magazyn danych z indeksami wyszukiwania: deleguje wszystkie operacje do magazynu bazowego
+ * i po każdym zapisie zmieniającym tytuł, autora lub zbiór użytkowników aktualizuje
+ * {@link AutocompleteIndex} oraz {@link TrigramIndex}. Udane wypożyczenia trafiają do modelu
+ * rekomendacji {@link CoBorrowModel}.
+ * <p>
+ * Wycofanie transakcji nie cofa zmian w indeksie - podpowiedź może więc wskazać pozycję,
+ * której nie zapisano; wybrana podpowiedź jest zawsze odczytywana z magazynu bazowego.
+ * </p>
+ */
+public class IndexedStorage implements Storage {
+
+    private final Storage delegate;
+    private final AutocompleteIndex index;
+    private final TrigramIndex trigrams;
+    private final CoBorrowModel recommendations;
+    private final ItemRepository items;
+    private final UserRepository users;
+
+    /** Liczba pozycji czytanych jedną stroną przy budowaniu indeksów */
+    private static final int BUILD_PAGE = 10_000;
+
+    /** Statystyki budowy indeksów przy otwarciu (wiersze = liczba zaindeksowanych pozycji) */
+    private static final OperationStats OPEN = MetricsRegistry.operation("IndexedStorage", "open");
+
+    /**
+     * @param delegate magazyn bazowy
+     * @param index indeks podpowiedzi zbudowany z magazynu bazowego
+     * @param trigrams indeks trigramów zbudowany z magazynu bazowego
+     * @param recommendations model współwypożyczeń zbudowany z wypożyczeń magazynu bazowego
+     */
+    public IndexedStorage(Storage delegate, AutocompleteIndex index, TrigramIndex trigrams,
+                          CoBorrowModel recommendations) {
+        this.delegate = delegate;
+        this.index = index;
+        this.trigrams = trigrams;
+        this.recommendations = recommendations;
+        this.items = new Items(delegate.items());
+        this.users = new Users(delegate.users());
+    }
+
+    /**
+     * Buduje indeksy jednym przejściem po magazynie bazowym (pozycje czytane stronami od ostatniej
+     * pozycji poprzedniej strony) i model rekomendacji z bieżących wypożyczeń. Czas budowy i liczba
+     * zaindeksowanych pozycji trafiają do metryk ({@code IndexedStorage.open}).
+     *
+     * @param delegate magazyn bazowy
+     * @return magazyn z indeksami wyszukiwania
+     */
+    public static IndexedStorage open(Storage delegate) {
+        long start = System.nanoTime();
+        AutocompleteIndex index = new AutocompleteIndex();
+        TrigramIndex trigrams = new TrigramIndex();
+        ItemQuery query = new ItemQuery().limit(BUILD_PAGE);
+        while (true) {
+            List<Item> page = delegate.items().query(query);
+            for (Item item : page) {
+                index.putItem(item);
+                trigrams.putItem(item);
+            }
+            if (page.size() < BUILD_PAGE) break;
+            query.after(page.get(page.size() - 1));
+        }
+        for (User user : delegate.users().getAllUsers()) {
+            index.putUsername(user.getUsername());
+        }
+        CoBorrowModel recommendations = new CoBorrowModel(LibraryConfig.getInt(LibraryConfig.RECOMMEND_NEIGHBORS),
+                LibraryConfig.getInt(LibraryConfig.RECOMMEND_HISTORY));
+        recommendations.rebuild(CoBorrowModel.currentLoans(delegate));
+        OPEN.record(start, index.itemCount());
+        return new IndexedStorage(delegate, index, trigrams, recommendations);
+    }
+
+    /**
+     * @return indeks podpowiedzi
+     */
+    public AutocompleteIndex index() {
+        return index;
+    }
+
+    /**
+     * @return indeks trigramów (wyszukiwanie odporne na literówki)
+     */
+    public TrigramIndex trigrams() {
+        return trigrams;
+    }
+
+    /**
+     * @return model rekomendacji „wypożyczyli też…”
+     */
+    public CoBorrowModel recommendations() {
+        return recommendations;
+    }
+
+    @Override
+    public ItemRepository items() {
+        return items;
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public LibrarianRepository librarians() {
+        return delegate.librarians();
+    }
+
+    @Override
+    public void beginTransaction() {
+        delegate.beginTransaction();
+    }
+
+    @Override
+    public void commitTransaction() {
+        delegate.commitTransaction();
+    }
+
+    @Override
+    public void rollbackTransaction() {
+        delegate.rollbackTransaction();
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    /** Repozytorium pozycji aktualizujące indeks przy zapisie, zmianie i usunięciu */
+    private final class Items implements ItemRepository {
+        private final ItemRepository items;
+
+        Items(ItemRepository items) {
+            this.items = items;
+        }
+
+        @Override
+        public void save(Item item) {
+            items.save(item);
+            index.putItem(item);
+            trigrams.putItem(item);
+        }
+
+        @Override
+        public void saveAll(List<? extends Item> list) {
+            items.saveAll(list);
+            for (Item item : list) {
+                index.putItem(item);
+                trigrams.putItem(item);
+            }
+        }
+
+        @Override
+        public List<Item> getAll() {
+            return items.getAll();
+        }
+
+        @Override
+        public long count() {
+            return items.count();
+        }
+
+        @Override
+        public long countLoaned() {
+            return items.countLoaned();
+        }
+
+        @Override
+        public List<Item> search(String text, int limit) {
+            return items.search(text, limit);
+        }
+
+        @Override
+        public List<Item> getPage(long offset, int limit) {
+            return items.getPage(offset, limit);
+        }
+
+        @Override
+        public List<Item> query(ItemQuery query) {
+            return items.query(query);
+        }
+
+        @Override
+        public Optional<Item> getByUuid(UUID uuid) {
+            return items.getByUuid(uuid);
+        }
+
+        @Override
+        public UpdateResult<Item> update(Item item) {
+            UpdateResult<Item> result = items.update(item);
+            if (result.isUpdated()) {
+                index.putItem(result.value);
+                trigrams.putItem(result.value);
+            }
+            return result;
+        }
+
+        @Override
+        public void delete(UUID uuid) {
+            items.delete(uuid);
+            index.removeItem(uuid);
+            trigrams.removeItem(uuid);
+            recommendations.removeItem(uuid);
+        }
+
+        @Override
+        public boolean borrowItem(String uuidStr, String username) {
+            boolean borrowed = items.borrowItem(uuidStr, username);
+            if (borrowed) recommendations.recordLoan(username, UUID.fromString(uuidStr));
+            return borrowed;
+        }
+
+        @Override
+        public boolean returnItem(String uuidStr) {
+            return items.returnItem(uuidStr);
+        }
+
+        @Override
+        public boolean returnItemByUser(String uuidStr, String username) {
+            return items.returnItemByUser(uuidStr, username);
+        }
+
+        @Override
+        public LoanResult borrowAll(List<UUID> uuids, String username) {
+            LoanResult result = items.borrowAll(uuids, username);
+            if (result.success) {
+                for (UUID uuid : uuids) {
+                    recommendations.recordLoan(username, uuid);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public LoanResult returnAll(List<UUID> uuids, String username) {
+            return items.returnAll(uuids, username);
+        }
+
+        @Override
+        public List<Item> getUserLoans(String username) {
+            return items.getUserLoans(username);
+        }
+
+        @Override
+        public LoanBatch openLoanBatch() throws SQLException {
+            LoanBatch batch = items.openLoanBatch();
+            return new LoanBatch() {
+                @Override
+                public boolean borrow(UUID uuid, String username) throws SQLException {
+                    boolean borrowed = batch.borrow(uuid, username);
+                    if (borrowed) recommendations.recordLoan(username, uuid);
+                    return borrowed;
+                }
+
+                @Override
+                public boolean returnItem(UUID uuid) throws SQLException {
+                    return batch.returnItem(uuid);
+                }
+
+                @Override
+                public void close() {
+                    batch.close();
+                }
+            };
+        }
+    }
+
+    /** Repozytorium użytkowników aktualizujące indeks loginów */
+    private final class Users implements UserRepository {
+        private final UserRepository users;
+
+        Users(UserRepository users) {
+            this.users = users;
+        }
+
+        @Override
+        public Optional<Human> findUser(String username, String role) {
+            return users.findUser(username, role);
+        }
+
+        @Override
+        public Optional<User> getByUsername(String username) {
+            return users.getByUsername(username);
+        }
+
+        @Override
+        public void saveUser(Human user, String role) {
+            users.saveUser(user, role);
+            if ("user".equals(role)) {
+                index.putUsername(user.getUsername());
+            } else {
+                index.removeUsername(user.getUsername());
+            }
+        }
+
+        @Override
+        public void addUser(String username, String fullname, String password) {
+            users.addUser(username, fullname, password);
+            // login zajęty przez bibliotekarza nie jest dodawany
+            if (users.getByUsername(username).isPresent()) index.putUsername(username);
+        }
+
+        @Override
+        public List<String> addUsers(List<User> list) {
+            List<String> added = users.addUsers(list);
+            for (String username : added) {
+                index.putUsername(username);
+            }
+            return added;
+        }
+
+        @Override
+        public void editUser(String username, String fullname, String password) {
+            users.editUser(username, fullname, password);
+        }
+
+        @Override
+        public UpdateResult<User> editUser(String username, String fullname, String password, long expectedVersion) {
+            return users.editUser(username, fullname, password, expectedVersion);
+        }
+
+        @Override
+        public void removeUser(String username) {
+            users.removeUser(username);
+            index.removeUsername(username);
+        }
+
+        @Override
+        public List<User> getAllUsers() {
+            return users.getAllUsers();
+        }
+
+        @Override
+        public void forEachUser(Predicate<User> consumer) {
+            users.forEachUser(consumer);
+        }
+
+        @Override
+        public long countByRole(String role) {
+            return users.countByRole(role);
+        }
+    }
+}
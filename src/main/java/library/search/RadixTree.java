@@ -0,0 +1,240 @@
+package library.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Skompresowane drzewo prefiksowe (radix tree): klucze tekstowe z przypisanymi zbiorami wartości.
+ * <p>
+ * Krawędzie niosą całe fragmenty kluczy, więc węzłów jest najwyżej dwa razy więcej niż kluczy,
+ * a dopełnienie prefiksu kosztuje zejście po długości prefiksu i przejście tylko tylu węzłów,
+ * ile wyników zwracamy. Dzieci węzła są uporządkowane, więc dopełnienia zwracane są
+ * w porządku leksykograficznym (klucz równy prefiksowi jako pierwszy).
+ * </p>
+ * Klasa nie jest bezpieczna wątkowo - synchronizację zapewnia wywołujący.
+ *
+ * @param <V> typ wartości
+ */
+public class RadixTree<V> {
+
+    private static final class Node<V> {
+        String label;
+        TreeMap<Character, Node<V>> children;
+        Set<V> values;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        boolean isEmpty() {
+            return (values == null || values.isEmpty()) && (children == null || children.isEmpty());
+        }
+
+        void addChild(Node<V> child) {
+            if (children == null) children = new TreeMap<>();
+            children.put(child.label.charAt(0), child);
+        }
+
+        Node<V> child(char c) {
+            return children == null ? null : children.get(c);
+        }
+    }
+
+    private final Node<V> root = new Node<>("");
+    private int keys;
+
+    /**
+     * Dodaje wartość pod kluczem.
+     *
+     * @param key klucz (niepusty)
+     * @param value wartość
+     */
+    public void add(String key, V value) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node<V> child = node.child(key.charAt(i));
+            if (child == null) {
+                child = new Node<>(key.substring(i));
+                node.addChild(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // rozdzielenie krawędzi: wspólny początek staje się nowym węzłem pośrednim
+                Node<V> mid = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                mid.addChild(child);
+                node.children.put(mid.label.charAt(0), mid);
+                child = mid;
+            }
+            node = child;
+            i += common;
+        }
+        if (node.values == null) node.values = new LinkedHashSet<>(2);
+        if (node.values.isEmpty()) keys++;
+        node.values.add(value);
+    }
+
+    /**
+     * Usuwa wartość spod klucza; klucz bez wartości znika z drzewa.
+     *
+     * @param key klucz
+     * @param value wartość
+     * @return czy wartość była pod kluczem
+     */
+    public boolean remove(String key, V value) {
+        List<Node<V>> path = new ArrayList<>();
+        Node<V> node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            node = node.child(key.charAt(i));
+            if (node == null || !key.startsWith(node.label, i)) return false;
+            i += node.label.length();
+            path.add(node);
+        }
+        if (node.values == null || !node.values.remove(value)) return false;
+        if (node.values.isEmpty()) {
+            keys--;
+            prune(path);
+        }
+        return true;
+    }
+
+    /**
+     * Usuwa puste węzły na końcu ścieżki i scala węzeł pośredni z jedynym dzieckiem.
+     */
+    private void prune(List<Node<V>> path) {
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node<V> node = path.get(depth);
+            Node<V> parent = path.get(depth - 1);
+            if (node.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+                continue;
+            }
+            if ((node.values == null || node.values.isEmpty()) && node.children.size() == 1) {
+                Node<V> only = node.children.firstEntry().getValue();
+                only.label = node.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Zwraca klucze zaczynające się od prefiksu, w porządku leksykograficznym.
+     *
+     * @param prefix prefiks
+     * @param limit maksymalna liczba kluczy
+     * @return znalezione klucze
+     */
+    public List<String> keysWithPrefix(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        collect(prefix, limit, (key, values) -> {
+            result.add(key);
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * Zwraca wartości spod kluczy zaczynających się od prefiksu: klucze w porządku
+     * leksykograficznym, wartości jednego klucza w kolejności dodania.
+     *
+     * @param prefix prefiks
+     * @param limit maksymalna liczba wartości
+     * @return znalezione wartości
+     */
+    public List<V> valuesWithPrefix(String prefix, int limit) {
+        List<V> result = new ArrayList<>();
+        collect(prefix, limit, (key, values) -> {
+            for (V value : values) {
+                if (result.size() >= limit) return false;
+                result.add(value);
+            }
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * @param key klucz
+     * @return wartości spod klucza (pusty zbiór, jeśli klucza nie ma)
+     */
+    public Set<V> get(String key) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            node = node.child(key.charAt(i));
+            if (node == null || !key.startsWith(node.label, i)) return Collections.emptySet();
+            i += node.label.length();
+        }
+        return node.values == null ? Collections.emptySet() : Collections.unmodifiableSet(node.values);
+    }
+
+    /**
+     * @return liczba kluczy w drzewie
+     */
+    public int size() {
+        return keys;
+    }
+
+    private interface Visitor<V> {
+        /** @return czy kontynuować przeglądanie */
+        boolean visit(String key, Set<V> values);
+    }
+
+    private void collect(String prefix, int limit, Visitor<V> visitor) {
+        if (limit <= 0) return;
+        Node<V> node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node<V> child = node.child(prefix.charAt(i));
+            if (child == null) return;
+            int remaining = prefix.length() - i;
+            if (remaining <= child.label.length()) {
+                if (!child.label.startsWith(prefix.substring(i))) return;
+                walk(child, new StringBuilder().append(prefix, 0, i).append(child.label), visitor);
+                return;
+            }
+            if (!prefix.startsWith(child.label, i)) return;
+            i += child.label.length();
+            node = child;
+        }
+        walk(node, new StringBuilder(prefix), visitor);
+    }
+
+    /**
+     * Przechodzi poddrzewo w porządku prefiksowym.
+     *
+     * @return czy kontynuować przeglądanie
+     */
+    private boolean walk(Node<V> node, StringBuilder key, Visitor<V> visitor) {
+        if (node.values != null && !node.values.isEmpty() && !visitor.visit(key.toString(), node.values)) {
+            return false;
+        }
+        if (node.children == null) return true;
+        for (Map.Entry<Character, Node<V>> e : node.children.entrySet()) {
+            int length = key.length();
+            key.append(e.getValue().label);
+            boolean more = walk(e.getValue(), key, visitor);
+            key.setLength(length);
+            if (!more) return false;
+        }
+        return true;
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int n = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(from + i)) i++;
+        return i;
+    }
+}
@@ -0,0 +1,429 @@
+package library.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
+import library.model.Book;
+import library.model.Item;
+
+/**
+ * Odwrócony indeks trigramów tytułów i autorów do wyszukiwania odpornego na literówki.
+ * <p>
+ * Tekst jest najpierw sprowadzany do postaci bez znaków diakrytycznych i wielkich liter
+ * ({@link #fold(String)}: "Łódź" i "lodz" to ten sam tekst), a każde słowo rozkładane na trójki
+ * znaków z dopełnieniem spacjami (jak w {@code pg_trgm}). Podobieństwo to współczynnik Jaccarda
+ * zbiorów trigramów zapytania i tytułu (lub autora); pozycja dostaje lepszy z obu wyników.
+ * </p>
+ * <p>
+ * Zamiast porównywać zapytanie z całym katalogiem, indeks wybiera kandydatów z najrzadszych
+ * trigramów zapytania: tekst o podobieństwie co najmniej {@code t} musi mieć co najmniej
+ * {@code ceil(t * q)} z {@code q} trigramów zapytania, więc musi wystąpić na jednej z
+ * {@code q - ceil(t * q) + 1} najkrótszych list. Pozostałe listy tylko uzupełniają liczniki
+ * kandydatów, a kandydaci o niepasującej liczbie trigramów są odrzucani przed oceną.
+ * </p>
+ * Usunięte dokumenty są oznaczane i usuwane z list przy okresowym przebudowaniu numeracji.
+ */
+public class TrigramIndex {
+
+    /** Domyślny próg podobieństwa (jak {@code pg_trgm.similarity_threshold}) */
+    public static final double DEFAULT_THRESHOLD = 0.3;
+
+    /** Najmniejsza liczba usuniętych dokumentów, od której opłaca się przebudowa list */
+    private static final int COMPACT_MIN_DEAD = 4096;
+
+    private static final OperationStats FUZZY_SEARCH = MetricsRegistry.operation("TrigramIndex", "fuzzySearch");
+
+    /**
+     * Pozycja znaleziona przez {@link #search(String, int)} wraz z podobieństwem (0..1].
+     */
+    public static final class Hit {
+        public final UUID uuid;
+        public final double score;
+
+        Hit(UUID uuid, double score) {
+            this.uuid = uuid;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return uuid + String.format(" (%.2f)", score);
+        }
+    }
+
+    /** Rosnąca lista numerów dokumentów zawierających trigram */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /**
+     * Listy trigramów w tablicy z adresowaniem otwartym (klucz to zakodowany trigram) -
+     * bez opakowywania kluczy, co przy milionie tytułów wyraźnie skraca budowę indeksu.
+     */
+    private static final class PostingsTable {
+        long[] keys = new long[1024];
+        Postings[] values = new Postings[1024];
+        int size;
+
+        Postings get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return null;
+        }
+
+        Postings getOrCreate(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            Postings p = new Postings();
+            keys[i] = key;
+            values[i] = p;
+            if (++size * 2 > keys.length) grow();
+            return p;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Postings[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == null) continue;
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    private final PostingsTable postings = new PostingsTable();
+    /** Pozycja, do której należy dokument (null - dokument usunięty) */
+    private UUID[] docItem = new UUID[1024];
+    /** Liczba różnych trigramów dokumentu */
+    private short[] docSize = new short[1024];
+    private int docs;
+    private int dead;
+    /** Dokumenty pozycji: tytuł i autor (-1, jeśli brak) */
+    private final Map<UUID, int[]> itemDocs = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Liczniki wspólnych trigramów kandydatów, osobne dla wątku (wyszukiwania działają równolegle
+     * pod blokadą współdzieloną). Po wyszukiwaniu zerowane są tylko liczniki jego kandydatów.
+     */
+    private final ThreadLocal<short[]> sharedCounts = ThreadLocal.withInitial(() -> new short[0]);
+
+    /**
+     * Dodaje pozycję lub zastępuje jej tytuł i autora.
+     *
+     * @param item pozycja
+     */
+    public void putItem(Item item) {
+        String author = item instanceof Book ? ((Book) item).getAuthor() : null;
+        lock.writeLock().lock();
+        try {
+            removeDocs(itemDocs.remove(item.getUuid()));
+            int title = addDoc(item.getUuid(), item.getTitle());
+            int authorDoc = addDoc(item.getUuid(), author);
+            if (title >= 0 || authorDoc >= 0) itemDocs.put(item.getUuid(), new int[]{title, authorDoc});
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param uuid UUID usuniętej pozycji
+     */
+    public void removeItem(UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            removeDocs(itemDocs.remove(uuid));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return liczba pozycji w indeksie
+     */
+    public int itemCount() {
+        lock.readLock().lock();
+        try {
+            return itemDocs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wyszukuje pozycje o tytule lub autorze podobnym do zapytania, z domyślnym progiem.
+     *
+     * @param query zapytanie (dowolna wielkość liter, z polskimi znakami lub bez)
+     * @param k maksymalna liczba wyników
+     * @return pozycje od najbardziej podobnej
+     */
+    public List<Hit> search(String query, int k) {
+        return search(query, k, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Wyszukuje pozycje o tytule lub autorze podobnym do zapytania.
+     *
+     * @param query zapytanie
+     * @param k maksymalna liczba wyników
+     * @param threshold najmniejsze podobieństwo wyniku (0..1]
+     * @return pozycje od najbardziej podobnej (przy równym podobieństwie - krótszy tekst pierwszy)
+     */
+    public List<Hit> search(String query, int k, double threshold) {
+        long start = System.nanoTime();
+        long[] grams = trigrams(fold(query));
+        List<Hit> result = new ArrayList<>();
+        if (grams.length == 0 || k <= 0) return result;
+        lock.readLock().lock();
+        try {
+            search(grams, k, threshold, result);
+        } finally {
+            lock.readLock().unlock();
+            FUZZY_SEARCH.record(start, result.size());
+        }
+        return result;
+    }
+
+    private void search(long[] grams, int k, double threshold, List<Hit> result) {
+        int q = grams.length;
+        List<Postings> lists = new ArrayList<>(q);
+        for (long gram : grams) {
+            Postings p = postings.get(gram);
+            if (p != null) lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+        // trigramy bez listy to listy puste - najkrótsze ze wszystkich
+        int minShared = Math.max(1, (int) Math.ceil(threshold * q));
+        int probe = lists.size() - minShared + 1;
+        if (probe <= 0) return;
+
+        // kandydaci: dokumenty z najrzadszych list (pozostałe listy tylko dopełniają liczniki)
+        short[] shared = sharedCounts.get();
+        if (shared.length < docs) {
+            shared = new short[Math.max(docs, shared.length * 2)];
+            sharedCounts.set(shared);
+        }
+        int[] candidates = new int[16];
+        int count = 0;
+        try {
+            for (int i = 0; i < probe; i++) {
+                Postings p = lists.get(i);
+                for (int j = 0; j < p.size; j++) {
+                    int id = p.ids[j];
+                    if (shared[id]++ == 0) {
+                        if (count == candidates.length) candidates = Arrays.copyOf(candidates, count * 2);
+                        candidates[count++] = id;
+                    }
+                }
+            }
+            for (int i = probe; i < lists.size(); i++) {
+                Postings p = lists.get(i);
+                if ((long) count * (32 - Integer.numberOfLeadingZeros(p.size)) < p.size) {
+                    for (int c = 0; c < count; c++) {
+                        if (p.contains(candidates[c])) shared[candidates[c]]++;
+                    }
+                } else {
+                    for (int j = 0; j < p.size; j++) {
+                        if (shared[p.ids[j]] > 0) shared[p.ids[j]]++;
+                    }
+                }
+            }
+
+            // ocena: podobieństwo Jaccarda, najlepsze 2k dokumentów (pozycja ma najwyżej dwa)
+            int keep = 2 * k;
+            PriorityQueue<double[]> top = new PriorityQueue<>(keep + 1, TrigramIndex::compareWorstFirst);
+            for (int c = 0; c < count; c++) {
+                int id = candidates[c];
+                int s = shared[id];
+                if (docItem[id] == null || s < minShared) continue;
+                int d = docSize[id];
+                double score = (double) s / (q + d - s);
+                if (score < threshold) continue;
+                double[] entry = {score, d, id};
+                if (top.size() < keep) {
+                    top.add(entry);
+                } else if (compareWorstFirst(entry, top.peek()) > 0) {
+                    top.poll();
+                    top.add(entry);
+                }
+            }
+            List<double[]> best = new ArrayList<>(top);
+            best.sort((a, b) -> compareWorstFirst(b, a));
+            Map<UUID, Hit> hits = new LinkedHashMap<>();
+            for (double[] e : best) {
+                UUID uuid = docItem[(int) e[2]];
+                if (hits.size() < k) hits.putIfAbsent(uuid, new Hit(uuid, e[0]));
+            }
+            result.addAll(hits.values());
+        } finally {
+            for (int c = 0; c < count; c++) {
+                shared[candidates[c]] = 0;
+            }
+        }
+    }
+
+    /** Porządek, w którym najgorszy wynik (niższe podobieństwo, dłuższy tekst) jest pierwszy */
+    private static int compareWorstFirst(double[] a, double[] b) {
+        int c = Double.compare(a[0], b[0]);
+        if (c != 0) return c;
+        c = Double.compare(b[1], a[1]);
+        return c != 0 ? c : Double.compare(b[2], a[2]);
+    }
+
+    private int addDoc(UUID uuid, String text) {
+        if (text == null) return -1;
+        long[] grams = trigrams(fold(text));
+        if (grams.length == 0) return -1;
+        if (docs == docItem.length) {
+            docItem = Arrays.copyOf(docItem, docs * 2);
+            docSize = Arrays.copyOf(docSize, docs * 2);
+        }
+        int id = docs++;
+        docItem[id] = uuid;
+        docSize[id] = (short) Math.min(grams.length, Short.MAX_VALUE);
+        for (long gram : grams) {
+            postings.getOrCreate(gram).add(id);
+        }
+        return id;
+    }
+
+    private void removeDocs(int[] ids) {
+        if (ids == null) return;
+        for (int id : ids) {
+            if (id >= 0 && docItem[id] != null) {
+                docItem[id] = null;
+                dead++;
+            }
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (dead >= COMPACT_MIN_DEAD && dead * 2 > docs) compact();
+    }
+
+    /**
+     * Numeruje żywe dokumenty od nowa (z zachowaniem kolejności) i usuwa martwe z list trigramów.
+     */
+    private void compact() {
+        int[] renumber = new int[docs];
+        int live = 0;
+        for (int id = 0; id < docs; id++) {
+            if (docItem[id] == null) {
+                renumber[id] = -1;
+            } else {
+                renumber[id] = live;
+                docItem[live] = docItem[id];
+                docSize[live] = docSize[id];
+                live++;
+            }
+        }
+        Arrays.fill(docItem, live, docs, null);
+        for (Postings p : postings.values) {
+            if (p == null) continue;
+            int n = 0;
+            for (int j = 0; j < p.size; j++) {
+                int id = renumber[p.ids[j]];
+                if (id >= 0) p.ids[n++] = id;
+            }
+            p.size = n;
+        }
+        for (int[] ids : itemDocs.values()) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] >= 0) ids[i] = renumber[ids[i]];
+            }
+        }
+        docs = live;
+        dead = 0;
+    }
+
+    /**
+     * Sprowadza tekst do postaci porównywanej w indeksie: małe litery bez znaków diakrytycznych
+     * (łącznie z "ł"), a zamiast znaków innych niż litery i cyfry - pojedyncze spacje.
+     *
+     * @param text tekst
+     * @return tekst po ujednoliceniu
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            c = Character.toLowerCase(c);
+            if (c == 'ł') c = 'l';
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') sb.setLength(end - 1);
+        return sb.toString();
+    }
+
+    /**
+     * Rozkłada ujednolicony tekst na różne trigramy słów (każde słowo z dwiema spacjami
+     * na początku i jedną na końcu), zakodowane jako liczby.
+     *
+     * @param folded tekst po {@link #fold(String)}
+     * @return posortowane, niepowtarzające się trigramy
+     */
+    static long[] trigrams(String folded) {
+        if (folded.isEmpty()) return new long[0];
+        String padded = "  " + folded.replace(" ", "   ") + " ";
+        long[] grams = new long[padded.length()];
+        int n = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            char a = padded.charAt(i), b = padded.charAt(i + 1), c = padded.charAt(i + 2);
+            if (b == ' ' && c == ' ') continue; // granica słów
+            grams[n++] = ((long) a << 32) | ((long) b << 16) | c;
+        }
+        Arrays.sort(grams, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || grams[distinct - 1] != grams[i]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+}
@@ -1,87 +1,180 @@
 package library.service;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.UUID;
-import library.db.ItemDao;
-import library.db.LibrarianDao;
-import library.db.UserDao;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import library.db.DatabaseManager;
+import library.exceptions.AccessDeniedException;
+import library.exceptions.RateLimitedException;
+import library.jfr.LoginEvent;
+import library.jobs.BackupJob;
+import library.jobs.ExportBooksJob;
+import library.jobs.ExportLoansJob;
+import library.jobs.ExportUsersJob;
+import library.jobs.ImportBooksJob;
+import library.jobs.ImportUsersJob;
+import library.jobs.Job;
+import library.jobs.JobManager;
+import library.jobs.RebuildRecommendationsJob;
+import library.metrics.Counter;
+import library.metrics.MetricsRegistry;
+import library.model.Book;
 import library.model.Item;
 import library.model.Librarian;
+import library.model.Magazine;
 import library.model.User;
+import library.repository.LoanResult;
+import library.repository.Storage;
+import library.repository.UpdateResult;
+import library.search.AutocompleteIndex;
+import library.search.CoBorrowModel;
+import library.search.IndexedStorage;
+import library.search.TrigramIndex;
+import library.session.AdmissionController;
+import library.session.AdmissionController.Operation;
+import library.session.Session;
+import library.session.SessionManager;
+import library.util.PageSource;
 import library.util.ScreenUtil;
+import library.util.TableRenderer;
 
 /**
  * Serwis biblioteczny zarządzający logiką biznesową aplikacji bibliotecznej.
  * Odpowiada za interakcję użytkownika z bazą danych i realizację operacji na zasobach,
  * takich jak książki, użytkownicy oraz bibliotekarze.
+ * Wszystkie operacje na danych wykonywane są przez magazyn ({@link Storage}) przekazany w konstruktorze.
  */
 public class LibraryService {
 
+    /** Maksymalna liczba prób zmiany rekordu, gdy zapis trafia na konflikt wersji */
+    public static final int MAX_UPDATE_ATTEMPTS = 5;
+
+    /** Maksymalna liczba podpowiedzi wyświetlanych przy wpisywaniu UUID lub loginu */
+    public static final int MAX_COMPLETIONS = 10;
+
+    /** Liczba zapisów odrzuconych z powodu konfliktu wersji i ponowionych */
+    private static final Counter UPDATE_CONFLICTS = MetricsRegistry.counter("LibraryService", "updateConflicts");
+
+    private final Storage storage;
+
+    /** Indeks podpowiedzi lub null, jeśli magazyn go nie utrzymuje */
+    private final AutocompleteIndex autocomplete;
+
+    /** Indeks trigramów lub null, jeśli magazyn go nie utrzymuje */
+    private final TrigramIndex trigrams;
+
+    /** Model rekomendacji „wypożyczyli też…” lub null, jeśli magazyn go nie utrzymuje */
+    private final CoBorrowModel recommendations;
+
+    /** Sesje zalogowanych kont (wspólne dla wszystkich serwisów aplikacji) */
+    private final SessionManager sessions = SessionManager.getInstance();
+
+    /** Limity żądań czytelników dla operacji wywoływanych z tokenem sesji */
+    private final AdmissionController admission = AdmissionController.getInstance();
+
+    /** Tabela bibliotekarzy (bufor formatowania jest używany wielokrotnie) */
+    private final TableRenderer<Librarian> librarianTable = new TableRenderer<Librarian>("Lista bibliotekarzy")
+            .column("Login", Librarian::getUsername, 15, 20)
+            .column("Imię i nazwisko", Librarian::getFullName, 25, 40)
+            .columnRight("Wynagrodzenie", l -> Integer.toString(l.getSalary()), 13, 13);
+
+    /** Tabela użytkowników */
+    private final TableRenderer<User> userTable = new TableRenderer<User>("Lista użytkowników")
+            .column("Login", User::getUsername, 15, 20)
+            .column("Imię i nazwisko", User::getFullName, 25, 40);
+
+    /** Tabela katalogu pozycji bibliotecznych */
+    private final TableRenderer<Item> itemTable = new TableRenderer<Item>("Katalog pozycji bibliotecznych")
+            .column("UUID", i -> i.getUuid().toString(), 36, 36)
+            .column("Tytuł", Item::getTitle, 20, 30)
+            .column("Rok", i -> Integer.toString(i.getYear()), 6, 6)
+            .column("Status", i -> i.isAvailable() ? "DOSTĘPNA" : "WYPOŻYCZONA", 12, 12)
+            .column("Wypożyczający", i -> i.getLoanedTo() == null ? "-" : i.getLoanedTo(), 13, 20)
+            .column("Autor", i -> i instanceof Book ? ((Book) i).getAuthor() : "-", 10, 20)
+            .column("Gatunek/Nr Wydania", i -> i instanceof Book ? ((Book) i).getGenre()
+                    : i instanceof Magazine ? "Nr: " + ((Magazine) i).getIssueNumber() : "-", 18, 20);
+
+    /**
+     * Tworzy serwis działający na podanym magazynie danych. Jeśli magazyn utrzymuje indeks
+     * podpowiedzi ({@link IndexedStorage}), zamiast UUID i loginów można wpisywać ich początki.
+     *
+     * @param storage magazyn danych
+     */
+    public LibraryService(Storage storage) {
+        this.storage = storage;
+        this.autocomplete = storage instanceof IndexedStorage ? ((IndexedStorage) storage).index() : null;
+        this.trigrams = storage instanceof IndexedStorage ? ((IndexedStorage) storage).trigrams() : null;
+        this.recommendations = storage instanceof IndexedStorage
+                ? ((IndexedStorage) storage).recommendations() : null;
+    }
+
+    /**
+     * @return magazyn danych serwisu
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
     /**
      * Wyświetla tabelę bibliotekarzy z ich danymi.
+     * Przy dużej liczbie rekordów tabela jest dzielona na strony.
      * 
      * @param librarians lista bibliotekarzy do wyświetlenia
      */
     public void printLibrarianTable(List<Librarian> librarians) {
-        System.out.println("\n== Lista bibliotekarzy ==");
-        System.out.printf("%-15s | %-25s | %-10s\n", "Login", "Imię i nazwisko", "Wynagrodzenie");
-        System.out.println("--------------------------------------------------------------");
-        for (Librarian l : librarians) {
-            System.out.printf("%-15s | %-25s | %10d\n", l.getUsername(), l.getFullName(), l.getSalary());
-        }
-        System.out.println();
+        librarianTable.browse(PageSource.ofList(librarians), new Scanner(System.in));
     }
 
     /**
      * Wyświetla tabelę użytkowników.
+     * Przy dużej liczbie rekordów tabela jest dzielona na strony.
      * 
      * @param users lista użytkowników do wyświetlenia
      */
     public void printUserTable(List<User> users) {
-        System.out.println("\n== Lista użytkowników ==");
-        System.out.printf("%-15s | %-25s\n", "Login", "Imię i nazwisko");
-        System.out.println("-------------------------------------------");
-        for (User u : users) {
-            System.out.printf("%-15s | %-25s\n", u.getUsername(), u.getFullName());
-        }
-        System.out.println();
+        userTable.browse(PageSource.ofList(users), new Scanner(System.in));
     }
 
     /**
      * Wyświetla katalog pozycji bibliotecznych (książek, magazynów).
+     * Pozycje są pobierane z bazy stronami, z możliwością nawigacji między stronami.
      */
     public void printItemsTable() {
-        List<Item> items = ItemDao.getAll();
-        System.out.println("\n== Katalog pozycji bibliotecznych ==");
-        System.out.printf("%-36s | %-30s | %-6s | %-12s | %-20s | %-20s | %-20s\n",
-                "UUID", "Tytuł", "Rok", "Status", "Wypożyczający", "Autor", "Gatunek/Nr Wydania");
-        System.out.println("---------------------------------------------------------------------------------------------------------------------------------------------------------------");
-        for (Item i : items) {
-            String status = i.isAvailable() ? "DOSTĘPNA" : "WYPOŻYCZONA";
-            String borrower = i.getLoanedTo() == null ? "-" : i.getLoanedTo();
-            String author = "-";
-            String genreOrIssue = "-";
-            if (i instanceof library.model.Book) {
-                library.model.Book b = (library.model.Book) i;
-                author = b.getAuthor();
-                genreOrIssue = b.getGenre();
-            } else if (i instanceof library.model.Magazine) {
-                library.model.Magazine m = (library.model.Magazine) i;
-                genreOrIssue = "Nr: " + m.getIssueNumber();
+        itemTable.browse(new PageSource<Item>() {
+            @Override
+            public long count() {
+                return storage.items().count();
             }
-            System.out.printf("%-36s | %-30s | %-6d | %-12s | %-20s | %-20s | %-20s\n",
-                    i.getUuid().toString(), i.getTitle(), i.getYear(), status, borrower, author, genreOrIssue);
-        }
-        System.out.println();
+
+            @Override
+            public List<Item> fetch(long offset, int limit) {
+                return storage.items().getPage(offset, limit);
+            }
+        }, new Scanner(System.in));
+    }
+
+    /**
+     * Wypisuje podaną listę pozycji w formie tabeli katalogu, bez nawigacji po stronach.
+     *
+     * @param items lista pozycji do wyświetlenia
+     */
+    public void printItems(List<Item> items) {
+        itemTable.print(items, System.out);
     }
 
     /**
@@ -130,10 +223,126 @@ public class LibraryService {
             return;
         }
 
-        ItemDao.addBook(title, author, year, genre);
+        storage.items().addBook(title, author, year, genre);
         System.out.println("Dodano książkę!");
     }
 
+    /**
+     * Interaktywne wyszukiwanie pozycji po tytule lub autorze, odporne na literówki i brak polskich znaków.
+     *
+     * @param session sesja wyszukującego
+     */
+    public void searchInteractive(Session session) {
+        Scanner sc = new Scanner(System.in);
+        System.out.print("Szukany tytuł lub autor (q = anuluj): ");
+        String query = sc.nextLine().trim();
+        if (query.isEmpty() || query.equalsIgnoreCase("q")) return;
+        List<Item> found;
+        try {
+            found = search(session.getToken(), query, 20);
+        } catch (AccessDeniedException | RateLimitedException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (found.isEmpty()) {
+            System.out.println("Nie znaleziono pozycji podobnych do: " + query);
+            return;
+        }
+        printItems(found);
+    }
+
+    /**
+     * Wyszukuje pozycje o tytule lub autorze podobnym do zapytania (indeks trigramów: literówki,
+     * brak znaków diakrytycznych). Bez indeksu ({@link IndexedStorage}) wyszukuje fragment tekstu
+     * przez {@link library.repository.ItemRepository#search(String, int)}.
+     *
+     * @param query zapytanie
+     * @param k maksymalna liczba wyników
+     * @return pozycje od najbardziej podobnej
+     */
+    public List<Item> fuzzySearch(String query, int k) {
+        if (trigrams == null) return storage.items().search(query, k);
+        List<Item> result = new ArrayList<>();
+        for (TrigramIndex.Hit hit : trigrams.search(query, k)) {
+            storage.items().getByUuid(hit.uuid).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Interaktywne rekomendacje „czytelnicy, którzy wypożyczyli tę pozycję, wypożyczyli też…”
+     * dla wskazanej pozycji albo - gdy nie wskazano żadnej - dla bieżących wypożyczeń użytkownika.
+     *
+     * @param username login użytkownika
+     */
+    public void recommendationsInteractive(String username) {
+        if (recommendations == null) {
+            System.out.println("Rekomendacje są niedostępne dla tego magazynu danych.");
+            return;
+        }
+        Scanner sc = new Scanner(System.in);
+        System.out.print("Podaj UUID pozycji lub początek tytułu/autora (Enter = na podstawie moich wypożyczeń, q = anuluj): ");
+        String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("q")) return;
+        List<Item> found;
+        if (input.isEmpty()) {
+            found = recommendFor(username, MAX_COMPLETIONS);
+            System.out.println("\n== Czytelnicy, którzy wypożyczyli to co Ty, wypożyczyli też ==");
+        } else {
+            String uuid = resolveItemUuid(sc, input);
+            if (uuid == null) return;
+            if (!isUuid(uuid)) {
+                System.out.println("Niepoprawny UUID!");
+                return;
+            }
+            found = alsoBorrowed(UUID.fromString(uuid), MAX_COMPLETIONS);
+            System.out.println("\n== Czytelnicy, którzy wypożyczyli tę pozycję, wypożyczyli też ==");
+        }
+        if (found.isEmpty()) {
+            System.out.println("Brak rekomendacji - za mało wypożyczeń.");
+            return;
+        }
+        printItems(found);
+    }
+
+    /**
+     * Pozycje najczęściej wypożyczane przez czytelników, którzy wypożyczyli podaną pozycję.
+     *
+     * @param uuid UUID pozycji
+     * @param limit maksymalna liczba wyników
+     * @return pozycje od najczęściej współwypożyczanej (pusta lista bez modelu rekomendacji)
+     */
+    public List<Item> alsoBorrowed(UUID uuid, int limit) {
+        if (recommendations == null) return List.of();
+        return resolveNeighbors(recommendations.neighbors(uuid), limit);
+    }
+
+    /**
+     * Rekomendacje dla użytkownika: sąsiedzi jego bieżących wypożyczeń, których jeszcze nie wypożyczył.
+     *
+     * @param username login użytkownika
+     * @param limit maksymalna liczba wyników
+     * @return pozycje od najczęściej współwypożyczanej (pusta lista bez modelu rekomendacji)
+     */
+    public List<Item> recommendFor(String username, int limit) {
+        if (recommendations == null) return List.of();
+        Set<UUID> loans = new LinkedHashSet<>();
+        for (Item item : storage.items().getUserLoans(username)) {
+            loans.add(item.getUuid());
+        }
+        return resolveNeighbors(recommendations.recommend(loans, limit), limit);
+    }
+
+    /** Odczytuje pozycje sąsiadów, pomijając usunięte z magazynu */
+    private List<Item> resolveNeighbors(List<CoBorrowModel.Neighbor> neighbors, int limit) {
+        List<Item> result = new ArrayList<>();
+        for (CoBorrowModel.Neighbor n : neighbors) {
+            if (result.size() >= limit) break;
+            storage.items().getByUuid(n.uuid).ifPresent(result::add);
+        }
+        return result;
+    }
+
     /**
      * Interaktywne wypożyczenie pozycji bibliotecznej.
      * Jeśli wywołujący jest bibliotekarzem, może wskazać użytkownika, dla którego wypożycza.
@@ -145,36 +354,16 @@ public class LibraryService {
         printItemsTable();
         Scanner sc = new Scanner(System.in);
 
-        String targetUser = currentUsername;
-        if (isLibrarian) {
-            System.out.println("Wpisz 'q' aby anulować operację.");
-            System.out.print("Czy chcesz wypożyczyć książkę jako Ty (" + currentUsername + ")? (t/n/q): ");
-            String ans = sc.nextLine().trim();
-            if (ans.equalsIgnoreCase("q")) return;
-
-            if (ans.equalsIgnoreCase("n")) {
-                List<User> users = UserDao.getAllUsers();
-                if (users.isEmpty()) {
-                    System.out.println("Brak użytkowników w systemie!");
-                    return;
-                }
-                printUserTable(users);
-                System.out.print("Podaj login użytkownika, na którego ma być wypożyczenie (q = anuluj): ");
-                String userLogin = sc.nextLine().trim();
-                if (userLogin.equalsIgnoreCase("q")) return;
-                if (users.stream().noneMatch(u -> u.getUsername().equals(userLogin))) {
-                    System.out.println("Nie znaleziono takiego użytkownika.");
-                    return;
-                }
-                targetUser = userLogin;
-            }
-        }
+        String targetUser = chooseBorrower(sc, currentUsername, isLibrarian);
+        if (targetUser == null) return;
 
-        System.out.print("Podaj UUID książki do wypożyczenia (q = anuluj): ");
-        String uuid = sc.nextLine();
-        if (uuid.equalsIgnoreCase("q")) return;
+        System.out.print("Podaj UUID książki do wypożyczenia lub początek tytułu/autora (q = anuluj): ");
+        String input = sc.nextLine();
+        if (input.equalsIgnoreCase("q")) return;
+        String uuid = resolveItemUuid(sc, input);
+        if (uuid == null) return;
 
-        boolean success = ItemDao.borrowItem(uuid, targetUser);
+        boolean success = storage.items().borrowItem(uuid, targetUser);
         if (success) {
             System.out.println("Wypożyczono książkę użytkownikowi: " + targetUser + "!");
         } else {
@@ -182,6 +371,309 @@ public class LibraryService {
         }
     }
 
+    /**
+     * Interaktywne wypożyczenie wielu pozycji naraz (koszyk). Pozycje są sprawdzane przy dodawaniu
+     * do koszyka, a po potwierdzeniu wypożyczane jedną operacją: wszystkie albo żadna.
+     *
+     * @param session sesja wywołującego (bibliotekarz może wypożyczać na dowolne konto)
+     */
+    public void checkoutCartInteractive(Session session) {
+        printItemsTable();
+        Scanner sc = new Scanner(System.in);
+
+        String targetUser = chooseBorrower(sc, session.getUsername(), session.isLibrarian());
+        if (targetUser == null) return;
+
+        List<UUID> cart = readCart(sc, Item::isAvailable, "jest już wypożyczona");
+        if (cart == null) return;
+        if (cart.isEmpty()) {
+            System.out.println("Koszyk jest pusty.");
+            return;
+        }
+        System.out.print("Wypożyczyć " + cart.size() + " pozycji użytkownikowi " + targetUser + "? (t/n): ");
+        if (!sc.nextLine().trim().equalsIgnoreCase("t")) {
+            System.out.println("Anulowano wypożyczenie.");
+            return;
+        }
+        LoanResult result;
+        try {
+            result = checkout(session.getToken(), targetUser, cart);
+        } catch (AccessDeniedException | RateLimitedException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (result.success) {
+            System.out.println("Wypożyczono " + cart.size() + " pozycji użytkownikowi: " + targetUser + "!");
+        } else {
+            System.out.println("Nie wypożyczono żadnej pozycji – "
+                    + (result.error != null ? "błąd bazy danych: " + result.error : "niedostępne:"));
+            printRejected(result);
+        }
+    }
+
+    /**
+     * Zamienia wpisany tekst na UUID pozycji. Poprawny UUID jest zwracany bez zmian; inny tekst
+     * (przy dostępnym indeksie podpowiedzi) jest traktowany jak początek tytułu lub autora,
+     * a pozycję wybiera się z listy podpowiedzi.
+     *
+     * @return UUID w formie tekstowej lub null, jeśli nic nie wybrano
+     */
+    private String resolveItemUuid(Scanner sc, String input) {
+        String text = input.trim();
+        if (autocomplete == null || text.isEmpty() || isUuid(text)) return text;
+        return Optional.ofNullable(choose(sc, autocomplete.completeItems(text, MAX_COMPLETIONS),
+                        "Brak pozycji, których tytuł lub autor zaczyna się od: " + text))
+                .map(ref -> ref.uuid.toString())
+                .orElse(null);
+    }
+
+    /**
+     * Zamienia wpisany tekst na login użytkownika. Istniejący login jest zwracany bez zmian; inny tekst
+     * (przy dostępnym indeksie podpowiedzi) jest traktowany jak początek loginu.
+     *
+     * @return login lub null, jeśli nic nie wybrano
+     */
+    private String resolveUsername(Scanner sc, String input, List<User> users) {
+        if (autocomplete == null || users.stream().anyMatch(u -> u.getUsername().equals(input))) return input;
+        return choose(sc, autocomplete.completeUsernames(input, MAX_COMPLETIONS),
+                "Brak użytkowników, których login zaczyna się od: " + input);
+    }
+
+    /**
+     * Wyświetla ponumerowane podpowiedzi i wczytuje numer wybranej.
+     *
+     * @return wybrana podpowiedź lub null
+     */
+    private static <T> T choose(Scanner sc, List<T> hints, String none) {
+        if (hints.isEmpty()) {
+            System.out.println(none);
+            return null;
+        }
+        System.out.println("Podpowiedzi:");
+        for (int i = 0; i < hints.size(); i++) {
+            System.out.printf("%2d. %s%n", i + 1, hints.get(i));
+        }
+        System.out.print("Numer (Enter = anuluj): ");
+        String ans = sc.nextLine().trim();
+        try {
+            int n = Integer.parseInt(ans);
+            if (n >= 1 && n <= hints.size()) return hints.get(n - 1);
+        } catch (NumberFormatException ignored) {
+            // brak wyboru
+        }
+        return null;
+    }
+
+    private static boolean isUuid(String text) {
+        try {
+            UUID.fromString(text);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Wybór użytkownika, na którego ma być wypożyczenie (bibliotekarz może wskazać dowolnego).
+     *
+     * @return login wypożyczającego lub null, jeśli anulowano
+     */
+    private String chooseBorrower(Scanner sc, String currentUsername, boolean isLibrarian) {
+        if (!isLibrarian) return currentUsername;
+        System.out.println("Wpisz 'q' aby anulować operację.");
+        System.out.print("Czy chcesz wypożyczyć książkę jako Ty (" + currentUsername + ")? (t/n/q): ");
+        String ans = sc.nextLine().trim();
+        if (ans.equalsIgnoreCase("q")) return null;
+        if (!ans.equalsIgnoreCase("n")) return currentUsername;
+
+        List<User> users = storage.users().getAllUsers();
+        if (users.isEmpty()) {
+            System.out.println("Brak użytkowników w systemie!");
+            return null;
+        }
+        printUserTable(users);
+        System.out.print("Podaj login użytkownika, na którego ma być wypożyczenie (q = anuluj): ");
+        String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("q")) return null;
+        String userLogin = resolveUsername(sc, input, users);
+        if (userLogin == null) return null;
+        if (users.stream().noneMatch(u -> u.getUsername().equals(userLogin))) {
+            System.out.println("Nie znaleziono takiego użytkownika.");
+            return null;
+        }
+        return userLogin;
+    }
+
+    /**
+     * Wczytuje UUID pozycji do koszyka (kilka w wierszu, rozdzielone spacją lub przecinkiem),
+     * aż do pustego wiersza. Pozycje niespełniające warunku nie są dodawane.
+     *
+     * @param sc źródło danych
+     * @param eligible warunek, który musi spełniać pozycja
+     * @param notEligible opis pozycji, która go nie spełnia
+     * @return UUID pozycji w koszyku lub null, jeśli anulowano
+     */
+    private List<UUID> readCart(Scanner sc, Predicate<Item> eligible, String notEligible) {
+        Set<UUID> cart = new LinkedHashSet<>();
+        System.out.println("Podawaj UUID pozycji (kilka w wierszu rozdziel spacją; pusty wiersz = koniec, q = anuluj).");
+        while (true) {
+            System.out.print("UUID [" + cart.size() + " w koszyku]: ");
+            String line = sc.nextLine().trim();
+            if (line.isEmpty()) break;
+            if (line.equalsIgnoreCase("q")) return null;
+            List<UUID> uuids;
+            try {
+                uuids = parseUuids(line);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Niepoprawny UUID: " + e.getMessage());
+                continue;
+            }
+            for (UUID uuid : uuids) {
+                Item item = storage.items().getByUuid(uuid).orElse(null);
+                if (item == null) {
+                    System.out.println("Nie znaleziono pozycji " + uuid);
+                } else if (!eligible.test(item)) {
+                    System.out.println("Pominięto \"" + item.getTitle() + "\" – " + notEligible);
+                } else if (cart.add(uuid)) {
+                    System.out.println("Dodano do koszyka: " + item.getTitle());
+                }
+            }
+        }
+        return new ArrayList<>(cart);
+    }
+
+    private void printRejected(LoanResult result) {
+        for (UUID uuid : result.rejected) {
+            System.out.println("  " + storage.items().getByUuid(uuid).map(Item::toString).orElse(uuid + " (nie istnieje)"));
+        }
+    }
+
+    /**
+     * Wypożycza wszystkie pozycje jednemu użytkownikowi w jednej operacji (wszystkie albo żadna).
+     *
+     * @param username login wypożyczającego
+     * @param uuids UUID pozycji
+     * @return wynik z listą pozycji, przez które wypożyczenie odrzucono
+     */
+    public LoanResult checkout(String username, List<UUID> uuids) {
+        return storage.items().borrowAll(uuids, username);
+    }
+
+    /**
+     * Przyjmuje zwrot wszystkich pozycji w jednej operacji (wszystkie albo żadna).
+     *
+     * @param uuids UUID pozycji
+     * @param username wymagany wypożyczający lub null, jeśli dowolny (zwrot przy stanowisku)
+     * @return wynik z listą pozycji, przez które zwrot odrzucono
+     */
+    public LoanResult returnAll(List<UUID> uuids, String username) {
+        return storage.items().returnAll(uuids, username);
+    }
+
+    /**
+     * Wypożycza pozycje w imieniu właściciela sesji: użytkownik może wypożyczać tylko na własne konto,
+     * bibliotekarz - na konto dowolnego użytkownika.
+     *
+     * @param token token sesji
+     * @param username login wypożyczającego
+     * @param uuids UUID pozycji
+     * @return wynik z listą pozycji, przez które wypożyczenie odrzucono
+     * @throws AccessDeniedException jeśli sesja jest nieważna lub nie uprawnia do wypożyczenia na to konto
+     * @throws RateLimitedException jeśli konto wyczerpało limit zapisów lub zajęte są miejsca zapisu czytelników
+     */
+    public LoanResult checkout(String token, String username, List<UUID> uuids)
+            throws AccessDeniedException, RateLimitedException {
+        Session session = authorizeFor(token, username);
+        return admitted(session, Operation.WRITE, () -> checkout(username, uuids));
+    }
+
+    /**
+     * Przyjmuje zwrot w imieniu właściciela sesji: użytkownik może zwracać tylko własne wypożyczenia,
+     * bibliotekarz - dowolne (username == null oznacza zwrot przy stanowisku).
+     *
+     * @param token token sesji
+     * @param uuids UUID pozycji
+     * @param username wymagany wypożyczający lub null, jeśli dowolny (tylko bibliotekarz)
+     * @return wynik z listą pozycji, przez które zwrot odrzucono
+     * @throws AccessDeniedException jeśli sesja jest nieważna lub nie uprawnia do zwrotu tych pozycji
+     * @throws RateLimitedException jeśli konto wyczerpało limit zapisów lub zajęte są miejsca zapisu czytelników
+     */
+    public LoanResult returnAll(String token, List<UUID> uuids, String username)
+            throws AccessDeniedException, RateLimitedException {
+        Session session = authorizeFor(token, username);
+        return admitted(session, Operation.WRITE, () -> returnAll(uuids, username));
+    }
+
+    /**
+     * Zwraca bieżące wypożyczenia konta w imieniu właściciela sesji (użytkownik - tylko własne).
+     *
+     * @param token token sesji
+     * @param username login wypożyczającego
+     * @return wypożyczone pozycje
+     * @throws AccessDeniedException jeśli sesja jest nieważna lub nie uprawnia do odczytu tego konta
+     * @throws RateLimitedException jeśli konto wyczerpało limit odczytów
+     */
+    public List<Item> userLoans(String token, String username) throws AccessDeniedException, RateLimitedException {
+        Session session = authorizeFor(token, username);
+        return admitted(session, Operation.READ, () -> storage.items().getUserLoans(username));
+    }
+
+    /**
+     * Wyszukuje pozycje ({@link #fuzzySearch(String, int)}) w imieniu właściciela sesji.
+     *
+     * @param token token sesji
+     * @param query szukany tekst
+     * @param k maksymalna liczba wyników
+     * @return pozycje od najbardziej podobnej
+     * @throws AccessDeniedException jeśli sesja jest nieważna
+     * @throws RateLimitedException jeśli konto wyczerpało limit wyszukiwań
+     */
+    public List<Item> search(String token, String query, int k) throws AccessDeniedException, RateLimitedException {
+        Session session = authorize(token);
+        return admitted(session, Operation.SEARCH, () -> fuzzySearch(query, k));
+    }
+
+    /**
+     * Wykonuje operację po dopuszczeniu przez {@link AdmissionController}. Każda operacja (także odczyt)
+     * działa na osobnym połączeniu z bazą przypisanym do wątku (jak zadania w tle), więc nie widzi
+     * niezatwierdzonej transakcji innego stanowiska na połączeniu współdzielonym; SQLite szereguje
+     * zapisy blokadą bazy.
+     *
+     * @throws RateLimitedException jeśli operacji nie dopuszczono
+     */
+    private <T> T admitted(Session session, Operation op, Supplier<T> action) throws RateLimitedException {
+        AdmissionController.Permit permit = admission.admit(session, op);
+        Connection conn = null;
+        try {
+            if (DatabaseManager.isConnected()) {
+                conn = DatabaseManager.leaseConnection();
+                DatabaseManager.bindConnection(conn);
+            }
+            return action.get();
+        } finally {
+            if (conn != null) {
+                DatabaseManager.unbindConnection();
+                DatabaseManager.releaseConnection(conn);
+            }
+            permit.close();
+        }
+    }
+
+    /**
+     * Odczytuje listę UUID rozdzielonych spacjami, przecinkami lub średnikami.
+     *
+     * @param text lista UUID
+     * @return UUID w kolejności podania
+     * @throws IllegalArgumentException jeśli któryś UUID jest niepoprawny
+     */
+    public static List<UUID> parseUuids(String text) {
+        List<UUID> result = new ArrayList<>();
+        for (String part : text.trim().split("[\\s,;]+")) {
+            if (!part.isEmpty()) result.add(UUID.fromString(part));
+        }
+        return result;
+    }
+
     /**
      * Interaktywnie przyjmuje zwrot książki.
      */
@@ -194,7 +686,7 @@ public class LibraryService {
         String uuid = sc.nextLine();
         if (uuid.equalsIgnoreCase("q")) return;
 
-        boolean success = ItemDao.returnItem(uuid);
+        boolean success = storage.items().returnItem(uuid);
         if (success) {
             System.out.println("Przyjęto zwrot!");
         } else {
@@ -202,18 +694,96 @@ public class LibraryService {
         }
     }
 
+    /**
+     * Interaktywny zwrot wielu pozycji naraz: wszystkie albo żadna. Użytkownik zwraca własne pozycje,
+     * bibliotekarz - dowolne (zwrot przy stanowisku).
+     *
+     * @param session sesja wywołującego
+     */
+    public void returnManyInteractive(Session session) {
+        String username = session.isLibrarian() ? null : session.getUsername();
+        if (username == null) {
+            ScreenUtil.clearScreen();
+            printItemsTable();
+        } else {
+            listUserLoans(session);
+        }
+        Scanner sc = new Scanner(System.in);
+        List<UUID> cart = readCart(sc,
+                i -> !i.isAvailable() && (username == null || username.equals(i.getLoanedTo())),
+                username == null ? "nie jest wypożyczona" : "nie jest wypożyczona przez Ciebie");
+        if (cart == null) return;
+        if (cart.isEmpty()) {
+            System.out.println("Nie wybrano żadnej pozycji.");
+            return;
+        }
+        System.out.print("Przyjąć zwrot " + cart.size() + " pozycji? (t/n): ");
+        if (!sc.nextLine().trim().equalsIgnoreCase("t")) {
+            System.out.println("Anulowano zwrot.");
+            return;
+        }
+        LoanResult result;
+        try {
+            result = returnAll(session.getToken(), cart, username);
+        } catch (AccessDeniedException | RateLimitedException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (result.success) {
+            System.out.println("Przyjęto zwrot " + cart.size() + " pozycji!");
+        } else {
+            System.out.println("Nie przyjęto zwrotu żadnej pozycji – "
+                    + (result.error != null ? "błąd bazy danych: " + result.error : "nie można zwrócić:"));
+            printRejected(result);
+        }
+    }
+
+    /**
+     * Interaktywnie wykonuje skrypt operacji stanowiska (wypożyczenia i zwroty) z pliku.
+     * Operacje są wykonywane w grupowanych transakcjach, a na końcu wyświetlane jest podsumowanie.
+     */
+    public void runScriptInteractive() {
+        Scanner sc = new Scanner(System.in);
+        System.out.println("Format wierszy: 'borrow <uuid> <użytkownik>' lub 'return <uuid>'.");
+        System.out.print("Podaj ścieżkę pliku ze skryptem (q = anuluj): ");
+        String path = sc.nextLine().trim();
+        if (path.equalsIgnoreCase("q")) return;
+
+        long start = System.nanoTime();
+        List<ScriptExecutor.Result> results;
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            results = new ScriptExecutor(storage).execute(reader);
+        } catch (Exception e) {
+            System.out.println("Błąd wykonania skryptu: " + e.getMessage());
+            return;
+        }
+        ScriptExecutor.printSummary(results, System.nanoTime() - start, System.out);
+
+        System.out.print("Podaj ścieżkę pliku raportu (Enter = pomiń): ");
+        String reportPath = sc.nextLine().trim();
+        if (reportPath.isEmpty()) return;
+        try (PrintWriter pw = new PrintWriter(new FileWriter(reportPath))) {
+            ScriptExecutor.writeReport(results, pw);
+            System.out.println("Zapisano raport: " + reportPath);
+        } catch (Exception e) {
+            System.out.println("Błąd zapisu raportu: " + e.getMessage());
+        }
+    }
+
     /**
      * Interaktywnie usuwa pozycję biblioteczną po podaniu UUID.
      */
     public void removeItemInteractive() {
         printItemsTable();
         Scanner sc = new Scanner(System.in);
-        System.out.print("Podaj UUID pozycji do usunięcia ('q' - anuluj): ");
-        String uuidStr = sc.nextLine();
-        if (uuidStr.equalsIgnoreCase("q")) return;
+        System.out.print("Podaj UUID pozycji do usunięcia lub początek tytułu/autora ('q' - anuluj): ");
+        String input = sc.nextLine();
+        if (input.equalsIgnoreCase("q")) return;
+        String uuidStr = resolveItemUuid(sc, input);
+        if (uuidStr == null) return;
         try {
             UUID uuid = UUID.fromString(uuidStr);
-            ItemDao.delete(uuid);
+            storage.items().delete(uuid);
             System.out.println("Usunięto pozycję!");
         } catch (Exception e) {
             System.out.println("Nieprawidłowy UUID.");
@@ -224,7 +794,7 @@ public class LibraryService {
      * Interaktywnie dodaje nowego użytkownika do systemu.
      */
     public void addUserInteractive() {
-        List<User> users = UserDao.getAllUsers();
+        List<User> users = storage.users().getAllUsers();
         if (!users.isEmpty()) {
             printUserTable(users);
         }
@@ -235,7 +805,7 @@ public class LibraryService {
         String fullname = sc.nextLine();
         System.out.print("Hasło: ");
         String password = sc.nextLine();
-        UserDao.addUser(username, fullname, password);
+        storage.users().addUser(username, fullname, password);
         System.out.println("Dodano użytkownika!");
     }
 
@@ -244,7 +814,7 @@ public class LibraryService {
      */
     public void editUserInteractive() {
         Scanner sc = new Scanner(System.in);
-        List<User> users = UserDao.getAllUsers();
+        List<User> users = storage.users().getAllUsers();
         if (users.isEmpty()) {
             System.out.println("Brak użytkowników do edycji!");
             return;
@@ -252,8 +822,10 @@ public class LibraryService {
         printUserTable(users);
 
         System.out.print("Login użytkownika do edycji (q aby anulować): ");
-        String username = sc.nextLine().trim();
-        if (username.equalsIgnoreCase("q")) return;
+        String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("q")) return;
+        String username = resolveUsername(sc, input, users);
+        if (username == null) return;
 
         User oldUser = users.stream().filter(u -> u.getUsername().equals(username)).findFirst().orElse(null);
         if (oldUser == null) {
@@ -262,6 +834,8 @@ public class LibraryService {
         }
         String fullname = oldUser.getFullName();
         String password = oldUser.getPassword();
+        boolean fullnameChanged = false;
+        boolean passwordChanged = false;
 
         System.out.print("Czy zmienić imię i nazwisko? (t/n/q): ");
         String ans = sc.nextLine().trim();
@@ -270,6 +844,7 @@ public class LibraryService {
             System.out.print("Nowe imię i nazwisko (q aby anulować): ");
             fullname = sc.nextLine().trim();
             if (fullname.equalsIgnoreCase("q")) return;
+            fullnameChanged = true;
         }
         System.out.print("Czy zmienić hasło? (t/n/q): ");
         ans = sc.nextLine().trim();
@@ -278,6 +853,7 @@ public class LibraryService {
             System.out.print("Nowe hasło (q aby anulować): ");
             password = sc.nextLine().trim();
             if (password.equalsIgnoreCase("q")) return;
+            passwordChanged = true;
         }
 
         System.out.println("\n--- Podsumowanie ---");
@@ -289,8 +865,24 @@ public class LibraryService {
             System.out.println("Anulowano edycję.");
             return;
         }
-        UserDao.editUser(username, fullname, password);
-        System.out.println("Edytowano użytkownika!");
+        UpdateResult<User> result = storage.users().editUser(username, fullname, password, oldUser.getVersion());
+        if (result.status == UpdateResult.Status.CONFLICT) {
+            User current = result.value;
+            System.out.println("Użytkownik został w międzyczasie zmieniony przez innego bibliotekarza.");
+            System.out.printf("Aktualnie: %s | %s\n", current.getUsername(), current.getFullName());
+            System.out.print("Czy zastosować Twoje zmiany do aktualnych danych? (t/n): ");
+            if (!sc.nextLine().trim().equalsIgnoreCase("t")) {
+                System.out.println("Anulowano edycję.");
+                return;
+            }
+            String newFullname = fullnameChanged ? fullname : null;
+            String newPassword = passwordChanged ? password : null;
+            result = updateUser(username, u -> new User(
+                    newFullname != null ? newFullname : u.getFullName(), username,
+                    newPassword != null ? newPassword : u.getPassword()));
+        }
+        if (passwordChanged && result.status == UpdateResult.Status.UPDATED) sessions.closeAll(username);
+        printUpdateResult(result, "Edytowano użytkownika!", "Użytkownik został w międzyczasie usunięty.");
     }
 
     /**
@@ -298,7 +890,7 @@ public class LibraryService {
      */
     public void removeUserInteractive() {
         Scanner sc = new Scanner(System.in);
-        List<User> users = UserDao.getAllUsers();
+        List<User> users = storage.users().getAllUsers();
         if (users.isEmpty()) {
             System.out.println("Brak użytkowników do usunięcia!");
             return;
@@ -306,12 +898,15 @@ public class LibraryService {
         printUserTable(users);
 
         System.out.print("Login użytkownika do usunięcia: ");
-        String username = sc.nextLine().trim();
+        String input = sc.nextLine().trim();
+        String username = input.isEmpty() ? input : resolveUsername(sc, input, users);
+        if (username == null) return;
         if (username.isEmpty() || users.stream().noneMatch(u -> u.getUsername().equals(username))) {
             System.out.println("Niepoprawny login!");
             return;
         }
-        UserDao.removeUser(username);
+        storage.users().removeUser(username);
+        sessions.closeAll(username);
         System.out.println("Usunięto użytkownika!");
     }
 
@@ -319,7 +914,7 @@ public class LibraryService {
      * Interaktywnie dodaje nowego bibliotekarza.
      */
     public void addLibrarianInteractive() {
-        List<Librarian> librarians = LibrarianDao.getAllLibrarians();
+        List<Librarian> librarians = storage.librarians().getAllLibrarians();
         if (!librarians.isEmpty()) {
             printLibrarianTable(librarians);
         }
@@ -357,7 +952,7 @@ public class LibraryService {
             return;
         }
 
-        LibrarianDao.addLibrarian(username, fullname, password, salary);
+        storage.librarians().addLibrarian(username, fullname, password, salary);
         System.out.println("Dodano bibliotekarza!");
     }
 
@@ -365,7 +960,7 @@ public class LibraryService {
      * Interaktywnie edytuje bibliotekarza.
      */
     public void editLibrarianInteractive() {
-        List<Librarian> librarians = LibrarianDao.getAllLibrarians();
+        List<Librarian> librarians = storage.librarians().getAllLibrarians();
         if (librarians.isEmpty()) {
             System.out.println("Brak bibliotekarzy do edycji!");
             return;
@@ -388,18 +983,23 @@ public class LibraryService {
         String fullname = oldLibrarian.getFullName();
         String password = oldLibrarian.getPassword();
         int salary = oldLibrarian.getSalary();
+        boolean fullnameChanged = false;
+        boolean passwordChanged = false;
+        boolean salaryChanged = false;
 
         System.out.print("Czy zmienić imię i nazwisko? (t/n): ");
         if (sc.nextLine().trim().equalsIgnoreCase("t")) {
             System.out.print("Nowe imię i nazwisko: ");
             fullname = sc.nextLine().trim();
             if (fullname.equalsIgnoreCase("q")) return;
+            fullnameChanged = true;
         }
         System.out.print("Czy zmienić hasło? (t/n): ");
         if (sc.nextLine().trim().equalsIgnoreCase("t")) {
             System.out.print("Nowe hasło: ");
             password = sc.nextLine().trim();
             if (password.equalsIgnoreCase("q")) return;
+            passwordChanged = true;
         }
         System.out.print("Czy zmienić wynagrodzenie? (t/n): ");
         if (sc.nextLine().trim().equalsIgnoreCase("t")) {
@@ -411,6 +1011,7 @@ public class LibraryService {
                     int newSalary = Integer.parseInt(salaryStr);
                     if (newSalary < 0) throw new NumberFormatException();
                     salary = newSalary;
+                    salaryChanged = true;
                     break;
                 } catch (NumberFormatException e) {
                     System.out.println("Wynagrodzenie musi być liczbą całkowitą >= 0!");
@@ -425,19 +1026,39 @@ public class LibraryService {
                 oldLibrarian.getUsername(), fullname, password, salary);
 
         System.out.print("Czy zapisać zmiany? (t/n): ");
-        if (sc.nextLine().trim().equalsIgnoreCase("t")) {
-            LibrarianDao.editLibrarian(username, fullname, password, salary);
-            System.out.println("Edytowano bibliotekarza!");
-        } else {
+        if (!sc.nextLine().trim().equalsIgnoreCase("t")) {
             System.out.println("Anulowano edycję.");
+            return;
+        }
+        UpdateResult<Librarian> result = storage.librarians()
+                .editLibrarian(username, fullname, password, salary, oldLibrarian.getVersion());
+        if (result.status == UpdateResult.Status.CONFLICT) {
+            Librarian current = result.value;
+            System.out.println("Bibliotekarz został w międzyczasie zmieniony przez kogoś innego.");
+            System.out.printf("Aktualnie: %s | %s | %s | %d\n",
+                    current.getUsername(), current.getFullName(), current.getPassword(), current.getSalary());
+            System.out.print("Czy zastosować Twoje zmiany do aktualnych danych? (t/n): ");
+            if (!sc.nextLine().trim().equalsIgnoreCase("t")) {
+                System.out.println("Anulowano edycję.");
+                return;
+            }
+            String newFullname = fullnameChanged ? fullname : null;
+            String newPassword = passwordChanged ? password : null;
+            Integer newSalary = salaryChanged ? salary : null;
+            result = updateLibrarian(username, l -> new Librarian(
+                    newFullname != null ? newFullname : l.getFullName(), username,
+                    newPassword != null ? newPassword : l.getPassword(),
+                    newSalary != null ? newSalary : l.getSalary()));
         }
+        if (passwordChanged && result.status == UpdateResult.Status.UPDATED) sessions.closeAll(username);
+        printUpdateResult(result, "Edytowano bibliotekarza!", "Bibliotekarz został w międzyczasie usunięty.");
     }
 
     /**
      * Interaktywnie usuwa bibliotekarza.
      */
     public void removeLibrarianInteractive() {
-        List<Librarian> librarians = LibrarianDao.getAllLibrarians();
+        List<Librarian> librarians = storage.librarians().getAllLibrarians();
         if (librarians.isEmpty()) {
             System.out.println("Brak bibliotekarzy do usunięcia!");
             return;
@@ -459,12 +1080,14 @@ public class LibraryService {
             return;
         }
 
-        LibrarianDao.removeLibrarian(username);
+        storage.librarians().removeLibrarian(username);
+        sessions.closeAll(username);
         System.out.println("Usunięto bibliotekarza!");
     }
 
     /**
      * Menu interaktywnego importu i eksportu książek w formatach binarnym i tekstowym.
+     * Import i eksport wykonywane są w tle jako zadania ({@link JobManager}).
      */
     public void importExportBooksInteractive() {
         Scanner sc = new Scanner(System.in);
@@ -482,12 +1105,12 @@ public class LibraryService {
                     case "1":
                         System.out.print("Podaj ścieżkę pliku: ");
                         String binImportPath = sc.nextLine();
-                        library.util.SerializationUtil.importFromBin(binImportPath);
+                        submitJob(new ImportBooksJob(storage, binImportPath, true));
                         break;
                     case "2":
                         System.out.print("Podaj ścieżkę pliku: ");
                         String txtImportPath = sc.nextLine();
-                        library.util.SerializationUtil.importFromTxt(txtImportPath);
+                        submitJob(new ImportBooksJob(storage, txtImportPath, false));
                         break;
                     default:
                         System.out.println("Nieznany format!");
@@ -501,12 +1124,12 @@ public class LibraryService {
                     case "1":
                         System.out.print("Podaj ścieżkę pliku: ");
                         String binExportPath = sc.nextLine();
-                        library.util.SerializationUtil.exportToBin(binExportPath);
+                        submitJob(new ExportBooksJob(storage, binExportPath, true));
                         break;
                     case "2":
                         System.out.print("Podaj ścieżkę pliku: ");
                         String txtExportPath = sc.nextLine();
-                        library.util.SerializationUtil.exportToTxt(txtExportPath);
+                        submitJob(new ExportBooksJob(storage, txtExportPath, false));
                         break;
                     default:
                         System.out.println("Nieznany format!");
@@ -518,9 +1141,8 @@ public class LibraryService {
     }
 
     /**
-     * Import użytkowników z pliku (binarnie lub tekstowo).
+     * Import użytkowników z pliku (binarnie lub tekstowo), wykonywany w tle paczkami.
      */
-    @SuppressWarnings("unchecked")
     public void importUsersInteractive() {
         Scanner sc = new Scanner(System.in);
         System.out.println("Import użytkowników: 1. BINARNIE  2. TEKSTOWO");
@@ -531,59 +1153,18 @@ public class LibraryService {
 
         switch (format) {
             case "1":
-                try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path))) {
-                    List<User> users = (List<User>) ois.readObject();
-                    int added = 0, skipped = 0;
-                    for (User u : users) {
-                        if (UserDao.getByUsername(u.getUsername()).isEmpty()) {
-                            UserDao.addUser(u.getUsername(), u.getFullName(), u.getPassword());
-                            added++;
-                        } else {
-                            System.out.println("Użytkownik " + u.getUsername() + " już istnieje, pomijam.");
-                            skipped++;
-                        }
-                    }
-                    System.out.printf("Zaimportowano %d nowych użytkowników (pominięto %d istniejących) z pliku binarnego: %s\n",
-                            added, skipped, path);
-                } catch (Exception e) {
-                    System.out.println("Błąd importu: " + e.getMessage());
-                }
+                submitJob(new ImportUsersJob(storage, path, true));
                 break;
-
             case "2":
-                try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-                    String line = br.readLine(); 
-                    int added = 0, skipped = 0;
-                    while ((line = br.readLine()) != null) {
-                        String[] data = line.split(";");
-                        if (data.length >= 2) {
-                            String username = data[0];
-                            String fullname = data[1];
-                            String password = data.length >= 3 ? data[2] : ""; 
-
-                            if (UserDao.getByUsername(username).isEmpty()) {
-                                UserDao.addUser(username, fullname, password);
-                                added++;
-                            } else {
-                                System.out.println("Użytkownik " + username + " już istnieje, pomijam.");
-                                skipped++;
-                            }
-                        }
-                    }
-                    System.out.printf("Zaimportowano %d nowych użytkowników (pominięto %d istniejących) z pliku tekstowego: %s\n",
-                            added, skipped, path);
-                } catch (Exception e) {
-                    System.out.println("Błąd importu: " + e.getMessage());
-                }
+                submitJob(new ImportUsersJob(storage, path, false));
                 break;
-
             default:
                 System.out.println("Nieznany format!");
         }
     }
 
     /**
-     * Eksport użytkowników do pliku (binarnie lub tekstowo).
+     * Eksport użytkowników do pliku (binarnie lub tekstowo), wykonywany w tle.
      */
     public void exportUsersInteractive() {
         Scanner sc = new Scanner(System.in);
@@ -593,26 +1174,12 @@ public class LibraryService {
         System.out.print("Podaj ścieżkę pliku: ");
         String path = sc.nextLine();
 
-        List<User> users = UserDao.getAllUsers();
         switch (format) {
             case "1":
-                try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path))) {
-                    oos.writeObject(users);
-                    System.out.println("Wyeksportowano użytkowników binarnie.");
-                } catch (Exception e) {
-                    System.out.println("Błąd eksportu: " + e.getMessage());
-                }
+                submitJob(new ExportUsersJob(storage, path, true));
                 break;
             case "2":
-                try (PrintWriter pw = new PrintWriter(new FileWriter(path))) {
-                    pw.println("Login;Imię i nazwisko");
-                    for (User u : users) {
-                        pw.printf("%s;%s\n", u.getUsername(), u.getFullName());
-                    }
-                    System.out.println("Wyeksportowano użytkowników tekstowo.");
-                } catch (Exception e) {
-                    System.out.println("Błąd eksportu: " + e.getMessage());
-                }
+                submitJob(new ExportUsersJob(storage, path, false));
                 break;
             default:
                 System.out.println("Nieznany format!");
@@ -620,7 +1187,7 @@ public class LibraryService {
     }
 
     /**
-     * Eksport wypożyczeń do pliku CSV.
+     * Eksport wypożyczeń do pliku CSV, wykonywany w tle.
      */
     public void exportLoansInteractive() {
         Scanner sc = new Scanner(System.in);
@@ -634,27 +1201,85 @@ public class LibraryService {
             System.out.println("Nieznany format!");
             return;
         }
-        List<Item> items = ItemDao.getAll();
-        try (PrintWriter pw = new PrintWriter(new FileWriter(path))) {
-            pw.println("UUID;Tytuł;Użytkownik");
-            for (Item i : items) {
-                if (!i.isAvailable() && i.getLoanedTo() != null) {
-                    pw.printf("%s;%s;%s\n", i.getUuid().toString(), i.getTitle(), i.getLoanedTo());
+        submitJob(new ExportLoansJob(storage, path));
+    }
+
+    /**
+     * Kopia zapasowa działającej bazy danych do pliku (w tle, bez blokowania stanowiska).
+     */
+    public void backupInteractive() {
+        if (!"sqlite".equals(storage.name())) {
+            System.out.println("Kopia zapasowa jest dostępna tylko dla bazy SQLite (magazyn: " + storage.name() + ").");
+            return;
+        }
+        Scanner sc = new Scanner(System.in);
+        System.out.print("Podaj ścieżkę pliku kopii: ");
+        String path = sc.nextLine().trim();
+        System.out.print("Kompresować kopię (gzip)? (t/n): ");
+        boolean gzip = sc.nextLine().trim().equalsIgnoreCase("t");
+        submitJob(new BackupJob(path, gzip));
+    }
+
+    /**
+     * Pełna przebudowa modelu rekomendacji z bieżących wypożyczeń (w tle).
+     */
+    public void rebuildRecommendationsInteractive() {
+        if (recommendations == null) {
+            System.out.println("Rekomendacje są niedostępne dla tego magazynu danych.");
+            return;
+        }
+        submitJob(new RebuildRecommendationsJob(storage, recommendations));
+    }
+
+    /**
+     * Przekazuje zadanie do wykonania w tle i informuje o tym użytkownika.
+     *
+     * @param job zadanie do wykonania
+     */
+    private void submitJob(Job job) {
+        if (JobManager.getInstance().submit(job)) {
+            System.out.println("Uruchomiono zadanie #" + job.getId() + " w tle: " + job.getName());
+            System.out.println("Postęp można śledzić w menu Import/Eksport -> Zadania w tle.");
+        } else {
+            System.out.println("Kolejka zadań jest pełna, spróbuj później.");
+        }
+    }
+
+    /**
+     * Wyświetla listę zadań w tle z ich stanem i postępem.
+     */
+    public void printJobs() {
+        List<Job> jobs = JobManager.getInstance().list();
+        if (jobs.isEmpty()) {
+            System.out.println("Brak zadań.");
+            return;
+        }
+        System.out.printf("%-4s %-12s %-45s %s%n", "Nr", "Stan", "Zadanie", "Postęp");
+        for (Job job : jobs) {
+            String info = job.isActive() ? job.describeProgress() : job.getMessage();
+            System.out.printf("%-4d %-12s %-45s %s%n", job.getId(), job.getState().getLabel(),
+                    job.getName().length() > 45 ? job.getName().substring(0, 44) + "~" : job.getName(), info);
+            if (!job.isActive()) {
+                for (String line : job.getDetails()) {
+                    System.out.println("     " + line);
                 }
             }
-            System.out.println("Wyeksportowano wypożyczenia.");
-        } catch (Exception e) {
-            System.out.println("Błąd eksportu wypożyczeń: " + e.getMessage());
         }
     }
 
     /**
-     * Wyświetla listę wypożyczeń danego użytkownika.
+     * Wyświetla listę wypożyczeń właściciela sesji.
      * 
-     * @param username login użytkownika
+     * @param session sesja użytkownika
      */
-    public void listUserLoans(String username) {
-        List<Item> items = ItemDao.getUserLoans(username);
+    public void listUserLoans(Session session) {
+        List<Item> items;
+        try {
+            items = userLoans(session.getToken(), session.getUsername());
+        } catch (AccessDeniedException | RateLimitedException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
         System.out.println("\n== Twoje wypożyczenia ==");
         for (Item i : items) {
             System.out.println(i);
@@ -670,7 +1295,7 @@ public class LibraryService {
         Scanner sc = new Scanner(System.in);
         System.out.print("Podaj UUID książki do zwrotu: ");
         String uuid = sc.nextLine();
-        boolean success = ItemDao.returnItemByUser(uuid, username);
+        boolean success = storage.items().returnItemByUser(uuid, username);
         if (success) {
             System.out.println("Zwrócono książkę!");
         } else {
@@ -687,8 +1312,155 @@ public class LibraryService {
      * @return true jeśli login i hasło są poprawne, false w przeciwnym wypadku
      */
     public boolean login(String username, String password, String role) {
-        return UserDao.findUser(username, role)
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        boolean success = storage.users().findUser(username, role)
                 .map(u -> u.getPassword().equals(password))
                 .orElse(false);
+        event.emit(username, role, success);
+        return success;
+    }
+
+    /**
+     * Loguje konto i otwiera dla niego sesję. Najpierw sprawdzane jest konto bibliotekarza,
+     * potem użytkownika o tym samym loginie.
+     *
+     * @param username login
+     * @param password hasło
+     * @return sesja z rolą konta lub pusty Optional, jeśli login lub hasło są błędne
+     */
+    public Optional<Session> openSession(String username, String password) {
+        for (String role : new String[] {"librarian", "user"}) {
+            if (login(username, password, role)) {
+                return Optional.of(sessions.open(username, role));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Zamyka sesję (wylogowanie).
+     *
+     * @param token token sesji
+     */
+    public void closeSession(String token) {
+        sessions.close(token);
+    }
+
+    /**
+     * Sprawdza token sesji. Login i rola pochodzą z sesji - bez zapytania do magazynu danych.
+     *
+     * @param token token sesji
+     * @return aktywna sesja
+     * @throws AccessDeniedException jeśli token jest nieznany lub sesja wygasła
+     */
+    public Session authorize(String token) throws AccessDeniedException {
+        return sessions.get(token)
+                .orElseThrow(() -> new AccessDeniedException("Sesja wygasła lub jest nieprawidłowa. Zaloguj się ponownie."));
+    }
+
+    /**
+     * Sprawdza token sesji i wymaganą rolę.
+     *
+     * @param token token sesji
+     * @param role wymagana rola ("librarian" lub "user")
+     * @return aktywna sesja
+     * @throws AccessDeniedException jeśli sesja jest nieważna lub ma inną rolę
+     */
+    public Session authorize(String token, String role) throws AccessDeniedException {
+        Session session = authorize(token);
+        if (!session.getRole().equals(role)) {
+            throw new AccessDeniedException("Operacja wymaga roli " + role + ".");
+        }
+        return session;
+    }
+
+    /**
+     * Sprawdza, czy sesja uprawnia do operacji na koncie: bibliotekarz - na dowolnym,
+     * użytkownik - tylko na własnym.
+     */
+    private Session authorizeFor(String token, String username) throws AccessDeniedException {
+        Session session = authorize(token);
+        if (!session.isLibrarian() && !session.getUsername().equals(username)) {
+            throw new AccessDeniedException("Brak uprawnień do operacji na koncie " + username + ".");
+        }
+        return session;
+    }
+
+    /**
+     * Zmienia pozycję z ponawianiem przy konfliktach wersji: odczytuje jej aktualny stan,
+     * nakłada na niego zmianę i zapisuje warunkowo ({@link library.repository.ItemRepository#update(Item)}).
+     *
+     * @param uuid UUID pozycji
+     * @param change zmiana nakładana na świeżo odczytaną kopię pozycji (może ją zmodyfikować i zwrócić)
+     * @return wynik ostatniej próby
+     */
+    public UpdateResult<Item> updateItem(UUID uuid, UnaryOperator<Item> change) {
+        return retryOnConflict(() -> storage.items().getByUuid(uuid), current -> {
+            Item changed = change.apply(current);
+            changed.setVersion(current.getVersion());
+            return storage.items().update(changed);
+        });
+    }
+
+    /**
+     * Zmienia użytkownika z ponawianiem przy konfliktach wersji.
+     *
+     * @param username login użytkownika
+     * @param change funkcja wyznaczająca nowe dane na podstawie aktualnych (login się nie zmienia)
+     * @return wynik ostatniej próby
+     */
+    public UpdateResult<User> updateUser(String username, UnaryOperator<User> change) {
+        return retryOnConflict(() -> storage.users().getByUsername(username), current -> {
+            User changed = change.apply(current);
+            return storage.users().editUser(username, changed.getFullName(), changed.getPassword(),
+                    current.getVersion());
+        });
+    }
+
+    /**
+     * Zmienia bibliotekarza z ponawianiem przy konfliktach wersji.
+     *
+     * @param username login bibliotekarza
+     * @param change funkcja wyznaczająca nowe dane na podstawie aktualnych (login się nie zmienia)
+     * @return wynik ostatniej próby
+     */
+    public UpdateResult<Librarian> updateLibrarian(String username, UnaryOperator<Librarian> change) {
+        return retryOnConflict(() -> storage.librarians().getByUsername(username), current -> {
+            Librarian changed = change.apply(current);
+            return storage.librarians().editLibrarian(username, changed.getFullName(), changed.getPassword(),
+                    changed.getSalary(), current.getVersion());
+        });
+    }
+
+    /**
+     * Wykonuje zmianę z optymistyczną kontrolą współbieżności: odczyt bez blokad, zapis warunkowy
+     * względem odczytanej wersji i - przy konflikcie - ponowienie od świeżego odczytu,
+     * najwyżej {@value #MAX_UPDATE_ATTEMPTS} razy.
+     *
+     * @param read odczyt aktualnego stanu rekordu
+     * @param attempt zapis zmiany nałożonej na odczytany stan
+     * @return wynik ostatniej próby (CONFLICT, jeśli wszystkie próby trafiły na konflikt;
+     *         błąd zapisu - ERROR - kończy ponawianie od razu)
+     */
+    static <T> UpdateResult<T> retryOnConflict(Supplier<Optional<T>> read, Function<T, UpdateResult<T>> attempt) {
+        UpdateResult<T> result = UpdateResult.notFound();
+        for (int i = 0; i < MAX_UPDATE_ATTEMPTS; i++) {
+            Optional<T> current = read.get();
+            if (current.isEmpty()) return UpdateResult.notFound();
+            result = attempt.apply(current.get());
+            if (result.status != UpdateResult.Status.CONFLICT) return result;
+            UPDATE_CONFLICTS.increment();
+        }
+        return result;
+    }
+
+    private static void printUpdateResult(UpdateResult<?> result, String updated, String notFound) {
+        switch (result.status) {
+            case UPDATED -> System.out.println(updated);
+            case NOT_FOUND -> System.out.println(notFound);
+            case CONFLICT -> System.out.println("Nie udało się zapisać zmian - rekord jest zmieniany równolegle. Spróbuj ponownie.");
+            case ERROR -> System.out.println("Nie udało się zapisać zmian: " + result.error);
+        }
     }
 }
@@ -0,0 +1,241 @@
+package library.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import library.config.LibraryConfig;
+import library.model.Librarian;
+import library.model.User;
+import library.repository.ItemRepository;
+import library.repository.Storage;
+
+/**
+ * Wykonawca skryptów operacji stanowiska wypożyczeń.
+ * <p>
+ * Odczytuje strumień poleceń (po jednym w wierszu):
+ * </p>
+ * <pre>
+ * borrow &lt;uuid&gt; &lt;użytkownik&gt;
+ * return &lt;uuid&gt;
+ * </pre>
+ * <p>
+ * Wiersze puste i zaczynające się od '#' są pomijane. Operacje wykonywane są grupami
+ * po {@code batchSize} w jednej transakcji, z użyciem raz przygotowanych zapytań
+ * ({@link ItemRepository.LoanBatch}). Wynik każdej operacji jest zapamiętywany i zwracany na końcu.
+ * Jeśli transakcja grupy się nie powiedzie, cała grupa jest wycofywana i oznaczana jako nieudana.
+ * </p>
+ */
+public class ScriptExecutor {
+
+    /**
+     * Wynik pojedynczej operacji skryptu.
+     */
+    public static final class Result {
+        /** Numer wiersza w skrypcie (od 1) */
+        public final int line;
+        /** Treść polecenia */
+        public final String command;
+        /** Czy operacja się powiodła */
+        public final boolean success;
+        /** Opis wyniku */
+        public final String message;
+
+        Result(int line, String command, boolean success, String message) {
+            this.line = line;
+            this.command = command;
+            this.success = success;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Sparsowana operacja oczekująca na wykonanie w bieżącej grupie.
+     */
+    private static final class Op {
+        final int index;
+        final int line;
+        final String command;
+        final boolean borrow;
+        final UUID uuid;
+        final String username;
+
+        Op(int index, int line, String command, boolean borrow, UUID uuid, String username) {
+            this.index = index;
+            this.line = line;
+            this.command = command;
+            this.borrow = borrow;
+            this.uuid = uuid;
+            this.username = username;
+        }
+    }
+
+    private final Storage storage;
+    private final int batchSize;
+    private Set<String> knownUsers;
+
+    /**
+     * Tworzy wykonawcę z rozmiarem grupy z konfiguracji ({@link LibraryConfig#SCRIPT_BATCH_SIZE}).
+     *
+     * @param storage magazyn danych
+     */
+    public ScriptExecutor(Storage storage) {
+        this(storage, LibraryConfig.getInt(LibraryConfig.SCRIPT_BATCH_SIZE));
+    }
+
+    /**
+     * Tworzy wykonawcę z podanym rozmiarem grupy.
+     *
+     * @param storage magazyn danych
+     * @param batchSize liczba operacji w jednej transakcji
+     */
+    public ScriptExecutor(Storage storage, int batchSize) {
+        this.storage = storage;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Wykonuje wszystkie operacje ze strumienia.
+     *
+     * @param reader źródło poleceń
+     * @return wyniki operacji w kolejności wierszy skryptu
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    public List<Result> execute(BufferedReader reader) throws IOException {
+        knownUsers = loadUsernames();
+        List<Result> results = new ArrayList<>();
+        List<Op> pending = new ArrayList<>(batchSize);
+
+        try (ItemRepository.LoanBatch batch = storage.items().openLoanBatch()) {
+            String raw;
+            int lineNo = 0;
+            while ((raw = reader.readLine()) != null) {
+                lineNo++;
+                String line = raw.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String[] parts = line.split("\\s+");
+                String op = parts[0].toLowerCase(Locale.ROOT);
+                int index = results.size();
+                results.add(null);
+
+                String error = null;
+                UUID uuid = null;
+                if (!op.equals("borrow") && !op.equals("return")) {
+                    error = "nieznana operacja";
+                } else if (op.equals("borrow") && parts.length != 3 || op.equals("return") && parts.length != 2) {
+                    error = "nieprawidłowa liczba argumentów";
+                } else {
+                    try {
+                        uuid = UUID.fromString(parts[1]);
+                    } catch (IllegalArgumentException e) {
+                        error = "nieprawidłowy UUID";
+                    }
+                    if (error == null && op.equals("borrow") && !knownUsers.contains(parts[2])) {
+                        error = "nieznany użytkownik";
+                    }
+                }
+                if (error != null) {
+                    results.set(index, new Result(lineNo, line, false, error));
+                    continue;
+                }
+
+                pending.add(new Op(index, lineNo, line, op.equals("borrow"), uuid,
+                        op.equals("borrow") ? parts[2] : null));
+                if (pending.size() >= batchSize) {
+                    flush(batch, pending, results);
+                }
+            }
+            flush(batch, pending, results);
+        } catch (SQLException e) {
+            throw new IOException("Nie udało się przygotować zapytań: " + e.getMessage(), e);
+        }
+        return results;
+    }
+
+    /**
+     * Wykonuje oczekujące operacje w jednej transakcji.
+     *
+     * @param batch przygotowane zapytania
+     * @param pending operacje do wykonania (lista jest czyszczona)
+     * @param results lista wyników do uzupełnienia
+     */
+    private void flush(ItemRepository.LoanBatch batch, List<Op> pending, List<Result> results) {
+        if (pending.isEmpty()) return;
+        List<Result> group = new ArrayList<>(pending.size());
+        storage.beginTransaction();
+        try {
+            for (Op op : pending) {
+                boolean ok = op.borrow ? batch.borrow(op.uuid, op.username) : batch.returnItem(op.uuid);
+                String msg = ok ? "OK" : op.borrow
+                        ? "pozycja nie istnieje lub jest już wypożyczona"
+                        : "pozycja nie istnieje lub nie jest wypożyczona";
+                group.add(new Result(op.line, op.command, ok, msg));
+            }
+            storage.commitTransaction();
+        } catch (SQLException | RuntimeException e) {
+            storage.rollbackTransaction();
+            group.clear();
+            for (Op op : pending) {
+                group.add(new Result(op.line, op.command, false, "wycofano transakcję: " + e.getMessage()));
+            }
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            results.set(pending.get(i).index, group.get(i));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Wczytuje loginy wszystkich kont, na które można wypożyczać pozycje.
+     *
+     * @return zbiór loginów
+     */
+    private Set<String> loadUsernames() {
+        Set<String> names = new HashSet<>();
+        for (User u : storage.users().getAllUsers()) names.add(u.getUsername());
+        for (Librarian l : storage.librarians().getAllLibrarians()) names.add(l.getUsername());
+        return names;
+    }
+
+    /**
+     * Wypisuje podsumowanie wykonania skryptu oraz listę nieudanych operacji.
+     *
+     * @param results wyniki operacji
+     * @param elapsedNanos czas wykonania w nanosekundach
+     * @param out strumień wyjściowy
+     */
+    public static void printSummary(List<Result> results, long elapsedNanos, PrintStream out) {
+        long ok = results.stream().filter(r -> r.success).count();
+        long failed = results.size() - ok;
+        for (Result r : results) {
+            if (!r.success) {
+                out.printf("Wiersz %d: %s -> BŁĄD: %s%n", r.line, r.command, r.message);
+            }
+        }
+        double secs = elapsedNanos / 1_000_000_000.0;
+        out.printf(Locale.ROOT, "Wykonano %d operacji (udane: %d, nieudane: %d) w %.3f s (%.0f operacji/s)%n",
+                results.size(), ok, failed, secs, secs > 0 ? results.size() / secs : results.size());
+    }
+
+    /**
+     * Zapisuje wyniki wszystkich operacji w formacie CSV: wiersz;polecenie;status;opis.
+     *
+     * @param results wyniki operacji
+     * @param out strumień wyjściowy
+     */
+    public static void writeReport(List<Result> results, PrintWriter out) {
+        out.println("Wiersz;Polecenie;Status;Opis");
+        for (Result r : results) {
+            out.printf("%d;%s;%s;%s%n", r.line, r.command, r.success ? "OK" : "BŁĄD", r.message);
+        }
+        out.flush();
+    }
+}
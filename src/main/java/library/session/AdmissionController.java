@@ -0,0 +1,188 @@
+package library.session;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import library.config.LibraryConfig;
+import library.exceptions.RateLimitedException;
+import library.metrics.Counter;
+import library.metrics.MetricsRegistry;
+
+/**
+ * Kontrola dopuszczania żądań czytelników przed operacjami {@link library.service.LibraryService}.
+ * <p>
+ * Każde konto ma osobny kubełek żetonów dla każdej klasy operacji ({@link Operation}): limit
+ * {@code library.admission.*Rate} żądań na sekundę z chwilowym zapasem na
+ * {@code library.admission.burstSeconds} sekund. Kubełek to jedna liczba {@link AtomicLong}
+ * (teoretyczny czas następnego żądania, algorytm GCRA) zmieniana pojedynczym CAS - bez blokad.
+ * Dodatkowo wszystkie zapisy czytelników razem mogą zajmować najwyżej
+ * {@code library.admission.maxPatronWrites} miejsc jednocześnie, więc jedyny zapisujący wątek
+ * SQLite nie jest nigdy w całości zajęty przez klientów sieciowych.
+ * </p>
+ * <p>
+ * Żądanie ponad limit jest odrzucane od razu ({@link RateLimitedException}), bez czekania w kolejce.
+ * Sesje bibliotekarzy (stanowiska) nie podlegają żadnemu z limitów, więc ruch czytelników
+ * nie może ich spowolnić.
+ * </p>
+ */
+public class AdmissionController {
+
+    /** Klasa operacji, dla której konto ma osobny limit */
+    public enum Operation {
+        /** Odczyt (katalog, własne wypożyczenia) */
+        READ,
+        /** Wyszukiwanie pełnotekstowe */
+        SEARCH,
+        /** Zapis (wypożyczenie, zwrot) */
+        WRITE
+    }
+
+    /**
+     * Pozwolenie na wykonanie operacji; zamknięcie zwalnia miejsce zapisu (używać w try-with-resources).
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** Sugerowany czas ponowienia, gdy zajęte są wszystkie miejsca zapisu */
+    private static final long SATURATED_RETRY_MILLIS = 50;
+    /** Co ile sekund usuwane są kubełki kont, które od dawna nic nie wysłały */
+    private static final long SWEEP_SECONDS = 60;
+
+    private static final Permit NONE = () -> { };
+
+    private static final Counter DESK_ADMITTED = MetricsRegistry.counter("Admission", "deskAdmitted");
+    private static final Counter WRITES_SATURATED = MetricsRegistry.counter("Admission", "writesSaturated");
+    private static final Map<Operation, Counter> ADMITTED = new EnumMap<>(Operation.class);
+    private static final Map<Operation, Counter> THROTTLED = new EnumMap<>(Operation.class);
+
+    static {
+        for (Operation op : Operation.values()) {
+            String name = op.name().toLowerCase();
+            ADMITTED.put(op, MetricsRegistry.counter("Admission", name + "Admitted"));
+            THROTTLED.put(op, MetricsRegistry.counter("Admission", name + "Throttled"));
+        }
+    }
+
+    private static final AdmissionController INSTANCE = new AdmissionController(
+            LibraryConfig.getInt(LibraryConfig.ADMISSION_READ_RATE),
+            LibraryConfig.getInt(LibraryConfig.ADMISSION_SEARCH_RATE),
+            LibraryConfig.getInt(LibraryConfig.ADMISSION_WRITE_RATE),
+            LibraryConfig.getInt(LibraryConfig.ADMISSION_BURST_SECONDS),
+            LibraryConfig.getInt(LibraryConfig.ADMISSION_MAX_PATRON_WRITES));
+
+    private final Map<Operation, ConcurrentHashMap<String, AtomicLong>> buckets = new EnumMap<>(Operation.class);
+    /** Odstęp między żądaniami w nanosekundach dla każdej klasy (0 - bez limitu) */
+    private final long[] intervals = new long[Operation.values().length];
+    /** Dopuszczalne wyprzedzenie (zapas żądań) w nanosekundach */
+    private final long[] tolerances = new long[Operation.values().length];
+    private final Semaphore patronWrites;
+
+    /**
+     * @param readRate odczyty na sekundę dla jednego konta (0 - bez limitu)
+     * @param searchRate wyszukiwania na sekundę dla jednego konta (0 - bez limitu)
+     * @param writeRate zapisy na sekundę dla jednego konta (0 - bez limitu)
+     * @param burstSeconds na ile sekund limitu wystarcza chwilowy zapas żądań
+     * @param maxPatronWrites najwięcej równoległych zapisów wszystkich czytelników (0 - bez limitu)
+     */
+    public AdmissionController(int readRate, int searchRate, int writeRate, int burstSeconds, int maxPatronWrites) {
+        int[] rates = {readRate, searchRate, writeRate};
+        for (Operation op : Operation.values()) {
+            int rate = rates[op.ordinal()];
+            buckets.put(op, new ConcurrentHashMap<>());
+            if (rate > 0) {
+                long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+                long burst = Math.max(1, (long) rate * burstSeconds);
+                intervals[op.ordinal()] = Math.max(1, interval);
+                tolerances[op.ordinal()] = (burst - 1) * intervals[op.ordinal()];
+            }
+        }
+        this.patronWrites = maxPatronWrites > 0 ? new Semaphore(maxPatronWrites) : null;
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "admission-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> sweep(System.nanoTime()), SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return wspólna kontrola dopuszczania; limity pochodzą z konfiguracji
+     */
+    public static AdmissionController getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Dopuszcza operację albo od razu ją odrzuca.
+     *
+     * @param session sesja zlecająca operację
+     * @param op klasa operacji
+     * @return pozwolenie do zamknięcia po wykonaniu operacji
+     * @throws RateLimitedException jeśli konto wyczerpało limit lub zajęte są wszystkie miejsca zapisu
+     */
+    public Permit admit(Session session, Operation op) throws RateLimitedException {
+        if (session.isLibrarian()) {
+            DESK_ADMITTED.increment();
+            return NONE;
+        }
+        long wait = acquire(session.getUsername(), op, System.nanoTime());
+        if (wait > 0) {
+            THROTTLED.get(op).increment();
+            throw new RateLimitedException("Przekroczono limit żądań. Spróbuj ponownie za chwilę.",
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+        }
+        if (op != Operation.WRITE || patronWrites == null) {
+            ADMITTED.get(op).increment();
+            return NONE;
+        }
+        // kubełek sprawdzany przed wspólnym semaforem - nadmiarowe żądania nie rywalizują o wspólny licznik
+        if (!patronWrites.tryAcquire()) {
+            WRITES_SATURATED.increment();
+            throw new RateLimitedException("Biblioteka obsługuje teraz zbyt wiele zapisów. Spróbuj ponownie za chwilę.",
+                    SATURATED_RETRY_MILLIS);
+        }
+        ADMITTED.get(op).increment();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) patronWrites.release();
+        };
+    }
+
+    /**
+     * Pobiera żeton z kubełka konta (GCRA): żądanie jest dopuszczone, jeśli teoretyczny czas
+     * następnego żądania nie wyprzedza bieżącej chwili o więcej niż zapas.
+     *
+     * @return 0, jeśli dopuszczono, w przeciwnym razie czas do najbliższego wolnego żetonu w nanosekundach
+     */
+    long acquire(String username, Operation op, long now) {
+        long interval = intervals[op.ordinal()];
+        if (interval == 0) return 0;
+        long tolerance = tolerances[op.ordinal()];
+        AtomicLong bucket = buckets.get(op).computeIfAbsent(username, u -> new AtomicLong(now));
+        while (true) {
+            long tat = bucket.get();
+            long base = tat - now > 0 ? tat : now;
+            long ahead = base - now;
+            if (ahead > tolerance) return ahead - tolerance;
+            if (bucket.compareAndSet(tat, base + interval)) return 0;
+        }
+    }
+
+    /**
+     * Usuwa kubełki kont, które są pełne (konto nie wysłało żadnego żądania od czasu
+     * potrzebnego na ich uzupełnienie) - taki kubełek niczym nie różni się od nowego.
+     */
+    void sweep(long now) {
+        for (ConcurrentHashMap<String, AtomicLong> map : buckets.values()) {
+            map.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package library.session;
+
+/**
+ * Sesja zalogowanego konta: nieprzezroczysty token oraz login i rola ustalone przy logowaniu,
+ * dzięki którym sprawdzenie uprawnień nie wymaga zapytania do magazynu danych.
+ */
+public final class Session {
+
+    private final String token;
+    private final String username;
+    private final String role;
+    private final long createdNanos;
+    private volatile long lastAccessNanos;
+    private volatile boolean closed;
+
+    Session(String token, String username, String role, long nowNanos) {
+        this.token = token;
+        this.username = username;
+        this.role = role;
+        this.createdNanos = nowNanos;
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /** @return token sesji */
+    public String getToken() {
+        return token;
+    }
+
+    /** @return login właściciela sesji */
+    public String getUsername() {
+        return username;
+    }
+
+    /** @return rola ("librarian" lub "user") */
+    public String getRole() {
+        return role;
+    }
+
+    /** @return true dla sesji bibliotekarza */
+    public boolean isLibrarian() {
+        return "librarian".equals(role);
+    }
+
+    void touch(long nowNanos) {
+        lastAccessNanos = nowNanos;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return chwila wygaśnięcia (System.nanoTime): wcześniejsza z końca czasu życia i końca bezczynności
+     */
+    long deadline(long ttlNanos, long idleNanos) {
+        return Math.min(createdNanos + ttlNanos, lastAccessNanos + idleNanos);
+    }
+
+    @Override
+    public String toString() {
+        return username + " (" + role + ")";
+    }
+}
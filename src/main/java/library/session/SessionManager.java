@@ -0,0 +1,206 @@
+package library.session;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import library.config.LibraryConfig;
+import library.metrics.Counter;
+import library.metrics.MetricsRegistry;
+
+/**
+ * Sesje zalogowanych kont dla wielu stanowisk i klientów sieciowych.
+ * <p>
+ * Logowanie ({@link #open(String, String)}) wydaje losowy, nieprzezroczysty token; kolejne żądania
+ * przedstawiają token ({@link #get(String)}), a login i rola są odczytywane z mapy sesji, bez zapytania
+ * do magazynu danych. Sesja wygasa po {@link LibraryConfig#SESSION_TTL_MINUTES} od zalogowania
+ * albo po {@link LibraryConfig#SESSION_IDLE_MINUTES} bez użycia - wcześniejsze z nich.
+ * </p>
+ * <p>
+ * Wygasłe sesje usuwa koło czasowe (hashed timer wheel): każda sesja czeka w kubełku odpowiadającym
+ * chwili jej wygaśnięcia, a wątek w tle co {@value #TICK_MILLIS} ms przegląda tylko jeden kubełek.
+ * Kubełki zmienia wyłącznie ten wątek - nowa sesja trafia najpierw do kolejki przyjęć, którą wątek
+ * koła opróżnia przed przeglądem, więc sesja nie może trafić do kubełka właśnie przeglądanego.
+ * Użycie sesji nie przenosi jej między kubełkami (tylko zapisuje czas) - sesja, której termin się
+ * przesunął, jest przy przeglądzie kubełka planowana ponownie. Żadne żądanie nie przegląda więc
+ * wszystkich sesji, a sesja wygasła między przeglądami jest odrzucana już przy odczycie.
+ * </p>
+ */
+public class SessionManager {
+
+    /** Długość jednego kroku koła czasowego */
+    static final long TICK_MILLIS = 1000;
+    /** Liczba kubełków koła (potęga dwójki) - jeden obrót to ok. 8,5 minuty */
+    private static final int WHEEL_SIZE = 512;
+
+    private static final Counter OPENED = MetricsRegistry.counter("Sessions", "opened");
+    private static final Counter EXPIRED = MetricsRegistry.counter("Sessions", "expired");
+    private static final Counter REJECTED = MetricsRegistry.counter("Sessions", "rejected");
+
+    /** Wspólny menedżer sesji; czasy wygaśnięcia pochodzą z konfiguracji */
+    private static final SessionManager INSTANCE = new SessionManager(
+            TimeUnit.MINUTES.toNanos(LibraryConfig.getLong(LibraryConfig.SESSION_TTL_MINUTES)),
+            TimeUnit.MINUTES.toNanos(LibraryConfig.getLong(LibraryConfig.SESSION_IDLE_MINUTES)));
+
+    /** Znacznik końca przeglądanego kubełka */
+    private static final Session END = new Session(null, null, null, 0);
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Session>[] wheel;
+    /** Nowe sesje czekające na umieszczenie w kole przez wątek koła */
+    private final ConcurrentLinkedQueue<Session> incoming = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final long idleNanos;
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private final long startNanos = System.nanoTime();
+    /** Następny krok do przejrzenia (używany tylko przez wątek koła) */
+    private long cursor;
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * @param ttlNanos maksymalny czas życia sesji
+     * @param idleNanos maksymalny czas bez użycia sesji
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // tablicy typu generycznego nie da się utworzyć inaczej
+    public SessionManager(long ttlNanos, long idleNanos) {
+        this.ttlNanos = ttlNanos;
+        this.idleNanos = idleNanos;
+        this.wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> advance(System.nanoTime()), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return wspólny menedżer sesji aplikacji
+     */
+    public static SessionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Otwiera sesję dla konta, którego hasło zostało już sprawdzone.
+     *
+     * @param username login
+     * @param role rola ("librarian" lub "user")
+     * @return nowa sesja z losowym tokenem
+     */
+    public Session open(String username, String role) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(token, username, role, System.nanoTime());
+        sessions.put(token, session);
+        incoming.add(session);
+        OPENED.increment();
+        return session;
+    }
+
+    /**
+     * Zwraca aktywną sesję i odnotowuje jej użycie (przedłuża czas bezczynności).
+     *
+     * @param token token sesji
+     * @return sesja lub pusty Optional, jeśli token jest nieznany albo sesja wygasła
+     */
+    public Optional<Session> get(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            REJECTED.increment();
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        if (now - session.deadline(ttlNanos, idleNanos) >= 0) {
+            expire(session);
+            REJECTED.increment();
+            return Optional.empty();
+        }
+        session.touch(now);
+        return Optional.of(session);
+    }
+
+    /**
+     * Zamyka sesję (wylogowanie).
+     *
+     * @param token token sesji
+     */
+    public void close(String token) {
+        Session session = token == null ? null : sessions.remove(token);
+        if (session != null) session.close();
+    }
+
+    /**
+     * Zamyka wszystkie sesje konta (np. po usunięciu konta lub zmianie hasła).
+     *
+     * @param username login
+     * @return liczba zamkniętych sesji
+     */
+    public int closeAll(String username) {
+        int closed = 0;
+        for (Session session : sessions.values()) {
+            if (session.getUsername().equals(username) && sessions.remove(session.getToken(), session)) {
+                session.close();
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * @return liczba otwartych sesji (łącznie z wygasłymi, których koło jeszcze nie usunęło)
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Umieszcza w kole nowe sesje, a następnie przegląda kubełki aż do bieżącej chwili:
+     * wygasłe sesje usuwa, pozostałe (użyte od czasu zaplanowania) planuje ponownie.
+     * Wywoływane tylko przez wątek koła.
+     *
+     * @param now bieżący czas (System.nanoTime)
+     */
+    void advance(long now) {
+        for (Session session = incoming.poll(); session != null; session = incoming.poll()) {
+            if (!session.isClosed()) schedule(session);
+        }
+        long target = (now - startNanos) / tickNanos;
+        // po dłuższym wstrzymaniu wystarczy jeden pełny obrót
+        long from = Math.max(cursor, target - WHEEL_SIZE + 1);
+        for (long tick = from; tick <= target; tick++) {
+            ConcurrentLinkedQueue<Session> bucket = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+            bucket.add(END);
+            cursor = tick + 1;
+            for (Session session = bucket.poll(); session != END && session != null; session = bucket.poll()) {
+                if (session.isClosed()) continue;
+                if (now - session.deadline(ttlNanos, idleNanos) >= 0) {
+                    expire(session);
+                } else {
+                    schedule(session);
+                }
+            }
+        }
+    }
+
+    private void schedule(Session session) {
+        long tick = Math.max((session.deadline(ttlNanos, idleNanos) - startNanos + tickNanos - 1) / tickNanos, cursor);
+        wheel[(int) (tick & (WHEEL_SIZE - 1))].add(session);
+    }
+
+    private void expire(Session session) {
+        if (sessions.remove(session.getToken(), session)) {
+            session.close();
+            EXPIRED.increment();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package library.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import library.model.Book;
+import library.model.Item;
+import library.model.Magazine;
+import library.model.User;
+import library.repository.Storage;
+
+/**
+ * Deterministyczny generator dużych zbiorów danych testowych.
+ * <p>
+ * Dla danego ziarna zawsze powstają te same dane, niezależnie od liczby wątków:
+ * pozycje generowane są w paczkach po {@value #CHUNK_SIZE}, a każda paczka ma własny
+ * generator losowy wyprowadzony z ziarna i numeru paczki. Paczki powstają równolegle,
+ * ale są zapisywane w kolejności. Autorzy, gatunki i wypożyczający losowani są
+ * z rozkładu Zipfa, co odpowiada rzeczywistym katalogom (nieliczni popularni autorzy,
+ * długi ogon pozostałych).
+ * </p>
+ * <p>
+ * Dane mogą być zapisane bezpośrednio do bazy (wsadowo, jedna transakcja na paczkę)
+ * lub do plików w formatach {@link SerializationUtil}: CSV (tylko książki - ograniczenie
+ * formatu) oraz binarnym (lista obiektów, wymaga pamięci proporcjonalnej do liczby pozycji).
+ * </p>
+ */
+public class DataGenerator {
+
+    /** Liczba pozycji w jednej paczce */
+    public static final int CHUNK_SIZE = 20_000;
+
+    private static final String[] FIRST_NAMES = {
+        "Anna", "Jan", "Maria", "Piotr", "Katarzyna", "Krzysztof", "Małgorzata", "Andrzej", "Agnieszka", "Tomasz",
+        "Barbara", "Paweł", "Ewa", "Michał", "Magdalena", "Marcin", "Joanna", "Jakub", "Zofia", "Łukasz"
+    };
+    private static final String[] LAST_NAMES = {
+        "Nowak", "Kowalski", "Wiśniewski", "Wójcik", "Kowalczyk", "Kamiński", "Lewandowski", "Zieliński",
+        "Szymański", "Woźniak", "Dąbrowski", "Kozłowski", "Jankowski", "Mazur", "Kwiatkowski", "Krawczyk",
+        "Piotrowski", "Grabowski", "Nowakowski", "Pawłowski", "Michalski", "Król", "Wieczorek", "Jabłoński"
+    };
+    private static final String[] GENRES = {
+        "Powieść", "Kryminał", "Fantastyka", "Literatura faktu", "Biografia", "Poezja", "Historia",
+        "Science fiction", "Romans", "Poradnik", "Dla dzieci", "Nauka", "Reportaż", "Dramat", "Horror"
+    };
+    private static final String[] TITLE_ADJECTIVES = {
+        "Cichy", "Ostatni", "Zapomniany", "Czerwony", "Długi", "Nocny", "Stary", "Nowy", "Złoty", "Ukryty",
+        "Wielki", "Mały", "Daleki", "Zimny", "Szary", "Dziki", "Jasny", "Tajemniczy"
+    };
+    private static final String[] TITLE_NOUNS = {
+        "dom", "las", "brzeg", "ogród", "sen", "świat", "czas", "zamek", "port", "wiatr", "most", "kraj",
+        "ogień", "głos", "cień", "list", "szlak", "rok"
+    };
+    private static final String[] TITLE_SUFFIXES = {
+        "", "", "", " nad rzeką", " w górach", " o świcie", " i inne opowiadania", " tom II", " w deszczu", " miasta"
+    };
+    private static final String[] MAGAZINES = {
+        "Przegląd Biblioteczny", "Wiedza i Życie", "Świat Nauki", "Kwartalnik Historyczny", "Polityka",
+        "Tygodnik Kulturalny", "Magazyn Literacki", "Młody Technik"
+    };
+
+    private final long seed;
+    private final int itemCount;
+    private final int userCount;
+    private final double magazineShare;
+    private final double loanedShare;
+    private final int threads;
+
+    private final ZipfSampler authorSampler;
+    private final ZipfSampler genreSampler;
+    private final ZipfSampler borrowerSampler;
+    private List<User> users;
+
+    /**
+     * Tworzy generator.
+     *
+     * @param seed ziarno generatora losowego
+     * @param itemCount liczba pozycji do wygenerowania
+     * @param userCount liczba użytkowników do wygenerowania
+     * @param magazineShare udział magazynów wśród pozycji (0-1)
+     * @param loanedShare udział wypożyczonych pozycji (0-1, wymaga użytkowników)
+     * @param threads liczba wątków generujących
+     */
+    public DataGenerator(long seed, int itemCount, int userCount, double magazineShare, double loanedShare, int threads) {
+        this.seed = seed;
+        this.itemCount = itemCount;
+        this.userCount = userCount;
+        this.magazineShare = magazineShare;
+        this.loanedShare = userCount > 0 ? loanedShare : 0;
+        this.threads = Math.max(1, threads);
+        this.authorSampler = new ZipfSampler(Math.max(100, itemCount / 20), 1.1);
+        this.genreSampler = new ZipfSampler(GENRES.length, 1.0);
+        this.borrowerSampler = new ZipfSampler(Math.max(1, userCount), 0.9);
+    }
+
+    /**
+     * Odbiorca kolejnych paczek pozycji (wywoływany w kolejności paczek, z jednego wątku).
+     */
+    public interface ChunkConsumer {
+        /**
+         * @param chunk pozycje z paczki
+         * @throws IOException jeśli zapis się nie powiódł
+         */
+        void accept(List<Item> chunk) throws IOException;
+    }
+
+    /**
+     * Zwraca wygenerowanych użytkowników (ta sama lista przy kolejnych wywołaniach).
+     *
+     * @return lista użytkowników
+     */
+    public synchronized List<User> users() {
+        if (users == null) {
+            SplittableRandom rnd = new SplittableRandom(seed);
+            List<User> list = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                String first = FIRST_NAMES[rnd.nextInt(FIRST_NAMES.length)];
+                String last = LAST_NAMES[rnd.nextInt(LAST_NAMES.length)];
+                String login = ascii(first + "." + last).toLowerCase() + "." + i;
+                list.add(new User(first + " " + last, login, Long.toHexString(rnd.nextLong())));
+            }
+            users = list;
+        }
+        return users;
+    }
+
+    /**
+     * Generuje paczkę pozycji o podanym numerze. Wynik zależy wyłącznie od ziarna i numeru paczki.
+     *
+     * @param chunk numer paczki (od 0)
+     * @return lista pozycji
+     */
+    public List<Item> generateChunk(int chunk) {
+        List<User> borrowers = users();
+        SplittableRandom rnd = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (chunk + 1)));
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(itemCount, from + CHUNK_SIZE);
+        List<Item> result = new ArrayList<>(to - from);
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = from; i < to; i++) {
+            long msb = (rnd.nextLong() & ~0xF000L) | 0x4000L;
+            long lsb = (rnd.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+            UUID uuid = new UUID(msb, lsb);
+            int year = 2025 - (int) (125 * Math.pow(rnd.nextDouble(), 2.5));
+            boolean loaned = rnd.nextDouble() < loanedShare;
+            String loanedTo = loaned ? borrowers.get(borrowerSampler.sample(rnd) - 1).getUsername() : null;
+
+            if (rnd.nextDouble() < magazineShare) {
+                String title = MAGAZINES[rnd.nextInt(MAGAZINES.length)];
+                result.add(new Magazine(uuid, title, year, 1 + rnd.nextInt(12), !loaned, loanedTo));
+            } else {
+                sb.setLength(0);
+                sb.append(TITLE_ADJECTIVES[rnd.nextInt(TITLE_ADJECTIVES.length)]).append(' ')
+                  .append(TITLE_NOUNS[rnd.nextInt(TITLE_NOUNS.length)])
+                  .append(TITLE_SUFFIXES[rnd.nextInt(TITLE_SUFFIXES.length)]);
+                String title = sb.toString();
+                String author = authorName(authorSampler.sample(rnd));
+                String genre = GENRES[genreSampler.sample(rnd) - 1];
+                result.add(new Book(uuid, title, year, author, genre, !loaned, loanedTo));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generuje wszystkie paczki równolegle i przekazuje je odbiorcy w kolejności.
+     * Liczba paczek przetwarzanych jednocześnie jest ograniczona, aby nie przekroczyć pamięci.
+     *
+     * @param consumer odbiorca paczek
+     * @throws IOException jeśli odbiorca zgłosi błąd zapisu
+     */
+    public void forEachChunk(ChunkConsumer consumer) throws IOException {
+        int chunks = (itemCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        users();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<List<Item>>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < chunks || !inFlight.isEmpty()) {
+                while (next < chunks && inFlight.size() < threads * 2) {
+                    int chunk = next++;
+                    inFlight.add(pool.submit(() -> generateChunk(chunk)));
+                }
+                consumer.accept(inFlight.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Przerwano generowanie danych", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Błąd generowania danych: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Zapisuje wygenerowanych użytkowników i pozycje bezpośrednio do magazynu danych.
+     * Każda paczka zapisywana jest w osobnej transakcji.
+     *
+     * @param storage magazyn danych
+     * @return liczba zapisanych pozycji
+     * @throws IOException jeśli generowanie się nie powiodło
+     */
+    public long writeToDatabase(Storage storage) throws IOException {
+        List<User> list = users();
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            storage.beginTransaction();
+            storage.users().addUsers(list.subList(from, Math.min(list.size(), from + CHUNK_SIZE)));
+            storage.commitTransaction();
+        }
+        long[] written = {0};
+        forEachChunk(chunk -> {
+            storage.beginTransaction();
+            try {
+                storage.items().saveAll(chunk);
+                storage.commitTransaction();
+            } catch (RuntimeException e) {
+                storage.rollbackTransaction();
+                throw e;
+            }
+            written[0] += chunk.size();
+        });
+        return written[0];
+    }
+
+    /**
+     * Zapisuje wygenerowane dane do plików w katalogu docelowym:
+     * {@code items.csv}, {@code users.csv} (format CSV) oraz/lub
+     * {@code items.bin}, {@code users.bin} (format binarny).
+     *
+     * @param dir katalog docelowy (zostanie utworzony)
+     * @param csv czy zapisać pliki CSV
+     * @param bin czy zapisać pliki binarne
+     * @return liczba wygenerowanych pozycji
+     * @throws IOException jeśli zapis się nie powiódł
+     */
+    public long writeFiles(Path dir, boolean csv, boolean bin) throws IOException {
+        Files.createDirectories(dir);
+        List<User> list = users();
+        if (csv) {
+            try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("users.csv"), StandardCharsets.UTF_8)) {
+                w.write("Login;Imię i nazwisko;Hasło\n");
+                for (User u : list) {
+                    w.write(u.getUsername() + ";" + u.getFullName() + ";" + u.getPassword() + "\n");
+                }
+            }
+        }
+        if (bin) {
+            writeObject(dir.resolve("users.bin"), new ArrayList<>(list));
+        }
+
+        List<Item> all = bin ? new ArrayList<>(itemCount) : null;
+        long[] written = {0};
+        try (Writer w = csv ? Files.newBufferedWriter(dir.resolve("items.csv"), StandardCharsets.UTF_8) : null) {
+            if (w != null) w.write("Typ;UUID;Tytuł;Autor;Rok;Gatunek;Status;Wypożyczający\n");
+            StringBuilder sb = new StringBuilder(1 << 16);
+            forEachChunk(chunk -> {
+                if (w != null) {
+                    sb.setLength(0);
+                    for (Item item : chunk) {
+                        if (item instanceof Book) SerializationUtil.appendCsvLine((Book) item, sb);
+                    }
+                    w.append(sb);
+                }
+                if (all != null) all.addAll(chunk);
+                written[0] += chunk.size();
+            });
+        }
+        if (bin) {
+            writeObject(dir.resolve("items.bin"), all);
+        }
+        return written[0];
+    }
+
+    private static void writeObject(Path file, Object value) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+             ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(value);
+        }
+    }
+
+    /**
+     * Zwraca nazwę autora o podanej randze (deterministycznie).
+     *
+     * @param rank ranga w rozkładzie Zipfa (od 1)
+     * @return imię i nazwisko autora
+     */
+    private static String authorName(int rank) {
+        int r = rank - 1;
+        String first = FIRST_NAMES[r % FIRST_NAMES.length];
+        String last = LAST_NAMES[(r / FIRST_NAMES.length) % LAST_NAMES.length];
+        int generation = r / (FIRST_NAMES.length * LAST_NAMES.length);
+        return generation == 0 ? first + " " + last : first + " " + last + " " + (generation + 1);
+    }
+
+    /**
+     * Usuwa polskie znaki diakrytyczne (do budowy loginów).
+     */
+    private static String ascii(String s) {
+        return java.text.Normalizer.normalize(s.replace('ł', 'l').replace('Ł', 'L'), java.text.Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+    }
+
+    /**
+     * Próbnik rozkładu Zipfa na rangach 1..n (dystrybuanta stablicowana, wyszukiwanie binarne).
+     */
+    static final class ZipfSampler {
+        private final double[] cdf;
+
+        ZipfSampler(int n, double exponent) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int k = 1; k <= n; k++) {
+                sum += 1.0 / Math.pow(k, exponent);
+                cdf[k - 1] = sum;
+            }
+            for (int k = 0; k < n; k++) cdf[k] /= sum;
+        }
+
+        /**
+         * @param rnd generator losowy
+         * @return wylosowana ranga z zakresu 1..n
+         */
+        int sample(SplittableRandom rnd) {
+            int idx = Arrays.binarySearch(cdf, rnd.nextDouble());
+            if (idx < 0) idx = -idx - 1;
+            return Math.min(idx, cdf.length - 1) + 1;
+        }
+    }
+}
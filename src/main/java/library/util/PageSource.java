@@ -0,0 +1,51 @@
+package library.util;
+
+import java.util.List;
+
+/**
+ * Źródło danych dostarczające wiersze tabeli stronami (kursor).
+ * Pozwala wyświetlać duże zbiory danych bez wczytywania ich w całości do pamięci.
+ *
+ * @param <T> typ wiersza
+ */
+public interface PageSource<T> {
+
+    /**
+     * Zwraca łączną liczbę wierszy dostępnych w źródle.
+     *
+     * @return liczba wierszy
+     */
+    long count();
+
+    /**
+     * Pobiera fragment danych zaczynając od podanej pozycji.
+     *
+     * @param offset numer pierwszego wiersza (od 0)
+     * @param limit maksymalna liczba wierszy do pobrania
+     * @return lista wierszy (może być krótsza niż limit na końcu danych)
+     */
+    List<T> fetch(long offset, int limit);
+
+    /**
+     * Tworzy źródło stron na podstawie listy znajdującej się już w pamięci.
+     *
+     * @param list lista wierszy
+     * @param <T> typ wiersza
+     * @return źródło stron oparte na liście
+     */
+    static <T> PageSource<T> ofList(List<T> list) {
+        return new PageSource<T>() {
+            @Override
+            public long count() {
+                return list.size();
+            }
+
+            @Override
+            public List<T> fetch(long offset, int limit) {
+                int from = (int) Math.min(offset, list.size());
+                int to = (int) Math.min(from + (long) limit, list.size());
+                return list.subList(from, to);
+            }
+        };
+    }
+}
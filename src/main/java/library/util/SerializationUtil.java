@@ -1,93 +1,428 @@
 package library.util;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import library.db.ItemDao;
+import java.util.function.Consumer;
+import library.config.LibraryConfig;
+import library.jfr.ExportChunkEvent;
+import library.jfr.ImportBatchEvent;
+import library.metrics.Counter;
+import library.metrics.MetricsRegistry;
+import library.metrics.OperationStats;
 import library.model.Book;
 import library.model.Item;
+import library.model.User;
+import library.repository.Storage;
+import library.search.DuplicateDetector;
 
 /**
  * Klasa narzędziowa do eksportu i importu danych bibliotecznych w formacie binarnym oraz tekstowym (CSV).
+ * Dane odczytywane są z magazynu ({@link Storage}) przekazanego przez wywołującego i do niego zapisywane.
  */
 public class SerializationUtil {
 
+    /** Statystyki przebiegów importu i eksportu (widoczne w JMX, domena {@value MetricsRegistry#JMX_DOMAIN}) */
+    private static final OperationStats EXPORT_BIN = MetricsRegistry.operation("SerializationUtil", "exportToBin");
+    private static final OperationStats IMPORT_BIN = MetricsRegistry.operation("SerializationUtil", "importFromBin");
+    private static final OperationStats EXPORT_TXT = MetricsRegistry.operation("SerializationUtil", "exportToTxt");
+    private static final OperationStats IMPORT_TXT = MetricsRegistry.operation("SerializationUtil", "importFromTxt");
+    private static final OperationStats IMPORT_USERS = MetricsRegistry.operation("SerializationUtil", "importUsers");
+    private static final OperationStats EXPORT_USERS = MetricsRegistry.operation("SerializationUtil", "exportUsers");
+    private static final Counter IMPORTED_ROWS = MetricsRegistry.counter("SerializationUtil", "importedRows");
+    private static final Counter SKIPPED_ROWS = MetricsRegistry.counter("SerializationUtil", "skippedRows");
+    private static final Counter DUPLICATE_ROWS = MetricsRegistry.counter("SerializationUtil", "duplicateRows");
+
+    /** Najwięcej prawie-duplikatów zgłaszanych osobno w jednym imporcie */
+    private static final int MAX_REPORTED_DUPLICATES = 100;
+
+    /**
+     * Odbiorca postępu długich operacji importu i eksportu (np. zadań w tle).
+     */
+    public interface ProgressListener {
+        /**
+         * Wywoływana raz, gdy znana jest łączna liczba wierszy.
+         *
+         * @param totalRows łączna liczba wierszy
+         */
+        default void onStart(long totalRows) {
+        }
+
+        /**
+         * Wywoływana po każdej zatwierdzonej paczce importu lub zapisanym fragmencie eksportu.
+         *
+         * @param rowsDone liczba wierszy przetworzonych (i zatwierdzonych) od początku danych
+         * @return false, aby przerwać operację (import kończy się po zatwierdzonej paczce)
+         */
+        boolean onProgress(long rowsDone);
+
+        /**
+         * Wywoływana po zatwierdzeniu paczki importu, przed {@link #onProgress(long)}.
+         *
+         * @param added książki dodane w tej paczce
+         * @param skipped wiersze pominięte w tej paczce (już istniejące)
+         * @param duplicates prawie-duplikaty wykryte w tej paczce
+         */
+        default void onBatch(int added, int skipped, int duplicates) {
+        }
+    }
+
     /**
      * Eksportuje wszystkie pozycje biblioteczne do pliku binarnego.
      *
+     * @param storage magazyn danych
      * @param filePath ścieżka do pliku, do którego zostaną zapisane dane.
      */
-    public static void exportToBin(String filePath) {
-        List<Item> items = ItemDao.getAll();
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            oos.writeObject(items);
+    public static void exportToBin(Storage storage, String filePath) {
+        try (OutputStream out = new FileOutputStream(filePath)) {
+            exportToBin(storage, out);
             System.out.println("Wyeksportowano do pliku binarnego: " + filePath);
         } catch (IOException e) {
             System.err.println("Błąd eksportu do pliku binarnego: " + e.getMessage());
         }
     }
 
+    /**
+     * Eksportuje wszystkie pozycje biblioteczne w formacie binarnym do podanego strumienia.
+     * Strumień nie jest zamykany.
+     *
+     * @param storage magazyn danych
+     * @param out strumień wyjściowy
+     * @return liczba wyeksportowanych pozycji
+     * @throws IOException jeśli wystąpi błąd zapisu
+     */
+    public static int exportToBin(Storage storage, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            List<Item> items = storage.items().getAll();
+            ExportChunkEvent chunk = new ExportChunkEvent();
+            chunk.begin();
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out));
+            oos.writeObject(items);
+            oos.flush();
+            count = items.size();
+            chunk.emit("bin", count, true);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            EXPORT_BIN.error();
+            throw e;
+        } finally {
+            EXPORT_BIN.record(start, count);
+        }
+    }
+
     /**
      * Importuje pozycje biblioteczne z pliku binarnego.
      * Nowe pozycje są dodawane, a istniejące pomijane.
      *
+     * @param storage magazyn danych
      * @param filePath ścieżka do pliku binarnego z danymi.
      */
+    public static void importFromBin(Storage storage, String filePath) {
+        try (InputStream in = new FileInputStream(filePath)) {
+            int[] result = importFromBin(storage, in, LibraryConfig.getInt(LibraryConfig.IMPORT_BATCH_SIZE));
+            System.out.printf("Zaimportowano %d nowych książek (pominięto %d istniejących) z pliku binarnego: %s\n",
+                    result[0], result[1], filePath);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Błąd importu z pliku binarnego: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importuje pozycje biblioteczne w formacie binarnym z podanego strumienia.
+     * Zapis odbywa się w transakcjach obejmujących po {@code batchSize} pozycji.
+     *
+     * @param storage magazyn danych
+     * @param in strumień wejściowy
+     * @param batchSize liczba pozycji w jednej transakcji
+     * @return tablica {dodane, pominięte}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     * @throws ClassNotFoundException jeśli strumień zawiera nieznane klasy
+     */
+    public static int[] importFromBin(Storage storage, InputStream in, int batchSize)
+            throws IOException, ClassNotFoundException {
+        return importFromBin(storage, in, batchSize, 0, null);
+    }
+
+    /**
+     * Importuje pozycje w formacie binarnym, pomijając pierwsze {@code skipRows} pozycji
+     * (wznowienie przerwanego importu) i raportując postęp po każdej zatwierdzonej paczce.
+     *
+     * @param storage magazyn danych
+     * @param in strumień wejściowy
+     * @param batchSize liczba pozycji w jednej transakcji
+     * @param skipRows liczba pozycji z początku danych do pominięcia
+     * @param listener odbiorca postępu lub null
+     * @return tablica {dodane, pominięte}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     * @throws ClassNotFoundException jeśli strumień zawiera nieznane klasy
+     */
     @SuppressWarnings("unchecked")
-    public static void importFromBin(String filePath) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
+    public static int[] importFromBin(Storage storage, InputStream in, int batchSize, long skipRows,
+                                      ProgressListener listener) throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        int added = 0, skipped = 0, inBatch = 0, addedBefore = 0, skippedBefore = 0;
+        ImportBatchEvent batch = null;
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
             List<Item> items = (List<Item>) ois.readObject();
-            int added = 0, skipped = 0;
-            for (Item item : items) {
-                if (ItemDao.getByUuid(item.getUuid()).isEmpty()) {
-                    ItemDao.save(item);
+            if (listener != null) listener.onStart(items.size());
+            long position = Math.min(skipRows, items.size());
+            for (Item item : items.subList((int) position, items.size())) {
+                position++;
+                if (inBatch == 0) {
+                    storage.beginTransaction();
+                    batch = new ImportBatchEvent();
+                    batch.begin();
+                    addedBefore = added;
+                    skippedBefore = skipped;
+                }
+                if (storage.items().getByUuid(item.getUuid()).isEmpty()) {
+                    storage.items().save(item);
                     added++;
                 } else {
                     skipped++;
                 }
+                if (++inBatch >= batchSize) {
+                    storage.commitTransaction();
+                    batch.emit("bin", inBatch, added - addedBefore, true);
+                    inBatch = 0;
+                    if (listener != null) listener.onBatch(added - addedBefore, skipped - skippedBefore, 0);
+                    if (listener != null && !listener.onProgress(position)) break;
+                }
             }
-            System.out.printf("Zaimportowano %d nowych książek (pominięto %d istniejących) z pliku binarnego: %s\n",
-                    added, skipped, filePath);
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Błąd importu z pliku binarnego: " + e.getMessage());
+            if (inBatch > 0) {
+                storage.commitTransaction();
+                batch.emit("bin", inBatch, added - addedBefore, true);
+                inBatch = 0;
+                if (listener != null) {
+                    listener.onBatch(added - addedBefore, skipped - skippedBefore, 0);
+                    listener.onProgress(position);
+                }
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            IMPORT_BIN.error();
+            if (inBatch > 0) {
+                storage.rollbackTransaction();
+                batch.emit("bin", inBatch, 0, false);
+            }
+            throw e;
+        } finally {
+            IMPORT_BIN.record(start, added + skipped);
+            IMPORTED_ROWS.add(added);
+            SKIPPED_ROWS.add(skipped);
         }
+        return new int[] {added, skipped};
     }
 
     /**
      * Eksportuje wszystkie pozycje biblioteczne (tylko książki) do pliku tekstowego CSV.
      *
+     * @param storage magazyn danych
      * @param filePath ścieżka do pliku tekstowego.
      */
-    public static void exportToTxt(String filePath) {
-        List<Item> items = ItemDao.getAll();
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
+    public static void exportToTxt(Storage storage, String filePath) {
+        try (Writer writer = new FileWriter(filePath)) {
+            exportToTxt(storage, writer);
+            System.out.println("Wyeksportowano do pliku tekstowego: " + filePath);
+        } catch (IOException e) {
+            System.err.println("Błąd eksportu do pliku tekstowego: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Eksportuje książki w formacie CSV do podanego strumienia znakowego.
+     * Strumień nie jest zamykany.
+     *
+     * @param storage magazyn danych
+     * @param out strumień wyjściowy
+     * @return liczba wyeksportowanych książek
+     * @throws IOException jeśli wystąpi błąd zapisu
+     */
+    public static int exportToTxt(Storage storage, Writer out) throws IOException {
+        return exportToTxt(storage, out, null);
+    }
+
+    /**
+     * Eksportuje książki w formacie CSV, raportując postęp (i zdarzenie JFR {@link ExportChunkEvent})
+     * co {@link LibraryConfig#EXPORT_CHUNK_ROWS} wierszy.
+     * Jeśli odbiorca postępu zwróci false, eksport jest przerywany (plik pozostaje niekompletny).
+     *
+     * @param storage magazyn danych
+     * @param out strumień wyjściowy
+     * @param listener odbiorca postępu lub null
+     * @return liczba wyeksportowanych książek
+     * @throws IOException jeśli wystąpi błąd zapisu
+     */
+    public static int exportToTxt(Storage storage, Writer out, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            List<Item> items = storage.items().getAll();
+            if (listener != null) listener.onStart(items.size());
+            PrintWriter writer = new PrintWriter(new BufferedWriter(out));
             writer.println("Typ;UUID;Tytuł;Autor;Rok;Gatunek;Status;Wypożyczający");
+            StringBuilder line = new StringBuilder(128);
+            ExportChunkEvent chunk = new ExportChunkEvent();
+            chunk.begin();
+            int inChunk = 0;
+            int chunkRows = Math.max(1, LibraryConfig.getInt(LibraryConfig.EXPORT_CHUNK_ROWS));
             for (Item item : items) {
                 if (item instanceof Book) {
-                    Book b = (Book) item;
-                    writer.printf("Book;%s;%s;%s;%d;%s;%s;%s\n",
-                            b.getUuid(), b.getTitle(), b.getAuthor(), b.getYear(),
-                            b.getGenre(), b.isAvailable() ? "DOSTĘPNA" : "WYPOŻYCZONA",
-                            b.getLoanedTo() == null ? "-" : b.getLoanedTo());
+                    line.setLength(0);
+                    appendCsvLine((Book) item, line);
+                    writer.append(line);
+                    count++;
+                    if (++inChunk >= chunkRows) {
+                        chunk.emit("csv", inChunk, true);
+                        chunk = new ExportChunkEvent();
+                        chunk.begin();
+                        inChunk = 0;
+                        writer.flush();
+                        if (listener != null && !listener.onProgress(count)) break;
+                    }
                 }
             }
-            System.out.println("Wyeksportowano do pliku tekstowego: " + filePath);
-        } catch (IOException e) {
-            System.err.println("Błąd eksportu do pliku tekstowego: " + e.getMessage());
+            writer.flush();
+            if (inChunk > 0) chunk.emit("csv", inChunk, !writer.checkError());
+            if (listener != null) listener.onProgress(count);
+            if (writer.checkError()) throw new IOException("Nie udało się zapisać danych");
+            return count;
+        } catch (IOException | RuntimeException e) {
+            EXPORT_TXT.error();
+            throw e;
+        } finally {
+            EXPORT_TXT.record(start, count);
         }
     }
 
+    /**
+     * Dopisuje do bufora wiersz CSV (zakończony znakiem nowej linii) opisujący książkę,
+     * w formacie odczytywanym przez {@link #importFromTxt(Storage, BufferedReader, int)}.
+     *
+     * @param b książka
+     * @param out bufor docelowy
+     */
+    public static void appendCsvLine(Book b, StringBuilder out) {
+        out.append("Book;").append(b.getUuid()).append(';')
+           .append(b.getTitle()).append(';')
+           .append(b.getAuthor()).append(';')
+           .append(b.getYear()).append(';')
+           .append(b.getGenre()).append(';')
+           .append(b.isAvailable() ? "DOSTĘPNA" : "WYPOŻYCZONA").append(';')
+           .append(b.getLoanedTo() == null ? "-" : b.getLoanedTo()).append('\n');
+    }
+
     /**
      * Importuje pozycje biblioteczne z pliku tekstowego CSV.
      * Nowe pozycje są dodawane, a istniejące pomijane.
      *
+     * @param storage magazyn danych
      * @param filePath ścieżka do pliku tekstowego.
      */
-    public static void importFromTxt(String filePath) {
+    public static void importFromTxt(Storage storage, String filePath) {
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line = reader.readLine(); // pominięcie nagłówka
-            int added = 0, skipped = 0;
+            int[] result = importFromTxt(storage, reader, LibraryConfig.getInt(LibraryConfig.IMPORT_BATCH_SIZE));
+            System.out.printf("Zaimportowano %d nowych książek (pominięto %d istniejących, prawie-duplikaty: %d) z pliku tekstowego: %s\n",
+                    result[0], result[1], result[2], filePath);
+        } catch (IOException e) {
+            System.err.println("Błąd importu z pliku tekstowego: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importuje książki w formacie CSV z podanego strumienia znakowego.
+     * Pierwszy wiersz (nagłówek) jest pomijany. Zapis odbywa się w transakcjach
+     * obejmujących po {@code batchSize} wierszy.
+     *
+     * @param storage magazyn danych
+     * @param reader strumień wejściowy
+     * @param batchSize liczba wierszy w jednej transakcji
+     * @return tablica {dodane, pominięte, prawie-duplikaty}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    public static int[] importFromTxt(Storage storage, BufferedReader reader, int batchSize) throws IOException {
+        return importFromTxt(storage, reader, batchSize, 0, null);
+    }
+
+    /**
+     * Importuje książki w formacie CSV, pomijając pierwsze {@code skipRows} wierszy danych
+     * (wznowienie przerwanego importu) i raportując postęp po każdej zatwierdzonej paczce.
+     * Postęp to liczba wierszy danych odczytanych do chwili ostatniego zatwierdzenia,
+     * więc można go bezpośrednio użyć jako {@code skipRows} przy wznowieniu.
+     *
+     * @param storage magazyn danych
+     * @param reader strumień wejściowy
+     * @param batchSize liczba wierszy w jednej transakcji
+     * @param skipRows liczba wierszy danych (bez nagłówka) do pominięcia
+     * @param listener odbiorca postępu lub null
+     * @return tablica {dodane, pominięte, prawie-duplikaty}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    public static int[] importFromTxt(Storage storage, BufferedReader reader, int batchSize, long skipRows,
+                                      ProgressListener listener) throws IOException {
+        return importFromTxt(storage, reader, batchSize, skipRows, listener, DuplicateDetector.Policy.fromConfig());
+    }
+
+    /**
+     * Importuje książki w formacie CSV jak {@link #importFromTxt(Storage, BufferedReader, int, long, ProgressListener)},
+     * sprawdzając każdą nową książkę w {@link DuplicateDetector} (zbudowanym z katalogu przed importem
+     * i uzupełnianym o importowane wiersze). Prawie-duplikat istniejącej pozycji (inny UUID, podobny
+     * tytuł z autorem, ten sam rok) jest zgłaszany na stderr i - przy {@link DuplicateDetector.Policy#MERGE} -
+     * nie jest importowany.
+     *
+     * @param storage magazyn danych
+     * @param reader strumień wejściowy
+     * @param batchSize liczba wierszy w jednej transakcji
+     * @param skipRows liczba wierszy danych (bez nagłówka) do pominięcia
+     * @param listener odbiorca postępu lub null
+     * @param dedupe postępowanie z prawie-duplikatami
+     * @return tablica {dodane, pominięte, prawie-duplikaty}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    public static int[] importFromTxt(Storage storage, BufferedReader reader, int batchSize, long skipRows,
+                                      ProgressListener listener, DuplicateDetector.Policy dedupe) throws IOException {
+        return importFromTxt(storage, reader, batchSize, skipRows, listener, dedupe, System.err::println);
+    }
+
+    /**
+     * Importuje książki w formacie CSV jak
+     * {@link #importFromTxt(Storage, BufferedReader, int, long, ProgressListener, DuplicateDetector.Policy)},
+     * przekazując opisy prawie-duplikatów (najwyżej {@value #MAX_REPORTED_DUPLICATES} i podsumowanie
+     * pozostałych) odbiorcy zamiast na stderr - np. do wyniku zadania w tle.
+     *
+     * @param storage magazyn danych
+     * @param reader strumień wejściowy
+     * @param batchSize liczba wierszy w jednej transakcji
+     * @param skipRows liczba wierszy danych (bez nagłówka) do pominięcia
+     * @param listener odbiorca postępu lub null
+     * @param dedupe postępowanie z prawie-duplikatami
+     * @param duplicateReport odbiorca opisów prawie-duplikatów
+     * @return tablica {dodane, pominięte, prawie-duplikaty}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    public static int[] importFromTxt(Storage storage, BufferedReader reader, int batchSize, long skipRows,
+                                      ProgressListener listener, DuplicateDetector.Policy dedupe,
+                                      Consumer<String> duplicateReport) throws IOException {
+        long start = System.nanoTime();
+        DuplicateDetector detector = dedupe == DuplicateDetector.Policy.OFF ? null
+                : DuplicateDetector.build(storage, DuplicateDetector.DEFAULT_THRESHOLD);
+        int duplicates = 0;
+        String line = reader.readLine(); // pominięcie nagłówka
+        int added = 0, skipped = 0, inBatch = 0, addedBefore = 0, skippedBefore = 0, duplicatesBefore = 0;
+        long position = 0;
+        ImportBatchEvent batch = null;
+        try {
+            while (position < skipRows && reader.readLine() != null) {
+                position++;
+            }
             while ((line = reader.readLine()) != null) {
+                position++;
                 String[] data = line.split(";");
                 if (data.length >= 8) {
                     String type = data[0];
@@ -97,21 +432,293 @@ public class SerializationUtil {
                     int year = Integer.parseInt(data[4]);
                     String genre = data[5];
                     if ("Book".equals(type)) {
+                        if (inBatch == 0) {
+                            storage.beginTransaction();
+                            batch = new ImportBatchEvent();
+                            batch.begin();
+                            addedBefore = added;
+                            skippedBefore = skipped;
+                            duplicatesBefore = duplicates;
+                        }
                         UUID uuid = UUID.fromString(uuidStr);
-                        if (ItemDao.getByUuid(uuid).isEmpty()) {
-                            Book b = new Book(uuid, title, year, author, genre, true, null);
-                            ItemDao.save(b);
-                            added++;
-                        } else {
+                        if (storage.items().getByUuid(uuid).isPresent()) {
                             skipped++;
+                        } else {
+                            Optional<DuplicateDetector.Match> duplicate = detector == null ? Optional.empty()
+                                    : detector.find(title, author, year);
+                            if (duplicate.isPresent() && ++duplicates <= MAX_REPORTED_DUPLICATES) {
+                                duplicateReport.accept(String.format("Prawie-duplikat: %s (%s) ~ %s",
+                                        title, uuid, duplicate.get()));
+                            }
+                            if (duplicate.isEmpty() || dedupe != DuplicateDetector.Policy.MERGE) {
+                                Book b = new Book(uuid, title, year, author, genre, true, null);
+                                storage.items().save(b);
+                                if (detector != null) detector.add(uuid, title, author, year);
+                                added++;
+                            }
+                        }
+                        if (++inBatch >= batchSize) {
+                            storage.commitTransaction();
+                            batch.emit("csv", inBatch, added - addedBefore, true);
+                            inBatch = 0;
+                            if (listener != null) {
+                                listener.onBatch(added - addedBefore, skipped - skippedBefore,
+                                        duplicates - duplicatesBefore);
+                            }
+                            if (listener != null && !listener.onProgress(position)) break;
                         }
                     }
                 }
             }
-            System.out.printf("Zaimportowano %d nowych książek (pominięto %d istniejących) z pliku tekstowego: %s\n",
-                    added, skipped, filePath);
-        } catch (IOException e) {
-            System.err.println("Błąd importu z pliku tekstowego: " + e.getMessage());
+            if (inBatch > 0) {
+                storage.commitTransaction();
+                batch.emit("csv", inBatch, added - addedBefore, true);
+                inBatch = 0;
+                if (listener != null) {
+                    listener.onBatch(added - addedBefore, skipped - skippedBefore, duplicates - duplicatesBefore);
+                }
+            }
+            if (listener != null) listener.onProgress(position);
+        } catch (IOException | RuntimeException e) {
+            IMPORT_TXT.error();
+            if (inBatch > 0) {
+                storage.rollbackTransaction();
+                batch.emit("csv", inBatch, 0, false);
+            }
+            throw e;
+        } finally {
+            IMPORT_TXT.record(start, added + skipped);
+            IMPORTED_ROWS.add(added);
+            SKIPPED_ROWS.add(skipped);
+            DUPLICATE_ROWS.add(duplicates);
+        }
+        if (duplicates > MAX_REPORTED_DUPLICATES) {
+            duplicateReport.accept(String.format("... oraz %d kolejnych prawie-duplikatów",
+                    duplicates - MAX_REPORTED_DUPLICATES));
+        }
+        return new int[] {added, skipped, duplicates};
+    }
+
+    /**
+     * Importuje użytkowników z tekstu w formacie {@code login;imię i nazwisko[;hasło]}, strumieniowo:
+     * wiersze zbierane są w paczki po {@code batchSize}, a każda paczka zapisywana jest jednym
+     * wsadowym {@link library.repository.UserRepository#addUsers(List)} w osobnej transakcji.
+     * Zajęte loginy (także bibliotekarzy) pomija magazyn w jednym zapytaniu na paczkę
+     * ({@code INSERT OR IGNORE}), bez sprawdzania każdego loginu osobno.
+     * Puste wiersze i wiersze zaczynające się od '#' są pomijane.
+     *
+     * @param storage magazyn danych
+     * @param reader strumień wejściowy
+     * @param batchSize liczba wierszy w jednej transakcji
+     * @param header czy pierwszy wiersz jest nagłówkiem
+     * @param listener odbiorca postępu lub null
+     * @return tablica {dodane, pominięte}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     */
+    public static int[] importUsersFromTxt(Storage storage, BufferedReader reader, int batchSize, boolean header,
+                                           ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        int[] result = {0, 0};
+        long position = 0;
+        List<User> batch = new ArrayList<>(batchSize);
+        try {
+            if (header) reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] data = line.split(";");
+                if (data.length < 2) {
+                    result[1]++;
+                    continue;
+                }
+                batch.add(new User(data[1].trim(), data[0].trim(), data.length >= 3 ? data[2] : ""));
+                position++;
+                if (batch.size() >= batchSize) {
+                    addUsersBatch(storage, batch, "users-csv", result);
+                    if (listener != null && !listener.onProgress(position)) return result;
+                }
+            }
+            addUsersBatch(storage, batch, "users-csv", result);
+            if (listener != null) listener.onProgress(position);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            IMPORT_USERS.error();
+            throw e;
+        } finally {
+            IMPORT_USERS.record(start, result[0] + result[1]);
+            IMPORTED_ROWS.add(result[0]);
+            SKIPPED_ROWS.add(result[1]);
+        }
+    }
+
+    /**
+     * Importuje użytkowników zapisanych przez {@link #exportUsersToBin(Storage, OutputStream, ProgressListener)}
+     * (kolejne obiekty {@link User} zakończone null), paczkami jak
+     * {@link #importUsersFromTxt(Storage, BufferedReader, int, boolean, ProgressListener)}.
+     * Odczytuje też starszy format, w którym cały plik jest jedną listą użytkowników.
+     *
+     * @param storage magazyn danych
+     * @param in strumień wejściowy
+     * @param batchSize liczba użytkowników w jednej transakcji
+     * @param listener odbiorca postępu lub null
+     * @return tablica {dodane, pominięte}
+     * @throws IOException jeśli wystąpi błąd odczytu
+     * @throws ClassNotFoundException jeśli strumień zawiera nieznane klasy
+     */
+    public static int[] importUsersFromBin(Storage storage, InputStream in, int batchSize, ProgressListener listener)
+            throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        int[] result = {0, 0};
+        long position = 0;
+        List<User> batch = new ArrayList<>(batchSize);
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
+            Object first = ois.readObject();
+            Iterator<?> legacy = first instanceof List ? ((List<?>) first).iterator() : null;
+            Object next = legacy != null ? (legacy.hasNext() ? legacy.next() : null) : first;
+            while (next != null) {
+                batch.add((User) next);
+                position++;
+                if (batch.size() >= batchSize) {
+                    addUsersBatch(storage, batch, "users-bin", result);
+                    if (listener != null && !listener.onProgress(position)) return result;
+                }
+                next = legacy != null ? (legacy.hasNext() ? legacy.next() : null) : ois.readObject();
+            }
+            addUsersBatch(storage, batch, "users-bin", result);
+            if (listener != null) listener.onProgress(position);
+            return result;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            IMPORT_USERS.error();
+            throw e;
+        } finally {
+            IMPORT_USERS.record(start, result[0] + result[1]);
+            IMPORTED_ROWS.add(result[0]);
+            SKIPPED_ROWS.add(result[1]);
+        }
+    }
+
+    /**
+     * Zapisuje paczkę użytkowników w jednej transakcji i czyści ją.
+     *
+     * @param result tablica {dodane, pominięte} uzupełniana o wynik paczki
+     */
+    private static void addUsersBatch(Storage storage, List<User> batch, String format, int[] result) {
+        if (batch.isEmpty()) return;
+        ImportBatchEvent event = new ImportBatchEvent();
+        event.begin();
+        storage.beginTransaction();
+        int added;
+        try {
+            added = storage.users().addUsers(batch).size();
+            storage.commitTransaction();
+        } catch (RuntimeException e) {
+            storage.rollbackTransaction();
+            event.emit(format, batch.size(), 0, false);
+            throw e;
+        }
+        event.emit(format, batch.size(), added, true);
+        result[0] += added;
+        result[1] += batch.size() - added;
+        batch.clear();
+    }
+
+    /**
+     * Eksportuje użytkowników do tekstu ({@code login;imię i nazwisko}, z nagłówkiem), czytając ich
+     * z magazynu strumieniowo ({@link library.repository.UserRepository#forEachUser}).
+     * Strumień nie jest zamykany.
+     *
+     * @param storage magazyn danych
+     * @param out strumień wyjściowy
+     * @param listener odbiorca postępu (co {@link LibraryConfig#EXPORT_CHUNK_ROWS} wierszy) lub null
+     * @return liczba wyeksportowanych użytkowników
+     * @throws IOException jeśli wystąpi błąd zapisu
+     */
+    public static long exportUsersToTxt(Storage storage, Writer out, ProgressListener listener) throws IOException {
+        PrintWriter writer = new PrintWriter(new BufferedWriter(out));
+        writer.println("Login;Imię i nazwisko");
+        long count = exportUsers(storage, listener, u -> writer.printf("%s;%s\n", u.getUsername(), u.getFullName()),
+                writer::flush);
+        writer.flush();
+        if (writer.checkError()) throw new IOException("Błąd zapisu eksportu użytkowników");
+        return count;
+    }
+
+    /**
+     * Eksportuje użytkowników w formacie binarnym: kolejne obiekty {@link User} zakończone null,
+     * bez budowania listy w pamięci. Strumień nie jest zamykany.
+     *
+     * @param storage magazyn danych
+     * @param out strumień wyjściowy
+     * @param listener odbiorca postępu (co {@link LibraryConfig#EXPORT_CHUNK_ROWS} wierszy) lub null
+     * @return liczba wyeksportowanych użytkowników
+     * @throws IOException jeśli wystąpi błąd zapisu
+     */
+    public static long exportUsersToBin(Storage storage, OutputStream out, ProgressListener listener)
+            throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out));
+        long count = exportUsers(storage, listener, oos::writeObject, () -> {
+            oos.reset(); // bez tego strumień pamięta każdy zapisany obiekt
+            oos.flush();
+        });
+        oos.writeObject(null);
+        oos.flush();
+        return count;
+    }
+
+    /** Zapis jednego użytkownika lub fragmentu eksportu */
+    private interface UserWriter {
+        void write(User user) throws IOException;
+    }
+
+    /** Zakończenie fragmentu eksportu */
+    private interface ChunkEnd {
+        void run() throws IOException;
+    }
+
+    private static long exportUsers(Storage storage, ProgressListener listener, UserWriter writer, ChunkEnd chunkEnd)
+            throws IOException {
+        long start = System.nanoTime();
+        int chunkRows = Math.max(1, LibraryConfig.getInt(LibraryConfig.EXPORT_CHUNK_ROWS));
+        long[] count = {0};
+        IOException[] failure = {null};
+        try {
+            storage.users().forEachUser(user -> {
+                try {
+                    writer.write(user);
+                    if (++count[0] % chunkRows == 0) {
+                        chunkEnd.run();
+                        return listener == null || listener.onProgress(count[0]);
+                    }
+                    return true;
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return false;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            chunkEnd.run();
+            if (listener != null) listener.onProgress(count[0]);
+            return count[0];
+        } catch (IOException | RuntimeException e) {
+            EXPORT_USERS.error();
+            throw e;
+        } finally {
+            EXPORT_USERS.record(start, count[0]);
+        }
+    }
+
+    /**
+     * Otwiera plik do odczytu jako tekst UTF-8 lub standardowe wejście, jeśli ścieżka to "-" lub null.
+     *
+     * @param path ścieżka do pliku lub "-"
+     * @return czytnik buforowany
+     * @throws IOException jeśli pliku nie da się otworzyć
+     */
+    public static BufferedReader openReader(String path) throws IOException {
+        if (path == null || path.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
         }
+        return new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8));
     }
 }
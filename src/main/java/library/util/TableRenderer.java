@@ -0,0 +1,243 @@
+package library.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Function;
+import library.config.LibraryConfig;
+
+/**
+ * Komponent wyświetlający dane w postaci tabeli w konsoli.
+ * <p>
+ * Wiersze są pobierane stronami z {@link PageSource}, a cała strona jest formatowana
+ * do wielokrotnie używanego bufora i wypisywana jednym wywołaniem, zamiast
+ * osobnego {@code printf} dla każdego wiersza. Szerokości kolumn wyznaczane są
+ * na podstawie próbki (pierwszej strony danych), a nie całego zbioru.
+ * </p>
+ *
+ * @param <T> typ wiersza tabeli
+ */
+public class TableRenderer<T> {
+
+    /** Maksymalna liczba wierszy branych pod uwagę przy wyznaczaniu szerokości kolumn */
+    private static final int SAMPLE_SIZE = 50;
+
+    private final String title;
+    private final int pageSize;
+    private final List<Column<T>> columns = new ArrayList<>();
+    private final StringBuilder buffer = new StringBuilder(4096);
+    private int[] widths;
+
+    /**
+     * Opis pojedynczej kolumny tabeli.
+     *
+     * @param <T> typ wiersza tabeli
+     */
+    private static final class Column<T> {
+        final String header;
+        final Function<T, String> value;
+        final int minWidth;
+        final int maxWidth;
+        final boolean alignRight;
+
+        Column(String header, Function<T, String> value, int minWidth, int maxWidth, boolean alignRight) {
+            this.header = header;
+            this.value = value;
+            this.minWidth = minWidth;
+            this.maxWidth = maxWidth;
+            this.alignRight = alignRight;
+        }
+    }
+
+    /**
+     * Tworzy tabelę z rozmiarem strony z konfiguracji ({@link LibraryConfig#UI_PAGE_SIZE}).
+     *
+     * @param title tytuł wyświetlany nad tabelą
+     */
+    public TableRenderer(String title) {
+        this(title, LibraryConfig.getInt(LibraryConfig.UI_PAGE_SIZE));
+    }
+
+    /**
+     * Tworzy tabelę o podanym rozmiarze strony.
+     *
+     * @param title tytuł wyświetlany nad tabelą
+     * @param pageSize liczba wierszy na stronie
+     */
+    public TableRenderer(String title, int pageSize) {
+        this.title = title;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * Dodaje kolumnę wyrównaną do lewej.
+     *
+     * @param header nagłówek kolumny
+     * @param value funkcja zwracająca tekst komórki dla wiersza
+     * @param minWidth minimalna szerokość kolumny
+     * @param maxWidth maksymalna szerokość kolumny (dłuższe wartości są obcinane)
+     * @return ta sama tabela (do łączenia wywołań)
+     */
+    public TableRenderer<T> column(String header, Function<T, String> value, int minWidth, int maxWidth) {
+        columns.add(new Column<>(header, value, minWidth, maxWidth, false));
+        widths = null;
+        return this;
+    }
+
+    /**
+     * Dodaje kolumnę wyrównaną do prawej (np. dla liczb).
+     *
+     * @param header nagłówek kolumny
+     * @param value funkcja zwracająca tekst komórki dla wiersza
+     * @param minWidth minimalna szerokość kolumny
+     * @param maxWidth maksymalna szerokość kolumny
+     * @return ta sama tabela (do łączenia wywołań)
+     */
+    public TableRenderer<T> columnRight(String header, Function<T, String> value, int minWidth, int maxWidth) {
+        columns.add(new Column<>(header, value, minWidth, maxWidth, true));
+        widths = null;
+        return this;
+    }
+
+    /**
+     * Wyświetla dane ze źródła z nawigacją po stronach.
+     * Jeśli wszystkie dane mieszczą się na jednej stronie, tabela jest tylko wypisywana.
+     * W przeciwnym razie użytkownik może przejść do następnej (n) lub poprzedniej (p) strony,
+     * skoczyć do strony o podanym numerze albo zakończyć przeglądanie (Enter lub q).
+     *
+     * @param source źródło wierszy
+     * @param sc Scanner do odczytu poleceń nawigacji
+     */
+    public void browse(PageSource<T> source, Scanner sc) {
+        long total = source.count();
+        int pages = (int) Math.max(1, (total + pageSize - 1) / pageSize);
+        int page = 0;
+        widths = null;
+
+        while (true) {
+            List<T> rows = source.fetch((long) page * pageSize, pageSize);
+            printPage(rows, page, pages, total, System.out);
+            if (pages <= 1) return;
+
+            System.out.print("[n] następna  [p] poprzednia  [numer] skok do strony  [Enter/q] dalej: ");
+            if (!sc.hasNextLine()) return;
+            String cmd = sc.nextLine().trim();
+            if (cmd.isEmpty() || cmd.equalsIgnoreCase("q")) return;
+            if (cmd.equalsIgnoreCase("n")) {
+                page = Math.min(page + 1, pages - 1);
+            } else if (cmd.equalsIgnoreCase("p")) {
+                page = Math.max(page - 1, 0);
+            } else {
+                try {
+                    int target = Integer.parseInt(cmd);
+                    page = Math.max(0, Math.min(target - 1, pages - 1));
+                } catch (NumberFormatException e) {
+                    System.out.println("Nieznane polecenie nawigacji.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Wypisuje podane wiersze jako pojedynczą tabelę bez nawigacji.
+     * Szerokości kolumn są wyznaczane na nowo na podstawie tych wierszy.
+     *
+     * @param rows wiersze do wypisania
+     * @param out strumień wyjściowy
+     */
+    public void print(List<T> rows, PrintStream out) {
+        widths = null;
+        printPage(rows, 0, 1, rows.size(), out);
+    }
+
+    /**
+     * Formatuje i wypisuje jedną stronę tabeli.
+     * Przy pierwszym wywołaniu szerokości kolumn są wyznaczane na podstawie podanych wierszy
+     * i pozostają stałe dla kolejnych stron.
+     *
+     * @param rows wiersze strony
+     * @param page numer strony (od 0)
+     * @param pages łączna liczba stron
+     * @param total łączna liczba wierszy
+     * @param out strumień wyjściowy
+     */
+    public void printPage(List<T> rows, int page, int pages, long total, PrintStream out) {
+        if (widths == null) {
+            widths = measure(rows);
+        }
+        buffer.setLength(0);
+        buffer.append("\n== ").append(title).append(" ==\n");
+
+        int lineWidth = 0;
+        for (int c = 0; c < columns.size(); c++) {
+            if (c > 0) buffer.append(" | ");
+            appendCell(columns.get(c).header, widths[c], false);
+            lineWidth += widths[c] + (c > 0 ? 3 : 0);
+        }
+        buffer.append('\n');
+        for (int i = 0; i < lineWidth; i++) buffer.append('-');
+        buffer.append('\n');
+
+        for (T row : rows) {
+            for (int c = 0; c < columns.size(); c++) {
+                Column<T> col = columns.get(c);
+                if (c > 0) buffer.append(" | ");
+                appendCell(col.value.apply(row), widths[c], col.alignRight);
+            }
+            buffer.append('\n');
+        }
+        if (pages > 1) {
+            buffer.append("Strona ").append(page + 1).append('/').append(pages)
+                  .append(" (pozycji: ").append(total).append(")\n");
+        }
+        buffer.append('\n');
+        out.print(buffer);
+        out.flush();
+    }
+
+    /**
+     * Wyznacza szerokości kolumn na podstawie nagłówków i próbki wierszy.
+     *
+     * @param sample próbka wierszy
+     * @return tablica szerokości kolumn
+     */
+    private int[] measure(List<T> sample) {
+        int[] result = new int[columns.size()];
+        int n = Math.min(sample.size(), SAMPLE_SIZE);
+        for (int c = 0; c < columns.size(); c++) {
+            Column<T> col = columns.get(c);
+            int w = Math.max(col.minWidth, col.header.length());
+            for (int r = 0; r < n; r++) {
+                String v = col.value.apply(sample.get(r));
+                if (v != null && v.length() > w) w = v.length();
+            }
+            result[c] = Math.min(w, Math.max(col.maxWidth, col.header.length()));
+        }
+        return result;
+    }
+
+    /**
+     * Dopisuje do bufora komórkę dopełnioną spacjami do zadanej szerokości.
+     * Zbyt długie wartości są obcinane i zakończone znakiem '~'.
+     *
+     * @param value tekst komórki
+     * @param width szerokość kolumny
+     * @param alignRight czy wyrównać do prawej
+     */
+    private void appendCell(String value, int width, boolean alignRight) {
+        String v = value == null ? "-" : value;
+        if (v.length() > width) {
+            buffer.append(v, 0, width - 1).append('~');
+            return;
+        }
+        int pad = width - v.length();
+        if (alignRight) {
+            for (int i = 0; i < pad; i++) buffer.append(' ');
+            buffer.append(v);
+        } else {
+            buffer.append(v);
+            for (int i = 0; i < pad; i++) buffer.append(' ');
+        }
+    }
+}
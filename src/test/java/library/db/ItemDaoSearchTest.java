@@ -0,0 +1,61 @@
+package library.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import library.config.LibraryConfig;
+import library.model.Book;
+import library.model.Item;
+import library.repository.ItemQuery;
+
+class ItemDaoSearchTest {
+
+    @TempDir
+    Path dir;
+
+    private String dbPath;
+    private SqliteStorage storage;
+
+    @BeforeEach
+    void open() {
+        dbPath = LibraryConfig.get(LibraryConfig.DB_PATH);
+        LibraryConfig.set(LibraryConfig.DB_PATH, dir.resolve("test.db").toString());
+        storage = new SqliteStorage();
+        for (String title : List.of("Rabat 50%", "Rabat 500", "a_b", "axb", "C:\\dane", "C:dane")) {
+            storage.items().save(new Book(UUID.randomUUID(), title, 2001, "Autor", "Powieść", true, null));
+        }
+    }
+
+    @AfterEach
+    void close() {
+        DatabaseManager.close();
+        LibraryConfig.set(LibraryConfig.DB_PATH, dbPath);
+    }
+
+    private static List<String> titles(List<Item> items) {
+        return items.stream().map(Item::getTitle).sorted().toList();
+    }
+
+    @Test
+    void searchTreatsWildcardsLiterally() {
+        assertEquals(List.of("Rabat 50%"), titles(ItemDao.search("50%", 10)));
+        assertEquals(List.of("a_b"), titles(ItemDao.search("a_b", 10)));
+        assertEquals(List.of("C:\\dane"), titles(ItemDao.search("C:\\", 10)));
+        assertEquals(List.of("Rabat 50%", "Rabat 500"), titles(ItemDao.search("rabat 50", 10)));
+    }
+
+    @Test
+    void queryTreatsWildcardsLiterally() {
+        assertEquals(List.of("Rabat 50%"), titles(storage.items().query(new ItemQuery().containing("50%"))));
+        assertEquals(List.of("a_b"), titles(storage.items().query(new ItemQuery().containing("a_b"))));
+        assertEquals(List.of("C:\\dane"), titles(storage.items().query(new ItemQuery().containing("\\d"))));
+    }
+}
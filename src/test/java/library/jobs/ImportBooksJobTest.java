@@ -0,0 +1,82 @@
+package library.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import library.config.LibraryConfig;
+import library.model.Book;
+import library.repository.memory.InMemoryStorage;
+
+class ImportBooksJobTest {
+
+    @TempDir
+    Path dir;
+
+    private String batchSize;
+    private String dedupe;
+
+    @BeforeEach
+    void configure() {
+        batchSize = LibraryConfig.get(LibraryConfig.IMPORT_BATCH_SIZE);
+        dedupe = LibraryConfig.get(LibraryConfig.IMPORT_DEDUPE);
+        LibraryConfig.set(LibraryConfig.IMPORT_BATCH_SIZE, "2");
+        LibraryConfig.set(LibraryConfig.IMPORT_DEDUPE, "off");
+    }
+
+    @AfterEach
+    void restore() {
+        LibraryConfig.set(LibraryConfig.IMPORT_BATCH_SIZE, batchSize);
+        LibraryConfig.set(LibraryConfig.IMPORT_DEDUPE, dedupe);
+    }
+
+    private static String row(UUID uuid, String title, String year) {
+        return "Book;" + uuid + ";" + title + ";Autor;" + year + ";Powieść;true;null";
+    }
+
+    @Test
+    void resumedImportCountsRowsFromEveryRun() throws IOException, InterruptedException {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("type;uuid;title;author;year;genre;available;borrower");
+        for (int i = 0; i < 5; i++) {
+            lines.add(row(ids.get(i), "Tytuł " + i, i == 3 ? "bad" : "2001"));
+        }
+        Path file = dir.resolve("books.csv");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        InMemoryStorage storage = new InMemoryStorage();
+        storage.items().save(new Book(ids.get(0), "Tytuł 0", 2001, "Autor", "Powieść", true, null));
+        JobManager manager = new JobManager(1, 1);
+        ImportBooksJob job = new ImportBooksJob(storage, file.toString(), false);
+        assertTrue(manager.submit(job));
+        JobManagerTest.awaitFinished(manager);
+        assertEquals(Job.State.FAILED, job.getState());
+        assertEquals(2, job.getRows());
+
+        lines.set(4, row(ids.get(3), "Tytuł 3", "2001"));
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        assertTrue(manager.resume(job.getId()));
+        JobManagerTest.awaitFinished(manager);
+
+        assertEquals(Job.State.DONE, job.getState());
+        assertEquals(5, storage.items().count());
+        assertTrue(job.getMessage().startsWith("Zaimportowano 4 nowych książek (pominięto 1 istniejących"),
+                job.getMessage());
+    }
+}
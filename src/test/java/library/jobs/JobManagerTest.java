@@ -0,0 +1,82 @@
+package library.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class JobManagerTest {
+
+    /** Czeka, aż wykonawca zgłosi zakończenie co najmniej jednego zadania */
+    static List<Job> awaitFinished(JobManager manager) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<Job> done = new ArrayList<>();
+        while (done.isEmpty() && System.nanoTime() < deadline) {
+            done.addAll(manager.drainFinished());
+            if (done.isEmpty()) Thread.sleep(10);
+        }
+        return done;
+    }
+
+    private static Job job(String name, Callable body) {
+        return new Job(name) {
+            @Override
+            protected String execute() throws Exception {
+                return body.call();
+            }
+        };
+    }
+
+    private interface Callable {
+        String call() throws Exception;
+    }
+
+    @Test
+    void failedJobIsReported() throws InterruptedException {
+        JobManager manager = new JobManager(1, 1);
+        Job failing = job("błąd", () -> {
+            throw new IllegalStateException("awaria");
+        });
+        assertTrue(manager.submit(failing));
+
+        List<Job> done = awaitFinished(manager);
+        assertEquals(List.of(failing), done);
+        assertEquals(Job.State.FAILED, failing.getState());
+        assertEquals("awaria", failing.getMessage());
+    }
+
+    @Test
+    void rejectedResumeIsReported() throws InterruptedException {
+        JobManager manager = new JobManager(1, 1);
+        Job failing = job("błąd", () -> {
+            throw new IllegalStateException("awaria");
+        });
+        assertTrue(manager.submit(failing));
+        assertEquals(List.of(failing), awaitFinished(manager));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Job blocking = job("blokuje", () -> {
+            started.countDown();
+            release.await();
+            return "ok";
+        });
+        try {
+            assertTrue(manager.submit(blocking));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(manager.submit(job("w kolejce", () -> "ok")));
+
+            assertFalse(manager.resume(failing.getId()));
+            assertEquals(Job.State.CANCELLED, failing.getState());
+            assertEquals(List.of(failing), manager.drainFinished());
+        } finally {
+            release.countDown();
+        }
+    }
+}
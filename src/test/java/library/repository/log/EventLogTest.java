@@ -0,0 +1,133 @@
+package library.repository.log;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysAppendedEventsInOrder() throws IOException {
+        write("a", "b", "c");
+
+        List<String> replayed = new ArrayList<>();
+        long next = EventLog.replay(dir, 1, p -> replayed.add(text(p)));
+
+        assertEquals(List.of("a", "b", "c"), replayed);
+        assertEquals(4, next);
+    }
+
+    @Test
+    void replaySkipsEventsBeforeStartLsn() throws IOException {
+        write("a", "b", "c");
+
+        List<String> replayed = new ArrayList<>();
+        EventLog.replay(dir, 3, p -> replayed.add(text(p)));
+
+        assertEquals(List.of("c"), replayed);
+    }
+
+    @Test
+    void tornTailIsTruncatedAndLogContinues() throws IOException {
+        write("a", "b");
+        Path segment = lastSegment();
+        long validSize = Files.size(segment);
+        // nagłówek ramki zapowiada 100 bajtów, zapisano tylko część
+        ByteBuffer torn = ByteBuffer.allocate(8 + 10).putInt(100).putInt(12345);
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+
+        List<String> replayed = new ArrayList<>();
+        long next = EventLog.replay(dir, 1, p -> replayed.add(text(p)));
+
+        assertEquals(List.of("a", "b"), replayed);
+        assertEquals(3, next);
+        assertEquals(validSize, Files.size(segment));
+
+        EventLog log = new EventLog(dir, next, false, 0);
+        log.awaitDurable(log.append(bytes("c")));
+        log.close();
+        replayed.clear();
+        EventLog.replay(dir, 1, p -> replayed.add(text(p)));
+        assertEquals(List.of("a", "b", "c"), replayed);
+    }
+
+    @Test
+    void corruptedLastEventIsDropped() throws IOException {
+        write("a", "b", "c");
+        Path segment = lastSegment();
+        byte[] content = Files.readAllBytes(segment);
+        content[content.length - 1] ^= 0x7f;
+        Files.write(segment, content);
+
+        List<String> replayed = new ArrayList<>();
+        long next = EventLog.replay(dir, 1, p -> replayed.add(text(p)));
+
+        assertEquals(List.of("a", "b"), replayed);
+        assertEquals(3, next);
+    }
+
+    @Test
+    void replayCrossesRotatedSegments() throws IOException {
+        EventLog log = new EventLog(dir, 1, false, 0);
+        log.append(bytes("a"));
+        log.rotate();
+        log.awaitDurable(log.append(bytes("b")));
+        log.close();
+
+        List<byte[]> replayed = new ArrayList<>();
+        long next = EventLog.replay(dir, 1, replayed::add);
+
+        assertEquals(2, EventLog.segments(dir).size());
+        assertEquals(2, replayed.size());
+        assertArrayEquals(bytes("b"), replayed.get(1));
+        assertEquals(3, next);
+    }
+
+    @Test
+    void rejectsPayloadThatCannotBeReplayed() throws IOException {
+        EventLog log = new EventLog(dir, 1, false, 0);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> log.append(new byte[16 * 1024 * 1024 + 1]));
+        } finally {
+            log.close();
+        }
+    }
+
+    private void write(String... events) throws IOException {
+        EventLog log = new EventLog(dir, 1, false, 0);
+        long lsn = 0;
+        for (String event : events) {
+            lsn = log.append(bytes(event));
+        }
+        log.awaitDurable(lsn);
+        log.close();
+    }
+
+    private Path lastSegment() throws IOException {
+        List<EventLog.Segment> segments = EventLog.segments(dir);
+        return segments.get(segments.size() - 1).path;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package library.repository.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import library.model.Book;
+import library.model.Item;
+
+class LogStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void stateSurvivesSnapshotAndReplay() throws IOException {
+        LogStorage storage = open();
+        Book kept = book("Przed migawką");
+        Book removed = book("Usunięta");
+        storage.items().save(kept);
+        storage.items().save(removed);
+        storage.snapshot();
+        Book after = book("Po migawce");
+        storage.items().save(after);
+        storage.items().delete(removed.getUuid());
+        assertTrue(storage.items().borrowItem(kept.getUuid().toString(), "jan"));
+        storage.close();
+
+        LogStorage reopened = open();
+        try {
+            assertEquals(2, reopened.items().count());
+            assertFalse(reopened.items().getByUuid(removed.getUuid()).isPresent());
+            assertTrue(reopened.items().getByUuid(after.getUuid()).isPresent());
+            Item loaned = reopened.items().getByUuid(kept.getUuid()).orElseThrow();
+            assertEquals("jan", loaned.getLoanedTo());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void committedTransactionIsReplayed() {
+        LogStorage storage = open();
+        List<Book> books = List.of(book("A"), book("B"), book("C"));
+        storage.beginTransaction();
+        books.forEach(storage.items()::save);
+        storage.commitTransaction();
+        storage.close();
+
+        LogStorage reopened = open();
+        try {
+            assertEquals(3, reopened.items().count());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void rolledBackTransactionLeavesNoEvents() {
+        LogStorage storage = open();
+        storage.beginTransaction();
+        storage.items().save(book("Wycofana"));
+        storage.rollbackTransaction();
+        assertEquals(0, storage.items().count());
+        storage.close();
+
+        LogStorage reopened = open();
+        try {
+            assertEquals(0, reopened.items().count());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void tornTransactionIsReplayedAllOrNothing() throws IOException {
+        LogStorage storage = open();
+        Book before = book("Przed transakcją");
+        storage.items().save(before);
+        storage.beginTransaction();
+        storage.items().save(book("A"));
+        storage.items().save(book("B"));
+        storage.items().save(book("C"));
+        storage.commitTransaction();
+        storage.close();
+
+        // awaria w trakcie zapisu ostatniej ramki - brakuje jej końca
+        List<EventLog.Segment> segments = EventLog.segments(dir);
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(segments.size() - 1).path.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        LogStorage reopened = open();
+        try {
+            assertEquals(1, reopened.items().count());
+            assertTrue(reopened.items().getByUuid(before.getUuid()).isPresent());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private LogStorage open() {
+        return new LogStorage(dir, false, 0, 1_000_000);
+    }
+
+    private static Book book(String title) {
+        return new Book(UUID.randomUUID(), title, 2000, "Autor", "Powieść", true, null);
+    }
+}
@@ -0,0 +1,96 @@
+package library.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import library.model.Book;
+import library.model.Magazine;
+import library.repository.Storage;
+import library.repository.memory.InMemoryStorage;
+
+class AutocompleteIndexTest {
+
+    @Test
+    void completesTitlesBeforeAuthorsIgnoringCase() {
+        AutocompleteIndex index = new AutocompleteIndex();
+        Book lalka = book("Lalka", "Bolesław Prus");
+        Book prus = book("Faraon", "Bolesław Prus");
+        Book boleslaw = book("Bolesław Chrobry", "Anonim");
+        index.putItem(lalka);
+        index.putItem(prus);
+        index.putItem(boleslaw);
+
+        assertEquals(List.of(boleslaw.getUuid(), lalka.getUuid(), prus.getUuid()), uuids(index.completeItems("BOLE", 10)));
+        assertEquals(List.of(lalka.getUuid()), uuids(index.completeItems("lal", 10)));
+        assertEquals(List.of("bolesław prus"), index.completeAuthors("b", 10));
+    }
+
+    @Test
+    void updatedItemIsFoundOnlyUnderNewTitle() {
+        AutocompleteIndex index = new AutocompleteIndex();
+        UUID uuid = UUID.randomUUID();
+        index.putItem(new Book(uuid, "Stary tytuł", 2000, "Autor", "Powieść", true, null));
+        index.putItem(new Book(uuid, "Nowy tytuł", 2000, "Autor", "Powieść", true, null));
+
+        assertEquals(List.of(), index.completeItems("stary", 10));
+        assertEquals(List.of(uuid), uuids(index.completeItems("nowy", 10)));
+        assertEquals(1, index.itemCount());
+
+        index.removeItem(uuid);
+        assertEquals(List.of(), index.completeItems("nowy", 10));
+        assertEquals(List.of(), index.completeAuthors("autor", 10));
+        assertEquals(0, index.itemCount());
+    }
+
+    @Test
+    void magazineHasNoAuthor() {
+        AutocompleteIndex index = new AutocompleteIndex();
+        Magazine magazine = new Magazine(UUID.randomUUID(), "Wiedza i Życie", 2020, 3, true, null);
+        index.putItem(magazine);
+
+        assertEquals(List.of(magazine.getUuid()), uuids(index.completeItems("wiedza", 10)));
+        assertEquals(List.of(), index.completeAuthors("", 10));
+    }
+
+    @Test
+    void completesUsernamesInOriginalSpelling() {
+        AutocompleteIndex index = new AutocompleteIndex();
+        index.putUsername("JanK");
+        index.putUsername("janina");
+        index.putUsername("ewa");
+
+        assertEquals(List.of("janina", "JanK"), index.completeUsernames("jan", 10));
+        index.removeUsername("JanK");
+        assertEquals(List.of("janina"), index.completeUsernames("JAN", 10));
+        assertEquals(2, index.usernameCount());
+    }
+
+    @Test
+    void openIndexesWholeCatalogAcrossPages() {
+        Storage storage = new InMemoryStorage();
+        int count = 25_000;
+        for (int i = 0; i < count; i++) {
+            storage.items().save(book("Tytuł " + i, "Autor " + (i % 100)));
+        }
+        storage.users().addUser("czytelnik", "Jan Czytelnik", "haslo");
+
+        IndexedStorage indexed = IndexedStorage.open(storage);
+
+        assertEquals(count, indexed.index().itemCount());
+        assertEquals(List.of("czytelnik"), indexed.index().completeUsernames("czyt", 10));
+        assertEquals(1, indexed.index().completeItems("tytuł 24999", 10).size());
+    }
+
+    private static Book book(String title, String author) {
+        return new Book(UUID.randomUUID(), title, 2000, author, "Powieść", true, null);
+    }
+
+    private static List<UUID> uuids(List<AutocompleteIndex.ItemRef> refs) {
+        return refs.stream().map(ref -> ref.uuid).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package library.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import library.model.Book;
+import library.repository.Storage;
+import library.repository.memory.InMemoryStorage;
+
+class DuplicateDetectorTest {
+
+    private final Storage storage = new InMemoryStorage();
+
+    @Test
+    void findsSpellingVariantOfSameBook() {
+        Book original = save("Pan Tadeusz czyli ostatni zajazd na Litwie", "Adam Mickiewicz", 1834);
+        DuplicateDetector detector = DuplicateDetector.build(storage, DuplicateDetector.DEFAULT_THRESHOLD);
+
+        Optional<DuplicateDetector.Match> exact = detector.find("PAN TADEUSZ czyli ostatni zajazd na Litwie",
+                "Adam Mickiewicz", 1834);
+        assertEquals(original.getUuid(), exact.orElseThrow().uuid);
+        assertEquals(1.0, exact.get().similarity, 1e-9);
+
+        Optional<DuplicateDetector.Match> typo = detector.find("Pan Tadeusz czyli ostatni zajazd na Litwe",
+                "Adam Mickiewcz", 1834);
+        assertEquals(original.getUuid(), typo.orElseThrow().uuid);
+        assertTrue(typo.get().similarity >= DuplicateDetector.DEFAULT_THRESHOLD && typo.get().similarity < 1.0);
+    }
+
+    @Test
+    void differentYearVolumeOrTitleIsNotDuplicate() {
+        save("Ogniem i mieczem tom 1", "Henryk Sienkiewicz", 1884);
+        DuplicateDetector detector = DuplicateDetector.build(storage, DuplicateDetector.DEFAULT_THRESHOLD);
+
+        assertTrue(detector.find("Ogniem i mieczem tom 1", "Henryk Sienkiewicz", 1990).isEmpty());
+        assertTrue(detector.find("Ogniem i mieczem tom 2", "Henryk Sienkiewicz", 1884).isEmpty());
+        assertTrue(detector.find("Potop", "Henryk Sienkiewicz", 1884).isEmpty());
+    }
+
+    @Test
+    void addedItemIsFoundByLaterRows() {
+        DuplicateDetector detector = new DuplicateDetector(storage, DuplicateDetector.DEFAULT_THRESHOLD);
+        assertTrue(detector.find("Lalka", "Bolesław Prus", 1890).isEmpty());
+
+        Book lalka = save("Lalka", "Bolesław Prus", 1890);
+        detector.add(lalka.getUuid(), lalka.getTitle(), lalka.getAuthor(), lalka.getYear());
+
+        assertEquals(lalka.getUuid(), detector.find("Lalka", "Boleslaw Prus", 1890).orElseThrow().uuid);
+        assertEquals(1, detector.size());
+    }
+
+    @Test
+    void deletedItemIsNotReported() {
+        Book lalka = save("Lalka", "Bolesław Prus", 1890);
+        DuplicateDetector detector = DuplicateDetector.build(storage, DuplicateDetector.DEFAULT_THRESHOLD);
+        storage.items().delete(lalka.getUuid());
+
+        assertTrue(detector.find("Lalka", "Bolesław Prus", 1890).isEmpty());
+    }
+
+    @Test
+    void buildReadsWholeCatalogAndPicksMostSimilar() {
+        for (int i = 0; i < 12_000; i++) {
+            save("Pozycja katalogowa numer " + i, "Autor " + (i % 50), 2000);
+        }
+        Book closer = save("Kroniki dawnego miasta nad rzeką", "Jan Kowalski", 2001);
+        save("Kroniki dawnego miasta nad rzeka Wisłą", "Jan Kowalski", 2001);
+        DuplicateDetector detector = DuplicateDetector.build(storage, 0.6);
+
+        assertEquals(12_002, detector.size());
+        assertEquals(closer.getUuid(),
+                detector.find("Kroniki dawnego miasta nad rzeką", "Jan Kowalski", 2001).orElseThrow().uuid);
+    }
+
+    @Test
+    void jaccardOfSortedTrigramSets() {
+        long[] a = TrigramIndex.trigrams(TrigramIndex.fold("kot"));
+        long[] b = TrigramIndex.trigrams(TrigramIndex.fold("kot ala"));
+        assertEquals(1.0, DuplicateDetector.jaccard(a, a), 1e-9);
+        assertEquals((double) a.length / b.length, DuplicateDetector.jaccard(a, b), 1e-9);
+        assertEquals(0.0, DuplicateDetector.jaccard(a, TrigramIndex.trigrams("xyz")), 1e-9);
+    }
+
+    private Book save(String title, String author, int year) {
+        Book book = new Book(UUID.randomUUID(), title, year, author, "Powieść", true, null);
+        storage.items().save(book);
+        return book;
+    }
+}
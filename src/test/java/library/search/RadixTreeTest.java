@@ -0,0 +1,99 @@
+package library.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class RadixTreeTest {
+
+    @Test
+    void completesPrefixInLexicographicOrder() {
+        RadixTree<Integer> tree = new RadixTree<>();
+        tree.add("romans", 1);
+        tree.add("rom", 2);
+        tree.add("romantyzm", 3);
+        tree.add("rower", 4);
+        tree.add("auto", 5);
+
+        assertEquals(List.of("rom", "romans", "romantyzm", "rower"), tree.keysWithPrefix("r", 10));
+        assertEquals(List.of("rom", "romans"), tree.keysWithPrefix("rom", 2));
+        assertEquals(List.of(), tree.keysWithPrefix("x", 10));
+        assertEquals(5, tree.size());
+    }
+
+    @Test
+    void keepsValuesOfOneKeyInInsertionOrder() {
+        RadixTree<String> tree = new RadixTree<>();
+        tree.add("kot", "b");
+        tree.add("kot", "a");
+        tree.add("kot", "b");
+        tree.add("koty", "c");
+
+        assertEquals(Set.of("a", "b"), tree.get("kot"));
+        assertEquals(List.of("b", "a", "c"), tree.valuesWithPrefix("ko", 10));
+        assertEquals(List.of("b", "a"), tree.valuesWithPrefix("ko", 2));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    void removeSplitsAndMergesNodes() {
+        RadixTree<Integer> tree = new RadixTree<>();
+        tree.add("test", 1);
+        tree.add("team", 2);
+        tree.add("te", 3);
+
+        assertTrue(tree.remove("te", 3));
+        assertFalse(tree.remove("te", 3));
+        assertFalse(tree.remove("tes", 1));
+        assertEquals(Set.of(), tree.get("te"));
+        assertEquals(List.of("team", "test"), tree.keysWithPrefix("t", 10));
+
+        assertTrue(tree.remove("team", 2));
+        assertEquals(List.of("test"), tree.keysWithPrefix("te", 10));
+        assertEquals(Set.of(1), tree.get("test"));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void matchesSortedMapOnRandomOperations() {
+        RadixTree<Integer> tree = new RadixTree<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                Integer value = expected.remove(key);
+                assertEquals(value != null, value != null && tree.remove(key, value), key);
+            } else if (!expected.containsKey(key)) {
+                expected.put(key, i);
+                tree.add(key, i);
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+        for (String prefix : List.of("", "a", "ab", "ba", "cab", "ccc")) {
+            List<String> keys = new ArrayList<>();
+            for (String key : expected.tailMap(prefix).keySet()) {
+                if (!key.startsWith(prefix)) break;
+                keys.add(key);
+            }
+            assertEquals(keys, tree.keysWithPrefix(prefix, Integer.MAX_VALUE), prefix);
+        }
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package library.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import library.model.Book;
+
+class TrigramIndexTest {
+
+    @Test
+    void foldRemovesDiacriticsAndCase() {
+        assertEquals("lodz", TrigramIndex.fold("Łódź"));
+        assertEquals("zazolc gesla jazn", TrigramIndex.fold("ZAŻÓŁĆ gęślą jaźń"));
+    }
+
+    @Test
+    void findsTitleDespiteTyposAndMissingDiacritics() {
+        TrigramIndex index = new TrigramIndex();
+        Book pan = book("Pan Tadeusz", "Adam Mickiewicz");
+        index.putItem(pan);
+        index.putItem(book("Lalka", "Bolesław Prus"));
+        index.putItem(book("Quo vadis", "Henryk Sienkiewicz"));
+
+        assertEquals(pan.getUuid(), index.search("pan tadeus", 5).get(0).uuid);
+        assertEquals(pan.getUuid(), index.search("mickiewicz", 5).get(0).uuid);
+        assertEquals(1, index.search("Boleslaw", 5).size());
+        assertTrue(index.search("zupełnie coś innego", 5).isEmpty());
+    }
+
+    @Test
+    void exactMatchScoresOneAndRanksFirst() {
+        TrigramIndex index = new TrigramIndex();
+        Book exact = book("Ogniem i mieczem", "Sienkiewicz");
+        index.putItem(book("Ogniem i mieczem. Tom 2", "Sienkiewicz"));
+        index.putItem(exact);
+
+        List<TrigramIndex.Hit> hits = index.search("ogniem i mieczem", 5);
+        assertEquals(exact.getUuid(), hits.get(0).uuid);
+        assertEquals(1.0, hits.get(0).score, 1e-9);
+        assertEquals(2, hits.size());
+    }
+
+    @Test
+    void removedAndReplacedItemsAreNotFoundByOldText() {
+        TrigramIndex index = new TrigramIndex();
+        UUID uuid = UUID.randomUUID();
+        index.putItem(new Book(uuid, "Stary tytuł", 2000, "Autor", "Powieść", true, null));
+        index.putItem(new Book(uuid, "Nowa nazwa", 2000, "Autor", "Powieść", true, null));
+
+        assertTrue(index.search("stary tytul", 5, 0.5).isEmpty());
+        assertEquals(uuid, index.search("nowa nazwa", 5).get(0).uuid);
+
+        index.removeItem(uuid);
+        assertTrue(index.search("nowa nazwa", 5).isEmpty());
+        assertEquals(0, index.itemCount());
+    }
+
+    @Test
+    void resultsMatchFullScanAfterManyQueriesAndCompaction() {
+        TrigramIndex index = new TrigramIndex();
+        Random random = new Random(3);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 12_000; i++) {
+            Book b = book(randomTitle(random), "Autor " + random.nextInt(500));
+            books.add(b);
+            index.putItem(b);
+        }
+        // usunięcia ponad próg przebudowy numeracji dokumentów
+        for (int i = 0; i < 7_000; i++) {
+            index.removeItem(books.get(i).getUuid());
+        }
+        List<Book> live = books.subList(7_000, books.size());
+        for (int i = 0; i < 200; i++) {
+            Book target = live.get(random.nextInt(live.size()));
+            List<TrigramIndex.Hit> hits = index.search(target.getTitle(), 3);
+            assertTrue(!hits.isEmpty() && hits.get(0).score == 1.0, target.getTitle());
+            assertEquals(expectedCount(live, target.getTitle()), index.search(target.getTitle(), 10_000).size());
+        }
+    }
+
+    @Test
+    void concurrentSearchesDoNotShareCounts() throws Exception {
+        TrigramIndex index = new TrigramIndex();
+        Random random = new Random(5);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Book b = book(randomTitle(random), "Autor");
+            books.add(b);
+            index.putItem(b);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    Random r = new Random(seed);
+                    for (int i = 0; i < 300; i++) {
+                        String title = books.get(r.nextInt(books.size())).getTitle();
+                        assertEquals(1.0, index.search(title, 1).get(0).score, 1e-9, title);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Liczba pozycji o podobieństwie tytułu lub autora co najmniej domyślnym progu (pełny przegląd) */
+    private static int expectedCount(List<Book> books, String query) {
+        long[] q = TrigramIndex.trigrams(TrigramIndex.fold(query));
+        int count = 0;
+        for (Book b : books) {
+            if (jaccard(q, b.getTitle()) >= TrigramIndex.DEFAULT_THRESHOLD
+                    || jaccard(q, b.getAuthor()) >= TrigramIndex.DEFAULT_THRESHOLD) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double jaccard(long[] q, String text) {
+        long[] d = TrigramIndex.trigrams(TrigramIndex.fold(text));
+        int shared = 0;
+        for (long a : q) {
+            for (long b : d) {
+                if (a == b) {
+                    shared++;
+                    break;
+                }
+            }
+        }
+        return (double) shared / (q.length + d.length - shared);
+    }
+
+    private static String randomTitle(Random random) {
+        String[] words = {"noc", "dzień", "zamek", "rzeka", "las", "miasto", "wojna", "pokój", "król", "sen"};
+        StringBuilder sb = new StringBuilder();
+        int n = 2 + random.nextInt(3);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(words[random.nextInt(words.length)]);
+        }
+        return sb.append(' ').append(random.nextInt(1000)).toString();
+    }
+
+    private static Book book(String title, String author) {
+        return new Book(UUID.randomUUID(), title, 2000, author, "Powieść", true, null);
+    }
+}
@@ -0,0 +1,93 @@
+package library.session;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import library.exceptions.RateLimitedException;
+import library.session.AdmissionController.Operation;
+import library.session.AdmissionController.Permit;
+
+class AdmissionControllerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstIsAdmittedThenThrottled() {
+        AdmissionController admission = new AdmissionController(10, 0, 0, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, admission.acquire("jan", Operation.READ, 0));
+        }
+        long wait = admission.acquire("jan", Operation.READ, 0);
+        assertTrue(wait > 0 && wait <= SECOND / 10, "wait = " + wait);
+    }
+
+    @Test
+    void tokenReturnsAfterInterval() {
+        AdmissionController admission = new AdmissionController(10, 0, 0, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            admission.acquire("jan", Operation.READ, 0);
+        }
+        long wait = admission.acquire("jan", Operation.READ, 0);
+        assertEquals(0, admission.acquire("jan", Operation.READ, wait));
+        assertTrue(admission.acquire("jan", Operation.READ, wait) > 0);
+    }
+
+    @Test
+    void accountsAndOperationsHaveSeparateBuckets() {
+        AdmissionController admission = new AdmissionController(1, 1, 1, 1, 0);
+        assertEquals(0, admission.acquire("jan", Operation.READ, 0));
+        assertTrue(admission.acquire("jan", Operation.READ, 0) > 0);
+        assertEquals(0, admission.acquire("jan", Operation.SEARCH, 0));
+        assertEquals(0, admission.acquire("ewa", Operation.READ, 0));
+    }
+
+    @Test
+    void zeroRateMeansNoLimit() {
+        AdmissionController admission = new AdmissionController(0, 0, 0, 1, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, admission.acquire("jan", Operation.WRITE, 0));
+        }
+    }
+
+    @Test
+    void patronWritesShareLimitedSlots() throws RateLimitedException {
+        AdmissionController admission = new AdmissionController(0, 0, 0, 1, 1);
+        Permit first = admission.admit(patron("jan"), Operation.WRITE);
+        RateLimitedException e = assertThrows(RateLimitedException.class,
+                () -> admission.admit(patron("ewa"), Operation.WRITE));
+        assertTrue(e.getRetryAfterMillis() > 0);
+        assertDoesNotThrow(() -> admission.admit(patron("ewa"), Operation.READ).close());
+
+        first.close();
+        first.close();
+        Permit second = admission.admit(patron("ewa"), Operation.WRITE);
+        assertThrows(RateLimitedException.class, () -> admission.admit(patron("jan"), Operation.WRITE));
+        second.close();
+    }
+
+    @Test
+    void librarianIsNeverLimited() {
+        AdmissionController admission = new AdmissionController(1, 1, 1, 1, 1);
+        Session desk = new Session("t", "admin", "librarian", System.nanoTime());
+        for (int i = 0; i < 100; i++) {
+            assertDoesNotThrow(() -> admission.admit(desk, Operation.WRITE));
+        }
+    }
+
+    @Test
+    void rateLimitIsReportedToPatron() throws RateLimitedException {
+        AdmissionController admission = new AdmissionController(0, 0, 1, 1, 0);
+        admission.admit(patron("jan"), Operation.WRITE).close();
+        assertThrows(RateLimitedException.class, () -> admission.admit(patron("jan"), Operation.WRITE));
+    }
+
+    private static Session patron(String username) {
+        return new Session("token-" + username, username, "user", System.nanoTime());
+    }
+}
@@ -0,0 +1,122 @@
+package library.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class SessionManagerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void tokenResolvesToSessionUntilClosed() {
+        SessionManager sessions = new SessionManager(HOUR, HOUR);
+        Session jan = sessions.open("jan", "user");
+        Session admin = sessions.open("admin", "librarian");
+
+        assertNotEquals(jan.getToken(), admin.getToken());
+        assertSame(jan, sessions.get(jan.getToken()).orElseThrow());
+        assertTrue(admin.isLibrarian());
+        assertTrue(sessions.get("nieznany").isEmpty());
+        assertTrue(sessions.get(null).isEmpty());
+
+        sessions.close(jan.getToken());
+        assertTrue(sessions.get(jan.getToken()).isEmpty());
+        assertEquals(1, sessions.size());
+    }
+
+    @Test
+    void closeAllClosesOnlyThatAccount() {
+        SessionManager sessions = new SessionManager(HOUR, HOUR);
+        Session first = sessions.open("jan", "user");
+        Session second = sessions.open("jan", "user");
+        Session other = sessions.open("ewa", "user");
+
+        assertEquals(2, sessions.closeAll("jan"));
+        assertTrue(sessions.get(first.getToken()).isEmpty());
+        assertTrue(sessions.get(second.getToken()).isEmpty());
+        assertTrue(sessions.get(other.getToken()).isPresent());
+    }
+
+    @Test
+    void expiredSessionIsRejectedBeforeWheelRemovesIt() throws InterruptedException {
+        SessionManager sessions = new SessionManager(TimeUnit.MILLISECONDS.toNanos(1), HOUR);
+        Session jan = sessions.open("jan", "user");
+        Thread.sleep(5);
+
+        assertTrue(sessions.get(jan.getToken()).isEmpty());
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void wheelRemovesSessionsAfterDeadline() {
+        SessionManager sessions = new SessionManager(2 * SECOND, 2 * SECOND);
+        long now = System.nanoTime();
+        sessions.open("jan", "user");
+        sessions.advance(now);
+        assertEquals(1, sessions.size());
+
+        sessions.advance(now + 4 * SECOND);
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void usedSessionIsRescheduledNotExpired() {
+        SessionManager sessions = new SessionManager(HOUR, 2 * SECOND);
+        long now = System.nanoTime();
+        Session jan = sessions.open("jan", "user");
+        sessions.advance(now);
+        jan.touch(now + 3 * SECOND);
+
+        sessions.advance(now + 4 * SECOND);
+        assertEquals(1, sessions.size());
+
+        sessions.advance(now + 7 * SECOND);
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void closedSessionIsDroppedFromWheel() {
+        SessionManager sessions = new SessionManager(2 * SECOND, 2 * SECOND);
+        long now = System.nanoTime();
+        Session jan = sessions.open("jan", "user");
+        sessions.close(jan.getToken());
+
+        sessions.advance(now + 4 * SECOND);
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void sessionsOpenedWhileWheelTurnsAreAllExpired() throws InterruptedException {
+        SessionManager sessions = new SessionManager(2 * SECOND, 2 * SECOND);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    sessions.open("czytelnik" + i, "user");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        // ten wątek pełni rolę wątku koła
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            sessions.advance(System.nanoTime());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000, sessions.size());
+
+        sessions.advance(System.nanoTime() + 4 * SECOND);
+        assertEquals(0, sessions.size());
+    }
+}